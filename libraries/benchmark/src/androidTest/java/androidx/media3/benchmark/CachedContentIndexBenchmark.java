@@ -0,0 +1,146 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.benchmark;
+
+import android.content.Context;
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.media3.common.util.Util;
+import androidx.media3.database.StandaloneDatabaseProvider;
+import androidx.media3.datasource.cache.Cache;
+import androidx.media3.datasource.cache.ContentMetadataMutations;
+import androidx.media3.datasource.cache.NoOpCacheEvictor;
+import androidx.media3.datasource.cache.SimpleCache;
+import androidx.test.core.app.ApplicationProvider;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Benchmarks storing and loading the {@link SimpleCache} index, comparing the legacy, database and
+ * log index implementations.
+ */
+@RunWith(Parameterized.class)
+public final class CachedContentIndexBenchmark {
+
+  private static final String INDEX_TYPE_LEGACY = "legacy";
+  private static final String INDEX_TYPE_DATABASE = "database";
+  private static final String INDEX_TYPE_LOG = "log";
+
+  private static final int KEY_COUNT = 2000;
+  private static final String UPDATED_KEY = "updated";
+
+  @Parameters(name = "index={0}")
+  public static List<String> params() {
+    List<String> indexTypes = new ArrayList<>();
+    indexTypes.add(INDEX_TYPE_LEGACY);
+    indexTypes.add(INDEX_TYPE_DATABASE);
+    indexTypes.add(INDEX_TYPE_LOG);
+    return indexTypes;
+  }
+
+  @Parameter public String indexType;
+
+  @Rule public final BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+  private File cacheDir;
+  private StandaloneDatabaseProvider databaseProvider;
+  private SimpleCache simpleCache;
+
+  @Before
+  public void setUp() throws Exception {
+    Context context = ApplicationProvider.getApplicationContext();
+    cacheDir = Util.createTempDirectory(context, "CachedContentIndexBenchmark");
+    databaseProvider = new StandaloneDatabaseProvider(context);
+    simpleCache = createSimpleCache();
+    for (int i = 0; i < KEY_COUNT; i++) {
+      setContentLength("key" + i, /* contentLength= */ i);
+    }
+  }
+
+  @After
+  public void tearDown() {
+    simpleCache.release();
+    databaseProvider.close();
+    Util.recursiveDelete(cacheDir);
+  }
+
+  /** Updates the metadata of a single resource, which stores the index. */
+  @Test
+  public void updateResource() throws Exception {
+    BenchmarkState state = benchmarkRule.getState();
+    long contentLength = 0;
+    while (state.keepRunning()) {
+      setContentLength(UPDATED_KEY, contentLength++);
+    }
+  }
+
+  /** Adds and then removes a single resource, each of which stores the index. */
+  @Test
+  public void addAndRemoveResource() throws Exception {
+    BenchmarkState state = benchmarkRule.getState();
+    while (state.keepRunning()) {
+      setContentLength(UPDATED_KEY, /* contentLength= */ 1);
+      simpleCache.removeResource(UPDATED_KEY);
+    }
+  }
+
+  /** Loads the index when initializing the cache. */
+  @Test
+  public void loadIndex() {
+    BenchmarkState state = benchmarkRule.getState();
+    while (state.keepRunning()) {
+      state.pauseTiming();
+      simpleCache.release();
+      state.resumeTiming();
+      simpleCache = createSimpleCache();
+      // Blocks until the cache, including its index, has been initialized.
+      simpleCache.getUid();
+    }
+  }
+
+  @SuppressWarnings("deprecation") // Benchmarking the legacy index.
+  private SimpleCache createSimpleCache() {
+    switch (indexType) {
+      case INDEX_TYPE_LEGACY:
+        return new SimpleCache(cacheDir, new NoOpCacheEvictor());
+      case INDEX_TYPE_DATABASE:
+        return new SimpleCache(cacheDir, new NoOpCacheEvictor(), databaseProvider);
+      case INDEX_TYPE_LOG:
+        return new SimpleCache(
+            cacheDir,
+            new NoOpCacheEvictor(),
+            /* databaseProvider= */ null,
+            /* useLogIndex= */ true);
+      default:
+        throw new IllegalStateException();
+    }
+  }
+
+  private void setContentLength(String key, long contentLength) throws Cache.CacheException {
+    ContentMetadataMutations mutations = new ContentMetadataMutations();
+    ContentMetadataMutations.setContentLength(mutations, contentLength);
+    simpleCache.applyContentMetadataMutations(key, mutations);
+  }
+}
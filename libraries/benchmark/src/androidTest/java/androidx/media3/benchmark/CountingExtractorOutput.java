@@ -0,0 +1,146 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.benchmark;
+
+import static java.lang.Math.min;
+
+import android.util.SparseArray;
+import androidx.annotation.Nullable;
+import androidx.media3.common.C;
+import androidx.media3.common.DataReader;
+import androidx.media3.common.Format;
+import androidx.media3.common.util.ParsableByteArray;
+import androidx.media3.extractor.ExtractorOutput;
+import androidx.media3.extractor.SeekMap;
+import androidx.media3.extractor.TrackOutput;
+import java.io.EOFException;
+import java.io.IOException;
+
+/**
+ * An {@link ExtractorOutput} that counts the bytes and samples it receives without retaining them.
+ *
+ * <p>Unlike {@code FakeExtractorOutput}, which accumulates all sample data so that it can be
+ * dumped, this output reads sample data into a fixed scratch buffer so that the extractor under
+ * test dominates the measured time and allocations.
+ */
+/* package */ final class CountingExtractorOutput implements ExtractorOutput {
+
+  private final SparseArray<CountingTrackOutput> trackOutputs;
+  private final byte[] scratch;
+
+  public CountingExtractorOutput() {
+    trackOutputs = new SparseArray<>();
+    scratch = new byte[64 * 1024];
+  }
+
+  @Override
+  public TrackOutput track(int id, int type) {
+    @Nullable CountingTrackOutput trackOutput = trackOutputs.get(id);
+    if (trackOutput == null) {
+      trackOutput = new CountingTrackOutput(scratch);
+      trackOutputs.put(id, trackOutput);
+    }
+    return trackOutput;
+  }
+
+  @Override
+  public void endTracks() {
+    // Do nothing.
+  }
+
+  @Override
+  public void seekMap(SeekMap seekMap) {
+    // Do nothing.
+  }
+
+  /** Resets the byte and sample counts of all tracks. */
+  public void clearCounts() {
+    for (int i = 0; i < trackOutputs.size(); i++) {
+      trackOutputs.valueAt(i).clearCounts();
+    }
+  }
+
+  /** Returns the total number of sample bytes output across all tracks. */
+  public long getSampleBytes() {
+    long sampleBytes = 0;
+    for (int i = 0; i < trackOutputs.size(); i++) {
+      sampleBytes += trackOutputs.valueAt(i).sampleBytes;
+    }
+    return sampleBytes;
+  }
+
+  /** Returns the total number of samples output across all tracks. */
+  public int getSampleCount() {
+    int sampleCount = 0;
+    for (int i = 0; i < trackOutputs.size(); i++) {
+      sampleCount += trackOutputs.valueAt(i).sampleCount;
+    }
+    return sampleCount;
+  }
+
+  private static final class CountingTrackOutput implements TrackOutput {
+
+    private final byte[] scratch;
+
+    private long sampleBytes;
+    private int sampleCount;
+
+    private CountingTrackOutput(byte[] scratch) {
+      this.scratch = scratch;
+    }
+
+    public void clearCounts() {
+      sampleBytes = 0;
+      sampleCount = 0;
+    }
+
+    @Override
+    public void format(Format format) {
+      // Do nothing.
+    }
+
+    @Override
+    public int sampleData(
+        DataReader input, int length, boolean allowEndOfInput, @SampleDataPart int sampleDataPart)
+        throws IOException {
+      int bytesRead = input.read(scratch, /* offset= */ 0, min(scratch.length, length));
+      if (bytesRead == C.RESULT_END_OF_INPUT) {
+        if (allowEndOfInput) {
+          return C.RESULT_END_OF_INPUT;
+        }
+        throw new EOFException();
+      }
+      sampleBytes += bytesRead;
+      return bytesRead;
+    }
+
+    @Override
+    public void sampleData(ParsableByteArray data, int length, @SampleDataPart int sampleDataPart) {
+      data.skipBytes(length);
+      sampleBytes += length;
+    }
+
+    @Override
+    public void sampleMetadata(
+        long timeUs,
+        @C.BufferFlags int flags,
+        int size,
+        int offset,
+        @Nullable CryptoData cryptoData) {
+      sampleCount++;
+    }
+  }
+}
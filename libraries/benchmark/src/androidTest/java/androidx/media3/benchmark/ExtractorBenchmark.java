@@ -0,0 +1,146 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.benchmark;
+
+import static androidx.media3.common.util.Assertions.checkState;
+
+import android.content.Context;
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.media3.common.util.Log;
+import androidx.media3.extractor.Extractor;
+import androidx.media3.extractor.PositionHolder;
+import androidx.media3.extractor.flac.FlacExtractor;
+import androidx.media3.extractor.mkv.MatroskaExtractor;
+import androidx.media3.extractor.mp3.Mp3Extractor;
+import androidx.media3.extractor.mp4.FragmentedMp4Extractor;
+import androidx.media3.extractor.mp4.Mp4Extractor;
+import androidx.media3.extractor.text.SubtitleParser;
+import androidx.media3.extractor.ts.TsExtractor;
+import androidx.media3.test.utils.ExtractorAsserts.ExtractorFactory;
+import androidx.media3.test.utils.FakeExtractorInput;
+import androidx.media3.test.utils.TestUtil;
+import androidx.test.core.app.ApplicationProvider;
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Benchmarks extracting a complete file from memory with each of the most commonly used {@link
+ * Extractor} implementations.
+ *
+ * <p>Each iteration extracts every sample of the file. The number of input bytes and output samples
+ * per iteration are logged so that the reported time and allocation count can be converted to MB/s
+ * and allocations per sample.
+ */
+@RunWith(Parameterized.class)
+public final class ExtractorBenchmark {
+
+  private static final String TAG = "ExtractorBenchmark";
+
+  @Parameters(name = "{0}")
+  public static ImmutableList<Object[]> params() {
+    return ImmutableList.of(
+        new Object[] {
+          "Mp4Extractor",
+          "media/mp4/sample.mp4",
+          (ExtractorFactory) () -> new Mp4Extractor(SubtitleParser.Factory.UNSUPPORTED)
+        },
+        new Object[] {
+          "FragmentedMp4Extractor",
+          "media/mp4/sample_fragmented.mp4",
+          (ExtractorFactory) () -> new FragmentedMp4Extractor(SubtitleParser.Factory.UNSUPPORTED)
+        },
+        new Object[] {
+          "MatroskaExtractor",
+          "media/mkv/sample.mkv",
+          (ExtractorFactory) () -> new MatroskaExtractor(SubtitleParser.Factory.UNSUPPORTED)
+        },
+        new Object[] {
+          "TsExtractor",
+          "media/ts/sample_h264.ts",
+          (ExtractorFactory) () -> new TsExtractor(SubtitleParser.Factory.UNSUPPORTED)
+        },
+        new Object[] {
+          "Mp3Extractor", "media/mp3/bear-vbr-xing-header.mp3", (ExtractorFactory) Mp3Extractor::new
+        },
+        new Object[] {
+          "FlacExtractor", "media/flac/bear.flac", (ExtractorFactory) FlacExtractor::new
+        });
+  }
+
+  @Parameter(0)
+  public String extractorName;
+
+  @Parameter(1)
+  public String assetPath;
+
+  @Parameter(2)
+  public ExtractorFactory extractorFactory;
+
+  @Rule public final BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+  private byte[] data;
+
+  @Before
+  public void setUp() throws IOException {
+    Context context = ApplicationProvider.getApplicationContext();
+    data = TestUtil.getByteArray(context, assetPath);
+  }
+
+  @Test
+  public void extractFile() throws IOException {
+    FakeExtractorInput input = new FakeExtractorInput.Builder().setData(data).build();
+    CountingExtractorOutput output = new CountingExtractorOutput();
+    PositionHolder positionHolder = new PositionHolder();
+
+    BenchmarkState state = benchmarkRule.getState();
+    while (state.keepRunning()) {
+      state.pauseTiming();
+      input.reset();
+      output.clearCounts();
+      state.resumeTiming();
+
+      Extractor extractor = extractorFactory.create();
+      extractor.init(output);
+      int result = Extractor.RESULT_CONTINUE;
+      while (result != Extractor.RESULT_END_OF_INPUT) {
+        result = extractor.read(input, positionHolder);
+        if (result == Extractor.RESULT_SEEK) {
+          checkState(positionHolder.position <= Integer.MAX_VALUE);
+          input.setPosition((int) positionHolder.position);
+        }
+      }
+      extractor.release();
+    }
+
+    Log.i(
+        TAG,
+        extractorName
+            + ": inputBytes="
+            + data.length
+            + ", sampleBytes="
+            + output.getSampleBytes()
+            + ", samples="
+            + output.getSampleCount());
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.benchmark;
+
+import android.net.Uri;
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.media3.common.util.Util;
+import androidx.media3.exoplayer.dash.manifest.DashManifestParser;
+import androidx.media3.exoplayer.hls.playlist.HlsPlaylistParser;
+import androidx.media3.test.utils.TestUtil;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Benchmarks parsing HLS playlists with {@link HlsPlaylistParser} and DASH manifests with {@link
+ * DashManifestParser}.
+ *
+ * <p>In addition to the small test assets, the benchmarks parse generated live manifests with a
+ * long DVR window, which is the case where manifest refreshes are most expensive.
+ */
+@RunWith(AndroidJUnit4.class)
+public final class ManifestParserBenchmark {
+
+  /** The number of segments in the generated live manifests (~6.7 hours of 6 second segments). */
+  private static final int LIVE_SEGMENT_COUNT = 4000;
+
+  private static final Uri HLS_URI = Uri.parse("https://example.com/playlist.m3u8");
+  private static final Uri DASH_URI = Uri.parse("https://example.com/manifest.mpd");
+
+  @Rule public final BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+  @Test
+  public void parseHlsMediaPlaylist_asset() throws IOException {
+    benchmarkHlsPlaylist(readAsset("media/m3u8/live_low_latency_segments_and_parts"));
+  }
+
+  @Test
+  public void parseHlsMultivariantPlaylist_asset() throws IOException {
+    benchmarkHlsPlaylist(readAsset("media/m3u8/live_low_latency_multivariant"));
+  }
+
+  @Test
+  public void parseHlsMediaPlaylist_longLiveWindow() throws IOException {
+    benchmarkHlsPlaylist(generateLiveHlsMediaPlaylist(LIVE_SEGMENT_COUNT));
+  }
+
+  @Test
+  public void parseDashManifest_asset() throws IOException {
+    benchmarkDashManifest(readAsset("media/mpd/sample_mpd_segment_template"));
+  }
+
+  @Test
+  public void parseDashManifest_longLiveSegmentTimeline() throws IOException {
+    benchmarkDashManifest(generateLiveDashManifest(LIVE_SEGMENT_COUNT));
+  }
+
+  private void benchmarkHlsPlaylist(byte[] playlistBytes) throws IOException {
+    HlsPlaylistParser parser = new HlsPlaylistParser();
+    BenchmarkState state = benchmarkRule.getState();
+    while (state.keepRunning()) {
+      parser.parse(HLS_URI, new ByteArrayInputStream(playlistBytes));
+    }
+  }
+
+  private void benchmarkDashManifest(byte[] manifestBytes) throws IOException {
+    DashManifestParser parser = new DashManifestParser();
+    BenchmarkState state = benchmarkRule.getState();
+    while (state.keepRunning()) {
+      parser.parse(DASH_URI, new ByteArrayInputStream(manifestBytes));
+    }
+  }
+
+  private static byte[] readAsset(String assetPath) throws IOException {
+    return TestUtil.getByteArray(ApplicationProvider.getApplicationContext(), assetPath);
+  }
+
+  private static byte[] generateLiveHlsMediaPlaylist(int segmentCount) {
+    StringBuilder playlist =
+        new StringBuilder()
+            .append("#EXTM3U\n")
+            .append("#EXT-X-VERSION:6\n")
+            .append("#EXT-X-TARGETDURATION:6\n")
+            .append("#EXT-X-MEDIA-SEQUENCE:1000\n")
+            .append("#EXT-X-INDEPENDENT-SEGMENTS\n")
+            .append("#EXT-X-PROGRAM-DATE-TIME:2024-01-01T00:00:00.000Z\n");
+    for (int i = 0; i < segmentCount; i++) {
+      if (i % 150 == 0) {
+        playlist
+            .append("#EXT-X-KEY:METHOD=AES-128,URI=\"https://example.com/key")
+            .append(i / 150)
+            .append("\"\n");
+      }
+      playlist
+          .append("#EXTINF:6.006,\n")
+          .append("#EXT-X-BYTERANGE:")
+          .append(1_000_000 + i)
+          .append('@')
+          .append(1_000_000L * i)
+          .append('\n')
+          .append("segment")
+          .append(1000 + i)
+          .append(".ts\n");
+    }
+    return Util.getUtf8Bytes(playlist.toString());
+  }
+
+  private static byte[] generateLiveDashManifest(int segmentCount) {
+    StringBuilder timeline = new StringBuilder();
+    for (int i = 0; i < segmentCount; i++) {
+      // Alternate durations so that consecutive entries can't be collapsed into a repeat count.
+      timeline
+          .append("<S t=\"")
+          .append(6_000L * i)
+          .append("\" d=\"")
+          .append(i % 2 == 0 ? 6000 : 5999)
+          .append("\"/>\n");
+    }
+    String segmentTemplate =
+        "<SegmentTemplate timescale=\"1000\" media=\"$RepresentationID$/$Time$.m4s\""
+            + " initialization=\"$RepresentationID$/init.mp4\"><SegmentTimeline>"
+            + timeline
+            + "</SegmentTimeline></SegmentTemplate>";
+    String manifest =
+        "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<MPD xmlns=\"urn:mpeg:dash:schema:mpd:2011\" type=\"dynamic\""
+            + " availabilityStartTime=\"2024-01-01T00:00:00Z\" minimumUpdatePeriod=\"PT6S\""
+            + " timeShiftBufferDepth=\"PT7H\" profiles=\"urn:mpeg:dash:profile:isoff-live:2011\">\n"
+            + "<Period id=\"0\" start=\"PT0S\">\n"
+            + "<AdaptationSet mimeType=\"video/mp4\" segmentAlignment=\"true\">\n"
+            + segmentTemplate
+            + "<Representation id=\"v1\" codecs=\"avc1.640028\" bandwidth=\"5000000\""
+            + " width=\"1920\" height=\"1080\"/>\n"
+            + "<Representation id=\"v2\" codecs=\"avc1.64001f\" bandwidth=\"2500000\""
+            + " width=\"1280\" height=\"720\"/>\n"
+            + "</AdaptationSet>\n"
+            + "<AdaptationSet mimeType=\"audio/mp4\" lang=\"en\">\n"
+            + segmentTemplate
+            + "<Representation id=\"a1\" codecs=\"mp4a.40.2\" bandwidth=\"128000\""
+            + " audioSamplingRate=\"48000\"/>\n"
+            + "</AdaptationSet>\n"
+            + "</Period>\n"
+            + "</MPD>\n";
+    return Util.getUtf8Bytes(manifest);
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.benchmark;
+
+import android.content.Context;
+import android.net.Uri;
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.media3.common.util.Log;
+import androidx.media3.datasource.ByteArrayDataSource;
+import androidx.media3.datasource.DataSpec;
+import androidx.media3.extractor.DefaultExtractorInput;
+import androidx.media3.extractor.Extractor;
+import androidx.media3.extractor.PositionHolder;
+import androidx.media3.extractor.mkv.MatroskaExtractor;
+import androidx.media3.extractor.text.SubtitleParser;
+import androidx.media3.test.utils.TestUtil;
+import androidx.test.core.app.ApplicationProvider;
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Benchmarks extracting the Matroska test assets with {@link MatroskaExtractor}.
+ *
+ * <p>Unlike {@link ExtractorBenchmark}, the data is read through a {@link DefaultExtractorInput},
+ * so that the cost of the many small reads made when parsing EBML element headers and block lacing
+ * is included in the measurement.
+ */
+@RunWith(Parameterized.class)
+public final class MatroskaExtractorBenchmark {
+
+  private static final String TAG = "MatroskaExtractorBench";
+
+  @Parameters(name = "{0}")
+  public static ImmutableList<String> params() {
+    return ImmutableList.of(
+        "media/mkv/sample.mkv",
+        "media/mkv/full_blocks.mkv",
+        "media/mkv/sample_with_opus_audio.mkv",
+        "media/mkv/sample_with_vorbis_audio.mkv",
+        "media/mkv/sample_with_srt.mkv");
+  }
+
+  @Parameter public String assetPath;
+
+  @Rule public final BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+  private byte[] data;
+
+  @Before
+  public void setUp() throws IOException {
+    Context context = ApplicationProvider.getApplicationContext();
+    data = TestUtil.getByteArray(context, assetPath);
+  }
+
+  @Test
+  public void extractFile() throws IOException {
+    ByteArrayDataSource dataSource = new ByteArrayDataSource(data);
+    CountingExtractorOutput output = new CountingExtractorOutput();
+    PositionHolder positionHolder = new PositionHolder();
+
+    BenchmarkState state = benchmarkRule.getState();
+    while (state.keepRunning()) {
+      state.pauseTiming();
+      output.clearCounts();
+      state.resumeTiming();
+
+      dataSource.open(new DataSpec(Uri.EMPTY));
+      DefaultExtractorInput input =
+          new DefaultExtractorInput(dataSource, /* position= */ 0, data.length);
+      Extractor extractor = new MatroskaExtractor(SubtitleParser.Factory.UNSUPPORTED);
+      extractor.init(output);
+      int result = Extractor.RESULT_CONTINUE;
+      while (result != Extractor.RESULT_END_OF_INPUT) {
+        result = extractor.read(input, positionHolder);
+        if (result == Extractor.RESULT_SEEK) {
+          dataSource.close();
+          dataSource.open(
+              new DataSpec.Builder()
+                  .setUri(Uri.EMPTY)
+                  .setPosition(positionHolder.position)
+                  .build());
+          input.release();
+          input = new DefaultExtractorInput(dataSource, positionHolder.position, data.length);
+        }
+      }
+      extractor.release();
+      input.release();
+      dataSource.close();
+    }
+
+    Log.i(
+        TAG,
+        assetPath
+            + ": inputBytes="
+            + data.length
+            + ", sampleBytes="
+            + output.getSampleBytes()
+            + ", samples="
+            + output.getSampleCount());
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.benchmark;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.media3.container.NalUnitUtil;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Benchmarks searching for NAL unit start codes with {@link NalUnitUtil} in one second of a
+ * synthetic 20 Mbit/s H.264 elementary stream at 30 frames per second.
+ *
+ * <p>The {@code tsPayloads} benchmark searches the stream in 184 byte chunks, which is how {@code
+ * H264Reader} receives the payloads of transport stream packets. The {@code wholeStream} benchmark
+ * searches the whole stream at once.
+ */
+@RunWith(AndroidJUnit4.class)
+public final class NalUnitUtilBenchmark {
+
+  private static final int BITRATE = 20_000_000;
+  private static final int FRAME_RATE = 30;
+  private static final int SLICES_PER_FRAME = 4;
+  private static final int TS_PAYLOAD_SIZE = 184;
+
+  @Rule public final BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+  private byte[] data;
+  private boolean[] prefixFlags;
+
+  @Before
+  public void setUp() {
+    data = buildH264Stream(new Random(/* seed= */ 0));
+    prefixFlags = new boolean[3];
+  }
+
+  @Test
+  public void findNalUnit_tsPayloads() {
+    BenchmarkState state = benchmarkRule.getState();
+    while (state.keepRunning()) {
+      for (int offset = 0; offset < data.length; offset += TS_PAYLOAD_SIZE) {
+        int limit = Math.min(offset + TS_PAYLOAD_SIZE, data.length);
+        int position = offset;
+        while (position < limit) {
+          position = NalUnitUtil.findNalUnit(data, position, limit, prefixFlags) + 3;
+        }
+      }
+    }
+  }
+
+  @Test
+  public void findNalUnit_wholeStream() {
+    BenchmarkState state = benchmarkRule.getState();
+    while (state.keepRunning()) {
+      int position = 0;
+      while (position < data.length) {
+        position = NalUnitUtil.findNalUnit(data, position, data.length, prefixFlags) + 3;
+      }
+    }
+  }
+
+  /**
+   * Returns a stream of access units, each consisting of an access unit delimiter followed by slice
+   * NAL units with random, emulation prevented payloads.
+   */
+  private static byte[] buildH264Stream(Random random) {
+    int frameSize = BITRATE / 8 / FRAME_RATE;
+    int sliceSize = frameSize / SLICES_PER_FRAME;
+    byte[] data = new byte[frameSize * FRAME_RATE];
+    int position = 0;
+    for (int frame = 0; frame < FRAME_RATE; frame++) {
+      position = writeStartCode(data, position);
+      data[position++] = 0x09; // Access unit delimiter.
+      data[position++] = (byte) 0xF0;
+      for (int slice = 0; slice < SLICES_PER_FRAME; slice++) {
+        position = writeStartCode(data, position);
+        data[position++] = 0x01; // Non-IDR slice.
+        int sliceEnd = Math.min(position + sliceSize - 6, data.length);
+        int zeroCount = 0;
+        while (position < sliceEnd) {
+          byte value = (byte) random.nextInt(256);
+          if (zeroCount == 2 && (value & 0xFC) == 0) {
+            data[position++] = 0x03; // Emulation prevention byte.
+            zeroCount = 0;
+            continue;
+          }
+          data[position++] = value;
+          zeroCount = value == 0 ? zeroCount + 1 : 0;
+        }
+        // A slice never ends with a zero byte.
+        if (data[position - 1] == 0) {
+          data[position - 1] = (byte) 0x80;
+        }
+      }
+    }
+    return data;
+  }
+
+  private static int writeStartCode(byte[] data, int position) {
+    data[position] = 0;
+    data[position + 1] = 0;
+    data[position + 2] = 1;
+    return position + 3;
+  }
+}
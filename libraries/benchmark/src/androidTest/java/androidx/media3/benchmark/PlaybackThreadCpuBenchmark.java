@@ -0,0 +1,182 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.benchmark;
+
+import static androidx.media3.common.util.Assertions.checkNotNull;
+import static androidx.media3.common.util.Assertions.checkState;
+
+import android.content.Context;
+import android.graphics.ImageFormat;
+import android.media.Image;
+import android.media.ImageReader;
+import android.os.ConditionVariable;
+import android.os.Debug;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import androidx.annotation.Nullable;
+import androidx.media3.common.C;
+import androidx.media3.common.MediaItem;
+import androidx.media3.common.Player;
+import androidx.media3.common.util.Log;
+import androidx.media3.exoplayer.ExoPlayer;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.platform.app.InstrumentationRegistry;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Measures the CPU time used by the playback thread of {@link ExoPlayer} during audio-only and
+ * video playback, with and without {@linkplain
+ * ExoPlayer.Builder#experimentalSetDynamicSchedulingEnabled dynamic scheduling}.
+ *
+ * <p>Each run plays for {@link #MEASUREMENT_DURATION_MS} after playback becomes ready, and logs the
+ * CPU time of the playback thread extrapolated to one hour of playback.
+ */
+@RunWith(Parameterized.class)
+public final class PlaybackThreadCpuBenchmark {
+
+  private static final String TAG = "PlaybackThreadCpu";
+  private static final String MEDIA_URI = "asset:///media/mp4/long_1080p_lowbitrate.mp4";
+  private static final long MEASUREMENT_DURATION_MS = 60_000;
+  private static final long TIMEOUT_MS = 10_000;
+  private static final int VIDEO_WIDTH = 1920;
+  private static final int VIDEO_HEIGHT = 1080;
+
+  @Parameters(name = "audioOnly={0}, dynamicScheduling={1}")
+  public static Object[][] params() {
+    return new Object[][] {{true, false}, {true, true}, {false, false}, {false, true}};
+  }
+
+  @Parameter(0)
+  public boolean audioOnly;
+
+  @Parameter(1)
+  public boolean dynamicSchedulingEnabled;
+
+  private HandlerThread playbackThread;
+  private Handler playbackHandler;
+  private HandlerThread imageReaderThread;
+  private ImageReader imageReader;
+  @Nullable private ExoPlayer player;
+
+  @Before
+  public void setUp() {
+    playbackThread =
+        new HandlerThread("PlaybackThreadCpuBenchmark:Playback", Process.THREAD_PRIORITY_AUDIO);
+    playbackThread.start();
+    playbackHandler = new Handler(playbackThread.getLooper());
+    imageReaderThread = new HandlerThread("PlaybackThreadCpuBenchmark:ImageReader");
+    imageReaderThread.start();
+    // Consume the rendered frames so that the decoder is never blocked on the output surface.
+    imageReader =
+        ImageReader.newInstance(
+            VIDEO_WIDTH, VIDEO_HEIGHT, ImageFormat.YUV_420_888, /* maxImages= */ 3);
+    imageReader.setOnImageAvailableListener(
+        reader -> {
+          @Nullable Image image = reader.acquireLatestImage();
+          if (image != null) {
+            image.close();
+          }
+        },
+        new Handler(imageReaderThread.getLooper()));
+  }
+
+  @After
+  public void tearDown() {
+    InstrumentationRegistry.getInstrumentation()
+        .runOnMainSync(
+            () -> {
+              if (player != null) {
+                player.release();
+                player = null;
+              }
+            });
+    imageReader.close();
+    imageReaderThread.quit();
+    playbackThread.quit();
+  }
+
+  @Test
+  public void playback() throws InterruptedException {
+    ConditionVariable readyCondition = new ConditionVariable();
+    InstrumentationRegistry.getInstrumentation()
+        .runOnMainSync(
+            () -> {
+              Context context = ApplicationProvider.getApplicationContext();
+              ExoPlayer player =
+                  new ExoPlayer.Builder(context)
+                      .setPlaybackLooper(playbackThread.getLooper())
+                      .experimentalSetDynamicSchedulingEnabled(dynamicSchedulingEnabled)
+                      .build();
+              player.setTrackSelectionParameters(
+                  player
+                      .getTrackSelectionParameters()
+                      .buildUpon()
+                      .setTrackTypeDisabled(C.TRACK_TYPE_VIDEO, audioOnly)
+                      .build());
+              if (!audioOnly) {
+                player.setVideoSurface(imageReader.getSurface());
+              }
+              player.addListener(
+                  new Player.Listener() {
+                    @Override
+                    public void onPlaybackStateChanged(@Player.State int playbackState) {
+                      if (playbackState == Player.STATE_READY) {
+                        readyCondition.open();
+                      }
+                    }
+                  });
+              player.setMediaItem(MediaItem.fromUri(MEDIA_URI));
+              player.prepare();
+              this.player = player;
+            });
+    checkState(readyCondition.block(TIMEOUT_MS));
+
+    InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> checkNotNull(player).play());
+    long startCpuTimeNs = getPlaybackThreadCpuTimeNs();
+    Thread.sleep(MEASUREMENT_DURATION_MS);
+    long cpuTimeNs = getPlaybackThreadCpuTimeNs() - startCpuTimeNs;
+
+    long cpuMsPerHour = cpuTimeNs / 1_000_000 * (3_600_000 / MEASUREMENT_DURATION_MS);
+    Log.i(
+        TAG,
+        "audioOnly="
+            + audioOnly
+            + ", dynamicScheduling="
+            + dynamicSchedulingEnabled
+            + ": playbackThreadCpuMsPerHour="
+            + cpuMsPerHour);
+  }
+
+  private long getPlaybackThreadCpuTimeNs() {
+    AtomicLong cpuTimeNs = new AtomicLong();
+    ConditionVariable conditionVariable = new ConditionVariable();
+    playbackHandler.post(
+        () -> {
+          cpuTimeNs.set(Debug.threadCpuTimeNanos());
+          conditionVariable.open();
+        });
+    checkState(conditionVariable.block(TIMEOUT_MS));
+    return cpuTimeNs.get();
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.benchmark;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.media3.common.C;
+import androidx.media3.common.Format;
+import androidx.media3.common.MimeTypes;
+import androidx.media3.common.util.ParsableByteArray;
+import androidx.media3.decoder.DecoderInputBuffer;
+import androidx.media3.exoplayer.FormatHolder;
+import androidx.media3.exoplayer.source.SampleQueue;
+import androidx.media3.exoplayer.upstream.DefaultAllocator;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Benchmarks writing samples to and reading samples from a {@link SampleQueue}. */
+@RunWith(AndroidJUnit4.class)
+public final class SampleQueueBenchmark {
+
+  private static final Format FORMAT =
+      new Format.Builder().setSampleMimeType(MimeTypes.VIDEO_H264).build();
+  private static final int SAMPLE_COUNT = 500;
+  private static final int SAMPLE_SIZE = 16 * 1024;
+  private static final long SAMPLE_DURATION_US = 33_333;
+
+  @Rule public final BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+  private SampleQueue sampleQueue;
+  private ParsableByteArray sampleData;
+  private FormatHolder formatHolder;
+  private DecoderInputBuffer inputBuffer;
+
+  @Before
+  public void setUp() {
+    sampleQueue =
+        SampleQueue.createWithoutDrm(
+            new DefaultAllocator(
+                /* trimOnReset= */ true,
+                /* individualAllocationSize= */ C.DEFAULT_BUFFER_SEGMENT_SIZE));
+    sampleQueue.format(FORMAT);
+    sampleData = new ParsableByteArray(SAMPLE_SIZE);
+    formatHolder = new FormatHolder();
+    inputBuffer = new DecoderInputBuffer(DecoderInputBuffer.BUFFER_REPLACEMENT_MODE_DIRECT);
+    inputBuffer.ensureSpaceForWrite(SAMPLE_SIZE);
+  }
+
+  @Test
+  public void writeSamples() {
+    BenchmarkState state = benchmarkRule.getState();
+    long timeUs = 0;
+    while (state.keepRunning()) {
+      timeUs = writeSampleBatch(timeUs);
+      state.pauseTiming();
+      readAllSamples();
+      state.resumeTiming();
+    }
+  }
+
+  @Test
+  public void readSamples() {
+    BenchmarkState state = benchmarkRule.getState();
+    long timeUs = 0;
+    while (state.keepRunning()) {
+      state.pauseTiming();
+      timeUs = writeSampleBatch(timeUs);
+      state.resumeTiming();
+      readAllSamples();
+    }
+  }
+
+  @Test
+  public void writeAndReadSamples() {
+    BenchmarkState state = benchmarkRule.getState();
+    long timeUs = 0;
+    while (state.keepRunning()) {
+      timeUs = writeSampleBatch(timeUs);
+      readAllSamples();
+    }
+  }
+
+  private long writeSampleBatch(long timeUs) {
+    for (int i = 0; i < SAMPLE_COUNT; i++) {
+      sampleData.setPosition(0);
+      sampleQueue.sampleData(sampleData, SAMPLE_SIZE);
+      sampleQueue.sampleMetadata(
+          timeUs,
+          i == 0 ? C.BUFFER_FLAG_KEY_FRAME : 0,
+          SAMPLE_SIZE,
+          /* offset= */ 0,
+          /* cryptoData= */ null);
+      timeUs += SAMPLE_DURATION_US;
+    }
+    return timeUs;
+  }
+
+  private void readAllSamples() {
+    int result;
+    do {
+      inputBuffer.clear();
+      result =
+          sampleQueue.read(
+              formatHolder, inputBuffer, /* readFlags= */ 0, /* loadingFinished= */ false);
+    } while (result != C.RESULT_NOTHING_READ);
+    sampleQueue.discardToRead();
+  }
+}
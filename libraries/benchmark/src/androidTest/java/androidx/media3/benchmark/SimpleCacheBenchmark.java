@@ -0,0 +1,170 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.benchmark;
+
+import static androidx.media3.common.util.Assertions.checkState;
+
+import android.content.Context;
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.media3.common.C;
+import androidx.media3.common.util.Util;
+import androidx.media3.database.StandaloneDatabaseProvider;
+import androidx.media3.datasource.cache.Cache;
+import androidx.media3.datasource.cache.CacheSpan;
+import androidx.media3.datasource.cache.NoOpCacheEvictor;
+import androidx.media3.datasource.cache.SimpleCache;
+import androidx.test.core.app.ApplicationProvider;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Benchmarks {@link SimpleCache} queries issued concurrently from multiple threads, optionally
+ * while another thread is writing to the cache.
+ */
+@RunWith(Parameterized.class)
+public final class SimpleCacheBenchmark {
+
+  private static final int KEY_COUNT = 64;
+  private static final int SPANS_PER_KEY = 16;
+  private static final int SPAN_LENGTH = 1024;
+  private static final int QUERIES_PER_THREAD = 1000;
+  private static final String WRITER_KEY = "writer";
+
+  @Parameters(name = "threads={0}")
+  public static List<Integer> params() {
+    List<Integer> threadCounts = new ArrayList<>();
+    threadCounts.add(1);
+    threadCounts.add(4);
+    threadCounts.add(16);
+    return threadCounts;
+  }
+
+  @Parameter public int threadCount;
+
+  @Rule public final BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+  private File cacheDir;
+  private StandaloneDatabaseProvider databaseProvider;
+  private SimpleCache simpleCache;
+  private ExecutorService executorService;
+
+  @Before
+  public void setUp() throws Exception {
+    Context context = ApplicationProvider.getApplicationContext();
+    cacheDir = Util.createTempDirectory(context, "SimpleCacheBenchmark");
+    databaseProvider = new StandaloneDatabaseProvider(context);
+    simpleCache = new SimpleCache(cacheDir, new NoOpCacheEvictor(), databaseProvider);
+    byte[] data = new byte[SPAN_LENGTH];
+    for (int i = 0; i < KEY_COUNT; i++) {
+      for (int j = 0; j < SPANS_PER_KEY; j++) {
+        writeSpan(getKey(i), /* position= */ (long) j * SPAN_LENGTH, data);
+      }
+    }
+    executorService = Executors.newFixedThreadPool(threadCount + 1);
+  }
+
+  @After
+  public void tearDown() {
+    executorService.shutdown();
+    simpleCache.release();
+    databaseProvider.close();
+    Util.recursiveDelete(cacheDir);
+  }
+
+  @Test
+  public void concurrentQueries() throws Exception {
+    BenchmarkState state = benchmarkRule.getState();
+    while (state.keepRunning()) {
+      runQueries(/* withWriter= */ false);
+    }
+  }
+
+  @Test
+  public void concurrentQueriesWithWriter() throws Exception {
+    BenchmarkState state = benchmarkRule.getState();
+    while (state.keepRunning()) {
+      runQueries(/* withWriter= */ true);
+    }
+  }
+
+  private void runQueries(boolean withWriter) throws Exception {
+    List<Future<?>> futures = new ArrayList<>(threadCount + 1);
+    if (withWriter) {
+      futures.add(executorService.submit(this::writeAndRemoveSpans));
+    }
+    for (int i = 0; i < threadCount; i++) {
+      int threadIndex = i;
+      futures.add(executorService.submit(() -> queryCache(threadIndex)));
+    }
+    for (int i = 0; i < futures.size(); i++) {
+      futures.get(i).get();
+    }
+  }
+
+  private Void queryCache(int threadIndex) throws Exception {
+    long cachedLength = (long) SPANS_PER_KEY * SPAN_LENGTH;
+    for (int i = 0; i < QUERIES_PER_THREAD; i++) {
+      String key = getKey((threadIndex + i) % KEY_COUNT);
+      checkState(simpleCache.isCached(key, /* position= */ 0, cachedLength));
+      checkState(
+          simpleCache.getCachedBytes(key, /* position= */ 0, C.LENGTH_UNSET) == cachedLength);
+      CacheSpan span =
+          simpleCache.startReadWrite(
+              key, /* position= */ (long) (i % SPANS_PER_KEY) * SPAN_LENGTH, C.LENGTH_UNSET);
+      checkState(span.isCached);
+    }
+    return null;
+  }
+
+  private Void writeAndRemoveSpans() throws Exception {
+    byte[] data = new byte[SPAN_LENGTH];
+    for (int i = 0; i < SPANS_PER_KEY; i++) {
+      writeSpan(WRITER_KEY, /* position= */ (long) i * SPAN_LENGTH, data);
+    }
+    simpleCache.removeResource(WRITER_KEY);
+    return null;
+  }
+
+  private void writeSpan(String key, long position, byte[] data)
+      throws Cache.CacheException, IOException, InterruptedException {
+    CacheSpan holeSpan = simpleCache.startReadWrite(key, position, data.length);
+    File file = simpleCache.startFile(key, position, data.length);
+    try (FileOutputStream outputStream = new FileOutputStream(file)) {
+      outputStream.write(data);
+    }
+    simpleCache.commitFile(file, data.length);
+    simpleCache.releaseHoleSpan(holeSpan);
+  }
+
+  private static String getKey(int index) {
+    return "key" + index;
+  }
+}
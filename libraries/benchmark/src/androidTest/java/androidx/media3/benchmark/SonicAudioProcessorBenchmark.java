@@ -0,0 +1,86 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.benchmark;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.media3.common.C;
+import androidx.media3.common.audio.AudioProcessor.AudioFormat;
+import androidx.media3.common.audio.AudioProcessor.UnhandledAudioFormatException;
+import androidx.media3.common.audio.SonicAudioProcessor;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Benchmarks time stretching and resampling stereo 16-bit PCM audio with {@link
+ * SonicAudioProcessor}.
+ */
+@RunWith(Parameterized.class)
+public final class SonicAudioProcessorBenchmark {
+
+  private static final AudioFormat INPUT_FORMAT =
+      new AudioFormat(/* sampleRate= */ 48_000, /* channelCount= */ 2, C.ENCODING_PCM_16BIT);
+
+  /** The number of bytes processed per iteration, equivalent to one second of audio. */
+  private static final int INPUT_SIZE_BYTES = INPUT_FORMAT.sampleRate * INPUT_FORMAT.bytesPerFrame;
+
+  private static final int BUFFER_SIZE_BYTES = 4096;
+
+  @Parameters(name = "speed={0}, outputSampleRate={1}")
+  public static Object[][] params() {
+    return new Object[][] {{1.5f, 48_000}, {0.75f, 48_000}, {1f, 44_100}};
+  }
+
+  @Parameter(0)
+  public float speed;
+
+  @Parameter(1)
+  public int outputSampleRateHz;
+
+  @Rule public final BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+  @Test
+  public void processOneSecond() throws UnhandledAudioFormatException {
+    SonicAudioProcessor sonicAudioProcessor = new SonicAudioProcessor();
+    sonicAudioProcessor.setSpeed(speed);
+    sonicAudioProcessor.setOutputSampleRateHz(outputSampleRateHz);
+    sonicAudioProcessor.configure(INPUT_FORMAT);
+    sonicAudioProcessor.flush();
+    ByteBuffer inputBuffer =
+        ByteBuffer.allocateDirect(BUFFER_SIZE_BYTES).order(ByteOrder.nativeOrder());
+    byte[] noise = new byte[BUFFER_SIZE_BYTES];
+    new Random(/* seed= */ 0).nextBytes(noise);
+
+    BenchmarkState state = benchmarkRule.getState();
+    while (state.keepRunning()) {
+      for (int bytesQueued = 0; bytesQueued < INPUT_SIZE_BYTES; bytesQueued += BUFFER_SIZE_BYTES) {
+        inputBuffer.clear();
+        inputBuffer.put(noise).flip();
+        while (inputBuffer.hasRemaining()) {
+          sonicAudioProcessor.queueInput(inputBuffer);
+          sonicAudioProcessor.getOutput();
+        }
+      }
+    }
+  }
+}
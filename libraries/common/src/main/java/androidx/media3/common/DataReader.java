@@ -15,8 +15,10 @@
  */
 package androidx.media3.common;
 
+import androidx.annotation.Nullable;
 import androidx.media3.common.util.UnstableApi;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /** Reads bytes from a data stream. */
 @UnstableApi
@@ -38,4 +40,25 @@ public interface DataReader {
    * @throws IOException If an error occurs reading from the input.
    */
   int read(byte[] buffer, int offset, int length) throws IOException;
+
+  /**
+   * Reads up to {@code length} bytes of data from the input without copying them into a caller
+   * provided array, if the input supports it at its current position.
+   *
+   * <p>This is an optimization for inputs that already hold their data in a buffer, for example a
+   * memory mapped file. If {@code null} is returned then nothing has been read, and the caller
+   * should use {@link #read(byte[], int, int)} instead. This is also the case when the end of the
+   * input has been reached.
+   *
+   * <p>The default implementation returns {@code null}.
+   *
+   * @param length The maximum number of bytes to read from the input. Must be positive.
+   * @return A buffer whose remaining bytes are the data read, which is valid until the next call to
+   *     this reader, or {@code null} if the data isn't available as a buffer.
+   * @throws IOException If an error occurs reading from the input.
+   */
+  @Nullable
+  default ByteBuffer readByteBuffer(int length) throws IOException {
+    return null;
+  }
 }
@@ -25,7 +25,6 @@ import androidx.annotation.Nullable;
 import androidx.media3.common.C;
 import androidx.media3.common.FlagSet;
 import java.util.ArrayDeque;
-import java.util.concurrent.CopyOnWriteArraySet;
 import org.checkerframework.checker.nullness.qual.NonNull;
 
 /**
@@ -37,6 +36,10 @@ import org.checkerframework.checker.nullness.qual.NonNull;
  * <p>Events are also guaranteed to be only sent to the listeners registered at the time the event
  * was enqueued and haven't been removed since.
  *
+ * <p>Queuing and sending events doesn't allocate memory beyond the {@link Event} itself. Listeners
+ * can be {@linkplain #add(Object, FlagSet) added} for a subset of the event flags, and callers can
+ * use {@link #hasListenerFor(int)} to avoid creating events that no listener receives.
+ *
  * <p>All methods must be called on the {@link Looper} passed to the constructor unless indicated
  * otherwise.
  *
@@ -75,13 +78,15 @@ public final class ListenerSet<T extends @NonNull Object> {
   }
 
   private static final int MSG_ITERATION_FINISHED = 1;
+  private static final int MAX_POOLED_EVENTS = 32;
 
   private final Clock clock;
   private final HandlerWrapper handler;
   private final IterationFinishedEvent<T> iterationFinishedEvent;
-  private final CopyOnWriteArraySet<ListenerHolder<T>> listeners;
-  private final ArrayDeque<Runnable> flushingEvents;
-  private final ArrayDeque<Runnable> queuedEvents;
+  private final ListenerList<T> listeners;
+  private final ArrayDeque<QueuedEvent<T>> flushingEvents;
+  private final ArrayDeque<QueuedEvent<T>> queuedEvents;
+  private final ArrayDeque<QueuedEvent<T>> pooledEvents;
   private final Object releasedLock;
 
   @GuardedBy("releasedLock")
@@ -100,7 +105,7 @@ public final class ListenerSet<T extends @NonNull Object> {
    */
   public ListenerSet(Looper looper, Clock clock, IterationFinishedEvent<T> iterationFinishedEvent) {
     this(
-        /* listeners= */ new CopyOnWriteArraySet<>(),
+        /* listeners= */ new ListenerList<>(),
         looper,
         clock,
         iterationFinishedEvent,
@@ -108,7 +113,7 @@ public final class ListenerSet<T extends @NonNull Object> {
   }
 
   private ListenerSet(
-      CopyOnWriteArraySet<ListenerHolder<T>> listeners,
+      ListenerList<T> listeners,
       Looper looper,
       Clock clock,
       IterationFinishedEvent<T> iterationFinishedEvent,
@@ -119,6 +124,7 @@ public final class ListenerSet<T extends @NonNull Object> {
     releasedLock = new Object();
     flushingEvents = new ArrayDeque<>();
     queuedEvents = new ArrayDeque<>();
+    pooledEvents = new ArrayDeque<>();
     // It's safe to use "this" because we don't send a message before exiting the constructor.
     @SuppressWarnings("nullness:methodref.receiver.bound")
     HandlerWrapper handler = clock.createHandler(looper, this::handleMessage);
@@ -169,12 +175,31 @@ public final class ListenerSet<T extends @NonNull Object> {
    * @param listener The listener to be added.
    */
   public void add(T listener) {
+    add(listener, /* eventFlags= */ null);
+  }
+
+  /**
+   * Adds a listener to the set that only receives events with the given flags.
+   *
+   * <p>Events queued without a flag are sent to all listeners. The {@link IterationFinishedEvent}
+   * is only sent to the listener if it received at least one event in the iteration, and only
+   * contains the flags of the events it received.
+   *
+   * <p>If a listener is already present, it will not be added again.
+   *
+   * <p>This method can be called from any thread.
+   *
+   * @param listener The listener to be added.
+   * @param eventFlags The flags of the events to send to the listener, or {@code null} to send all
+   *     events.
+   */
+  public void add(T listener, @Nullable FlagSet eventFlags) {
     Assertions.checkNotNull(listener);
     synchronized (releasedLock) {
       if (released) {
         return;
       }
-      listeners.add(new ListenerHolder<>(listener));
+      listeners.add(new ListenerHolder<>(listener, eventFlags));
     }
   }
 
@@ -187,27 +212,34 @@ public final class ListenerSet<T extends @NonNull Object> {
    */
   public void remove(T listener) {
     verifyCurrentThread();
-    for (ListenerHolder<T> listenerHolder : listeners) {
-      if (listenerHolder.listener.equals(listener)) {
-        listenerHolder.release(iterationFinishedEvent);
-        listeners.remove(listenerHolder);
-      }
+    @Nullable ListenerHolder<T> listenerHolder = listeners.remove(listener);
+    if (listenerHolder != null) {
+      listenerHolder.release(iterationFinishedEvent);
     }
   }
 
   /** Removes all listeners from the set. */
   public void clear() {
     verifyCurrentThread();
-    for (ListenerHolder<T> listenerHolder : listeners) {
-      listenerHolder.release(iterationFinishedEvent);
-    }
-    listeners.clear();
+    releaseAll(listeners.clear());
   }
 
   /** Returns the number of added listeners. */
   public int size() {
     verifyCurrentThread();
-    return listeners.size();
+    return listeners.snapshot.holders.length;
+  }
+
+  /**
+   * Returns whether an event with the given flag would be sent to at least one listener.
+   *
+   * <p>Callers can use this method to avoid creating events that no listener receives.
+   *
+   * @param eventFlag An integer indicating the type of the event, or {@link C#INDEX_UNSET} for
+   *     events without flag.
+   */
+  public boolean hasListenerFor(int eventFlag) {
+    return listeners.snapshot.hasListenerFor(eventFlag);
   }
 
   /**
@@ -219,13 +251,16 @@ public final class ListenerSet<T extends @NonNull Object> {
    */
   public void queueEvent(int eventFlag, Event<T> event) {
     verifyCurrentThread();
-    CopyOnWriteArraySet<ListenerHolder<T>> listenerSnapshot = new CopyOnWriteArraySet<>(listeners);
-    queuedEvents.add(
-        () -> {
-          for (ListenerHolder<T> holder : listenerSnapshot) {
-            holder.invoke(eventFlag, event);
-          }
-        });
+    ListenerSnapshot<T> snapshot = listeners.snapshot;
+    if (!snapshot.hasListenerFor(eventFlag)) {
+      return;
+    }
+    @Nullable QueuedEvent<T> queuedEvent = pooledEvents.pollFirst();
+    if (queuedEvent == null) {
+      queuedEvent = new QueuedEvent<>();
+    }
+    queuedEvent.set(eventFlag, event, snapshot.holders);
+    queuedEvents.add(queuedEvent);
   }
 
   /** Notifies listeners of events previously enqueued with {@link #queueEvent(int, Event)}. */
@@ -238,15 +273,21 @@ public final class ListenerSet<T extends @NonNull Object> {
       handler.sendMessageAtFrontOfQueue(handler.obtainMessage(MSG_ITERATION_FINISHED));
     }
     boolean recursiveFlushInProgress = !flushingEvents.isEmpty();
-    flushingEvents.addAll(queuedEvents);
-    queuedEvents.clear();
+    while (!queuedEvents.isEmpty()) {
+      flushingEvents.add(queuedEvents.removeFirst());
+    }
     if (recursiveFlushInProgress) {
       // Recursive call to flush. Let the outer call handle the flush queue.
       return;
     }
     while (!flushingEvents.isEmpty()) {
-      flushingEvents.peekFirst().run();
+      QueuedEvent<T> queuedEvent = flushingEvents.peekFirst();
+      queuedEvent.invoke();
       flushingEvents.removeFirst();
+      queuedEvent.clear();
+      if (pooledEvents.size() < MAX_POOLED_EVENTS) {
+        pooledEvents.add(queuedEvent);
+      }
     }
   }
 
@@ -273,10 +314,7 @@ public final class ListenerSet<T extends @NonNull Object> {
     synchronized (releasedLock) {
       released = true;
     }
-    for (ListenerHolder<T> listenerHolder : listeners) {
-      listenerHolder.release(iterationFinishedEvent);
-    }
-    listeners.clear();
+    releaseAll(listeners.clear());
   }
 
   /**
@@ -292,8 +330,14 @@ public final class ListenerSet<T extends @NonNull Object> {
     this.throwsWhenUsingWrongThread = throwsWhenUsingWrongThread;
   }
 
+  private void releaseAll(ListenerHolder<T>[] listenerHolders) {
+    for (ListenerHolder<T> listenerHolder : listenerHolders) {
+      listenerHolder.release(iterationFinishedEvent);
+    }
+  }
+
   private boolean handleMessage(Message message) {
-    for (ListenerHolder<T> holder : listeners) {
+    for (ListenerHolder<T> holder : listeners.snapshot.holders) {
       holder.iterationFinished(iterationFinishedEvent);
       if (handler.hasMessages(MSG_ITERATION_FINISHED)) {
         // The invocation above triggered new events (and thus scheduled a new message). We need
@@ -312,16 +356,136 @@ public final class ListenerSet<T extends @NonNull Object> {
     checkState(Thread.currentThread() == handler.getLooper().getThread());
   }
 
+  /**
+   * The listeners shared by a listener set and its copies. The listeners are stored in an immutable
+   * {@link ListenerSnapshot} that is replaced whenever the listeners change, so that events can
+   * refer to the listeners at the time they were queued without copying them.
+   */
+  private static final class ListenerList<T extends @NonNull Object> {
+
+    public volatile ListenerSnapshot<T> snapshot;
+
+    public ListenerList() {
+      snapshot = new ListenerSnapshot<>(ListenerSnapshot.newHolderArray(0));
+    }
+
+    public synchronized void add(ListenerHolder<T> listenerHolder) {
+      ListenerHolder<T>[] holders = snapshot.holders;
+      for (ListenerHolder<T> holder : holders) {
+        if (holder.equals(listenerHolder)) {
+          return;
+        }
+      }
+      ListenerHolder<T>[] newHolders = ListenerSnapshot.newHolderArray(holders.length + 1);
+      System.arraycopy(holders, 0, newHolders, 0, holders.length);
+      newHolders[holders.length] = listenerHolder;
+      snapshot = new ListenerSnapshot<>(newHolders);
+    }
+
+    /** Removes and returns the holder of a listener, or returns null if it isn't present. */
+    @Nullable
+    public synchronized ListenerHolder<T> remove(T listener) {
+      ListenerHolder<T>[] holders = snapshot.holders;
+      for (int i = 0; i < holders.length; i++) {
+        if (holders[i].listener.equals(listener)) {
+          ListenerHolder<T>[] newHolders = ListenerSnapshot.newHolderArray(holders.length - 1);
+          System.arraycopy(holders, 0, newHolders, 0, i);
+          System.arraycopy(holders, i + 1, newHolders, i, holders.length - i - 1);
+          snapshot = new ListenerSnapshot<>(newHolders);
+          return holders[i];
+        }
+      }
+      return null;
+    }
+
+    /** Removes and returns the holders of all listeners. */
+    public synchronized ListenerHolder<T>[] clear() {
+      ListenerHolder<T>[] holders = snapshot.holders;
+      snapshot = new ListenerSnapshot<>(ListenerSnapshot.newHolderArray(0));
+      return holders;
+    }
+  }
+
+  /** An immutable snapshot of the listeners of a listener set. */
+  private static final class ListenerSnapshot<T extends @NonNull Object> {
+
+    @SuppressWarnings("rawtypes") // Shared by all listener types.
+    private static final ListenerHolder[] EMPTY_HOLDERS = new ListenerHolder[0];
+
+    public final ListenerHolder<T>[] holders;
+
+    // The union of the event flags of all listeners, or null if a listener receives all events.
+    @Nullable private final FlagSet eventFlags;
+
+    public ListenerSnapshot(ListenerHolder<T>[] holders) {
+      this.holders = holders;
+      FlagSet.Builder eventFlagsBuilder = new FlagSet.Builder();
+      boolean hasListenerForAllEvents = false;
+      for (ListenerHolder<T> holder : holders) {
+        if (holder.eventFlags == null) {
+          hasListenerForAllEvents = true;
+          break;
+        }
+        eventFlagsBuilder.addAll(holder.eventFlags);
+      }
+      eventFlags = hasListenerForAllEvents ? null : eventFlagsBuilder.build();
+    }
+
+    public boolean hasListenerFor(int eventFlag) {
+      if (holders.length == 0) {
+        return false;
+      }
+      return eventFlags == null || eventFlag == C.INDEX_UNSET || eventFlags.contains(eventFlag);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"}) // Generic array creation.
+    public static <T extends @NonNull Object> ListenerHolder<T>[] newHolderArray(int length) {
+      return (ListenerHolder<T>[]) (length == 0 ? EMPTY_HOLDERS : new ListenerHolder[length]);
+    }
+  }
+
+  /** An event queued for the listeners at the time it was queued. Instances are reused. */
+  private static final class QueuedEvent<T extends @NonNull Object> {
+
+    private int eventFlag;
+    @Nullable private Event<T> event;
+    private ListenerHolder<T>[] listenerHolders;
+
+    public QueuedEvent() {
+      listenerHolders = ListenerSnapshot.newHolderArray(0);
+    }
+
+    public void set(int eventFlag, Event<T> event, ListenerHolder<T>[] listenerHolders) {
+      this.eventFlag = eventFlag;
+      this.event = event;
+      this.listenerHolders = listenerHolders;
+    }
+
+    public void invoke() {
+      Event<T> event = Assertions.checkNotNull(this.event);
+      for (ListenerHolder<T> holder : listenerHolders) {
+        holder.invoke(eventFlag, event);
+      }
+    }
+
+    public void clear() {
+      event = null;
+      listenerHolders = ListenerSnapshot.newHolderArray(0);
+    }
+  }
+
   private static final class ListenerHolder<T extends @NonNull Object> {
 
     public final T listener;
+    @Nullable public final FlagSet eventFlags;
 
     private FlagSet.Builder flagsBuilder;
     private boolean needsIterationFinishedEvent;
     private boolean released;
 
-    public ListenerHolder(T listener) {
+    public ListenerHolder(T listener, @Nullable FlagSet eventFlags) {
       this.listener = listener;
+      this.eventFlags = eventFlags;
       this.flagsBuilder = new FlagSet.Builder();
     }
 
@@ -334,7 +498,8 @@ public final class ListenerSet<T extends @NonNull Object> {
     }
 
     public void invoke(int eventFlag, Event<T> event) {
-      if (!released) {
+      if (!released
+          && (eventFlags == null || eventFlag == C.INDEX_UNSET || eventFlags.contains(eventFlag))) {
         if (eventFlag != C.INDEX_UNSET) {
           flagsBuilder.add(eventFlag);
         }
@@ -15,6 +15,7 @@
  */
 package androidx.media3.common.util;
 
+import static com.google.common.truth.Truth.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
@@ -439,6 +440,71 @@ public class ListenerSetTest {
     verifyNoMoreInteractions(listener1, listener2);
   }
 
+  @Test
+  public void add_withEventFlags_sendsOnlyEventsWithTheseFlagsAndEventsWithoutFlag() {
+    ListenerSet<TestListener> listenerSet =
+        new ListenerSet<>(Looper.myLooper(), Clock.DEFAULT, TestListener::iterationFinished);
+    TestListener listener1 = mock(TestListener.class);
+    TestListener listener2 = mock(TestListener.class);
+    listenerSet.add(listener1, createFlagSet(EVENT_ID_2));
+    listenerSet.add(listener2);
+
+    listenerSet.queueEvent(EVENT_ID_1, TestListener::callback1);
+    listenerSet.queueEvent(EVENT_ID_2, TestListener::callback2);
+    listenerSet.queueEvent(C.INDEX_UNSET, TestListener::callback3);
+    listenerSet.flushEvents();
+    ShadowLooper.idleMainLooper();
+
+    InOrder inOrder = Mockito.inOrder(listener1, listener2);
+    inOrder.verify(listener2).callback1();
+    inOrder.verify(listener1).callback2();
+    inOrder.verify(listener2).callback2();
+    inOrder.verify(listener1).callback3();
+    inOrder.verify(listener2).callback3();
+    inOrder.verify(listener1).iterationFinished(createFlagSet(EVENT_ID_2));
+    inOrder.verify(listener2).iterationFinished(createFlagSet(EVENT_ID_1, EVENT_ID_2));
+    verifyNoMoreInteractions(listener1, listener2);
+  }
+
+  @Test
+  public void add_withEventFlagsNotMatchingAnyEvent_doesNotSendIterationFinished() {
+    ListenerSet<TestListener> listenerSet =
+        new ListenerSet<>(Looper.myLooper(), Clock.DEFAULT, TestListener::iterationFinished);
+    TestListener listener = mock(TestListener.class);
+    listenerSet.add(listener, createFlagSet(EVENT_ID_3));
+
+    listenerSet.sendEvent(EVENT_ID_1, TestListener::callback1);
+    listenerSet.sendEvent(EVENT_ID_2, TestListener::callback2);
+    ShadowLooper.idleMainLooper();
+
+    verifyNoMoreInteractions(listener);
+  }
+
+  @Test
+  public void hasListenerFor_returnsWhetherAnyListenerReceivesEventsWithFlag() {
+    ListenerSet<TestListener> listenerSet =
+        new ListenerSet<>(Looper.myLooper(), Clock.DEFAULT, TestListener::iterationFinished);
+    TestListener listener1 = mock(TestListener.class);
+    TestListener listener2 = mock(TestListener.class);
+
+    boolean hasListenerWithoutListeners = listenerSet.hasListenerFor(C.INDEX_UNSET);
+    listenerSet.add(listener1, createFlagSet(EVENT_ID_1));
+    boolean hasListenerForEvent1 = listenerSet.hasListenerFor(EVENT_ID_1);
+    boolean hasListenerForEvent2 = listenerSet.hasListenerFor(EVENT_ID_2);
+    boolean hasListenerForEventWithoutFlag = listenerSet.hasListenerFor(C.INDEX_UNSET);
+    listenerSet.add(listener2);
+    boolean hasListenerForEvent2WithListenerForAllEvents = listenerSet.hasListenerFor(EVENT_ID_2);
+    listenerSet.remove(listener2);
+    boolean hasListenerForEvent2AfterRemoval = listenerSet.hasListenerFor(EVENT_ID_2);
+
+    assertThat(hasListenerWithoutListeners).isFalse();
+    assertThat(hasListenerForEvent1).isTrue();
+    assertThat(hasListenerForEvent2).isFalse();
+    assertThat(hasListenerForEventWithoutFlag).isTrue();
+    assertThat(hasListenerForEvent2WithListenerForAllEvents).isTrue();
+    assertThat(hasListenerForEvent2AfterRemoval).isFalse();
+  }
+
   @Test
   public void release_preventsRegisteringNewListeners() {
     ListenerSet<TestListener> listenerSet =
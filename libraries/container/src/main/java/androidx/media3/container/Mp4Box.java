@@ -263,6 +263,15 @@ public abstract class Mp4Box {
   @SuppressWarnings("ConstantCaseForConstants")
   public static final int TYPE_mehd = 0x6d656864;
 
+  @SuppressWarnings("ConstantCaseForConstants")
+  public static final int TYPE_mfra = 0x6d667261;
+
+  @SuppressWarnings("ConstantCaseForConstants")
+  public static final int TYPE_tfra = 0x74667261;
+
+  @SuppressWarnings("ConstantCaseForConstants")
+  public static final int TYPE_mfro = 0x6d66726f;
+
   @SuppressWarnings("ConstantCaseForConstants")
   public static final int TYPE_tkhd = 0x746b6864;
 
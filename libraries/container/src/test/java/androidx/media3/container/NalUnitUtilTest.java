@@ -27,6 +27,7 @@ import androidx.test.ext.junit.runners.AndroidJUnit4;
 import com.google.common.collect.ImmutableList;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.Random;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
@@ -183,6 +184,23 @@ public final class NalUnitUtilTest {
     assertPrefixFlagsCleared(prefixFlags);
   }
 
+  @Test
+  public void findNalUnit_longData_matchesByteByByteSearch() {
+    byte[] data = buildRandomNalUnitData(/* length= */ 1000);
+
+    for (int startOffset = 0; startOffset < 40; startOffset++) {
+      for (int endOffset = data.length - 40; endOffset <= data.length; endOffset++) {
+        int offset = startOffset;
+        while (offset < endOffset) {
+          int expectedResult = findNalUnitByteByByte(data, offset, endOffset);
+          int result = NalUnitUtil.findNalUnit(data, offset, endOffset, new boolean[3]);
+          assertThat(result).isEqualTo(expectedResult);
+          offset = result + 3;
+        }
+      }
+    }
+  }
+
   @Test
   public void parseSpsNalUnit() {
     NalUnitUtil.SpsData data =
@@ -526,6 +544,26 @@ public final class NalUnitUtilTest {
     return data;
   }
 
+  /** Returns random data with a high proportion of zero bytes and start code prefixes. */
+  private static byte[] buildRandomNalUnitData(int length) {
+    Random random = new Random(/* seed= */ 0);
+    byte[] data = new byte[length];
+    for (int i = 0; i < length; i++) {
+      int value = random.nextInt(16);
+      data[i] = (byte) (value < 6 ? 0 : value < 8 ? 1 : random.nextInt(256));
+    }
+    return data;
+  }
+
+  private static int findNalUnitByteByByte(byte[] data, int startOffset, int endOffset) {
+    for (int i = startOffset; i + 3 < endOffset; i++) {
+      if (data[i] == 0 && data[i + 1] == 0 && data[i + 2] == 1) {
+        return i;
+      }
+    }
+    return endOffset;
+  }
+
   private static void assertPrefixFlagsCleared(boolean[] flags) {
     assertThat(flags[0] || flags[1] || flags[2]).isEqualTo(false);
   }
@@ -25,6 +25,7 @@ import androidx.media3.common.util.UnstableApi;
 import androidx.media3.common.util.Util;
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -281,6 +282,13 @@ public final class DefaultDataSource implements DataSource {
     return Assertions.checkNotNull(dataSource).read(buffer, offset, length);
   }
 
+  @UnstableApi
+  @Override
+  @Nullable
+  public ByteBuffer readByteBuffer(int length) throws IOException {
+    return Assertions.checkNotNull(dataSource).readByteBuffer(length);
+  }
+
   @UnstableApi
   @Override
   @Nullable
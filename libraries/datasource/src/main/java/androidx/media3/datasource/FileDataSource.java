@@ -15,6 +15,8 @@
  */
 package androidx.media3.datasource;
 
+import static androidx.media3.common.util.Assertions.checkArgument;
+import static androidx.media3.common.util.Assertions.checkState;
 import static androidx.media3.common.util.Util.castNonNull;
 import static java.lang.Math.min;
 
@@ -31,8 +33,21 @@ import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 
-/** A {@link DataSource} for reading local files. */
+/**
+ * A {@link DataSource} for reading local files.
+ *
+ * <p>By default, data is read from the file using {@link RandomAccessFile#read(byte[], int, int)},
+ * which requires a system call for each read. If {@linkplain
+ * Factory#setMemoryMappingEnabled(boolean) memory mapping is enabled}, the file is instead mapped
+ * into memory in windows of a {@linkplain Factory#setMemoryMapWindowSize(int) configurable size},
+ * and reads are served by copying from the current window. This is significantly faster when
+ * reading large files in small chunks. Memory mapped data can also be read without copying using
+ * {@link #readMapped(int)}.
+ */
 @UnstableApi
 public final class FileDataSource extends BaseDataSource {
 
@@ -73,6 +88,13 @@ public final class FileDataSource extends BaseDataSource {
   public static final class Factory implements DataSource.Factory {
 
     @Nullable private TransferListener listener;
+    private boolean memoryMappingEnabled;
+    private int memoryMapWindowSize;
+
+    /** Creates an instance. */
+    public Factory() {
+      memoryMapWindowSize = DEFAULT_MEMORY_MAP_WINDOW_SIZE;
+    }
 
     /**
      * Sets a {@link TransferListener} for {@link FileDataSource} instances created by this factory.
@@ -86,9 +108,41 @@ public final class FileDataSource extends BaseDataSource {
       return this;
     }
 
+    /**
+     * Sets whether {@link FileDataSource} instances created by this factory read files by mapping
+     * them into memory.
+     *
+     * <p>The default value is {@code false}.
+     *
+     * @param memoryMappingEnabled Whether memory mapping is enabled.
+     * @return This factory.
+     */
+    @CanIgnoreReturnValue
+    public Factory setMemoryMappingEnabled(boolean memoryMappingEnabled) {
+      this.memoryMappingEnabled = memoryMappingEnabled;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of bytes mapped into memory at a time, if {@linkplain
+     * #setMemoryMappingEnabled(boolean) memory mapping is enabled}.
+     *
+     * <p>The default value is {@link #DEFAULT_MEMORY_MAP_WINDOW_SIZE}.
+     *
+     * @param memoryMapWindowSize The size of each mapped window, in bytes.
+     * @return This factory.
+     */
+    @CanIgnoreReturnValue
+    public Factory setMemoryMapWindowSize(int memoryMapWindowSize) {
+      checkArgument(memoryMapWindowSize > 0);
+      this.memoryMapWindowSize = memoryMapWindowSize;
+      return this;
+    }
+
     @Override
     public FileDataSource createDataSource() {
-      FileDataSource dataSource = new FileDataSource();
+      FileDataSource dataSource =
+          new FileDataSource(memoryMappingEnabled ? memoryMapWindowSize : C.LENGTH_UNSET);
       if (listener != null) {
         dataSource.addTransferListener(listener);
       }
@@ -96,13 +150,25 @@ public final class FileDataSource extends BaseDataSource {
     }
   }
 
+  /** The default size of each window mapped into memory, in bytes. */
+  public static final int DEFAULT_MEMORY_MAP_WINDOW_SIZE = 8 * 1024 * 1024;
+
+  private final int memoryMapWindowSize;
+
   @Nullable private RandomAccessFile file;
   @Nullable private Uri uri;
+  @Nullable private MappedByteBuffer mappedWindow;
+  private long position;
   private long bytesRemaining;
   private boolean opened;
 
   public FileDataSource() {
+    this(/* memoryMapWindowSize= */ C.LENGTH_UNSET);
+  }
+
+  private FileDataSource(int memoryMapWindowSize) {
     super(/* isNetwork= */ false);
+    this.memoryMapWindowSize = memoryMapWindowSize;
   }
 
   @Override
@@ -113,6 +179,7 @@ public final class FileDataSource extends BaseDataSource {
     this.file = openLocalFile(uri);
     try {
       file.seek(dataSpec.position);
+      position = dataSpec.position;
       bytesRemaining =
           dataSpec.length == C.LENGTH_UNSET ? file.length() - dataSpec.position : dataSpec.length;
     } catch (IOException e) {
@@ -138,14 +205,25 @@ public final class FileDataSource extends BaseDataSource {
     } else if (bytesRemaining == 0) {
       return C.RESULT_END_OF_INPUT;
     } else {
+      int bytesToRead = (int) min(bytesRemaining, length);
       int bytesRead;
       try {
-        bytesRead = castNonNull(file).read(buffer, offset, (int) min(bytesRemaining, length));
+        if (isMemoryMappingEnabled()) {
+          @Nullable ByteBuffer window = getMappedWindow();
+          if (window == null) {
+            return C.RESULT_END_OF_INPUT;
+          }
+          bytesRead = min(bytesToRead, window.remaining());
+          window.get(buffer, offset, bytesRead);
+        } else {
+          bytesRead = castNonNull(file).read(buffer, offset, bytesToRead);
+        }
       } catch (IOException e) {
         throw new FileDataSourceException(e, PlaybackException.ERROR_CODE_IO_UNSPECIFIED);
       }
 
       if (bytesRead > 0) {
+        position += bytesRead;
         bytesRemaining -= bytesRead;
         bytesTransferred(bytesRead);
       }
@@ -154,6 +232,58 @@ public final class FileDataSource extends BaseDataSource {
     }
   }
 
+  /**
+   * Reads up to {@code length} bytes of data without copying them, if memory mapping is enabled.
+   *
+   * <p>The returned buffer is a read-only view of the memory mapped file, and remains valid after
+   * this data source is closed. It may contain fewer than {@code length} bytes if the end of the
+   * current mapped window is reached, in which case the remaining data can be read with further
+   * calls.
+   *
+   * @param length The maximum number of bytes to read.
+   * @return A read-only buffer containing the data read, or {@code null} if the end of the input
+   *     has been reached.
+   * @throws IllegalStateException If memory mapping isn't enabled.
+   * @throws FileDataSourceException If an error occurs reading from the file.
+   */
+  @Nullable
+  public ByteBuffer readMapped(int length) throws FileDataSourceException {
+    checkState(isMemoryMappingEnabled());
+    checkArgument(length > 0);
+    if (bytesRemaining == 0) {
+      return null;
+    }
+    @Nullable ByteBuffer window;
+    try {
+      window = getMappedWindow();
+    } catch (IOException e) {
+      throw new FileDataSourceException(e, PlaybackException.ERROR_CODE_IO_UNSPECIFIED);
+    }
+    if (window == null) {
+      return null;
+    }
+    int bytesRead = (int) min(min(bytesRemaining, length), window.remaining());
+    ByteBuffer data = window.slice();
+    data.limit(bytesRead);
+    window.position(window.position() + bytesRead);
+    position += bytesRead;
+    bytesRemaining -= bytesRead;
+    bytesTransferred(bytesRead);
+    return data.asReadOnlyBuffer();
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Data is returned without copying if {@linkplain Factory#setMemoryMappingEnabled(boolean)
+   * memory mapping is enabled}, as described in {@link #readMapped(int)}.
+   */
+  @Override
+  @Nullable
+  public ByteBuffer readByteBuffer(int length) throws FileDataSourceException {
+    return isMemoryMappingEnabled() ? readMapped(length) : null;
+  }
+
   @Override
   @Nullable
   public Uri getUri() {
@@ -171,6 +301,7 @@ public final class FileDataSource extends BaseDataSource {
       throw new FileDataSourceException(e, PlaybackException.ERROR_CODE_IO_UNSPECIFIED);
     } finally {
       file = null;
+      mappedWindow = null;
       if (opened) {
         opened = false;
         transferEnded();
@@ -178,6 +309,30 @@ public final class FileDataSource extends BaseDataSource {
     }
   }
 
+  private boolean isMemoryMappingEnabled() {
+    return memoryMapWindowSize != C.LENGTH_UNSET;
+  }
+
+  /**
+   * Returns the mapped window containing the current read position, mapping a new window if
+   * necessary, or {@code null} if the current read position is at the end of the file.
+   */
+  @Nullable
+  private ByteBuffer getMappedWindow() throws IOException {
+    @Nullable MappedByteBuffer mappedWindow = this.mappedWindow;
+    if (mappedWindow != null && mappedWindow.hasRemaining()) {
+      return mappedWindow;
+    }
+    FileChannel channel = castNonNull(file).getChannel();
+    long windowSize = min(memoryMapWindowSize, channel.size() - position);
+    if (windowSize <= 0) {
+      return null;
+    }
+    mappedWindow = channel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+    this.mappedWindow = mappedWindow;
+    return mappedWindow;
+  }
+
   private static RandomAccessFile openLocalFile(Uri uri) throws FileDataSourceException {
     try {
       return new RandomAccessFile(Assertions.checkNotNull(uri.getPath()), "r");
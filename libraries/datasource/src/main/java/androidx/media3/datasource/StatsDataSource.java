@@ -21,6 +21,7 @@ import androidx.media3.common.C;
 import androidx.media3.common.util.Assertions;
 import androidx.media3.common.util.UnstableApi;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -107,6 +108,16 @@ public final class StatsDataSource implements DataSource {
     return bytesRead;
   }
 
+  @Override
+  @Nullable
+  public ByteBuffer readByteBuffer(int length) throws IOException {
+    @Nullable ByteBuffer data = dataSource.readByteBuffer(length);
+    if (data != null) {
+      bytesRead += data.remaining();
+    }
+    return data;
+  }
+
   @Override
   @Nullable
   public Uri getUri() {
@@ -28,7 +28,14 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.TreeSet;
 
-/** Defines the cached content for a single resource. */
+/**
+ * Defines the cached content for a single resource.
+ *
+ * <p>Methods that query or modify the cached spans are synchronized on the instance, so that spans
+ * can be queried without holding the lock of the owning {@link SimpleCache}. Modifications must
+ * additionally be made whilst holding the lock of the owning {@link SimpleCache}, which is also
+ * required for all other methods.
+ */
 /* package */ final class CachedContent {
 
   private static final String TAG = "CachedContent";
@@ -46,7 +53,7 @@ import java.util.TreeSet;
   private final ArrayList<Range> lockedRanges;
 
   /** Metadata values. */
-  private DefaultContentMetadata metadata;
+  private volatile DefaultContentMetadata metadata;
 
   /**
    * Creates a CachedContent.
@@ -137,15 +144,25 @@ import java.util.TreeSet;
   }
 
   /** Adds the given {@link SimpleCacheSpan} which contains a part of the content. */
-  public void addSpan(SimpleCacheSpan span) {
+  public synchronized void addSpan(SimpleCacheSpan span) {
     cachedSpans.add(span);
   }
 
-  /** Returns a set of all {@link SimpleCacheSpan}s. */
+  /**
+   * Returns a set of all {@link SimpleCacheSpan}s.
+   *
+   * <p>The returned set is backed by this instance, and so must only be accessed whilst holding the
+   * lock of the owning {@link SimpleCache}. Use {@link #copySpans()} otherwise.
+   */
   public TreeSet<SimpleCacheSpan> getSpans() {
     return cachedSpans;
   }
 
+  /** Returns a copy of the set of all {@link SimpleCacheSpan}s. */
+  public synchronized TreeSet<CacheSpan> copySpans() {
+    return new TreeSet<CacheSpan>(cachedSpans);
+  }
+
   /**
    * Returns the cache span corresponding to the provided range. See {@link
    * Cache#startReadWrite(String, long, long)} for detailed descriptions of the returned spans.
@@ -154,7 +171,7 @@ import java.util.TreeSet;
    * @param length The length of the span, or {@link C#LENGTH_UNSET} if unbounded.
    * @return The corresponding cache {@link SimpleCacheSpan}.
    */
-  public SimpleCacheSpan getSpan(long position, long length) {
+  public synchronized SimpleCacheSpan getSpan(long position, long length) {
     SimpleCacheSpan lookupSpan = SimpleCacheSpan.createLookup(key, position);
     SimpleCacheSpan floorSpan = cachedSpans.floor(lookupSpan);
     if (floorSpan != null && floorSpan.position + floorSpan.length > position) {
@@ -179,7 +196,7 @@ import java.util.TreeSet;
    * @return The length of continuously cached data, or {@code -holeLength} if {@code position}
    *     isn't cached.
    */
-  public long getCachedBytesLength(long position, long length) {
+  public synchronized long getCachedBytesLength(long position, long length) {
     checkArgument(position >= 0);
     checkArgument(length >= 0);
     SimpleCacheSpan span = getSpan(position, length);
@@ -211,6 +228,35 @@ import java.util.TreeSet;
     return min(currentEndPosition - position, length);
   }
 
+  /**
+   * Returns the total number of cached bytes in the range starting from {@code position}.
+   *
+   * @param position The starting position of the data.
+   * @param length The length of the data, or {@link C#LENGTH_UNSET} if unbounded.
+   * @return The total number of cached bytes.
+   */
+  public synchronized long getCachedBytes(long position, long length) {
+    long endPosition = length == C.LENGTH_UNSET ? Long.MAX_VALUE : position + length;
+    if (endPosition < 0) {
+      // The calculation rolled over (length is probably Long.MAX_VALUE).
+      endPosition = Long.MAX_VALUE;
+    }
+    long currentPosition = position;
+    long cachedBytes = 0;
+    while (currentPosition < endPosition) {
+      long maxRemainingLength = endPosition - currentPosition;
+      long blockLength = getCachedBytesLength(currentPosition, maxRemainingLength);
+      if (blockLength > 0) {
+        cachedBytes += blockLength;
+      } else {
+        // There's a hole of length -blockLength.
+        blockLength = -blockLength;
+      }
+      currentPosition += blockLength;
+    }
+    return cachedBytes;
+  }
+
   /**
    * Sets the given span's last touch timestamp. The passed span becomes invalid after this call.
    *
@@ -220,7 +266,7 @@ import java.util.TreeSet;
    *     last touch time.
    * @return A span with the updated last touch timestamp.
    */
-  public SimpleCacheSpan setLastTouchTimestamp(
+  public synchronized SimpleCacheSpan setLastTouchTimestamp(
       SimpleCacheSpan cacheSpan, long lastTouchTimestamp, boolean updateFile) {
     checkState(cachedSpans.remove(cacheSpan));
     File file = checkNotNull(cacheSpan.file);
@@ -241,12 +287,12 @@ import java.util.TreeSet;
   }
 
   /** Returns whether there are any spans cached. */
-  public boolean isEmpty() {
+  public synchronized boolean isEmpty() {
     return cachedSpans.isEmpty();
   }
 
   /** Removes the given span from cache. */
-  public boolean removeSpan(CacheSpan span) {
+  public synchronized boolean removeSpan(CacheSpan span) {
     if (cachedSpans.remove(span)) {
       if (span.file != null) {
         span.file.delete();
@@ -30,6 +30,7 @@ import android.util.SparseBooleanArray;
 import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 import androidx.annotation.WorkerThread;
+import androidx.media3.common.C;
 import androidx.media3.common.util.Assertions;
 import androidx.media3.common.util.AtomicFile;
 import androidx.media3.common.util.NullableType;
@@ -39,11 +40,13 @@ import androidx.media3.database.DatabaseProvider;
 import androidx.media3.database.VersionTable;
 import com.google.common.collect.ImmutableSet;
 import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -57,6 +60,8 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
 import javax.crypto.Cipher;
 import javax.crypto.CipherInputStream;
 import javax.crypto.CipherOutputStream;
@@ -65,14 +70,20 @@ import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
 
-/** Maintains the index of cached content. */
+/**
+ * Maintains the index of cached content.
+ *
+ * <p>{@link #get(String)}, {@link #getKeys()} and {@link #getContentMetadata(String)} may be called
+ * concurrently with modifications to the index. All other methods must be externally synchronized.
+ */
 /* package */ class CachedContentIndex {
 
   /* package */ static final String FILE_NAME_ATOMIC = "cached_content_index.exi";
+  /* package */ static final String FILE_NAME_LOG = "cached_content_index.log";
 
   private static final int INCREMENTAL_METADATA_READ_LENGTH = 10 * 1024 * 1024;
 
-  private final HashMap<String, CachedContent> keyToContent;
+  private final ConcurrentHashMap<String, CachedContent> keyToContent;
 
   /**
    * Maps assigned ids to their corresponding keys. Also contains (id -> null) entries for ids that
@@ -108,7 +119,7 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
   /** Returns whether the file is an index file. */
   public static boolean isIndexFile(String fileName) {
     // Atomic file backups add additional suffixes to the file name.
-    return fileName.startsWith(FILE_NAME_ATOMIC);
+    return fileName.startsWith(FILE_NAME_ATOMIC) || fileName.startsWith(FILE_NAME_LOG);
   }
 
   /**
@@ -162,7 +173,7 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
       boolean legacyStorageEncrypt,
       boolean preferLegacyStorage) {
     checkState(databaseProvider != null || legacyStorageDir != null);
-    keyToContent = new HashMap<>();
+    keyToContent = new ConcurrentHashMap<>();
     idToKey = new SparseArray<>();
     removedIds = new SparseBooleanArray();
     newIds = new SparseBooleanArray();
@@ -186,6 +197,35 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
     }
   }
 
+  /**
+   * Creates an instance that uses log storage. If the log doesn't exist yet, an existing database
+   * index is migrated into it if {@code databaseProvider} is non-null, or else an existing legacy
+   * index in {@code storageDir} is migrated into it.
+   *
+   * @param storageDir The directory in which the log, and any legacy storage, is stored.
+   * @param databaseProvider Provides the database from which an existing index is migrated, or
+   *     {@code null} to migrate from legacy storage.
+   * @param legacyStorageSecretKey A 16 byte AES key for reading legacy storage that's being
+   *     migrated.
+   */
+  public CachedContentIndex(
+      File storageDir,
+      @Nullable DatabaseProvider databaseProvider,
+      @Nullable byte[] legacyStorageSecretKey) {
+    keyToContent = new ConcurrentHashMap<>();
+    idToKey = new SparseArray<>();
+    removedIds = new SparseBooleanArray();
+    newIds = new SparseBooleanArray();
+    storage = new LogStorage(new File(storageDir, FILE_NAME_LOG));
+    previousStorage =
+        databaseProvider != null
+            ? new DatabaseStorage(databaseProvider)
+            : new LegacyStorage(
+                new File(storageDir, FILE_NAME_ATOMIC),
+                legacyStorageSecretKey,
+                /* encrypt= */ false);
+  }
+
   /**
    * Loads the index data for the given cache UID.
    *
@@ -311,9 +351,8 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
 
   /**
    * Returns a set of all content keys. The set is backed by the {@code keyToContent} map, so
-   * changes to the map are reflected in the set, and vice-versa. If the map is modified while an
-   * iteration over the set is in progress (except through the iterator's own remove operation), the
-   * results of the iteration are undefined.
+   * changes to the map are reflected in the set, and vice-versa. Iteration over the set is weakly
+   * consistent, meaning that it may or may not reflect modifications made while it is in progress.
    */
   public Set<String> getKeys() {
     return keyToContent.keySet();
@@ -450,7 +489,7 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
      * @param idToKey The id to key map to populate with persisted data.
      * @throws IOException If an error occurs loading the index.
      */
-    void load(HashMap<String, CachedContent> content, SparseArray<@NullableType String> idToKey)
+    void load(Map<String, CachedContent> content, SparseArray<@NullableType String> idToKey)
         throws IOException;
 
     /**
@@ -460,17 +499,17 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
      * @param content The key to content map to persist.
      * @throws IOException If an error occurs persisting the index.
      */
-    void storeFully(HashMap<String, CachedContent> content) throws IOException;
+    void storeFully(Map<String, CachedContent> content) throws IOException;
 
     /**
      * Ensures incremental changes to the index since the initial {@link #initialize(long)} or last
-     * {@link #storeFully(HashMap)} are persisted. The storage will have been notified of all such
+     * {@link #storeFully(Map)} are persisted. The storage will have been notified of all such
      * changes via {@link #onUpdate(CachedContent)} and {@link #onRemove(CachedContent, boolean)}.
      *
      * @param content The key to content map to persist.
      * @throws IOException If an error occurs persisting the index.
      */
-    void storeIncremental(HashMap<String, CachedContent> content) throws IOException;
+    void storeIncremental(Map<String, CachedContent> content) throws IOException;
 
     /**
      * Called when a {@link CachedContent} is added or updated.
@@ -544,7 +583,7 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
 
     @Override
     public void load(
-        HashMap<String, CachedContent> content, SparseArray<@NullableType String> idToKey) {
+        Map<String, CachedContent> content, SparseArray<@NullableType String> idToKey) {
       checkState(!changed);
       if (!readFile(content, idToKey)) {
         content.clear();
@@ -554,13 +593,13 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
     }
 
     @Override
-    public void storeFully(HashMap<String, CachedContent> content) throws IOException {
+    public void storeFully(Map<String, CachedContent> content) throws IOException {
       writeFile(content);
       changed = false;
     }
 
     @Override
-    public void storeIncremental(HashMap<String, CachedContent> content) throws IOException {
+    public void storeIncremental(Map<String, CachedContent> content) throws IOException {
       if (!changed) {
         return;
       }
@@ -578,7 +617,7 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
     }
 
     private boolean readFile(
-        HashMap<String, CachedContent> content, SparseArray<@NullableType String> idToKey) {
+        Map<String, CachedContent> content, SparseArray<@NullableType String> idToKey) {
       if (!atomicFile.exists()) {
         return true;
       }
@@ -633,7 +672,7 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
       return true;
     }
 
-    private void writeFile(HashMap<String, CachedContent> content) throws IOException {
+    private void writeFile(Map<String, CachedContent> content) throws IOException {
       @Nullable DataOutputStream output = null;
       try {
         OutputStream outputStream = atomicFile.startWrite();
@@ -732,6 +771,246 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
     }
   }
 
+  /**
+   * {@link Storage} implementation that uses an append-only log of checksummed records.
+   *
+   * <p>Each record either adds or updates a single {@link CachedContent}, or removes one. Storing
+   * incremental changes appends one record per changed {@link CachedContent}, and so its cost is
+   * independent of the size of the index. Loading replays the records in order. The log is
+   * compacted by rewriting it through an {@link AtomicFile} when most of its records have become
+   * obsolete.
+   *
+   * <p>A record that's incomplete or fails its checksum, for example because the process was killed
+   * whilst it was being appended, is discarded along with any records that follow it.
+   */
+  private static final class LogStorage implements Storage {
+
+    private static final int VERSION = 1;
+
+    private static final int RECORD_TYPE_UPDATE = 0;
+    private static final int RECORD_TYPE_REMOVE = 1;
+
+    /** The size of a record's header (the payload length) and footer (the payload checksum). */
+    private static final int RECORD_OVERHEAD_BYTES = 8;
+
+    /** The minimum number of records in the log before it's considered for compaction. */
+    private static final int MIN_RECORD_COUNT_FOR_COMPACTION = 1024;
+
+    private final AtomicFile atomicFile;
+    private final File file;
+    private final SparseArray<@NullableType CachedContent> pendingUpdates;
+    private final ByteArrayOutputStream recordPayload;
+    private final CRC32 crc32;
+
+    private int recordCount;
+    private boolean rewriteRequired;
+
+    public LogStorage(File file) {
+      this.file = file;
+      atomicFile = new AtomicFile(file);
+      pendingUpdates = new SparseArray<>();
+      recordPayload = new ByteArrayOutputStream();
+      crc32 = new CRC32();
+      rewriteRequired = true;
+    }
+
+    @Override
+    public void initialize(long uid) {
+      // Do nothing. Log storage uses a separate file for each cache.
+    }
+
+    @Override
+    public boolean exists() {
+      return atomicFile.exists();
+    }
+
+    @Override
+    public void delete() {
+      atomicFile.delete();
+    }
+
+    @Override
+    public void load(
+        Map<String, CachedContent> content, SparseArray<@NullableType String> idToKey) {
+      checkState(pendingUpdates.size() == 0);
+      if (!atomicFile.exists()) {
+        return;
+      }
+      SparseArray<CachedContent> idToContent = new SparseArray<>();
+      if (!readFile(idToContent)) {
+        atomicFile.delete();
+        rewriteRequired = true;
+        return;
+      }
+      for (int i = 0; i < idToContent.size(); i++) {
+        CachedContent cachedContent = idToContent.valueAt(i);
+        content.put(cachedContent.key, cachedContent);
+        idToKey.put(cachedContent.id, cachedContent.key);
+      }
+    }
+
+    @Override
+    public void storeFully(Map<String, CachedContent> content) throws IOException {
+      // Fail safe so that appends aren't made to a partially written log.
+      rewriteRequired = true;
+      @Nullable DataOutputStream output = null;
+      try {
+        output = new DataOutputStream(new BufferedOutputStream(atomicFile.startWrite()));
+        output.writeInt(VERSION);
+        for (CachedContent cachedContent : content.values()) {
+          writeUpdateRecord(cachedContent, output);
+        }
+        atomicFile.endWrite(output);
+        output = null;
+      } finally {
+        Util.closeQuietly(output);
+      }
+      recordCount = content.size();
+      rewriteRequired = false;
+      pendingUpdates.clear();
+    }
+
+    @Override
+    public void storeIncremental(Map<String, CachedContent> content) throws IOException {
+      if (pendingUpdates.size() == 0) {
+        return;
+      }
+      if (rewriteRequired
+          || (recordCount + pendingUpdates.size() >= MIN_RECORD_COUNT_FOR_COMPACTION
+              && recordCount + pendingUpdates.size() > 2 * content.size())) {
+        storeFully(content);
+        return;
+      }
+      // Fail safe so that the log is rewritten if the append fails part way through.
+      rewriteRequired = true;
+      FileOutputStream fileOutputStream = new FileOutputStream(file, /* append= */ true);
+      try {
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(fileOutputStream));
+        for (int i = 0; i < pendingUpdates.size(); i++) {
+          @Nullable CachedContent cachedContent = pendingUpdates.valueAt(i);
+          if (cachedContent == null) {
+            writeRemoveRecord(pendingUpdates.keyAt(i), output);
+          } else {
+            writeUpdateRecord(cachedContent, output);
+          }
+        }
+        output.flush();
+        fileOutputStream.getFD().sync();
+      } finally {
+        Util.closeQuietly(fileOutputStream);
+      }
+      recordCount += pendingUpdates.size();
+      rewriteRequired = false;
+      pendingUpdates.clear();
+    }
+
+    @Override
+    public void onUpdate(CachedContent cachedContent) {
+      pendingUpdates.put(cachedContent.id, cachedContent);
+    }
+
+    @Override
+    public void onRemove(CachedContent cachedContent, boolean neverStored) {
+      if (neverStored) {
+        pendingUpdates.delete(cachedContent.id);
+      } else {
+        pendingUpdates.put(cachedContent.id, null);
+      }
+    }
+
+    /**
+     * Replays the log into {@code idToContent}.
+     *
+     * @return Whether the log could be read. If false, the log is in a permanently bad state.
+     */
+    private boolean readFile(SparseArray<CachedContent> idToContent) {
+      @Nullable DataInputStream input = null;
+      try {
+        input = new DataInputStream(new BufferedInputStream(atomicFile.openRead()));
+        if (input.readInt() != VERSION) {
+          return false;
+        }
+        long remainingBytes = file.length() - 4;
+        recordCount = 0;
+        rewriteRequired = false;
+        byte[] payload = Util.EMPTY_BYTE_ARRAY;
+        while (remainingBytes > 0) {
+          int payloadLength =
+              remainingBytes >= RECORD_OVERHEAD_BYTES ? input.readInt() : C.LENGTH_UNSET;
+          if (payloadLength <= 0 || payloadLength > remainingBytes - RECORD_OVERHEAD_BYTES) {
+            // The record is incomplete or corrupt.
+            rewriteRequired = true;
+            break;
+          }
+          if (payload.length < payloadLength) {
+            payload = new byte[payloadLength];
+          }
+          input.readFully(payload, /* off= */ 0, payloadLength);
+          int checksum = input.readInt();
+          crc32.reset();
+          crc32.update(payload, /* off= */ 0, payloadLength);
+          if ((int) crc32.getValue() != checksum) {
+            rewriteRequired = true;
+            break;
+          }
+          readRecord(
+              new DataInputStream(new ByteArrayInputStream(payload, 0, payloadLength)),
+              idToContent);
+          remainingBytes -= payloadLength + RECORD_OVERHEAD_BYTES;
+          recordCount++;
+        }
+      } catch (IOException e) {
+        return false;
+      } finally {
+        Util.closeQuietly(input);
+      }
+      return true;
+    }
+
+    private static void readRecord(DataInputStream input, SparseArray<CachedContent> idToContent)
+        throws IOException {
+      int type = input.readUnsignedByte();
+      int id = input.readInt();
+      if (type == RECORD_TYPE_REMOVE) {
+        idToContent.remove(id);
+      } else if (type == RECORD_TYPE_UPDATE) {
+        String key = input.readUTF();
+        DefaultContentMetadata metadata = readContentMetadata(input);
+        idToContent.put(id, new CachedContent(id, key, metadata));
+      } else {
+        throw new IOException("Unexpected record type: " + type);
+      }
+    }
+
+    private void writeUpdateRecord(CachedContent cachedContent, DataOutputStream output)
+        throws IOException {
+      recordPayload.reset();
+      DataOutputStream payloadOutput = new DataOutputStream(recordPayload);
+      payloadOutput.writeByte(RECORD_TYPE_UPDATE);
+      payloadOutput.writeInt(cachedContent.id);
+      payloadOutput.writeUTF(cachedContent.key);
+      writeContentMetadata(cachedContent.getMetadata(), payloadOutput);
+      writeRecord(output);
+    }
+
+    private void writeRemoveRecord(int id, DataOutputStream output) throws IOException {
+      recordPayload.reset();
+      DataOutputStream payloadOutput = new DataOutputStream(recordPayload);
+      payloadOutput.writeByte(RECORD_TYPE_REMOVE);
+      payloadOutput.writeInt(id);
+      writeRecord(output);
+    }
+
+    private void writeRecord(DataOutputStream output) throws IOException {
+      byte[] payload = recordPayload.toByteArray();
+      crc32.reset();
+      crc32.update(payload, /* off= */ 0, payload.length);
+      output.writeInt(payload.length);
+      output.write(payload);
+      output.writeInt((int) crc32.getValue());
+    }
+  }
+
   /** {@link Storage} implementation that uses an SQL database. */
   private static final class DatabaseStorage implements Storage {
 
@@ -800,8 +1079,7 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
     }
 
     @Override
-    public void load(
-        HashMap<String, CachedContent> content, SparseArray<@NullableType String> idToKey)
+    public void load(Map<String, CachedContent> content, SparseArray<@NullableType String> idToKey)
         throws IOException {
       checkState(pendingUpdates.size() == 0);
       try {
@@ -844,7 +1122,7 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
     }
 
     @Override
-    public void storeFully(HashMap<String, CachedContent> content) throws IOException {
+    public void storeFully(Map<String, CachedContent> content) throws IOException {
       try {
         SQLiteDatabase writableDatabase = databaseProvider.getWritableDatabase();
         writableDatabase.beginTransactionNonExclusive();
@@ -864,7 +1142,7 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
     }
 
     @Override
-    public void storeIncremental(HashMap<String, CachedContent> content) throws IOException {
+    public void storeIncremental(Map<String, CachedContent> content) throws IOException {
       if (pendingUpdates.size() == 0) {
         return;
       }
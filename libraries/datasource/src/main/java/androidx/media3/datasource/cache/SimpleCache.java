@@ -15,6 +15,8 @@
  */
 package androidx.media3.datasource.cache;
 
+import static java.lang.Math.min;
+
 import android.os.ConditionVariable;
 import androidx.annotation.Nullable;
 import androidx.annotation.WorkerThread;
@@ -29,6 +31,7 @@ import java.io.File;
 import java.io.IOException;
 import java.security.SecureRandom;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -36,6 +39,7 @@ import java.util.NavigableSet;
 import java.util.Random;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
 
 /**
@@ -43,6 +47,12 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
  *
  * <p>Only one instance of SimpleCache is allowed for a given directory at a given time.
  *
+ * <p>Methods that only query the cache, such as {@link #getCachedSpans(String)}, {@link
+ * #isCached(String, long, long)} and {@link #getCachedBytes(String, long, long)}, don't block
+ * whilst the cache is being modified for other keys. If the {@link CacheEvictor} doesn't {@link
+ * CacheEvictor#requiresCacheSpanTouches() require cache span touches}, starting a read of cached
+ * data via {@link #startReadWrite(String, long, long)} doesn't block either.
+ *
  * <p>To delete a SimpleCache, use {@link #delete(File, DatabaseProvider)} rather than deleting the
  * directory and its contents directly. This is necessary to ensure that associated index data is
  * also removed.
@@ -62,6 +72,11 @@ public final class SimpleCache implements Cache {
 
   private static final String UID_FILE_SUFFIX = ".uid";
 
+  /**
+   * The number of files loaded per acquisition of the lock when loading spans in the background.
+   */
+  private static final int BACKGROUND_LOAD_BATCH_SIZE = 64;
+
   private static final HashSet<File> lockedCacheDirs = new HashSet<>();
 
   private final File cacheDir;
@@ -71,11 +86,17 @@ public final class SimpleCache implements Cache {
   private final HashMap<String, ArrayList<Listener>> listeners;
   private final Random random;
   private final boolean touchCacheSpans;
+  private final boolean lazyInitialization;
+  private final Set<String> lazilyLoadedKeys;
 
   private long uid;
-  private long totalSpace;
-  private boolean released;
-  private @MonotonicNonNull CacheException initializationException;
+  private volatile long totalSpace;
+  private volatile boolean initialized;
+  private volatile boolean spansLoaded;
+  @Nullable private File[] spanDirectories;
+  @Nullable private Map<String, CacheFileMetadata> pendingFileMetadata;
+  private volatile boolean released;
+  private volatile @MonotonicNonNull CacheException initializationException;
 
   /**
    * Returns whether {@code cacheFolder} is locked by a {@link SimpleCache} instance. To unlock the
@@ -204,14 +225,80 @@ public final class SimpleCache implements Cache {
             preferLegacyIndex),
         databaseProvider != null && !preferLegacyIndex
             ? new CacheFileMetadataIndex(databaseProvider)
-            : null);
+            : null,
+        /* lazyInitialization= */ false);
+  }
+
+  /**
+   * Constructs the cache. The cache will delete any unrecognized files from the cache directory.
+   * Hence the directory cannot be used to store other files.
+   *
+   * <p>If {@code useLogIndex} is {@code true}, the cache index is stored in an append-only log in
+   * the cache directory. Adding, updating or removing a resource appends a single record to the
+   * log, rather than rewriting the whole index, which is beneficial for caches containing a large
+   * number of resources. The log index is not encrypted. An existing database index (if {@code
+   * databaseProvider} is non-null) or unencrypted legacy index (otherwise) is migrated into the log
+   * index when the cache is first initialized.
+   *
+   * @param cacheDir A dedicated cache directory.
+   * @param evictor The evictor to be used. For download use cases where cache eviction should not
+   *     occur, use {@link NoOpCacheEvictor}.
+   * @param databaseProvider Provides the database in which the cache index is stored, or from which
+   *     it's migrated if {@code useLogIndex} is {@code true}. May be {@code null} only if {@code
+   *     useLogIndex} is {@code true}.
+   * @param useLogIndex Whether to store the cache index in an append-only log.
+   */
+  public SimpleCache(
+      File cacheDir,
+      CacheEvictor evictor,
+      @Nullable DatabaseProvider databaseProvider,
+      boolean useLogIndex) {
+    this(cacheDir, evictor, databaseProvider, useLogIndex, /* lazyInitialization= */ false);
+  }
+
+  /**
+   * Constructs the cache. The cache will delete any unrecognized files from the cache directory.
+   * Hence the directory cannot be used to store other files.
+   *
+   * <p>If {@code lazyInitialization} is {@code true}, only the cache index is loaded before the
+   * cache can be used. The spans of a resource are then loaded from the cache directory when the
+   * resource is first accessed, whilst the spans of all other resources are loaded in the
+   * background. This allows cached data to be read shortly after construction, even if the cache
+   * contains a large number of files. Methods that depend on the whole cache, such as {@link
+   * #getKeys()} and {@link #getCacheSpace()}, block until the background loading has completed, as
+   * does notifying the {@link CacheEvictor} that the cache has been initialized.
+   *
+   * @param cacheDir A dedicated cache directory.
+   * @param evictor The evictor to be used. For download use cases where cache eviction should not
+   *     occur, use {@link NoOpCacheEvictor}.
+   * @param databaseProvider Provides the database in which the cache index is stored, or from which
+   *     it's migrated if {@code useLogIndex} is {@code true}. May be {@code null} only if {@code
+   *     useLogIndex} is {@code true}.
+   * @param useLogIndex Whether to store the cache index in an append-only log.
+   * @param lazyInitialization Whether to load the spans of each resource when it's first accessed.
+   */
+  public SimpleCache(
+      File cacheDir,
+      CacheEvictor evictor,
+      @Nullable DatabaseProvider databaseProvider,
+      boolean useLogIndex,
+      boolean lazyInitialization) {
+    this(
+        cacheDir,
+        evictor,
+        useLogIndex
+            ? new CachedContentIndex(cacheDir, databaseProvider, /* legacyStorageSecretKey= */ null)
+            : new CachedContentIndex(Assertions.checkNotNull(databaseProvider)),
+        useLogIndex ? null : new CacheFileMetadataIndex(Assertions.checkNotNull(databaseProvider)),
+        lazyInitialization);
   }
 
   /* package */ SimpleCache(
       File cacheDir,
       CacheEvictor evictor,
       CachedContentIndex contentIndex,
-      @Nullable CacheFileMetadataIndex fileIndex) {
+      @Nullable CacheFileMetadataIndex fileIndex,
+      boolean lazyInitialization) {
     if (!lockFolder(cacheDir)) {
       throw new IllegalStateException("Another SimpleCache instance uses the folder: " + cacheDir);
     }
@@ -223,6 +310,8 @@ public final class SimpleCache implements Cache {
     listeners = new HashMap<>();
     random = new Random();
     touchCacheSpans = evictor.requiresCacheSpanTouches();
+    this.lazyInitialization = lazyInitialization;
+    lazilyLoadedKeys = Collections.newSetFromMap(new ConcurrentHashMap<>());
     uid = UID_UNSET;
 
     // Start cache initialization.
@@ -232,8 +321,18 @@ public final class SimpleCache implements Cache {
       public void run() {
         synchronized (SimpleCache.this) {
           conditionVariable.open();
-          initialize();
-          SimpleCache.this.evictor.onCacheInitialized();
+          if (lazyInitialization) {
+            initializeIndex();
+            initialized = true;
+          } else {
+            initialize();
+            SimpleCache.this.evictor.onCacheInitialized();
+            initialized = true;
+            spansLoaded = true;
+          }
+        }
+        if (lazyInitialization) {
+          loadSpansInBackground();
         }
       }
     }.start();
@@ -241,11 +340,13 @@ public final class SimpleCache implements Cache {
   }
 
   /**
-   * Checks whether the cache was initialized successfully.
+   * Checks whether the cache was initialized successfully, waiting for initialization to complete
+   * if necessary.
    *
    * @throws CacheException If an error occurred during initialization.
    */
-  public synchronized void checkInitialization() throws CacheException {
+  public void checkInitialization() throws CacheException {
+    waitForInitialization();
     if (initializationException != null) {
       throw initializationException;
     }
@@ -270,6 +371,8 @@ public final class SimpleCache implements Cache {
     } finally {
       unlockFolder(cacheDir);
       released = true;
+      // Wake up any threads waiting for spans to be loaded in the background.
+      notifyAll();
     }
   }
 
@@ -302,69 +405,72 @@ public final class SimpleCache implements Cache {
   }
 
   @Override
-  public synchronized NavigableSet<CacheSpan> getCachedSpans(String key) {
+  public NavigableSet<CacheSpan> getCachedSpans(String key) {
     Assertions.checkState(!released);
-    CachedContent cachedContent = contentIndex.get(key);
-    return cachedContent == null || cachedContent.isEmpty()
-        ? new TreeSet<>()
-        : new TreeSet<CacheSpan>(cachedContent.getSpans());
+    waitForInitialization();
+    maybeLoadSpans(key);
+    @Nullable CachedContent cachedContent = contentIndex.get(key);
+    return cachedContent == null ? new TreeSet<>() : cachedContent.copySpans();
   }
 
   @Override
-  public synchronized Set<String> getKeys() {
+  public Set<String> getKeys() {
     Assertions.checkState(!released);
+    waitForSpansLoaded();
     return new HashSet<>(contentIndex.getKeys());
   }
 
   @Override
-  public synchronized long getCacheSpace() {
+  public long getCacheSpace() {
     Assertions.checkState(!released);
+    waitForSpansLoaded();
     return totalSpace;
   }
 
   @Override
-  public synchronized CacheSpan startReadWrite(String key, long position, long length)
+  public CacheSpan startReadWrite(String key, long position, long length)
       throws InterruptedException, CacheException {
     Assertions.checkState(!released);
     checkInitialization();
 
-    while (true) {
-      CacheSpan span = startReadWriteNonBlocking(key, position, length);
-      if (span != null) {
-        return span;
-      } else {
-        // Lock not available. We'll be woken up when a span is added, or when a locked span is
-        // released. We'll be able to make progress when either:
-        // 1. A span is added for the requested key that covers the requested position, in which
-        //    case a read can be started.
-        // 2. The lock for the requested key is released, in which case a write can be started.
-        wait();
+    @Nullable CacheSpan span = startReadWithoutLock(key, position, length);
+    if (span != null) {
+      return span;
+    }
+    synchronized (this) {
+      while (true) {
+        // Loading spans in the background may have failed while waiting.
+        checkInitialization();
+        span = startReadWriteNonBlockingInternal(key, position, length);
+        if (span != null) {
+          return span;
+        } else {
+          // Lock not available. We'll be woken up when a span is added, or when a locked span is
+          // released. We'll be able to make progress when either:
+          // 1. A span is added for the requested key that covers the requested position, in which
+          //    case a read can be started.
+          // 2. The lock for the requested key is released, in which case a write can be started.
+          wait();
+        }
       }
     }
   }
 
   @Override
   @Nullable
-  public synchronized CacheSpan startReadWriteNonBlocking(String key, long position, long length)
+  public CacheSpan startReadWriteNonBlocking(String key, long position, long length)
       throws CacheException {
     Assertions.checkState(!released);
     checkInitialization();
 
-    SimpleCacheSpan span = getSpan(key, position, length);
-
-    if (span.isCached) {
-      // Read case.
-      return touchSpan(key, span);
-    }
-
-    CachedContent cachedContent = contentIndex.getOrAdd(key);
-    if (cachedContent.lockRange(position, span.length)) {
-      // Write case.
+    @Nullable CacheSpan span = startReadWithoutLock(key, position, length);
+    if (span != null) {
       return span;
     }
-
-    // Lock not available.
-    return null;
+    synchronized (this) {
+      checkInitialization();
+      return startReadWriteNonBlockingInternal(key, position, length);
+    }
   }
 
   @Override
@@ -372,6 +478,7 @@ public final class SimpleCache implements Cache {
     Assertions.checkState(!released);
     checkInitialization();
 
+    maybeLoadSpans(key);
     CachedContent cachedContent = contentIndex.get(key);
     Assertions.checkNotNull(cachedContent);
     Assertions.checkState(cachedContent.isFullyLocked(position, length));
@@ -395,6 +502,7 @@ public final class SimpleCache implements Cache {
   @Override
   public synchronized void commitFile(File file, long length) throws CacheException {
     Assertions.checkState(!released);
+    checkInitialization();
     if (!file.exists()) {
       return;
     }
@@ -455,15 +563,19 @@ public final class SimpleCache implements Cache {
   }
 
   @Override
-  public synchronized boolean isCached(String key, long position, long length) {
+  public boolean isCached(String key, long position, long length) {
     Assertions.checkState(!released);
+    waitForInitialization();
+    maybeLoadSpans(key);
     @Nullable CachedContent cachedContent = contentIndex.get(key);
     return cachedContent != null && cachedContent.getCachedBytesLength(position, length) >= length;
   }
 
   @Override
-  public synchronized long getCachedLength(String key, long position, long length) {
+  public long getCachedLength(String key, long position, long length) {
     Assertions.checkState(!released);
+    waitForInitialization();
+    maybeLoadSpans(key);
     if (length == C.LENGTH_UNSET) {
       length = Long.MAX_VALUE;
     }
@@ -472,26 +584,12 @@ public final class SimpleCache implements Cache {
   }
 
   @Override
-  public synchronized long getCachedBytes(String key, long position, long length) {
-    long endPosition = length == C.LENGTH_UNSET ? Long.MAX_VALUE : position + length;
-    if (endPosition < 0) {
-      // The calculation rolled over (length is probably Long.MAX_VALUE).
-      endPosition = Long.MAX_VALUE;
-    }
-    long currentPosition = position;
-    long cachedBytes = 0;
-    while (currentPosition < endPosition) {
-      long maxRemainingLength = endPosition - currentPosition;
-      long blockLength = getCachedLength(key, currentPosition, maxRemainingLength);
-      if (blockLength > 0) {
-        cachedBytes += blockLength;
-      } else {
-        // There's a hole of length -blockLength.
-        blockLength = -blockLength;
-      }
-      currentPosition += blockLength;
-    }
-    return cachedBytes;
+  public long getCachedBytes(String key, long position, long length) {
+    Assertions.checkState(!released);
+    waitForInitialization();
+    maybeLoadSpans(key);
+    @Nullable CachedContent cachedContent = contentIndex.get(key);
+    return cachedContent != null ? cachedContent.getCachedBytes(position, length) : 0;
   }
 
   @Override
@@ -509,19 +607,214 @@ public final class SimpleCache implements Cache {
   }
 
   @Override
-  public synchronized ContentMetadata getContentMetadata(String key) {
+  public ContentMetadata getContentMetadata(String key) {
     Assertions.checkState(!released);
+    waitForInitialization();
     return contentIndex.getContentMetadata(key);
   }
 
+  /** Blocks until the initialization thread has finished initializing the cache. */
+  private void waitForInitialization() {
+    if (!initialized) {
+      synchronized (this) {
+        // The initialization thread holds the lock until initialization has completed, so there's
+        // nothing to do once the lock has been acquired.
+      }
+    }
+  }
+
+  /**
+   * Blocks until the spans of all resources have been loaded, or until loading them has failed or
+   * the cache has been released.
+   */
+  private void waitForSpansLoaded() {
+    if (!lazyInitialization || spansLoaded) {
+      return;
+    }
+    synchronized (this) {
+      boolean wasInterrupted = false;
+      while (!spansLoaded && !released && initializationException == null) {
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          wasInterrupted = true;
+        }
+      }
+      if (wasInterrupted) {
+        // Restore the interrupted status.
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Loads the spans of the resource with the given key from the cache directory, if the spans of
+   * all resources haven't been loaded yet and the resource hasn't been loaded already.
+   */
+  private void maybeLoadSpans(String key) {
+    if (spansLoaded || lazilyLoadedKeys.contains(key)) {
+      return;
+    }
+    synchronized (this) {
+      @Nullable File[] spanDirectories = this.spanDirectories;
+      if (spansLoaded || lazilyLoadedKeys.contains(key) || spanDirectories == null) {
+        return;
+      }
+      @Nullable CachedContent cachedContent = contentIndex.get(key);
+      if (cachedContent != null) {
+        @Nullable Map<String, CacheFileMetadata> fileMetadata = getPendingFileMetadata();
+        // Some of the files may already have been loaded in the background.
+        HashSet<File> loadedFiles = new HashSet<>();
+        for (SimpleCacheSpan span : cachedContent.getSpans()) {
+          loadedFiles.add(Assertions.checkNotNull(span.file));
+        }
+        String fileNamePrefix = cachedContent.id + ".";
+        for (File directory : spanDirectories) {
+          @Nullable
+          File[] files = directory.listFiles((dir, name) -> name.startsWith(fileNamePrefix));
+          if (files == null) {
+            continue;
+          }
+          for (File file : files) {
+            if (loadedFiles.contains(file)) {
+              continue;
+            }
+            @Nullable
+            CacheFileMetadata metadata =
+                fileMetadata != null ? fileMetadata.remove(file.getName()) : null;
+            long length = metadata != null ? metadata.length : C.LENGTH_UNSET;
+            long lastTouchTimestamp = metadata != null ? metadata.lastTouchTimestamp : C.TIME_UNSET;
+            @Nullable
+            SimpleCacheSpan span =
+                SimpleCacheSpan.createCacheEntry(file, length, lastTouchTimestamp, contentIndex);
+            if (span != null && span.key.equals(key)) {
+              addSpan(span);
+            }
+          }
+        }
+      }
+      // Only mark the resource as loaded once its spans have been added, since the set is read
+      // without holding the lock.
+      lazilyLoadedKeys.add(key);
+    }
+  }
+
+  /**
+   * Returns the metadata of the cache files that haven't been loaded yet, keyed by file name,
+   * reading it from the file index the first time it's needed. Entries are removed from the
+   * returned map as files are loaded, by both the background and the on-demand loading.
+   *
+   * <p>Returns null if there's no file index, or if reading it failed, in which case the
+   * initialization exception is set.
+   */
+  @Nullable
+  private Map<String, CacheFileMetadata> getPendingFileMetadata() {
+    if (fileIndex == null || initializationException != null) {
+      return null;
+    }
+    if (pendingFileMetadata == null) {
+      try {
+        pendingFileMetadata = fileIndex.getAll();
+      } catch (IOException e) {
+        String message = "Failed to initialize cache indices: " + cacheDir;
+        Log.e(TAG, message, e);
+        initializationException = new CacheException(message, e);
+        notifyAll();
+        return null;
+      }
+    }
+    return pendingFileMetadata;
+  }
+
+  /**
+   * Returns a span for reading cached data without acquiring the lock of this instance, or {@code
+   * null} if the read needs to be started whilst holding the lock.
+   *
+   * <p>Reads can only be started without the lock if cache spans don't need to be touched, since
+   * touching a span modifies both the span and the state of the {@link CacheEvictor}.
+   */
+  @Nullable
+  private SimpleCacheSpan startReadWithoutLock(String key, long position, long length) {
+    if (touchCacheSpans || !initialized) {
+      return null;
+    }
+    maybeLoadSpans(key);
+    @Nullable CachedContent cachedContent = contentIndex.get(key);
+    if (cachedContent == null) {
+      return null;
+    }
+    SimpleCacheSpan span = cachedContent.getSpan(position, length);
+    // If the file has been modified or deleted underneath us, the span needs to be read whilst
+    // holding the lock so that stale spans can be removed.
+    return span.isCached && Assertions.checkNotNull(span.file).length() == span.length
+        ? span
+        : null;
+  }
+
+  @Nullable
+  private CacheSpan startReadWriteNonBlockingInternal(String key, long position, long length) {
+    maybeLoadSpans(key);
+    SimpleCacheSpan span = getSpan(key, position, length);
+
+    if (span.isCached) {
+      // Read case.
+      return touchSpan(key, span);
+    }
+
+    CachedContent cachedContent = contentIndex.getOrAdd(key);
+    if (cachedContent.lockRange(position, span.length)) {
+      // Write case.
+      return span;
+    }
+
+    // Lock not available.
+    return null;
+  }
+
   /** Ensures that the cache's in-memory representation has been initialized. */
   private void initialize() {
+    @Nullable File[] files = initializeIndex();
+    if (files == null) {
+      return;
+    }
+
+    try {
+      if (fileIndex != null) {
+        Map<String, CacheFileMetadata> fileMetadata = fileIndex.getAll();
+        loadDirectory(cacheDir, /* isRoot= */ true, files, fileMetadata);
+        fileIndex.removeAll(fileMetadata.keySet());
+      } else {
+        loadDirectory(cacheDir, /* isRoot= */ true, files, /* fileMetadata= */ null);
+      }
+    } catch (IOException e) {
+      String message = "Failed to initialize cache indices: " + cacheDir;
+      Log.e(TAG, message, e);
+      initializationException = new CacheException(message, e);
+      return;
+    }
+
+    contentIndex.removeEmpty();
+    try {
+      contentIndex.store();
+    } catch (IOException e) {
+      Log.e(TAG, "Storing index file failed", e);
+    }
+  }
+
+  /**
+   * Initializes the cache directory, the cache UID and the cache indices, without loading any
+   * spans.
+   *
+   * @return The files belonging to the root directory, or {@code null} if initialization failed.
+   */
+  @Nullable
+  private File[] initializeIndex() {
     if (!cacheDir.exists()) {
       try {
         createCacheDirectories(cacheDir);
       } catch (CacheException e) {
         initializationException = e;
-        return;
+        return null;
       }
     }
 
@@ -530,7 +823,7 @@ public final class SimpleCache implements Cache {
       String message = "Failed to list cache directory files: " + cacheDir;
       Log.e(TAG, message);
       initializationException = new CacheException(message);
-      return;
+      return null;
     }
 
     uid = loadUid(files);
@@ -541,7 +834,7 @@ public final class SimpleCache implements Cache {
         String message = "Failed to create cache UID: " + cacheDir;
         Log.e(TAG, message, e);
         initializationException = new CacheException(message, e);
-        return;
+        return null;
       }
     }
 
@@ -549,24 +842,123 @@ public final class SimpleCache implements Cache {
       contentIndex.initialize(uid);
       if (fileIndex != null) {
         fileIndex.initialize(uid);
-        Map<String, CacheFileMetadata> fileMetadata = fileIndex.getAll();
-        loadDirectory(cacheDir, /* isRoot= */ true, files, fileMetadata);
-        fileIndex.removeAll(fileMetadata.keySet());
-      } else {
-        loadDirectory(cacheDir, /* isRoot= */ true, files, /* fileMetadata= */ null);
       }
     } catch (IOException e) {
       String message = "Failed to initialize cache indices: " + cacheDir;
       Log.e(TAG, message, e);
       initializationException = new CacheException(message, e);
-      return;
+      return null;
     }
 
-    contentIndex.removeEmpty();
-    try {
-      contentIndex.store();
-    } catch (IOException e) {
-      Log.e(TAG, "Storing index file failed", e);
+    ArrayList<File> spanDirectories = new ArrayList<>();
+    spanDirectories.add(cacheDir);
+    for (File file : files) {
+      if (file.getName().indexOf('.') == -1) {
+        spanDirectories.add(file);
+      }
+    }
+    this.spanDirectories = spanDirectories.toArray(new File[0]);
+    return files;
+  }
+
+  /**
+   * Loads the spans of all resources that weren't loaded on demand, when using lazy initialization.
+   * Files are loaded in batches, so that the lock is only held briefly at a time.
+   */
+  private void loadSpansInBackground() {
+    @Nullable File[] spanDirectories;
+    @Nullable Map<String, CacheFileMetadata> fileMetadata;
+    synchronized (this) {
+      spanDirectories = this.spanDirectories;
+      if (released || spanDirectories == null) {
+        return;
+      }
+      fileMetadata = getPendingFileMetadata();
+      if (initializationException != null) {
+        return;
+      }
+    }
+
+    for (File directory : spanDirectories) {
+      boolean isRoot = directory.equals(cacheDir);
+      @Nullable File[] files = directory.listFiles();
+      if (files == null) {
+        continue;
+      }
+      for (int i = 0; i < files.length; i += BACKGROUND_LOAD_BATCH_SIZE) {
+        synchronized (this) {
+          if (released) {
+            return;
+          }
+          int batchEnd = min(files.length, i + BACKGROUND_LOAD_BATCH_SIZE);
+          for (int j = i; j < batchEnd; j++) {
+            loadFileInBackground(files[j], isRoot, fileMetadata);
+          }
+        }
+      }
+    }
+
+    synchronized (this) {
+      if (released) {
+        return;
+      }
+      if (fileIndex != null) {
+        try {
+          fileIndex.removeAll(Assertions.checkNotNull(fileMetadata).keySet());
+        } catch (IOException e) {
+          // The stale entries will be removed next time the cache is initialized.
+          Log.w(TAG, "Failed to remove stale file index entries", e);
+        }
+      }
+      pendingFileMetadata = null;
+      contentIndex.removeEmpty();
+      try {
+        contentIndex.store();
+      } catch (IOException e) {
+        Log.e(TAG, "Storing index file failed", e);
+      }
+      evictor.onCacheInitialized();
+      spansLoaded = true;
+      notifyAll();
+    }
+  }
+
+  /**
+   * Loads a single file in the background, unless it belongs to a resource that was loaded on
+   * demand.
+   *
+   * @param file The file.
+   * @param isRoot Whether the file belongs to the root directory.
+   * @param fileMetadata A mutable map containing cache file metadata, keyed by file name, from
+   *     which the entry for the file is removed. May be null if no file metadata is available.
+   */
+  private void loadFileInBackground(
+      File file, boolean isRoot, @Nullable Map<String, CacheFileMetadata> fileMetadata) {
+    String fileName = file.getName();
+    if (isRoot
+        && (fileName.indexOf('.') == -1
+            || CachedContentIndex.isIndexFile(fileName)
+            || fileName.endsWith(UID_FILE_SUFFIX))) {
+      // Skip subdirectories, which are loaded separately, and expected UID and index files.
+      return;
+    }
+    @Nullable
+    CacheFileMetadata metadata = fileMetadata != null ? fileMetadata.remove(fileName) : null;
+    int id = SimpleCacheSpan.getCacheFileId(fileName);
+    @Nullable String key = id != C.INDEX_UNSET ? contentIndex.getKeyForId(id) : null;
+    if (key != null && lazilyLoadedKeys.contains(key)) {
+      // The file was loaded on demand, or is being written since the resource was loaded.
+      return;
+    }
+    long length = metadata != null ? metadata.length : C.LENGTH_UNSET;
+    long lastTouchTimestamp = metadata != null ? metadata.lastTouchTimestamp : C.TIME_UNSET;
+    @Nullable
+    SimpleCacheSpan span =
+        SimpleCacheSpan.createCacheEntry(file, length, lastTouchTimestamp, contentIndex);
+    if (span != null) {
+      addSpan(span);
+    } else {
+      file.delete();
     }
   }
 
@@ -50,6 +50,25 @@ import java.util.regex.Pattern;
     return new File(cacheDir, id + "." + position + "." + timestamp + SUFFIX);
   }
 
+  /**
+   * Returns the cache file id encoded in the name of a cache file, or {@link C#INDEX_UNSET} if the
+   * name isn't that of a cache file in the current format.
+   *
+   * @param fileName The name of the cache file.
+   * @return The cache file id, or {@link C#INDEX_UNSET}.
+   */
+  public static int getCacheFileId(String fileName) {
+    Matcher matcher = CACHE_FILE_PATTERN_V3.matcher(fileName);
+    if (!matcher.matches()) {
+      return C.INDEX_UNSET;
+    }
+    try {
+      return Integer.parseInt(Assertions.checkNotNull(matcher.group(1)));
+    } catch (NumberFormatException e) {
+      return C.INDEX_UNSET;
+    }
+  }
+
   /**
    * Creates a lookup span.
    *
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.datasource;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import android.net.Uri;
+import androidx.media3.common.C;
+import androidx.media3.test.utils.TestUtil;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.common.io.Files;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+/** Unit tests for {@link FileDataSource}. */
+@RunWith(AndroidJUnit4.class)
+public final class FileDataSourceTest {
+
+  private static final byte[] DATA = TestUtil.buildTestData(20);
+
+  @Rule public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private Uri uri;
+
+  @Before
+  public void writeFile() throws Exception {
+    File file = tempFolder.newFile();
+    Files.write(DATA, file);
+    uri = Uri.fromFile(file);
+  }
+
+  @Test
+  public void read_withMemoryMapping_readsAcrossWindows() throws Exception {
+    FileDataSource dataSource =
+        new FileDataSource.Factory()
+            .setMemoryMappingEnabled(true)
+            .setMemoryMapWindowSize(8)
+            .createDataSource();
+
+    dataSource.open(new DataSpec.Builder().setUri(uri).setPosition(2).build());
+    byte[] data = new byte[DATA.length];
+    int totalBytesRead = 0;
+    int bytesRead;
+    while ((bytesRead = dataSource.read(data, totalBytesRead, data.length - totalBytesRead))
+        != C.RESULT_END_OF_INPUT) {
+      // Each read is limited to the remainder of the current window.
+      assertThat(bytesRead).isAtMost(8);
+      totalBytesRead += bytesRead;
+    }
+    dataSource.close();
+
+    assertThat(totalBytesRead).isEqualTo(DATA.length - 2);
+    assertThat(Arrays.copyOf(data, totalBytesRead))
+        .isEqualTo(Arrays.copyOfRange(DATA, 2, DATA.length));
+  }
+
+  @Test
+  public void readMapped_returnsReadOnlyViewsOfFileData() throws Exception {
+    FileDataSource dataSource =
+        new FileDataSource.Factory()
+            .setMemoryMappingEnabled(true)
+            .setMemoryMapWindowSize(8)
+            .createDataSource();
+
+    dataSource.open(new DataSpec.Builder().setUri(uri).setPosition(4).setLength(10).build());
+    ByteBuffer firstBuffer = dataSource.readMapped(/* length= */ 6);
+    ByteBuffer secondBuffer = dataSource.readMapped(/* length= */ 6);
+    ByteBuffer thirdBuffer = dataSource.readMapped(/* length= */ 6);
+    ByteBuffer endOfInputBuffer = dataSource.readMapped(/* length= */ 6);
+    dataSource.close();
+
+    assertThat(firstBuffer.isReadOnly()).isTrue();
+    assertThat(getBytes(firstBuffer)).isEqualTo(Arrays.copyOfRange(DATA, 4, 10));
+    // The second read is limited by the end of the first window.
+    assertThat(getBytes(secondBuffer)).isEqualTo(Arrays.copyOfRange(DATA, 10, 12));
+    // The third read is limited by the requested length.
+    assertThat(getBytes(thirdBuffer)).isEqualTo(Arrays.copyOfRange(DATA, 12, 14));
+    assertThat(endOfInputBuffer).isNull();
+  }
+
+  @Test
+  public void readMapped_withoutMemoryMapping_throwsIllegalStateException() throws Exception {
+    FileDataSource dataSource = new FileDataSource();
+    dataSource.open(new DataSpec(uri));
+
+    assertThrows(IllegalStateException.class, () -> dataSource.readMapped(/* length= */ 1));
+    dataSource.close();
+  }
+
+  @Test
+  public void readByteBuffer_withMemoryMapping_returnsMappedData() throws Exception {
+    FileDataSource dataSource =
+        new FileDataSource.Factory()
+            .setMemoryMappingEnabled(true)
+            .setMemoryMapWindowSize(8)
+            .createDataSource();
+
+    dataSource.open(new DataSpec.Builder().setUri(uri).setPosition(4).build());
+    ByteBuffer buffer = dataSource.readByteBuffer(/* length= */ 3);
+    dataSource.close();
+
+    assertThat(getBytes(buffer)).isEqualTo(Arrays.copyOfRange(DATA, 4, 7));
+  }
+
+  @Test
+  public void readByteBuffer_withoutMemoryMapping_returnsNull() throws Exception {
+    FileDataSource dataSource = new FileDataSource();
+    dataSource.open(new DataSpec(uri));
+
+    assertThat(dataSource.readByteBuffer(/* length= */ 1)).isNull();
+    dataSource.close();
+  }
+
+  private static byte[] getBytes(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.get(bytes);
+    return bytes;
+  }
+}
@@ -30,6 +30,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.util.Collection;
 import java.util.Set;
 import org.junit.After;
@@ -324,6 +325,81 @@ public class CachedContentIndexTest {
     assertThat(ContentMetadata.getContentLength(metadata2)).isEqualTo(2560);
   }
 
+  @Test
+  public void logStoreAndLoad() throws Exception {
+    assertStoredAndLoadedEqual(newLogInstance(), newLogInstance());
+  }
+
+  @Test
+  public void logStoreIncrementalAndLoad() throws Exception {
+    CachedContentIndex index = newLogInstance();
+    index.initialize(/* uid= */ 0);
+    index.getOrAdd("key1");
+    index.getOrAdd("key2");
+    index.store();
+    File logFile = new File(cacheDir, CachedContentIndex.FILE_NAME_LOG);
+    long logLengthAfterFirstStore = logFile.length();
+
+    index.maybeRemove("key1");
+    ContentMetadataMutations mutations = new ContentMetadataMutations();
+    ContentMetadataMutations.setContentLength(mutations, 100);
+    index.applyContentMetadataMutations("key2", mutations);
+    index.getOrAdd("key3");
+    index.store();
+
+    // The changes were appended, rather than the log being rewritten.
+    assertThat(logFile.length()).isGreaterThan(logLengthAfterFirstStore);
+    CachedContentIndex index2 = newLogInstance();
+    index2.initialize(/* uid= */ 0);
+    assertThat(index2.getKeys()).containsExactly("key2", "key3");
+    assertThat(index2.get("key2")).isEqualTo(index.get("key2"));
+    assertThat(index2.get("key3")).isEqualTo(index.get("key3"));
+    assertThat(ContentMetadata.getContentLength(index2.getContentMetadata("key2"))).isEqualTo(100);
+  }
+
+  @Test
+  public void logLoad_withTruncatedRecord_discardsTruncatedRecord() throws Exception {
+    CachedContentIndex index = newLogInstance();
+    index.initialize(/* uid= */ 0);
+    index.getOrAdd("key1");
+    index.store();
+    index.getOrAdd("key2");
+    index.store();
+    File logFile = new File(cacheDir, CachedContentIndex.FILE_NAME_LOG);
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(logFile, "rw")) {
+      randomAccessFile.setLength(randomAccessFile.length() - 3);
+    }
+
+    CachedContentIndex index2 = newLogInstance();
+    index2.initialize(/* uid= */ 0);
+    assertThat(index2.getKeys()).containsExactly("key1");
+    index2.getOrAdd("key3");
+    index2.store();
+
+    CachedContentIndex index3 = newLogInstance();
+    index3.initialize(/* uid= */ 0);
+    assertThat(index3.getKeys()).containsExactly("key1", "key3");
+  }
+
+  @Test
+  public void logInitialize_withLegacyIndex_migratesLegacyIndex() throws Exception {
+    File legacyFile = new File(cacheDir, CachedContentIndex.FILE_NAME_ATOMIC);
+    FileOutputStream fos = new FileOutputStream(legacyFile);
+    fos.write(testIndexV2File);
+    fos.close();
+
+    CachedContentIndex index = newLogInstance();
+    index.initialize(/* uid= */ 0);
+
+    assertThat(legacyFile.exists()).isFalse();
+    CachedContentIndex index2 = newLogInstance();
+    index2.initialize(/* uid= */ 0);
+    assertThat(index2.assignIdForKey("ABCDE")).isEqualTo(5);
+    assertThat(ContentMetadata.getRedirectedUri(index2.get("ABCDE").getMetadata()))
+        .isEqualTo(Uri.parse("abcde"));
+    assertThat(index2.assignIdForKey("KLMNO")).isEqualTo(2);
+  }
+
   @Test
   public void assignIdForKeyAndGetKeyForId() {
     CachedContentIndex index = newInstance();
@@ -465,6 +541,11 @@ public class CachedContentIndexTest {
     return new CachedContentIndex(TestUtil.getInMemoryDatabaseProvider());
   }
 
+  private CachedContentIndex newLogInstance() {
+    return new CachedContentIndex(
+        cacheDir, /* databaseProvider= */ null, /* legacyStorageSecretKey= */ null);
+  }
+
   private CachedContentIndex newLegacyInstance() {
     return newLegacyInstance(null);
   }
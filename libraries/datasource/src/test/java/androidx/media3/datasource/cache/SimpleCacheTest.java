@@ -16,11 +16,14 @@
 package androidx.media3.datasource.cache;
 
 import static androidx.media3.common.C.LENGTH_UNSET;
+import static androidx.media3.common.util.Assertions.checkNotNull;
+import static androidx.media3.test.utils.TestUtil.createTestFile;
 import static com.google.common.truth.Truth.assertThat;
 import static org.junit.Assert.assertThrows;
 import static org.mockito.Mockito.doAnswer;
 
 import android.net.Uri;
+import androidx.media3.common.util.ConditionVariable;
 import androidx.media3.common.util.Util;
 import androidx.media3.database.DatabaseProvider;
 import androidx.media3.datasource.cache.Cache.CacheException;
@@ -34,6 +37,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.NavigableSet;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -99,6 +103,18 @@ public class SimpleCacheTest {
     assertThat(uid).isEqualTo(-1L);
   }
 
+  @Test
+  public void newInstance_withConflictingFile_startReadWriteThrows() throws IOException {
+    // Creating a file where the cache should be will cause an error during initialization.
+    assertThat(cacheDir.createNewFile()).isTrue();
+
+    SimpleCache cache = getLazilyInitializedSimpleCache();
+
+    assertThrows(CacheException.class, () -> cache.startReadWrite(KEY_1, 0, LENGTH_UNSET));
+    assertThrows(
+        CacheException.class, () -> cache.startReadWriteNonBlocking(KEY_1, 0, LENGTH_UNSET));
+  }
+
   @Test
   @SuppressWarnings("deprecation") // Testing deprecated behaviour
   public void newInstance_withExistingCacheDirectory_withoutDatabase_loadsCachedData()
@@ -148,6 +164,170 @@ public class SimpleCacheTest {
         .isEqualTo(Uri.parse("https://redirect.google.com"));
   }
 
+  @Test
+  public void newInstance_withExistingCacheDirectory_withLogIndex_loadsCachedData()
+      throws Exception {
+    SimpleCache simpleCache =
+        new SimpleCache(
+            cacheDir,
+            new NoOpCacheEvictor(),
+            /* databaseProvider= */ null,
+            /* useLogIndex= */ true);
+
+    // Write some data and metadata to the cache.
+    CacheSpan holeSpan = simpleCache.startReadWrite(KEY_1, 0, LENGTH_UNSET);
+    addCache(simpleCache, KEY_1, 0, 15);
+    simpleCache.releaseHoleSpan(holeSpan);
+    ContentMetadataMutations mutations = new ContentMetadataMutations();
+    ContentMetadataMutations.setRedirectedUri(mutations, Uri.parse("https://redirect.google.com"));
+    simpleCache.applyContentMetadataMutations(KEY_1, mutations);
+    simpleCache.release();
+
+    // Create a new instance pointing to the same directory.
+    simpleCache =
+        new SimpleCache(
+            cacheDir,
+            new NoOpCacheEvictor(),
+            /* databaseProvider= */ null,
+            /* useLogIndex= */ true);
+
+    // Read the cached data and metadata back.
+    CacheSpan fileSpan = simpleCache.startReadWrite(KEY_1, 0, LENGTH_UNSET);
+    assertCachedDataReadCorrect(fileSpan);
+    assertThat(ContentMetadata.getRedirectedUri(simpleCache.getContentMetadata(KEY_1)))
+        .isEqualTo(Uri.parse("https://redirect.google.com"));
+  }
+
+  @Test
+  public void newInstance_withExistingCacheDirectory_withLazyInitialization_loadsCachedData()
+      throws Exception {
+    SimpleCache simpleCache = getLazilyInitializedSimpleCache();
+    CacheSpan holeSpan = simpleCache.startReadWrite(KEY_1, 0, LENGTH_UNSET);
+    addCache(simpleCache, KEY_1, 0, 15);
+    simpleCache.releaseHoleSpan(holeSpan);
+    holeSpan = simpleCache.startReadWrite(KEY_2, 0, LENGTH_UNSET);
+    addCache(simpleCache, KEY_2, 0, 10);
+    addCache(simpleCache, KEY_2, 10, 5);
+    simpleCache.releaseHoleSpan(holeSpan);
+    simpleCache.release();
+
+    simpleCache = getLazilyInitializedSimpleCache();
+
+    // Spans are loaded on demand, or else in the background.
+    CacheSpan fileSpan = simpleCache.startReadWrite(KEY_1, 0, LENGTH_UNSET);
+    assertCachedDataReadCorrect(fileSpan);
+    assertThat(simpleCache.getCachedSpans(KEY_2)).hasSize(2);
+    assertThat(simpleCache.getCachedBytes(KEY_2, 0, LENGTH_UNSET)).isEqualTo(15);
+    // Methods that depend on the whole cache wait for background loading to complete.
+    assertThat(simpleCache.getKeys()).containsExactly(KEY_1, KEY_2);
+    assertThat(simpleCache.getCacheSpace()).isEqualTo(30);
+    assertThat(simpleCache.getCachedSpans(KEY_1)).hasSize(1);
+  }
+
+  @Test
+  public void newInstance_withLazyInitialization_removesUnknownFiles() throws Exception {
+    SimpleCache simpleCache = getLazilyInitializedSimpleCache();
+    CacheSpan holeSpan = simpleCache.startReadWrite(KEY_1, 0, LENGTH_UNSET);
+    addCache(simpleCache, KEY_1, 0, 15);
+    simpleCache.releaseHoleSpan(holeSpan);
+    simpleCache.release();
+    // Create a cache file for an id that isn't present in the index.
+    File unknownFile =
+        SimpleCacheSpan.getCacheFile(
+            cacheDir, /* id= */ 100, /* position= */ 0, /* timestamp= */ 1000);
+    createTestFile(unknownFile, /* length= */ 10);
+
+    simpleCache = getLazilyInitializedSimpleCache();
+    // Wait for background loading to complete.
+    simpleCache.getCacheSpace();
+
+    assertThat(unknownFile.exists()).isFalse();
+    assertThat(simpleCache.getCachedSpans(KEY_1)).hasSize(1);
+  }
+
+  @Test
+  public void newInstance_withLazyInitialization_onDemandLoadDuringBackgroundLoad_addsSpansOnce()
+      throws Exception {
+    SimpleCache simpleCache = getLazilyInitializedSimpleCache();
+    CacheSpan holeSpan = simpleCache.startReadWrite(KEY_1, 0, LENGTH_UNSET);
+    addCache(simpleCache, KEY_1, 0, 10);
+    addCache(simpleCache, KEY_1, 10, 5);
+    simpleCache.releaseHoleSpan(holeSpan);
+    simpleCache.release();
+    // Load the spans of KEY_1 on demand as soon as the background loading has added one of them.
+    AtomicInteger spanAddedCount = new AtomicInteger();
+    CacheEvictor evictor =
+        new CacheEvictor() {
+          @Override
+          public boolean requiresCacheSpanTouches() {
+            return false;
+          }
+
+          @Override
+          public void onCacheInitialized() {}
+
+          @Override
+          public void onStartFile(Cache cache, String key, long position, long length) {}
+
+          @Override
+          public void onSpanAdded(Cache cache, CacheSpan span) {
+            if (spanAddedCount.incrementAndGet() == 1) {
+              assertThat(cache.isCached(KEY_1, /* position= */ 0, /* length= */ 15)).isTrue();
+            }
+          }
+
+          @Override
+          public void onSpanRemoved(Cache cache, CacheSpan span) {}
+
+          @Override
+          public void onSpanTouched(Cache cache, CacheSpan oldSpan, CacheSpan newSpan) {}
+        };
+
+    simpleCache =
+        new SimpleCache(
+            cacheDir,
+            evictor,
+            /* databaseProvider= */ null,
+            /* useLogIndex= */ true,
+            /* lazyInitialization= */ true);
+
+    assertThat(simpleCache.getCacheSpace()).isEqualTo(15);
+    assertThat(spanAddedCount.get()).isEqualTo(2);
+    assertThat(simpleCache.getCachedSpans(KEY_1)).hasSize(2);
+  }
+
+  @Test
+  public void newInstance_withLazyInitialization_loadsLastTouchTimestampFromFileIndex()
+      throws Exception {
+    SimpleCache simpleCache =
+        new SimpleCache(
+            cacheDir,
+            new NoOpCacheEvictor(),
+            databaseProvider,
+            /* useLogIndex= */ false,
+            /* lazyInitialization= */ true);
+    CacheSpan holeSpan = simpleCache.startReadWrite(KEY_1, 0, LENGTH_UNSET);
+    addCache(simpleCache, KEY_1, 0, 15);
+    simpleCache.releaseHoleSpan(holeSpan);
+    File file = checkNotNull(simpleCache.getCachedSpans(KEY_1).first().file);
+    long uid = simpleCache.getUid();
+    simpleCache.release();
+    CacheFileMetadataIndex fileIndex = new CacheFileMetadataIndex(databaseProvider);
+    fileIndex.initialize(uid);
+    fileIndex.set(file.getName(), /* length= */ 15, /* lastTouchTimestamp= */ 1234);
+
+    simpleCache =
+        new SimpleCache(
+            cacheDir,
+            new NoOpCacheEvictor(),
+            databaseProvider,
+            /* useLogIndex= */ false,
+            /* lazyInitialization= */ true);
+
+    // The timestamp is the same whether the span is loaded on demand or in the background.
+    assertThat(simpleCache.getCachedSpans(KEY_1).first().lastTouchTimestamp).isEqualTo(1234);
+  }
+
   @Test
   public void newInstance_withExistingCacheInstance_fails() {
     getSimpleCache();
@@ -587,6 +767,65 @@ public class SimpleCacheTest {
         .isEqualTo(10);
   }
 
+  @Test(timeout = 10_000)
+  public void queries_whileCacheIsLockedByAnotherThread_doNotBlock() throws Exception {
+    SimpleCache simpleCache = getSimpleCache();
+    CacheSpan holeSpan = simpleCache.startReadWrite(KEY_1, /* position= */ 0, LENGTH_UNSET);
+    addCache(simpleCache, KEY_1, /* position= */ 0, /* length= */ 15);
+    simpleCache.releaseHoleSpan(holeSpan);
+    ContentMetadataMutations mutations = new ContentMetadataMutations();
+    ContentMetadataMutations.setContentLength(mutations, 15);
+    simpleCache.applyContentMetadataMutations(KEY_1, mutations);
+    ConditionVariable lockAcquired = new ConditionVariable();
+    ConditionVariable releaseLock = new ConditionVariable();
+    Thread lockingThread =
+        new Thread(
+            () -> {
+              synchronized (simpleCache) {
+                lockAcquired.open();
+                releaseLock.blockUninterruptible();
+              }
+            });
+    lockingThread.start();
+    lockAcquired.block();
+
+    try {
+      assertThat(simpleCache.getKeys()).containsExactly(KEY_1);
+      assertThat(simpleCache.getCachedSpans(KEY_1)).hasSize(1);
+      assertThat(simpleCache.getCachedSpans(KEY_2)).isEmpty();
+      assertThat(simpleCache.isCached(KEY_1, /* position= */ 0, /* length= */ 15)).isTrue();
+      assertThat(simpleCache.getCachedLength(KEY_1, /* position= */ 5, /* length= */ 20))
+          .isEqualTo(10);
+      assertThat(simpleCache.getCachedBytes(KEY_1, /* position= */ 0, LENGTH_UNSET)).isEqualTo(15);
+      assertThat(simpleCache.getCacheSpace()).isEqualTo(15);
+      assertThat(ContentMetadata.getContentLength(simpleCache.getContentMetadata(KEY_1)))
+          .isEqualTo(15);
+      // Starting a read of cached data doesn't require the lock when spans aren't touched.
+      CacheSpan readSpan = simpleCache.startReadWrite(KEY_1, /* position= */ 0, LENGTH_UNSET);
+      assertThat(readSpan.isCached).isTrue();
+      assertCachedDataReadCorrect(readSpan);
+    } finally {
+      releaseLock.open();
+      lockingThread.join();
+    }
+  }
+
+  @Test
+  public void startReadWrite_withCachedFileModified_returnsHoleSpan() throws Exception {
+    SimpleCache simpleCache = getSimpleCache();
+    CacheSpan holeSpan = simpleCache.startReadWrite(KEY_1, /* position= */ 0, LENGTH_UNSET);
+    addCache(simpleCache, KEY_1, /* position= */ 0, /* length= */ 15);
+    simpleCache.releaseHoleSpan(holeSpan);
+    CacheSpan fileSpan = simpleCache.getCachedSpans(KEY_1).first();
+    assertThat(fileSpan.file.delete()).isTrue();
+
+    CacheSpan span = simpleCache.startReadWrite(KEY_1, /* position= */ 0, LENGTH_UNSET);
+
+    assertThat(span.isCached).isFalse();
+    assertThat(simpleCache.getCachedSpans(KEY_1)).isEmpty();
+    assertThat(simpleCache.getCacheSpace()).isEqualTo(0);
+  }
+
   // Regression test for https://github.com/google/ExoPlayer/issues/3260.
   @Test
   public void exceptionDuringIndexStore_doesNotPreventEviction() throws Exception {
@@ -594,7 +833,11 @@ public class SimpleCacheTest {
         Mockito.spy(new CachedContentIndex(TestUtil.getInMemoryDatabaseProvider()));
     SimpleCache simpleCache =
         new SimpleCache(
-            cacheDir, new LeastRecentlyUsedCacheEvictor(20), contentIndex, /* fileIndex= */ null);
+            cacheDir,
+            new LeastRecentlyUsedCacheEvictor(20),
+            contentIndex,
+            /* fileIndex= */ null,
+            /* lazyInitialization= */ false);
 
     // Add some content.
     CacheSpan holeSpan = simpleCache.startReadWrite(KEY_1, 0, LENGTH_UNSET);
@@ -633,6 +876,15 @@ public class SimpleCacheTest {
     return new SimpleCache(cacheDir, new NoOpCacheEvictor(), databaseProvider);
   }
 
+  private SimpleCache getLazilyInitializedSimpleCache() {
+    return new SimpleCache(
+        cacheDir,
+        new NoOpCacheEvictor(),
+        /* databaseProvider= */ null,
+        /* useLogIndex= */ true,
+        /* lazyInitialization= */ true);
+  }
+
   private static void addCache(SimpleCache simpleCache, String key, int position, int length)
       throws IOException {
     File file = simpleCache.startFile(key, position, length);
@@ -85,6 +85,7 @@ public abstract class BaseRenderer implements Renderer, RendererCapabilities {
   private boolean throwRendererExceptionIsExecuting;
   private Timeline timeline;
   @Nullable private MediaSource.MediaPeriodId mediaPeriodId;
+  private PlaybackMetrics playbackMetrics;
 
   @GuardedBy("lock")
   @Nullable
@@ -100,6 +101,7 @@ public abstract class BaseRenderer implements Renderer, RendererCapabilities {
     formatHolder = new FormatHolder();
     readingPositionUs = C.TIME_END_OF_SOURCE;
     timeline = Timeline.EMPTY;
+    playbackMetrics = PlaybackMetrics.NO_OP;
   }
 
   @Override
@@ -287,7 +289,9 @@ public abstract class BaseRenderer implements Renderer, RendererCapabilities {
   @Override
   public void handleMessage(@MessageType int messageType, @Nullable Object message)
       throws ExoPlaybackException {
-    // Do nothing.
+    if (messageType == MSG_SET_PLAYBACK_METRICS) {
+      playbackMetrics = checkNotNull((PlaybackMetrics) message);
+    }
   }
 
   // Methods to be overridden by subclasses.
@@ -573,6 +577,11 @@ public abstract class BaseRenderer implements Renderer, RendererCapabilities {
    */
   protected final @ReadDataResult int readSource(
       FormatHolder formatHolder, DecoderInputBuffer buffer, @ReadFlags int readFlags) {
+    boolean recordSampleDataRead =
+        playbackMetrics != PlaybackMetrics.NO_OP
+            && (readFlags & (SampleStream.FLAG_PEEK | SampleStream.FLAG_OMIT_SAMPLE_DATA)) == 0;
+    int dataPositionBeforeRead =
+        recordSampleDataRead && buffer.data != null ? buffer.data.position() : 0;
     @ReadDataResult
     int result = Assertions.checkNotNull(stream).readData(formatHolder, buffer, readFlags);
     if (result == C.RESULT_BUFFER_READ) {
@@ -580,6 +589,10 @@ public abstract class BaseRenderer implements Renderer, RendererCapabilities {
         readingPositionUs = C.TIME_END_OF_SOURCE;
         return streamIsFinal ? C.RESULT_BUFFER_READ : C.RESULT_NOTHING_READ;
       }
+      if (recordSampleDataRead && buffer.data != null) {
+        playbackMetrics.onSampleDataRead(
+            trackType, buffer.data.position() - dataPositionBeforeRead);
+      }
       buffer.timeUs += streamOffsetUs;
       readingPositionUs = max(readingPositionUs, buffer.timeUs);
     } else if (result == C.RESULT_FORMAT_READ) {
@@ -237,6 +237,7 @@ public interface ExoPlayer extends Player {
     @C.VideoScalingMode /* package */ int videoScalingMode;
     @C.VideoChangeFrameRateStrategy /* package */ int videoChangeFrameRateStrategy;
     /* package */ boolean useLazyPreparation;
+    /* package */ int lazyPreparationLookaheadCount;
     /* package */ SeekParameters seekParameters;
     /* package */ ScrubbingModeParameters scrubbingModeParameters;
     /* package */ long seekBackIncrementMs;
@@ -253,6 +254,7 @@ public interface ExoPlayer extends Player {
     /* package */ String playerName;
     /* package */ boolean dynamicSchedulingEnabled;
     /* package */ SuitableOutputChecker suitableOutputChecker;
+    /* package */ PlaybackMetrics playbackMetrics;
 
     /**
      * Creates a builder.
@@ -288,6 +290,7 @@ public interface ExoPlayer extends Player {
      *   <li>{@link C.VideoChangeFrameRateStrategy}: {@link
      *       C#VIDEO_CHANGE_FRAME_RATE_STRATEGY_ONLY_IF_SEAMLESS}
      *   <li>{@code useLazyPreparation}: {@code true}
+     *   <li>{@code lazyPreparationLookaheadCount}: {@code 0}
      *   <li>{@link SeekParameters}: {@link SeekParameters#DEFAULT}
      *   <li>{@code seekBackIncrementMs}: {@link C#DEFAULT_SEEK_BACK_INCREMENT_MS}
      *   <li>{@code seekForwardIncrementMs}: {@link C#DEFAULT_SEEK_FORWARD_INCREMENT_MS}
@@ -299,6 +302,7 @@ public interface ExoPlayer extends Player {
      *   <li>{@link Clock}: {@link Clock#DEFAULT}
      *   <li>{@code playbackLooper}: {@code null} (create new thread)
      *   <li>{@code dynamicSchedulingEnabled}: {@code false}
+     *   <li>{@link PlaybackMetrics}: {@link PlaybackMetrics#NO_OP}
      * </ul>
      *
      * @param context A {@link Context}.
@@ -462,6 +466,7 @@ public interface ExoPlayer extends Player {
       playerName = "";
       priority = C.PRIORITY_PLAYBACK;
       suitableOutputChecker = new DefaultSuitableOutputChecker();
+      playbackMetrics = PlaybackMetrics.NO_OP;
     }
 
     /**
@@ -502,6 +507,22 @@ public interface ExoPlayer extends Player {
       return this;
     }
 
+    /**
+     * Sets the {@link PlaybackMetrics} that will receive timings and counters of the player's hot
+     * paths, such as the iterations of the playback loop and the {@link Renderer#render} calls.
+     *
+     * @param playbackMetrics A {@link PlaybackMetrics}.
+     * @return This builder.
+     * @throws IllegalStateException If {@link #build()} has already been called.
+     */
+    @CanIgnoreReturnValue
+    @UnstableApi
+    public Builder setPlaybackMetrics(PlaybackMetrics playbackMetrics) {
+      checkState(!buildCalled);
+      this.playbackMetrics = checkNotNull(playbackMetrics);
+      return this;
+    }
+
     /**
      * Sets whether the player should suppress playback that is attempted on an unsuitable output.
      * An example of an unsuitable audio output is the built-in speaker on a Wear OS device (unless
@@ -831,6 +852,32 @@ public interface ExoPlayer extends Player {
       return this;
     }
 
+    /**
+     * Sets the number of media items whose lazy preparation starts ahead of time.
+     *
+     * <p>When the player starts buffering a media item, the initial preparation steps (e.g.,
+     * manifest loads) of up to {@code lazyPreparationLookaheadCount} media items that play next,
+     * taking the repeat and shuffle modes into account, are started as well. They run in parallel
+     * on the loaders of the media sources, so that transitioning or seeking to one of these items
+     * doesn't need to wait for them.
+     *
+     * <p>Has no effect if {@linkplain #setUseLazyPreparation lazy preparation} is disabled, as all
+     * media items are then prepared immediately.
+     *
+     * @param lazyPreparationLookaheadCount The number of following media items to prepare ahead of
+     *     time.
+     * @return This builder.
+     * @throws IllegalStateException If {@link #build()} has already been called.
+     */
+    @CanIgnoreReturnValue
+    @UnstableApi
+    public Builder setLazyPreparationLookaheadCount(int lazyPreparationLookaheadCount) {
+      checkArgument(lazyPreparationLookaheadCount >= 0);
+      checkState(!buildCalled);
+      this.lazyPreparationLookaheadCount = lazyPreparationLookaheadCount;
+      return this;
+    }
+
     /**
      * Sets the parameters that control how seek operations are performed.
      *
@@ -62,6 +62,7 @@ import androidx.media3.common.C;
 import androidx.media3.common.C.TrackType;
 import androidx.media3.common.DeviceInfo;
 import androidx.media3.common.Effect;
+import androidx.media3.common.FlagSet;
 import androidx.media3.common.Format;
 import androidx.media3.common.IllegalSeekPositionException;
 import androidx.media3.common.MediaItem;
@@ -100,7 +101,9 @@ import androidx.media3.exoplayer.audio.AudioRendererEventListener;
 import androidx.media3.exoplayer.audio.AudioSink;
 import androidx.media3.exoplayer.image.ImageOutput;
 import androidx.media3.exoplayer.metadata.MetadataOutput;
+import androidx.media3.exoplayer.source.LoadEventInfo;
 import androidx.media3.exoplayer.source.MaskingMediaSource;
+import androidx.media3.exoplayer.source.MediaLoadData;
 import androidx.media3.exoplayer.source.MediaSource;
 import androidx.media3.exoplayer.source.MediaSource.MediaPeriodId;
 import androidx.media3.exoplayer.source.ShuffleOrder;
@@ -377,7 +380,9 @@ import java.util.concurrent.CopyOnWriteArraySet;
               playerId,
               builder.playbackLooperProvider,
               preloadConfiguration,
-              frameMetadataListener);
+              frameMetadataListener,
+              builder.playbackMetrics,
+              builder.lazyPreparationLookaheadCount);
       Looper playbackLooper = internalPlayer.getPlaybackLooper();
 
       volume = 1;
@@ -391,6 +396,9 @@ import java.util.concurrent.CopyOnWriteArraySet;
 
       addListener(analyticsCollector);
       bandwidthMeter.addEventListener(new Handler(applicationLooper), analyticsCollector);
+      if (builder.playbackMetrics != PlaybackMetrics.NO_OP) {
+        analyticsCollector.addListener(new PlaybackMetricsLoadListener(builder.playbackMetrics));
+      }
       addAudioOffloadListener(componentListener);
       if (builder.foregroundModeTimeoutMs > 0) {
         internalPlayer.experimentalSetForegroundModeTimeoutMs(builder.foregroundModeTimeoutMs);
@@ -3430,6 +3438,31 @@ import java.util.concurrent.CopyOnWriteArraySet;
     }
   }
 
+  /** Forwards the completed loads to a {@link PlaybackMetrics}. */
+  private static final class PlaybackMetricsLoadListener implements AnalyticsListener {
+
+    private static final FlagSet EVENT_FLAGS =
+        new FlagSet.Builder().add(AnalyticsListener.EVENT_LOAD_COMPLETED).build();
+
+    private final PlaybackMetrics playbackMetrics;
+
+    public PlaybackMetricsLoadListener(PlaybackMetrics playbackMetrics) {
+      this.playbackMetrics = playbackMetrics;
+    }
+
+    @Override
+    public FlagSet getEventFlags() {
+      return EVENT_FLAGS;
+    }
+
+    @Override
+    public void onLoadCompleted(
+        EventTime eventTime, LoadEventInfo loadEventInfo, MediaLoadData mediaLoadData) {
+      playbackMetrics.onLoadCompleted(
+          mediaLoadData.dataType, loadEventInfo.loadDurationMs, loadEventInfo.bytesLoaded);
+    }
+  }
+
   @RequiresApi(31)
   private static final class Api31 {
     private Api31() {}
@@ -220,6 +220,7 @@ import java.util.Objects;
   private final long releaseTimeoutMs;
   private final PlayerId playerId;
   private final boolean dynamicSchedulingEnabled;
+  private final PlaybackMetrics playbackMetrics;
   private final AnalyticsCollector analyticsCollector;
   private final HandlerWrapper applicationLooperHandler;
   private final boolean hasSecondaryRenderers;
@@ -280,7 +281,9 @@ import java.util.Objects;
       PlayerId playerId,
       @Nullable PlaybackLooperProvider playbackLooperProvider,
       PreloadConfiguration preloadConfiguration,
-      VideoFrameMetadataListener videoFrameMetadataListener) {
+      VideoFrameMetadataListener videoFrameMetadataListener,
+      PlaybackMetrics playbackMetrics,
+      int lazyPreparationLookaheadCount) {
     this.playbackInfoUpdateListener = playbackInfoUpdateListener;
     this.trackSelector = trackSelector;
     this.emptyTrackSelectorResult = emptyTrackSelectorResult;
@@ -294,6 +297,7 @@ import java.util.Objects;
     this.setForegroundModeTimeoutMs = releaseTimeoutMs;
     this.pauseAtEndOfWindow = pauseAtEndOfWindow;
     this.dynamicSchedulingEnabled = dynamicSchedulingEnabled;
+    this.playbackMetrics = playbackMetrics;
     this.clock = clock;
     this.playerId = playerId;
     this.preloadConfiguration = preloadConfiguration;
@@ -348,7 +352,13 @@ import java.util.Objects;
             preloadConfiguration);
     mediaSourceList =
         new MediaSourceList(
-            /* listener= */ this, analyticsCollector, applicationLooperHandler, playerId);
+            /* listener= */ this,
+            analyticsCollector,
+            applicationLooperHandler,
+            playerId,
+            lazyPreparationLookaheadCount);
+    mediaSourceList.setRepeatMode(repeatMode);
+    mediaSourceList.setShuffleModeEnabled(shuffleModeEnabled);
 
     this.playbackLooperProvider =
         (playbackLooperProvider == null) ? new PlaybackLooperProvider() : playbackLooperProvider;
@@ -1154,6 +1164,7 @@ import java.util.Objects;
   private void setRepeatModeInternal(@Player.RepeatMode int repeatMode)
       throws ExoPlaybackException {
     this.repeatMode = repeatMode;
+    mediaSourceList.setRepeatMode(repeatMode);
     @MediaPeriodQueue.UpdatePeriodQueueResult
     int result = queue.updateRepeatMode(playbackInfo.timeline, repeatMode);
     if ((result & UPDATE_PERIOD_QUEUE_ALTERED_READING_PERIOD) != 0) {
@@ -1167,6 +1178,7 @@ import java.util.Objects;
   private void setShuffleModeEnabledInternal(boolean shuffleModeEnabled)
       throws ExoPlaybackException {
     this.shuffleModeEnabled = shuffleModeEnabled;
+    mediaSourceList.setShuffleModeEnabled(shuffleModeEnabled);
     @MediaPeriodQueue.UpdatePeriodQueueResult
     int result = queue.updateShuffleModeEnabled(playbackInfo.timeline, shuffleModeEnabled);
     if ((result & UPDATE_PERIOD_QUEUE_ALTERED_READING_PERIOD) != 0) {
@@ -1326,11 +1338,28 @@ import java.util.Objects;
   }
 
   private void doSomeWork() throws ExoPlaybackException, IOException {
+    if (playbackMetrics == PlaybackMetrics.NO_OP) {
+      doSomeWorkInternal();
+      return;
+    }
+    long startTimeNs = clock.nanoTime();
+    doSomeWorkInternal();
+    playbackMetrics.onAllocatorOccupancySampled(
+        loadControl.getAllocator().getTotalBytesAllocated());
+    playbackMetrics.onPlaybackLoopIteration(clock.nanoTime() - startTimeNs);
+  }
+
+  private void doSomeWorkInternal() throws ExoPlaybackException, IOException {
     long operationStartTimeMs = clock.uptimeMillis();
     // Remove other pending DO_SOME_WORK requests that are handled by this invocation.
     handler.removeMessages(MSG_DO_SOME_WORK);
 
+    boolean recordMetrics = playbackMetrics != PlaybackMetrics.NO_OP;
+    long updatePeriodsStartTimeNs = recordMetrics ? clock.nanoTime() : 0;
     updatePeriods();
+    if (recordMetrics) {
+      playbackMetrics.onMediaPeriodQueueUpdated(clock.nanoTime() - updatePeriodsStartTimeNs);
+    }
 
     if (playbackInfo.playbackState == Player.STATE_IDLE
         || playbackInfo.playbackState == Player.STATE_ENDED) {
@@ -1364,7 +1393,14 @@ import java.util.Objects;
         // TODO: Each renderer should return the maximum delay before which it wishes to be called
         // again. The minimum of these values should then be used as the delay before the next
         // invocation of this method.
+        long renderStartTimeNs = recordMetrics ? clock.nanoTime() : 0;
         renderer.render(rendererPositionUs, rendererPositionElapsedRealtimeUs);
+        if (recordMetrics) {
+          playbackMetrics.onRendererRendered(
+              /* rendererIndex= */ i,
+              renderer.getTrackType(),
+              clock.nanoTime() - renderStartTimeNs);
+        }
         // Determine whether the renderer allows playback to continue. Playback can
         // continue if the renderer is ready or ended. Also continue playback if the renderer is
         // reading ahead into the next stream or is waiting for the next stream. This is to avoid
@@ -3019,6 +3055,11 @@ import java.util.Objects;
     if (queue.isLoading(mediaPeriod)) {
       queue.reevaluateBuffer(rendererPositionUs);
       maybeContinueLoading();
+      if (isDynamicSchedulingEnabled() && playbackInfo.playbackState == Player.STATE_BUFFERING) {
+        // New media may have been loaded that lets the renderers progress, so don't wait for the
+        // next scheduled wake-up.
+        handler.sendEmptyMessage(MSG_DO_SOME_WORK);
+      }
     } else if (queue.isPreloading(mediaPeriod)) {
       maybeContinuePreloading();
     }
@@ -3275,6 +3316,10 @@ import java.util.Objects;
           }
         },
         /* mediaPeriod= */ periodHolder);
+    if (playbackMetrics != PlaybackMetrics.NO_OP) {
+      renderer.handleMessage(
+          Renderer.MSG_SET_PLAYBACK_METRICS, playbackMetrics, /* mediaPeriod= */ periodHolder);
+    }
     // Start the renderer if playing and the Playing and Reading periods are the same.
     if (playing && arePlayingAndReadingTheSamePeriod) {
       renderer.start();
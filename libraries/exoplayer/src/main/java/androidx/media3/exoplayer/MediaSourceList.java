@@ -22,7 +22,9 @@ import static java.lang.Math.min;
 import android.os.Handler;
 import android.util.Pair;
 import androidx.annotation.Nullable;
+import androidx.media3.common.C;
 import androidx.media3.common.MediaItem;
+import androidx.media3.common.Player;
 import androidx.media3.common.Timeline;
 import androidx.media3.common.util.Assertions;
 import androidx.media3.common.util.HandlerWrapper;
@@ -86,7 +88,10 @@ import java.util.Set;
   private final Set<MediaSourceHolder> enabledMediaSourceHolders;
   private final AnalyticsCollector eventListener;
   private final HandlerWrapper eventHandler;
+  private final int preparationLookaheadCount;
   private ShuffleOrder shuffleOrder;
+  private @Player.RepeatMode int repeatMode;
+  private boolean shuffleModeEnabled;
   private boolean isPrepared;
 
   @Nullable private TransferListener mediaTransferListener;
@@ -101,13 +106,17 @@ import java.util.Set;
    * @param analyticsCollectorHandler The {@link Handler} to call {@link AnalyticsCollector} methods
    *     on.
    * @param playerId The {@link PlayerId} of the player using this list.
+   * @param preparationLookaheadCount The number of lazily prepared media sources following the one
+   *     a period is created in whose preparation is started at the same time.
    */
   public MediaSourceList(
       MediaSourceListInfoRefreshListener listener,
       AnalyticsCollector analyticsCollector,
       HandlerWrapper analyticsCollectorHandler,
-      PlayerId playerId) {
+      PlayerId playerId,
+      int preparationLookaheadCount) {
     this.playerId = playerId;
+    this.preparationLookaheadCount = preparationLookaheadCount;
     mediaSourceListInfoListener = listener;
     shuffleOrder = new DefaultShuffleOrder(0);
     mediaSourceByMediaPeriod = new IdentityHashMap<>();
@@ -306,6 +315,25 @@ import java.util.Set;
     return createTimeline();
   }
 
+  /**
+   * Sets the repeat mode, which determines the media sources that are prepared ahead of playback.
+   *
+   * @param repeatMode The {@link Player.RepeatMode}.
+   */
+  public void setRepeatMode(@Player.RepeatMode int repeatMode) {
+    this.repeatMode = repeatMode;
+  }
+
+  /**
+   * Sets whether shuffle mode is enabled, which determines the media sources that are prepared
+   * ahead of playback.
+   *
+   * @param shuffleModeEnabled Whether shuffle mode is enabled.
+   */
+  public void setShuffleModeEnabled(boolean shuffleModeEnabled) {
+    this.shuffleModeEnabled = shuffleModeEnabled;
+  }
+
   /** Prepares the playlist. */
   public void prepare(@Nullable TransferListener mediaTransferListener) {
     Assertions.checkState(!isPrepared);
@@ -338,6 +366,7 @@ import java.util.Set;
         holder.mediaSource.createPeriod(childMediaPeriodId, allocator, startPositionUs);
     mediaSourceByMediaPeriod.put(mediaPeriod, holder);
     disableUnusedMediaSources();
+    maybeStartPreparingFollowingMediaSources(holder);
     return mediaPeriod;
   }
 
@@ -474,6 +503,43 @@ import java.util.Set;
     mediaSource.prepareSource(caller, mediaTransferListener, playerId);
   }
 
+  private void maybeStartPreparingFollowingMediaSources(MediaSourceHolder holder) {
+    if (preparationLookaheadCount == 0 || holder.isRemoved) {
+      return;
+    }
+    // Start preparing the sources that play next, so that their manifests load in parallel on their
+    // own loaders and periods can be created in them without waiting for a manifest round trip.
+    int index = mediaSourceHolders.indexOf(holder);
+    for (int i = 0; i < preparationLookaheadCount; i++) {
+      index = getNextMediaSourceIndex(index);
+      if (index == C.INDEX_UNSET || mediaSourceHolders.get(index) == holder) {
+        break;
+      }
+      MediaSourceHolder followingHolder = mediaSourceHolders.get(index);
+      if (childSources.containsKey(followingHolder)) {
+        followingHolder.mediaSource.maybeStartPreparingChildSource();
+      }
+    }
+  }
+
+  /**
+   * Returns the index of the media source that plays after the one at {@code index}, in the same
+   * order as {@link Timeline#getNextWindowIndex}, or {@link C#INDEX_UNSET} if there's none.
+   */
+  private int getNextMediaSourceIndex(int index) {
+    if (repeatMode == Player.REPEAT_MODE_ONE) {
+      return index;
+    }
+    int nextIndex =
+        shuffleModeEnabled
+            ? shuffleOrder.getNextIndex(index)
+            : index < mediaSourceHolders.size() - 1 ? index + 1 : C.INDEX_UNSET;
+    if (nextIndex == C.INDEX_UNSET && repeatMode == Player.REPEAT_MODE_ALL) {
+      nextIndex = shuffleModeEnabled ? shuffleOrder.getFirstIndex() : 0;
+    }
+    return nextIndex;
+  }
+
   private void maybeReleaseChildSource(MediaSourceHolder mediaSourceHolder) {
     // Release if the source has been removed from the playlist and no periods are still active.
     if (mediaSourceHolder.isRemoved && mediaSourceHolder.activeMediaPeriodIds.isEmpty()) {
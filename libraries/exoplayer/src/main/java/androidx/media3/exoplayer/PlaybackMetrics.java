@@ -0,0 +1,90 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.exoplayer;
+
+import androidx.media3.common.C;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.analytics.HistogramPlaybackMetrics;
+
+/**
+ * A sink for timings and counters of the player's hot paths.
+ *
+ * <p>Unlike {@link androidx.media3.common.util.TraceUtil} sections, which are only visible in
+ * system traces, the values reported here can be aggregated by the app, for example with {@link
+ * HistogramPlaybackMetrics}.
+ *
+ * <p>Methods are called on the playback thread, except for {@link #onLoadCompleted}, which is
+ * called on the application thread. Implementations must be thread-safe if they're queried from
+ * other threads, and should return quickly because they're called on every iteration of the
+ * playback loop.
+ */
+@UnstableApi
+public interface PlaybackMetrics {
+
+  /** A {@link PlaybackMetrics} that ignores all values. */
+  PlaybackMetrics NO_OP = new PlaybackMetrics() {};
+
+  /**
+   * Called after each iteration of the playback loop.
+   *
+   * @param durationNs The wall-clock duration of the iteration, in nanoseconds.
+   */
+  default void onPlaybackLoopIteration(long durationNs) {}
+
+  /**
+   * Called after each update of the queue of media periods, which happens at the start of each
+   * iteration of the playback loop.
+   *
+   * @param durationNs The wall-clock duration of the update, in nanoseconds.
+   */
+  default void onMediaPeriodQueueUpdated(long durationNs) {}
+
+  /**
+   * Called after each call to {@link Renderer#render}.
+   *
+   * @param rendererIndex The index of the renderer in the player.
+   * @param trackType The {@link C.TrackType} of the renderer.
+   * @param durationNs The wall-clock duration of the call, in nanoseconds.
+   */
+  default void onRendererRendered(int rendererIndex, @C.TrackType int trackType, long durationNs) {}
+
+  /**
+   * Called when a {@link BaseRenderer} reads a sample from its {@link
+   * androidx.media3.exoplayer.source.SampleStream}.
+   *
+   * @param trackType The {@link C.TrackType} of the renderer.
+   * @param byteCount The number of bytes of sample data read.
+   */
+  default void onSampleDataRead(@C.TrackType int trackType, int byteCount) {}
+
+  /**
+   * Called when a load task completes.
+   *
+   * @param dataType The {@link C.DataType} of the loaded data.
+   * @param loadDurationMs The duration of the load task, in milliseconds.
+   * @param bytesLoaded The number of bytes loaded by the task, which for media loads are the bytes
+   *     written to the sample queues.
+   */
+  default void onLoadCompleted(@C.DataType int dataType, long loadDurationMs, long bytesLoaded) {}
+
+  /**
+   * Called after each iteration of the playback loop with the occupancy of the {@link
+   * LoadControl#getAllocator() allocator}.
+   *
+   * @param totalBytesAllocated The number of bytes currently allocated.
+   */
+  default void onAllocatorOccupancySampled(int totalBytesAllocated) {}
+}
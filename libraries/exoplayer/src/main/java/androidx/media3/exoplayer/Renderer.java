@@ -195,8 +195,8 @@ public interface Renderer extends PlayerMessage.Target {
    * #MSG_SET_AUX_EFFECT_INFO}, {@link #MSG_SET_VIDEO_FRAME_METADATA_LISTENER}, {@link
    * #MSG_SET_CAMERA_MOTION_LISTENER}, {@link #MSG_SET_SKIP_SILENCE_ENABLED}, {@link
    * #MSG_SET_AUDIO_SESSION_ID}, {@link #MSG_SET_WAKEUP_LISTENER}, {@link #MSG_SET_VIDEO_EFFECTS},
-   * {@link #MSG_SET_VIDEO_OUTPUT_RESOLUTION} or {@link #MSG_SET_IMAGE_OUTPUT}. May also be an
-   * app-defined value (see {@link #MSG_CUSTOM_BASE}).
+   * {@link #MSG_SET_VIDEO_OUTPUT_RESOLUTION}, {@link #MSG_SET_IMAGE_OUTPUT} or {@link
+   * #MSG_SET_PLAYBACK_METRICS}. May also be an app-defined value (see {@link #MSG_CUSTOM_BASE}).
    */
   @Documented
   @Retention(RetentionPolicy.SOURCE)
@@ -220,7 +220,8 @@ public interface Renderer extends PlayerMessage.Target {
         MSG_SET_IMAGE_OUTPUT,
         MSG_SET_PRIORITY,
         MSG_TRANSFER_RESOURCES,
-        MSG_SET_SCRUBBING_MODE
+        MSG_SET_SCRUBBING_MODE,
+        MSG_SET_PLAYBACK_METRICS
       })
   public @interface MessageType {}
 
@@ -372,6 +373,12 @@ public interface Renderer extends PlayerMessage.Target {
    */
   int MSG_SET_SCRUBBING_MODE = 18;
 
+  /**
+   * The type of message that can be passed to a renderer to set the {@link PlaybackMetrics} it
+   * reports to. The message payload should be a {@link PlaybackMetrics} instance.
+   */
+  int MSG_SET_PLAYBACK_METRICS = 19;
+
   /**
    * Applications or extensions may define custom {@code MSG_*} constants that can be passed to
    * renderers. These custom constants must be greater than or equal to this value.
@@ -1461,4 +1461,23 @@ public interface AnalyticsListener {
    */
   @UnstableApi
   default void onEvents(Player player, Events events) {}
+
+  /**
+   * Returns the {@link EventFlags} of the events this listener receives, or {@code null} to receive
+   * all events.
+   *
+   * <p>Listeners that only override a few callbacks should return the flags of these callbacks. The
+   * player then doesn't need to create the events that no listener receives, including frequent
+   * ones such as {@link #EVENT_VIDEO_FRAME_PROCESSING_OFFSET} and {@link
+   * #EVENT_BANDWIDTH_ESTIMATE}. {@link #onEvents(Player, Events)} is only called for iterations in
+   * which at least one of the returned events occurred, and {@link Events} only contains these
+   * events.
+   *
+   * <p>This method is called once when the listener is added.
+   */
+  @UnstableApi
+  @Nullable
+  default FlagSet getEventFlags() {
+    return null;
+  }
 }
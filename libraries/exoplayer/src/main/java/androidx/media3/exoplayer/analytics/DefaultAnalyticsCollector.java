@@ -115,7 +115,7 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
   @CallSuper
   public void addListener(AnalyticsListener listener) {
     checkNotNull(listener);
-    listeners.add(listener);
+    listeners.add(listener, listener.getEventFlags());
   }
 
   @Override
@@ -214,6 +214,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
 
   @Override
   public final void onAudioPositionAdvancing(long playoutStartSystemTimeMs) {
+    if (!listeners.hasListenerFor(AnalyticsListener.EVENT_AUDIO_POSITION_ADVANCING)) {
+      return;
+    }
     EventTime eventTime = generateReadingMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -333,6 +336,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
 
   @Override
   public final void onDroppedFrames(int count, long elapsedMs) {
+    if (!listeners.hasListenerFor(AnalyticsListener.EVENT_DROPPED_VIDEO_FRAMES)) {
+      return;
+    }
     EventTime eventTime = generatePlayingMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -369,6 +375,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
 
   @Override
   public final void onVideoFrameProcessingOffset(long totalProcessingOffsetUs, int frameCount) {
+    if (!listeners.hasListenerFor(AnalyticsListener.EVENT_VIDEO_FRAME_PROCESSING_OFFSET)) {
+      return;
+    }
     EventTime eventTime = generatePlayingMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -819,6 +828,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
 
   @Override
   public final void onBandwidthSample(int elapsedMs, long bytesTransferred, long bitrateEstimate) {
+    if (!listeners.hasListenerFor(AnalyticsListener.EVENT_BANDWIDTH_ESTIMATE)) {
+      return;
+    }
     EventTime eventTime = generateLoadingMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -0,0 +1,329 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.exoplayer.analytics;
+
+import static androidx.media3.common.util.Assertions.checkArgument;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+import android.util.SparseArray;
+import androidx.annotation.GuardedBy;
+import androidx.media3.common.C;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.ExoPlayer;
+import androidx.media3.exoplayer.PlaybackMetrics;
+import java.util.Arrays;
+
+/**
+ * A {@link PlaybackMetrics} that records all values into in-memory {@link Histogram histograms}.
+ *
+ * <p>Pass an instance to {@link ExoPlayer.Builder#setPlaybackMetrics} and query it from any thread.
+ * {@link PlaybackStatsListener#getPlaybackMetrics()} provides an instance alongside the {@link
+ * PlaybackStats} of a player.
+ */
+@UnstableApi
+public final class HistogramPlaybackMetrics implements PlaybackMetrics {
+
+  /**
+   * A histogram of non-negative long values with a bounded relative error.
+   *
+   * <p>As in HdrHistogram, values are counted in buckets whose width doubles with each power of
+   * two, and each bucket is split in {@code 64} linear sub-buckets, so the relative error of
+   * reported values is less than 1.6% over the entire {@code long} range. Memory is only allocated
+   * up to the bucket of the largest recorded value.
+   *
+   * <p>Instances are not thread-safe.
+   */
+  public static final class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT / 2;
+
+    private long[] counts;
+    private long totalCount;
+    private long sum;
+    private long minValue;
+    private long maxValue;
+
+    /** Creates an empty histogram. */
+    public Histogram() {
+      counts = new long[SUB_BUCKET_COUNT];
+      minValue = Long.MAX_VALUE;
+      maxValue = Long.MIN_VALUE;
+    }
+
+    private Histogram(Histogram other) {
+      counts = Arrays.copyOf(other.counts, other.counts.length);
+      totalCount = other.totalCount;
+      sum = other.sum;
+      minValue = other.minValue;
+      maxValue = other.maxValue;
+    }
+
+    /**
+     * Records a value.
+     *
+     * @param value The value to record. Must be non-negative.
+     */
+    public void recordValue(long value) {
+      checkArgument(value >= 0);
+      int index = getIndex(value);
+      if (index >= counts.length) {
+        counts = Arrays.copyOf(counts, max(index + 1, counts.length * 2));
+      }
+      counts[index]++;
+      totalCount++;
+      sum += value;
+      minValue = min(minValue, value);
+      maxValue = max(maxValue, value);
+    }
+
+    /**
+     * Adds all values recorded in another histogram to this one.
+     *
+     * @param other The histogram whose values to add.
+     */
+    public void add(Histogram other) {
+      if (other.counts.length > counts.length) {
+        counts = Arrays.copyOf(counts, other.counts.length);
+      }
+      for (int i = 0; i < other.counts.length; i++) {
+        counts[i] += other.counts[i];
+      }
+      totalCount += other.totalCount;
+      sum += other.sum;
+      minValue = min(minValue, other.minValue);
+      maxValue = max(maxValue, other.maxValue);
+    }
+
+    /** Removes all recorded values. */
+    public void reset() {
+      Arrays.fill(counts, 0);
+      totalCount = 0;
+      sum = 0;
+      minValue = Long.MAX_VALUE;
+      maxValue = Long.MIN_VALUE;
+    }
+
+    /** Returns a copy of this histogram. */
+    public Histogram copy() {
+      return new Histogram(this);
+    }
+
+    /** Returns the number of recorded values. */
+    public long getTotalCount() {
+      return totalCount;
+    }
+
+    /** Returns the sum of all recorded values. */
+    public long getSum() {
+      return sum;
+    }
+
+    /** Returns the smallest recorded value, or {@link C#TIME_UNSET} if no value was recorded. */
+    public long getMin() {
+      return totalCount == 0 ? C.TIME_UNSET : minValue;
+    }
+
+    /** Returns the largest recorded value, or {@link C#TIME_UNSET} if no value was recorded. */
+    public long getMax() {
+      return totalCount == 0 ? C.TIME_UNSET : maxValue;
+    }
+
+    /** Returns the mean of all recorded values, or {@code 0} if no value was recorded. */
+    public double getMean() {
+      return totalCount == 0 ? 0 : (double) sum / totalCount;
+    }
+
+    /**
+     * Returns the value at a percentile, or {@link C#TIME_UNSET} if no value was recorded.
+     *
+     * <p>The returned value is the largest value that falls into the same bucket as the value at
+     * the percentile, capped by the largest recorded value.
+     *
+     * @param percentile The percentile, between {@code 0} and {@code 100}.
+     * @return The value at the percentile.
+     */
+    public long getValueAtPercentile(double percentile) {
+      checkArgument(percentile >= 0 && percentile <= 100);
+      if (totalCount == 0) {
+        return C.TIME_UNSET;
+      }
+      long countAtPercentile = max(1, (long) Math.ceil(percentile / 100 * totalCount));
+      long cumulativeCount = 0;
+      for (int i = 0; i < counts.length; i++) {
+        cumulativeCount += counts[i];
+        if (cumulativeCount >= countAtPercentile) {
+          return max(minValue, min(maxValue, getHighestEquivalentValue(i)));
+        }
+      }
+      return maxValue;
+    }
+
+    private static int getIndex(long value) {
+      if (value < SUB_BUCKET_COUNT) {
+        return (int) value;
+      }
+      int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+      return shift * SUB_BUCKET_HALF_COUNT + (int) (value >>> shift);
+    }
+
+    private static long getHighestEquivalentValue(int index) {
+      if (index < SUB_BUCKET_COUNT) {
+        return index;
+      }
+      int shift = index / SUB_BUCKET_HALF_COUNT - 1;
+      long subBucket = index - (long) shift * SUB_BUCKET_HALF_COUNT;
+      // For the last bucket, this overflows to Long.MAX_VALUE as intended.
+      return ((subBucket + 1) << shift) - 1;
+    }
+  }
+
+  @GuardedBy("this")
+  private final Histogram playbackLoopDurationsNs;
+
+  @GuardedBy("this")
+  private final Histogram mediaPeriodQueueUpdateDurationsNs;
+
+  @GuardedBy("this")
+  private final SparseArray<Histogram> renderDurationsNsByTrackType;
+
+  @GuardedBy("this")
+  private final SparseArray<Histogram> sampleBytesReadByTrackType;
+
+  @GuardedBy("this")
+  private final Histogram loadDurationsMs;
+
+  @GuardedBy("this")
+  private final Histogram bytesLoaded;
+
+  @GuardedBy("this")
+  private final Histogram allocatorOccupancyBytes;
+
+  /** Creates an instance without any recorded values. */
+  public HistogramPlaybackMetrics() {
+    playbackLoopDurationsNs = new Histogram();
+    mediaPeriodQueueUpdateDurationsNs = new Histogram();
+    renderDurationsNsByTrackType = new SparseArray<>();
+    sampleBytesReadByTrackType = new SparseArray<>();
+    loadDurationsMs = new Histogram();
+    bytesLoaded = new Histogram();
+    allocatorOccupancyBytes = new Histogram();
+  }
+
+  /** Returns a snapshot of the durations of the playback loop iterations, in nanoseconds. */
+  public synchronized Histogram getPlaybackLoopDurationsNs() {
+    return playbackLoopDurationsNs.copy();
+  }
+
+  /** Returns a snapshot of the durations of the media period queue updates, in nanoseconds. */
+  public synchronized Histogram getMediaPeriodQueueUpdateDurationsNs() {
+    return mediaPeriodQueueUpdateDurationsNs.copy();
+  }
+
+  /**
+   * Returns a snapshot of the durations of the {@code render} calls of all renderers of a track
+   * type, in nanoseconds.
+   *
+   * @param trackType The {@link C.TrackType} of the renderers.
+   */
+  public synchronized Histogram getRenderDurationsNs(@C.TrackType int trackType) {
+    return getOrEmpty(renderDurationsNsByTrackType, trackType);
+  }
+
+  /**
+   * Returns a snapshot of the sizes of the samples read by renderers of a track type, in bytes.
+   *
+   * @param trackType The {@link C.TrackType} of the renderers.
+   */
+  public synchronized Histogram getSampleBytesRead(@C.TrackType int trackType) {
+    return getOrEmpty(sampleBytesReadByTrackType, trackType);
+  }
+
+  /** Returns a snapshot of the durations of the completed load tasks, in milliseconds. */
+  public synchronized Histogram getLoadDurationsMs() {
+    return loadDurationsMs.copy();
+  }
+
+  /** Returns a snapshot of the number of bytes loaded by each completed load task. */
+  public synchronized Histogram getBytesLoaded() {
+    return bytesLoaded.copy();
+  }
+
+  /** Returns a snapshot of the sampled occupancy of the allocator, in bytes. */
+  public synchronized Histogram getAllocatorOccupancyBytes() {
+    return allocatorOccupancyBytes.copy();
+  }
+
+  /** Removes all recorded values. */
+  public synchronized void reset() {
+    playbackLoopDurationsNs.reset();
+    mediaPeriodQueueUpdateDurationsNs.reset();
+    renderDurationsNsByTrackType.clear();
+    sampleBytesReadByTrackType.clear();
+    loadDurationsMs.reset();
+    bytesLoaded.reset();
+    allocatorOccupancyBytes.reset();
+  }
+
+  @Override
+  public synchronized void onPlaybackLoopIteration(long durationNs) {
+    playbackLoopDurationsNs.recordValue(max(0, durationNs));
+  }
+
+  @Override
+  public synchronized void onMediaPeriodQueueUpdated(long durationNs) {
+    mediaPeriodQueueUpdateDurationsNs.recordValue(max(0, durationNs));
+  }
+
+  @Override
+  public synchronized void onRendererRendered(
+      int rendererIndex, @C.TrackType int trackType, long durationNs) {
+    getOrCreate(renderDurationsNsByTrackType, trackType).recordValue(max(0, durationNs));
+  }
+
+  @Override
+  public synchronized void onSampleDataRead(@C.TrackType int trackType, int byteCount) {
+    getOrCreate(sampleBytesReadByTrackType, trackType).recordValue(max(0, byteCount));
+  }
+
+  @Override
+  public synchronized void onLoadCompleted(
+      @C.DataType int dataType, long loadDurationMs, long bytesLoaded) {
+    loadDurationsMs.recordValue(max(0, loadDurationMs));
+    this.bytesLoaded.recordValue(max(0, bytesLoaded));
+  }
+
+  @Override
+  public synchronized void onAllocatorOccupancySampled(int totalBytesAllocated) {
+    allocatorOccupancyBytes.recordValue(max(0, totalBytesAllocated));
+  }
+
+  private static Histogram getOrEmpty(SparseArray<Histogram> histograms, int key) {
+    Histogram histogram = histograms.get(key);
+    return histogram == null ? new Histogram() : histogram.copy();
+  }
+
+  private static Histogram getOrCreate(SparseArray<Histogram> histograms, int key) {
+    Histogram histogram = histograms.get(key);
+    if (histogram == null) {
+      histogram = new Histogram();
+      histograms.put(key, histogram);
+    }
+    return histogram;
+  }
+}
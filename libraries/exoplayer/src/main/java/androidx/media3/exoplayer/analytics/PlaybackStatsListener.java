@@ -80,6 +80,7 @@ public final class PlaybackStatsListener
   @Nullable private final Callback callback;
   private final boolean keepHistory;
   private final Period period;
+  private final HistogramPlaybackMetrics playbackMetrics;
 
   private PlaybackStats finishedPlaybackStats;
 
@@ -110,9 +111,21 @@ public final class PlaybackStatsListener
     finishedPlaybackStats = PlaybackStats.EMPTY;
     period = new Period();
     videoSize = VideoSize.UNKNOWN;
+    playbackMetrics = new HistogramPlaybackMetrics();
     sessionManager.setListener(this);
   }
 
+  /**
+   * Returns the {@link HistogramPlaybackMetrics} holding the hot path metrics of the player.
+   *
+   * <p>The metrics are only recorded if the returned instance is passed to {@link
+   * androidx.media3.exoplayer.ExoPlayer.Builder#setPlaybackMetrics} when building the player.
+   * Unlike {@link PlaybackStats}, the metrics aren't split by playback session.
+   */
+  public HistogramPlaybackMetrics getPlaybackMetrics() {
+    return playbackMetrics;
+  }
+
   /**
    * Returns the combined {@link PlaybackStats} for all playback sessions this listener was and is
    * listening to.
@@ -16,6 +16,7 @@
 package androidx.media3.exoplayer.mediacodec;
 
 import static androidx.media3.common.util.Assertions.checkArgument;
+import static androidx.media3.common.util.Assertions.checkNotNull;
 
 import androidx.annotation.IntRange;
 import androidx.annotation.Nullable;
@@ -40,6 +41,10 @@ import java.nio.ByteBuffer;
   private long lastSampleTimeUs;
   private int sampleCount;
   private int maxSampleCount;
+  @Nullable private ByteBuffer sampleBufferData;
+  @Nullable private ByteBuffer inPlaceSampleData;
+  @Nullable private ByteBuffer inPlaceBatchData;
+  private int inPlaceSamplePosition;
 
   public BatchBuffer() {
     super(DecoderInputBuffer.BUFFER_REPLACEMENT_MODE_DIRECT);
@@ -50,6 +55,7 @@ import java.nio.ByteBuffer;
   public void clear() {
     super.clear();
     sampleCount = 0;
+    inPlaceBatchData = null;
   }
 
   /** Sets the maximum number of samples that can be appended before the buffer is full. */
@@ -84,6 +90,40 @@ import java.nio.ByteBuffer;
     return sampleCount > 0;
   }
 
+  /**
+   * Sets the {@link #data} of the provided buffer to a view of the unused capacity at the end of
+   * this buffer, so that a sample read into it can be {@link #append appended} without copying.
+   *
+   * <p>The view is only used if the unused capacity is at least as large as the buffer's own data,
+   * which grows to fit the largest sample read into it. Otherwise the buffer's own data is
+   * restored, and the sample is copied by {@link #append} as normal. The sample is also copied if
+   * this buffer is modified before the sample is appended.
+   *
+   * @param sampleBuffer The buffer into which the next sample will be read. Must use {@link
+   *     DecoderInputBuffer#BUFFER_REPLACEMENT_MODE_DIRECT} and have no padding.
+   */
+  public void prepareForInPlaceAppend(DecoderInputBuffer sampleBuffer) {
+    ByteBuffer data = checkNotNull(this.data);
+    if (sampleBuffer.data != inPlaceSampleData) {
+      // The sample buffer's own data, possibly replaced by a larger buffer during the last read.
+      sampleBufferData = sampleBuffer.data;
+    }
+    int sampleBufferCapacity = sampleBufferData != null ? sampleBufferData.capacity() : 0;
+    if (sampleBufferCapacity == 0 || data.capacity() - data.position() < sampleBufferCapacity) {
+      sampleBuffer.data = sampleBufferData;
+      inPlaceBatchData = null;
+      return;
+    }
+    if (inPlaceSampleData == null
+        || inPlaceBatchData != data
+        || inPlaceSamplePosition != data.position()) {
+      inPlaceSampleData = data.slice().order(data.order());
+      inPlaceBatchData = data;
+      inPlaceSamplePosition = data.position();
+    }
+    sampleBuffer.data = inPlaceSampleData;
+  }
+
   /**
    * Attempts to append the provided buffer.
    *
@@ -107,13 +147,28 @@ import java.nio.ByteBuffer;
     }
     @Nullable ByteBuffer bufferData = buffer.data;
     if (bufferData != null) {
-      ensureSpaceForWrite(bufferData.remaining());
-      data.put(bufferData);
+      if (isInPlaceSampleData(bufferData)) {
+        // The sample data was read directly into this buffer's unused capacity.
+        ByteBuffer data = checkNotNull(this.data);
+        data.position(data.position() + bufferData.remaining());
+        bufferData.position(bufferData.limit());
+      } else {
+        ensureSpaceForWrite(bufferData.remaining());
+        data.put(bufferData);
+      }
     }
+    inPlaceBatchData = null;
     lastSampleTimeUs = buffer.timeUs;
     return true;
   }
 
+  private boolean isInPlaceSampleData(ByteBuffer sampleData) {
+    return sampleData == inPlaceSampleData
+        && data == inPlaceBatchData
+        && data.position() == inPlaceSamplePosition
+        && sampleData.position() == 0;
+  }
+
   private boolean canAppendSampleBuffer(DecoderInputBuffer buffer) {
     if (!hasSamples()) {
       // Always allow appending when the buffer is empty, else no progress can be made.
@@ -372,6 +372,7 @@ public abstract class MediaCodecRenderer extends BaseRenderer {
   private boolean codecNeedsEosPropagation;
   private long lastOutputBufferProcessedRealtimeMs;
   private boolean codecRegisteredOnBufferAvailableListener;
+  private boolean codecInputBufferUnavailable;
   private long codecHotswapDeadlineMs;
   private int inputIndex;
   private int outputIndex;
@@ -543,6 +544,20 @@ public abstract class MediaCodecRenderer extends BaseRenderer {
     return super.getDurationToProgressUs(positionUs, elapsedRealtimeUs);
   }
 
+  /**
+   * Returns whether no further input can be queued to the codec until it makes an input buffer
+   * available, either because the last attempt to dequeue an input buffer failed or because the end
+   * of the input stream has been queued.
+   *
+   * <p>If this method returns {@code true} and {@link MediaCodecAdapter.OnBufferAvailableListener}
+   * is registered, the renderer will be woken up when the codec makes a buffer available, so
+   * subclasses don't need to poll for input when calculating {@link #getDurationToProgressUs(long,
+   * long, boolean)}.
+   */
+  protected final boolean isCodecInputBlocked() {
+    return codec != null && (inputStreamEnded || codecInputBufferUnavailable);
+  }
+
   /**
    * Returns a list of decoders that can decode media in the specified format, in priority order.
    *
@@ -1051,6 +1066,7 @@ public abstract class MediaCodecRenderer extends BaseRenderer {
     resetCommonStateForFlush();
     codecHotswapDeadlineMs = C.TIME_UNSET;
     codecReceivedEos = false;
+    codecInputBufferUnavailable = false;
     lastOutputBufferProcessedRealtimeMs = C.TIME_UNSET;
     codecReceivedBuffers = false;
     codecNeedsAdaptationWorkaroundBuffer = false;
@@ -1386,9 +1402,11 @@ public abstract class MediaCodecRenderer extends BaseRenderer {
     }
 
     MediaCodecAdapter codec = checkNotNull(this.codec);
+    codecInputBufferUnavailable = false;
     if (inputIndex < 0) {
       inputIndex = codec.dequeueInputBufferIndex();
       if (inputIndex < 0) {
+        codecInputBufferUnavailable = true;
         return false;
       }
       buffer.data = codec.getInputBuffer(inputIndex);
@@ -2545,9 +2563,11 @@ public abstract class MediaCodecRenderer extends BaseRenderer {
   private void bypassRead() throws ExoPlaybackException {
     checkState(!inputStreamEnded);
     FormatHolder formatHolder = getFormatHolder();
-    bypassSampleBuffer.clear();
     while (true) {
       bypassSampleBuffer.clear();
+      // Read the sample directly into the unused capacity of the batch buffer where possible, to
+      // avoid copying its data when it's appended.
+      bypassBatchBuffer.prepareForInPlaceAppend(bypassSampleBuffer);
       @ReadDataResult int result = readSource(formatHolder, bypassSampleBuffer, /* readFlags= */ 0);
       switch (result) {
         case C.RESULT_FORMAT_READ:
@@ -25,6 +25,7 @@ import androidx.media3.common.util.Assertions;
 import androidx.media3.common.util.UnstableApi;
 import androidx.media3.common.util.Util;
 import androidx.media3.datasource.cache.CacheDataSource;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import java.util.concurrent.Executor;
 
 /**
@@ -39,6 +40,8 @@ public class DefaultDownloaderFactory implements DownloaderFactory {
   private final Executor executor;
   private final SparseArray<SegmentDownloaderFactory> segmentDownloaderFactories;
 
+  private int maxParallelProgressiveRanges;
+
   /**
    * Creates an instance.
    *
@@ -66,6 +69,23 @@ public class DefaultDownloaderFactory implements DownloaderFactory {
     this.cacheDataSourceFactory = Assertions.checkNotNull(cacheDataSourceFactory);
     this.executor = Assertions.checkNotNull(executor);
     this.segmentDownloaderFactories = new SparseArray<>();
+    this.maxParallelProgressiveRanges = 1;
+  }
+
+  /**
+   * Sets the maximum number of byte ranges into which progressive downloads are split, so that they
+   * can be downloaded in parallel using the {@link Executor}. The default value is one, which means
+   * that progressive downloads are downloaded sequentially.
+   *
+   * @param maxParallelProgressiveRanges The maximum number of byte ranges.
+   * @return This factory.
+   */
+  @CanIgnoreReturnValue
+  public DefaultDownloaderFactory setMaxParallelProgressiveRanges(
+      int maxParallelProgressiveRanges) {
+    Assertions.checkArgument(maxParallelProgressiveRanges > 0);
+    this.maxParallelProgressiveRanges = maxParallelProgressiveRanges;
+    return this;
   }
 
   @Override
@@ -87,7 +107,8 @@ public class DefaultDownloaderFactory implements DownloaderFactory {
             cacheDataSourceFactory,
             executor,
             (byteRange != null) ? byteRange.offset : 0,
-            (byteRange != null) ? byteRange.length : C.LENGTH_UNSET);
+            (byteRange != null) ? byteRange.length : C.LENGTH_UNSET,
+            maxParallelProgressiveRanges);
       default:
         throw new IllegalArgumentException("Unsupported type: " + contentType);
     }
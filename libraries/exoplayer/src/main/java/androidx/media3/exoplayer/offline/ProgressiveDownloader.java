@@ -16,8 +16,10 @@
 package androidx.media3.exoplayer.offline;
 
 import static androidx.annotation.VisibleForTesting.PRIVATE;
+import static androidx.media3.common.util.Assertions.checkArgument;
 import static androidx.media3.common.util.Assertions.checkNotNull;
 import static androidx.media3.common.util.Util.percentFloat;
+import static java.lang.Math.min;
 
 import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
@@ -29,26 +31,46 @@ import androidx.media3.common.util.Assertions;
 import androidx.media3.common.util.RunnableFutureTask;
 import androidx.media3.common.util.UnstableApi;
 import androidx.media3.common.util.Util;
+import androidx.media3.datasource.DataSourceUtil;
 import androidx.media3.datasource.DataSpec;
 import androidx.media3.datasource.cache.CacheDataSource;
 import androidx.media3.datasource.cache.CacheWriter;
+import androidx.media3.datasource.cache.ContentMetadata;
+import androidx.media3.datasource.cache.ContentMetadataMutations;
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
 
-/** A downloader for progressive media streams. */
+/**
+ * A downloader for progressive media streams.
+ *
+ * <p>By default, the stream is downloaded sequentially using a single request at a time. If a
+ * maximum number of parallel ranges greater than one is {@linkplain
+ * #ProgressiveDownloader(MediaItem, CacheDataSource.Factory, Executor, long, long, int) specified}
+ * and the length of the stream is known or can be resolved, the stream is instead split into byte
+ * ranges that are downloaded concurrently using the provided {@link Executor}.
+ */
 @UnstableApi
 public final class ProgressiveDownloader implements Downloader {
 
+  /** The minimum length of each byte range downloaded in parallel, in bytes. */
+  @VisibleForTesting /* package */ static final long MIN_PARALLEL_RANGE_LENGTH_BYTES = 1024 * 1024;
+
   private final Executor executor;
+  private final int maxParallelRanges;
 
   @VisibleForTesting(otherwise = PRIVATE)
   /* package */ final DataSpec dataSpec;
 
+  private final CacheDataSource.Factory cacheDataSourceFactory;
   private final CacheDataSource dataSource;
   private final CacheWriter cacheWriter;
   @Nullable private final PriorityTaskManager priorityTaskManager;
+  private final ArrayList<RangeDownloadRunnable> activeRangeRunnables;
 
   @Nullable private ProgressListener progressListener;
   private volatile @MonotonicNonNull RunnableFutureTask<Void, IOException> downloadRunnable;
@@ -91,9 +113,7 @@ public final class ProgressiveDownloader implements Downloader {
    * @param mediaItem The media item with a uri to the stream to be downloaded.
    * @param cacheDataSourceFactory A {@link CacheDataSource.Factory} for the cache into which the
    *     download will be written.
-   * @param executor An {@link Executor} used to make requests for the media being downloaded. In
-   *     the future, providing an {@link Executor} that uses multiple threads may speed up the
-   *     download by allowing parts of it to be executed in parallel.
+   * @param executor An {@link Executor} used to make requests for the media being downloaded.
    */
   public ProgressiveDownloader(
       MediaItem mediaItem, CacheDataSource.Factory cacheDataSourceFactory, Executor executor) {
@@ -111,9 +131,7 @@ public final class ProgressiveDownloader implements Downloader {
    * @param mediaItem The media item with a uri to the stream to be downloaded.
    * @param cacheDataSourceFactory A {@link CacheDataSource.Factory} for the cache into which the
    *     download will be written.
-   * @param executor An {@link Executor} used to make requests for the media being downloaded. In
-   *     the future, providing an {@link Executor} that uses multiple threads may speed up the
-   *     download by allowing parts of it to be executed in parallel.
+   * @param executor An {@link Executor} used to make requests for the media being downloaded.
    * @param position The position of the {@link DataSpec} from which the {@link
    *     ProgressiveDownloader} downloads.
    * @param length The length of the {@link DataSpec} for which the {@link ProgressiveDownloader}
@@ -125,7 +143,37 @@ public final class ProgressiveDownloader implements Downloader {
       Executor executor,
       long position,
       long length) {
+    this(mediaItem, cacheDataSourceFactory, executor, position, length, /* maxParallelRanges= */ 1);
+  }
+
+  /**
+   * Creates a new instance.
+   *
+   * @param mediaItem The media item with a uri to the stream to be downloaded.
+   * @param cacheDataSourceFactory A {@link CacheDataSource.Factory} for the cache into which the
+   *     download will be written.
+   * @param executor An {@link Executor} used to make requests for the media being downloaded.
+   *     Providing an {@link Executor} that uses multiple threads allows byte ranges to be
+   *     downloaded in parallel if {@code maxParallelRanges} is greater than one.
+   * @param position The position of the {@link DataSpec} from which the {@link
+   *     ProgressiveDownloader} downloads.
+   * @param length The length of the {@link DataSpec} for which the {@link ProgressiveDownloader}
+   *     downloads.
+   * @param maxParallelRanges The maximum number of byte ranges into which the stream is split to be
+   *     downloaded in parallel. Each range is at least {@code 1 MiB} long. A value of one downloads
+   *     the stream sequentially.
+   */
+  public ProgressiveDownloader(
+      MediaItem mediaItem,
+      CacheDataSource.Factory cacheDataSourceFactory,
+      Executor executor,
+      long position,
+      long length,
+      int maxParallelRanges) {
+    checkArgument(maxParallelRanges > 0);
     this.executor = Assertions.checkNotNull(executor);
+    this.maxParallelRanges = maxParallelRanges;
+    this.cacheDataSourceFactory = cacheDataSourceFactory;
     Assertions.checkNotNull(mediaItem.localConfiguration);
     dataSpec =
         new DataSpec.Builder()
@@ -141,6 +189,7 @@ public final class ProgressiveDownloader implements Downloader {
     cacheWriter =
         new CacheWriter(dataSource, dataSpec, /* temporaryBuffer= */ null, progressListener);
     priorityTaskManager = cacheDataSourceFactory.getUpstreamPriorityTaskManager();
+    activeRangeRunnables = new ArrayList<>();
   }
 
   @Override
@@ -150,6 +199,40 @@ public final class ProgressiveDownloader implements Downloader {
     if (priorityTaskManager != null) {
       priorityTaskManager.add(C.PRIORITY_DOWNLOAD);
     }
+    try {
+      List<DataSpec> ranges = maxParallelRanges > 1 ? getParallelRanges() : new ArrayList<>();
+      if (ranges.size() > 1) {
+        downloadRanges(ranges, progressListener);
+      } else {
+        downloadSequentially();
+      }
+    } finally {
+      if (priorityTaskManager != null) {
+        priorityTaskManager.remove(C.PRIORITY_DOWNLOAD);
+      }
+    }
+  }
+
+  @Override
+  public void cancel() {
+    synchronized (activeRangeRunnables) {
+      isCanceled = true;
+      for (int i = 0; i < activeRangeRunnables.size(); i++) {
+        activeRangeRunnables.get(i).cancel(/* interruptIfRunning= */ true);
+      }
+    }
+    RunnableFutureTask<Void, IOException> downloadRunnable = this.downloadRunnable;
+    if (downloadRunnable != null) {
+      downloadRunnable.cancel(/* interruptIfRunning= */ true);
+    }
+  }
+
+  @Override
+  public void remove() {
+    dataSource.getCache().removeResource(dataSource.getCacheKeyFactory().buildCacheKey(dataSpec));
+  }
+
+  private void downloadSequentially() throws IOException, InterruptedException {
     try {
       boolean finished = false;
       while (!finished && !isCanceled) {
@@ -189,25 +272,164 @@ public final class ProgressiveDownloader implements Downloader {
     } finally {
       // If the main download thread was interrupted as part of cancelation, then it's possible that
       // the runnable is still doing work. We need to wait until it's finished before returning.
-      checkNotNull(downloadRunnable).blockUntilFinished();
-      if (priorityTaskManager != null) {
-        priorityTaskManager.remove(C.PRIORITY_DOWNLOAD);
+      @Nullable RunnableFutureTask<Void, IOException> downloadRunnable = this.downloadRunnable;
+      if (downloadRunnable != null) {
+        downloadRunnable.blockUntilFinished();
       }
     }
   }
 
-  @Override
-  public void cancel() {
-    isCanceled = true;
-    RunnableFutureTask<Void, IOException> downloadRunnable = this.downloadRunnable;
-    if (downloadRunnable != null) {
-      downloadRunnable.cancel(/* interruptIfRunning= */ true);
+  private void downloadRanges(List<DataSpec> ranges, @Nullable ProgressListener progressListener)
+      throws IOException, InterruptedException {
+    @Nullable
+    RangeProgressNotifier progressNotifier =
+        progressListener != null
+            ? new RangeProgressNotifier(progressListener, getTotalLength(ranges), ranges.size())
+            : null;
+    ArrayDeque<RangeDownloadRunnable> pendingRunnables = new ArrayDeque<>();
+    for (int i = 0; i < ranges.size(); i++) {
+      int rangeIndex = i;
+      @Nullable
+      CacheWriter.ProgressListener rangeProgressListener =
+          progressNotifier != null
+              ? (requestLength, bytesCached, newBytesCached) ->
+                  progressNotifier.onRangeProgress(rangeIndex, bytesCached)
+              : null;
+      pendingRunnables.addLast(
+          new RangeDownloadRunnable(
+              new CacheWriter(
+                  cacheDataSourceFactory.createDataSourceForDownloading(),
+                  ranges.get(i),
+                  /* temporaryBuffer= */ null,
+                  rangeProgressListener)));
+    }
+    try {
+      while (!isCanceled && !pendingRunnables.isEmpty()) {
+        // Block until there aren't any higher priority tasks.
+        if (priorityTaskManager != null) {
+          priorityTaskManager.proceed(C.PRIORITY_DOWNLOAD);
+        }
+        while (!pendingRunnables.isEmpty()) {
+          RangeDownloadRunnable rangeRunnable = pendingRunnables.removeFirst();
+          addActiveRangeRunnable(rangeRunnable);
+          executor.execute(rangeRunnable);
+        }
+        for (int i = activeRangeRunnables.size() - 1; i >= 0; i--) {
+          RangeDownloadRunnable rangeRunnable = activeRangeRunnables.get(i);
+          try {
+            rangeRunnable.get();
+            removeActiveRangeRunnable(i);
+          } catch (ExecutionException e) {
+            Throwable cause = Assertions.checkNotNull(e.getCause());
+            if (cause instanceof PriorityTooLowException) {
+              // Continue downloading the range in a future loop iteration.
+              removeActiveRangeRunnable(i);
+              pendingRunnables.addLast(new RangeDownloadRunnable(rangeRunnable.cacheWriter));
+            } else if (cause instanceof IOException) {
+              throw (IOException) cause;
+            } else {
+              // The cause must be an uncaught Throwable type.
+              Util.sneakyThrow(cause);
+            }
+          }
+        }
+      }
+      if (!isCanceled && dataSpec.length == C.LENGTH_UNSET) {
+        // The ranges are bounded, so the cache can't infer the content length from reaching the end
+        // of the stream. Store it explicitly, as a sequential download would have done.
+        storeContentLength(dataSpec.position + getTotalLength(ranges));
+      }
+    } finally {
+      // If one of the runnables has thrown an exception, then it's possible there are other active
+      // runnables still doing work. Cancel them and wait until they finish before returning. We
+      // also need to wait for the case where the main download thread was interrupted as part of
+      // cancelation.
+      for (int i = 0; i < activeRangeRunnables.size(); i++) {
+        activeRangeRunnables.get(i).cancel(/* interruptIfRunning= */ true);
+      }
+      for (int i = activeRangeRunnables.size() - 1; i >= 0; i--) {
+        activeRangeRunnables.get(i).blockUntilFinished();
+        removeActiveRangeRunnable(i);
+      }
     }
   }
 
-  @Override
-  public void remove() {
-    dataSource.getCache().removeResource(dataSource.getCacheKeyFactory().buildCacheKey(dataSpec));
+  /**
+   * Returns the byte ranges into which the download should be split, or an empty list if the length
+   * of the stream can't be resolved.
+   */
+  private List<DataSpec> getParallelRanges() throws InterruptedException {
+    List<DataSpec> ranges = new ArrayList<>();
+    long length = resolveLength();
+    if (length == C.LENGTH_UNSET || length <= MIN_PARALLEL_RANGE_LENGTH_BYTES) {
+      return ranges;
+    }
+    long rangeCount =
+        min(maxParallelRanges, Util.ceilDivide(length, MIN_PARALLEL_RANGE_LENGTH_BYTES));
+    long rangeLength = Util.ceilDivide(length, rangeCount);
+    for (long offset = 0; offset < length; offset += rangeLength) {
+      ranges.add(dataSpec.subrange(offset, min(rangeLength, length - offset)));
+    }
+    return ranges;
+  }
+
+  /**
+   * Returns the length of the data to download, or {@link C#LENGTH_UNSET} if it can't be resolved.
+   * If the length isn't specified or known to the cache, the stream is opened to resolve it.
+   */
+  private long resolveLength() throws InterruptedException {
+    if (dataSpec.length != C.LENGTH_UNSET) {
+      return dataSpec.length;
+    }
+    String cacheKey = dataSource.getCacheKeyFactory().buildCacheKey(dataSpec);
+    long contentLength =
+        ContentMetadata.getContentLength(dataSource.getCache().getContentMetadata(cacheKey));
+    if (contentLength != C.LENGTH_UNSET) {
+      return contentLength - dataSpec.position;
+    }
+    if (priorityTaskManager != null) {
+      priorityTaskManager.proceed(C.PRIORITY_DOWNLOAD);
+    }
+    try {
+      return dataSource.open(dataSpec);
+    } catch (IOException e) {
+      // Fall back to downloading sequentially, which will surface the error if it's persistent.
+      return C.LENGTH_UNSET;
+    } finally {
+      DataSourceUtil.closeQuietly(dataSource);
+    }
+  }
+
+  private void storeContentLength(long contentLength) throws IOException {
+    ContentMetadataMutations mutations = new ContentMetadataMutations();
+    ContentMetadataMutations.setContentLength(mutations, contentLength);
+    dataSource
+        .getCache()
+        .applyContentMetadataMutations(
+            dataSource.getCacheKeyFactory().buildCacheKey(dataSpec), mutations);
+  }
+
+  private void addActiveRangeRunnable(RangeDownloadRunnable runnable) throws InterruptedException {
+    synchronized (activeRangeRunnables) {
+      if (isCanceled) {
+        throw new InterruptedException();
+      }
+      activeRangeRunnables.add(runnable);
+    }
+  }
+
+  private void removeActiveRangeRunnable(int index) {
+    synchronized (activeRangeRunnables) {
+      activeRangeRunnables.remove(index);
+    }
+  }
+
+  private static long getTotalLength(List<DataSpec> ranges) {
+    long totalLength = 0;
+    for (int i = 0; i < ranges.size(); i++) {
+      totalLength += ranges.get(i).length;
+    }
+    return totalLength;
   }
 
   private void onProgress(long contentLength, long bytesCached, long newBytesCached) {
@@ -220,4 +442,49 @@ public final class ProgressiveDownloader implements Downloader {
             : percentFloat(bytesCached, contentLength);
     checkNotNull(progressListener).onProgress(contentLength, bytesCached, percentDownloaded);
   }
+
+  private static final class RangeDownloadRunnable extends RunnableFutureTask<Void, IOException> {
+
+    public final CacheWriter cacheWriter;
+
+    public RangeDownloadRunnable(CacheWriter cacheWriter) {
+      this.cacheWriter = cacheWriter;
+    }
+
+    @Override
+    protected Void doWork() throws IOException {
+      cacheWriter.cache();
+      return null;
+    }
+
+    @Override
+    protected void cancelWork() {
+      cacheWriter.cancel();
+    }
+  }
+
+  /** Aggregates the progress of byte ranges that are downloaded in parallel. */
+  private static final class RangeProgressNotifier {
+
+    private final ProgressListener progressListener;
+    private final long contentLength;
+    private final long[] rangeBytesCached;
+
+    private long bytesCached;
+
+    public RangeProgressNotifier(
+        ProgressListener progressListener, long contentLength, int rangeCount) {
+      this.progressListener = progressListener;
+      this.contentLength = contentLength;
+      this.rangeBytesCached = new long[rangeCount];
+    }
+
+    public synchronized void onRangeProgress(int rangeIndex, long rangeBytesCached) {
+      bytesCached += rangeBytesCached - this.rangeBytesCached[rangeIndex];
+      this.rangeBytesCached[rangeIndex] = rangeBytesCached;
+      float percentDownloaded =
+          contentLength == 0 ? C.PERCENTAGE_UNSET : percentFloat(bytesCached, contentLength);
+      progressListener.onProgress(contentLength, bytesCached, percentDownloaded);
+    }
+  }
 }
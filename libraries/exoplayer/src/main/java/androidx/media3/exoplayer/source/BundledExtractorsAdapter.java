@@ -15,11 +15,15 @@
  */
 package androidx.media3.exoplayer.source;
 
+import static java.lang.Math.min;
+
 import android.net.Uri;
 import androidx.annotation.Nullable;
 import androidx.media3.common.C;
 import androidx.media3.common.DataReader;
 import androidx.media3.common.util.Assertions;
+import androidx.media3.common.util.Clock;
+import androidx.media3.common.util.RunnableFutureTask;
 import androidx.media3.common.util.UnstableApi;
 import androidx.media3.extractor.DefaultExtractorInput;
 import androidx.media3.extractor.Extractor;
@@ -34,20 +38,50 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import java.io.EOFException;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 
 /**
  * {@link ProgressiveMediaExtractor} built on top of {@link Extractor} instances, whose
  * implementation classes are bundled in the app.
+ *
+ * <p>Candidate extractors are sniffed in the order returned by the {@link ExtractorsFactory}. By
+ * default they're sniffed one after another on the loading thread. If a sniffing {@link Executor}
+ * is provided, a prefix of the input is read once and all candidates are sniffed against it
+ * concurrently. Candidates that need more data than the prefix contains are sniffed against the
+ * full input afterwards. In both cases the first candidate in order whose sniff succeeds is
+ * selected.
  */
 @UnstableApi
 public final class BundledExtractorsAdapter implements ProgressiveMediaExtractor {
 
+  /** Receives information about extractor selection. */
+  public interface Listener {
+
+    /**
+     * Called on the loading thread when an extractor has been selected.
+     *
+     * @param extractor The selected extractor.
+     * @param extractorIndex The index of the selected extractor in the candidates returned by the
+     *     {@link ExtractorsFactory}.
+     * @param selectionDurationMs The time taken to create the candidates and select one of them, in
+     *     milliseconds.
+     */
+    void onExtractorSelected(Extractor extractor, int extractorIndex, long selectionDurationMs);
+  }
+
+  /** The maximum number of bytes read from the input for parallel sniffing. */
+  private static final int SNIFF_PREFIX_LENGTH = 16 * 1024;
+
   private final ExtractorsFactory extractorsFactory;
+  @Nullable private final Executor sniffingExecutor;
+  @Nullable private final Listener listener;
 
   @Nullable private Extractor extractor;
-  @Nullable private ExtractorInput extractorInput;
+  @Nullable private DefaultExtractorInput extractorInput;
 
   /**
    * Creates a holder that will select an extractor and initialize it using the specified output.
@@ -55,7 +89,25 @@ public final class BundledExtractorsAdapter implements ProgressiveMediaExtractor
    * @param extractorsFactory The {@link ExtractorsFactory} providing the extractors to choose from.
    */
   public BundledExtractorsAdapter(ExtractorsFactory extractorsFactory) {
+    this(extractorsFactory, /* sniffingExecutor= */ null, /* listener= */ null);
+  }
+
+  /**
+   * Creates a holder that will select an extractor and initialize it using the specified output.
+   *
+   * @param extractorsFactory The {@link ExtractorsFactory} providing the extractors to choose from.
+   * @param sniffingExecutor An {@link Executor} on which candidate extractors are sniffed
+   *     concurrently, or {@code null} to sniff them one after another on the loading thread.
+   * @param listener A {@link Listener} to notify when an extractor has been selected, or {@code
+   *     null}.
+   */
+  public BundledExtractorsAdapter(
+      ExtractorsFactory extractorsFactory,
+      @Nullable Executor sniffingExecutor,
+      @Nullable Listener listener) {
     this.extractorsFactory = extractorsFactory;
+    this.sniffingExecutor = sniffingExecutor;
+    this.listener = listener;
   }
 
   @Override
@@ -67,46 +119,52 @@ public final class BundledExtractorsAdapter implements ProgressiveMediaExtractor
       long length,
       ExtractorOutput output)
       throws IOException {
-    ExtractorInput extractorInput = new DefaultExtractorInput(dataReader, position, length);
+    if (this.extractorInput != null) {
+      this.extractorInput.release();
+    }
+    DefaultExtractorInput extractorInput = new DefaultExtractorInput(dataReader, position, length);
     this.extractorInput = extractorInput;
     if (extractor != null) {
       return;
     }
+    long selectionStartTimeMs = Clock.DEFAULT.elapsedRealtime();
     Extractor[] extractors = extractorsFactory.createExtractors(uri, responseHeaders);
     ImmutableList.Builder<SniffFailure> sniffFailures =
         ImmutableList.builderWithExpectedSize(extractors.length);
+    int extractorIndex;
     if (extractors.length == 1) {
-      this.extractor = extractors[0];
+      extractorIndex = 0;
+    } else if (sniffingExecutor != null) {
+      extractorIndex =
+          sniffInParallel(
+              extractors, extractorInput, position, length, sniffingExecutor, sniffFailures);
     } else {
-      for (Extractor extractor : extractors) {
-        try {
-          if (extractor.sniff(extractorInput)) {
-            this.extractor = extractor;
-            break;
-          } else {
-            List<SniffFailure> sniffFailureDetails = extractor.getSniffFailureDetails();
-            sniffFailures.addAll(sniffFailureDetails);
-          }
-        } catch (EOFException e) {
-          // Do nothing.
-        } finally {
-          Assertions.checkState(this.extractor != null || extractorInput.getPosition() == position);
-          extractorInput.resetPeekPosition();
+      extractorIndex = C.INDEX_UNSET;
+      for (int i = 0; i < extractors.length; i++) {
+        if (sniff(extractors[i], extractorInput, position, sniffFailures)) {
+          extractorIndex = i;
+          break;
         }
       }
-      if (extractor == null) {
-        throw new UnrecognizedInputFormatException(
-            "None of the available extractors ("
-                + Joiner.on(", ")
-                    .join(
-                        Lists.transform(
-                            ImmutableList.copyOf(extractors),
-                            extractor ->
-                                extractor.getUnderlyingImplementation().getClass().getSimpleName()))
-                + ") could read the stream.",
-            Assertions.checkNotNull(uri),
-            sniffFailures.build());
-      }
+    }
+    if (extractorIndex == C.INDEX_UNSET) {
+      throw new UnrecognizedInputFormatException(
+          "None of the available extractors ("
+              + Joiner.on(", ")
+                  .join(
+                      Lists.transform(
+                          ImmutableList.copyOf(extractors),
+                          extractor ->
+                              extractor.getUnderlyingImplementation().getClass().getSimpleName()))
+              + ") could read the stream.",
+          Assertions.checkNotNull(uri),
+          sniffFailures.build());
+    }
+    Extractor extractor = extractors[extractorIndex];
+    this.extractor = extractor;
+    if (listener != null) {
+      listener.onExtractorSelected(
+          extractor, extractorIndex, Clock.DEFAULT.elapsedRealtime() - selectionStartTimeMs);
     }
     extractor.init(output);
   }
@@ -117,7 +175,10 @@ public final class BundledExtractorsAdapter implements ProgressiveMediaExtractor
       extractor.release();
       extractor = null;
     }
-    extractorInput = null;
+    if (extractorInput != null) {
+      extractorInput.release();
+      extractorInput = null;
+    }
   }
 
   @Override
@@ -146,4 +207,168 @@ public final class BundledExtractorsAdapter implements ProgressiveMediaExtractor
     return Assertions.checkNotNull(extractor)
         .read(Assertions.checkNotNull(extractorInput), positionHolder);
   }
+
+  /**
+   * Sniffs the input with a single extractor.
+   *
+   * @return Whether the extractor can read the input.
+   */
+  private static boolean sniff(
+      Extractor extractor,
+      ExtractorInput input,
+      long position,
+      ImmutableList.Builder<SniffFailure> sniffFailures)
+      throws IOException {
+    boolean sniffed = false;
+    try {
+      sniffed = extractor.sniff(input);
+      if (!sniffed) {
+        sniffFailures.addAll(extractor.getSniffFailureDetails());
+      }
+    } catch (EOFException e) {
+      // Do nothing.
+    } finally {
+      Assertions.checkState(sniffed || input.getPosition() == position);
+      input.resetPeekPosition();
+    }
+    return sniffed;
+  }
+
+  /**
+   * Reads a prefix of the input and sniffs all extractors against it concurrently.
+   *
+   * @return The index of the first extractor that can read the input, or {@link C#INDEX_UNSET} if
+   *     none can.
+   */
+  private static int sniffInParallel(
+      Extractor[] extractors,
+      DefaultExtractorInput input,
+      long position,
+      long length,
+      Executor sniffingExecutor,
+      ImmutableList.Builder<SniffFailure> sniffFailures)
+      throws IOException {
+    byte[] prefix = new byte[SNIFF_PREFIX_LENGTH];
+    int prefixLength = 0;
+    boolean prefixEndsInput = false;
+    while (prefixLength < prefix.length) {
+      int bytesPeeked = input.peek(prefix, prefixLength, prefix.length - prefixLength);
+      if (bytesPeeked == C.RESULT_END_OF_INPUT) {
+        prefixEndsInput = true;
+        break;
+      }
+      prefixLength += bytesPeeked;
+    }
+    input.resetPeekPosition();
+
+    SniffTask[] sniffTasks = new SniffTask[extractors.length];
+    for (int i = 0; i < extractors.length; i++) {
+      sniffTasks[i] =
+          new SniffTask(
+              extractors[i],
+              new DefaultExtractorInput(
+                  new PrefixDataReader(prefix, prefixLength, prefixEndsInput), position, length));
+      sniffingExecutor.execute(sniffTasks[i]);
+    }
+    try {
+      for (int i = 0; i < extractors.length; i++) {
+        SniffTask sniffTask = sniffTasks[i];
+        boolean sniffed;
+        try {
+          sniffed = sniffTask.get();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+          Throwable cause = Assertions.checkNotNull(e.getCause());
+          if (cause instanceof PrefixExhaustedException) {
+            // The prefix isn't long enough for this extractor to decide, so use the full input.
+            if (sniff(extractors[i], input, position, sniffFailures)) {
+              return i;
+            }
+            continue;
+          } else if (cause instanceof EOFException) {
+            continue;
+          } else if (cause instanceof IOException) {
+            throw (IOException) cause;
+          }
+          // The cause must be a RuntimeException.
+          throw (RuntimeException) cause;
+        }
+        long prefixPosition = sniffTask.input.getPosition();
+        Assertions.checkState(sniffed || prefixPosition == position);
+        if (sniffed) {
+          // Consume any data that the extractor read while sniffing.
+          input.skipFully((int) (prefixPosition - position));
+          return i;
+        }
+        sniffFailures.addAll(extractors[i].getSniffFailureDetails());
+      }
+      return C.INDEX_UNSET;
+    } finally {
+      for (SniffTask sniffTask : sniffTasks) {
+        sniffTask.cancel(/* interruptIfRunning= */ false);
+      }
+    }
+  }
+
+  /** Sniffs an input that reads from a prefix of the media with a single extractor. */
+  private static final class SniffTask extends RunnableFutureTask<Boolean, IOException> {
+
+    private final Extractor extractor;
+    private final DefaultExtractorInput input;
+
+    public SniffTask(Extractor extractor, DefaultExtractorInput input) {
+      this.extractor = extractor;
+      this.input = input;
+    }
+
+    @Override
+    protected Boolean doWork() throws IOException {
+      try {
+        return extractor.sniff(input);
+      } finally {
+        input.release();
+      }
+    }
+  }
+
+  /**
+   * A {@link DataReader} that reads from a prefix of the media, and throws {@link
+   * PrefixExhaustedException} if more data is needed.
+   */
+  private static final class PrefixDataReader implements DataReader {
+
+    private final byte[] prefix;
+    private final int prefixLength;
+    private final boolean prefixEndsInput;
+
+    private int position;
+
+    public PrefixDataReader(byte[] prefix, int prefixLength, boolean prefixEndsInput) {
+      this.prefix = prefix;
+      this.prefixLength = prefixLength;
+      this.prefixEndsInput = prefixEndsInput;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      if (length == 0) {
+        return 0;
+      }
+      if (position == prefixLength) {
+        if (prefixEndsInput) {
+          return C.RESULT_END_OF_INPUT;
+        }
+        throw new PrefixExhaustedException();
+      }
+      int bytesRead = min(length, prefixLength - position);
+      System.arraycopy(prefix, position, buffer, offset, bytesRead);
+      position += bytesRead;
+      return bytesRead;
+    }
+  }
+
+  /** Thrown when sniffing needs more data than the prefix read for parallel sniffing. */
+  private static final class PrefixExhaustedException extends IOException {}
 }
@@ -102,6 +102,21 @@ public final class MaskingMediaSource extends WrappingMediaSource {
     }
   }
 
+  /**
+   * Starts the preparation of the wrapped {@link MediaSource} if it's prepared lazily and hasn't
+   * started preparing yet.
+   *
+   * <p>This loads the manifest and initial {@link Timeline} of the wrapped source before the first
+   * period is created, so that the period can be prepared without waiting for them. Does nothing if
+   * this source hasn't been prepared.
+   */
+  public void maybeStartPreparingChildSource() {
+    if (!hasStartedPreparing && prepareSourceCalled()) {
+      hasStartedPreparing = true;
+      prepareChildSource();
+    }
+  }
+
   @Override
   public MaskingMediaPeriod createPeriod(
       MediaPeriodId id, Allocator allocator, long startPositionUs) {
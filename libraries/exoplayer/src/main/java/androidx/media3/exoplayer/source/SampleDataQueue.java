@@ -173,6 +173,21 @@ import java.util.Arrays;
   }
 
   public int sampleData(DataReader input, int length, boolean allowEndOfInput) throws IOException {
+    @Nullable ByteBuffer data = length > 0 ? input.readByteBuffer(length) : null;
+    if (data != null) {
+      // Copy the data into as many allocations as needed, rather than reading one allocation at a
+      // time from the input.
+      int bytesAppended = data.remaining();
+      while (data.hasRemaining()) {
+        int bytesToCopy = preAppend(data.remaining());
+        data.get(
+            writeAllocationNode.allocation.data,
+            writeAllocationNode.translateOffset(totalBytesWritten),
+            bytesToCopy);
+        postAppend(bytesToCopy);
+      }
+      return bytesAppended;
+    }
     length = preAppend(length);
     int bytesAppended =
         input.read(
@@ -213,7 +228,7 @@ import java.util.Arrays;
       return;
     }
     // Bulk release allocations for performance (it's significantly faster when using
-    // DefaultAllocator because the allocator's lock only needs to be acquired and released once)
+    // DefaultAllocator because the releasing thread's cache only needs to be locked once)
     // [Internal: See b/29542039].
     allocator.release(fromNode);
     fromNode.clear();
@@ -27,7 +27,6 @@ import androidx.media3.datasource.DataSpec;
 import androidx.media3.exoplayer.source.chunk.ChunkExtractor.TrackOutputProvider;
 import androidx.media3.extractor.DefaultExtractorInput;
 import androidx.media3.extractor.Extractor;
-import androidx.media3.extractor.ExtractorInput;
 import androidx.media3.extractor.TrackOutput;
 import com.google.errorprone.annotations.ForOverride;
 import java.io.IOException;
@@ -125,7 +124,7 @@ public class ContainerMediaChunk extends BaseMediaChunk {
     try {
       // Create and open the input.
       DataSpec loadDataSpec = dataSpec.subrange(nextLoadPosition);
-      ExtractorInput input =
+      DefaultExtractorInput input =
           new DefaultExtractorInput(
               dataSource, loadDataSpec.position, dataSource.open(loadDataSpec));
       // Load and decode the sample data.
@@ -134,6 +133,7 @@ public class ContainerMediaChunk extends BaseMediaChunk {
         maybeWriteEmptySamples(output);
       } finally {
         nextLoadPosition = input.getPosition() - dataSpec.position;
+        input.release();
       }
     } finally {
       onLoadEnded();
@@ -26,7 +26,6 @@ import androidx.media3.exoplayer.source.chunk.ChunkExtractor.TrackOutputProvider
 import androidx.media3.extractor.ChunkIndex;
 import androidx.media3.extractor.DefaultExtractorInput;
 import androidx.media3.extractor.Extractor;
-import androidx.media3.extractor.ExtractorInput;
 import java.io.IOException;
 import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
 
@@ -98,7 +97,7 @@ public final class InitializationChunk extends Chunk {
     try {
       // Create and open the input.
       DataSpec loadDataSpec = dataSpec.subrange(nextLoadPosition);
-      ExtractorInput input =
+      DefaultExtractorInput input =
           new DefaultExtractorInput(
               dataSource, loadDataSpec.position, dataSource.open(loadDataSpec));
       // Load and decode the initialization data.
@@ -106,6 +105,7 @@ public final class InitializationChunk extends Chunk {
         while (!loadCanceled && chunkExtractor.read(input)) {}
       } finally {
         nextLoadPosition = input.getPosition() - dataSpec.position;
+        input.release();
         chunkIndex = chunkExtractor.getChunkIndex();
       }
     } finally {
@@ -0,0 +1,355 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.exoplayer.source.preload;
+
+import static androidx.media3.common.util.Assertions.checkArgument;
+import static androidx.media3.common.util.Assertions.checkState;
+import static java.lang.Math.abs;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+import androidx.annotation.Nullable;
+import androidx.media3.common.C;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.DefaultLoadControl;
+import androidx.media3.exoplayer.source.preload.DefaultPreloadManager.PreloadStatus;
+import androidx.media3.exoplayer.upstream.Allocator;
+import androidx.media3.exoplayer.upstream.BandwidthMeter;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+
+/**
+ * A {@link TargetPreloadStatusControl} for {@link DefaultPreloadManager} that shares a global
+ * preload budget between the sources around the current playing index, instead of assigning a
+ * static target per distance.
+ *
+ * <p>Sources are served in ranking order, nearest first and forward before backward for the same
+ * distance. Each source requests enough media to start playback without waiting for the network,
+ * scaled up when the {@linkplain BandwidthMeter#getBitrateEstimate() measured throughput} is lower
+ * than the expected media bitrate, and is granted as much of the remaining budget as is left after
+ * the sources ranked before it. The budget is the smaller of a duration budget and a byte budget
+ * converted with the expected media bitrate. Sources that are granted no media, or all sources once
+ * the {@link Allocator} shared with the player has reached its memory cap, are downgraded to {@link
+ * PreloadStatus#TRACKS_SELECTED} or {@link PreloadStatus#SOURCE_PREPARED} depending on their
+ * distance.
+ *
+ * <p>Targets are computed when the preload manager asks for them, so calling {@link
+ * #setCurrentPlayingIndex(int)} and {@link DefaultPreloadManager#invalidate()} as the user scrolls
+ * upgrades and downgrades the sources according to the new ranking and the latest throughput.
+ * {@link #setCurrentPlayingIndex(int)} should be called with the same index as {@link
+ * DefaultPreloadManager#setCurrentPlayingIndex(int)}.
+ */
+@UnstableApi
+public final class AdaptiveTargetPreloadStatusControl
+    implements TargetPreloadStatusControl<Integer, PreloadStatus> {
+
+  /** The default preload duration budget, in milliseconds. */
+  public static final long DEFAULT_PRELOAD_DURATION_BUDGET_MS = 10_000;
+
+  /** The default preload byte budget. */
+  public static final long DEFAULT_PRELOAD_BYTE_BUDGET = 4 * 1024 * 1024;
+
+  /** The default expected media bitrate, in bits per second. */
+  public static final int DEFAULT_MEDIA_BITRATE_BPS = 2_000_000;
+
+  /**
+   * The default duration of media that a source requests to start playback, in milliseconds. Same
+   * as {@link DefaultLoadControl#DEFAULT_BUFFER_FOR_PLAYBACK_MS}.
+   */
+  public static final long DEFAULT_STARTUP_DURATION_MS =
+      DefaultLoadControl.DEFAULT_BUFFER_FOR_PLAYBACK_MS;
+
+  /** The default maximum duration of media requested by a single source, in milliseconds. */
+  public static final long DEFAULT_MAX_DURATION_PER_SOURCE_MS = 5_000;
+
+  /**
+   * The default memory cap of the shared {@link Allocator}, in bytes. Same as {@link
+   * DefaultLoadControl#DEFAULT_VIDEO_BUFFER_SIZE}.
+   */
+  public static final int DEFAULT_ALLOCATOR_MEMORY_CAP_BYTES =
+      DefaultLoadControl.DEFAULT_VIDEO_BUFFER_SIZE;
+
+  /** The default maximum distance of sources preloaded to {@link PreloadStatus#TRACKS_SELECTED}. */
+  public static final int DEFAULT_MAX_TRACKS_SELECTED_DISTANCE = 2;
+
+  /** The default maximum distance of sources that are preloaded at all. */
+  public static final int DEFAULT_MAX_SOURCE_PREPARED_DISTANCE = 4;
+
+  /** A builder for {@link AdaptiveTargetPreloadStatusControl} instances. */
+  public static final class Builder {
+
+    private final BandwidthMeter bandwidthMeter;
+    private final Allocator allocator;
+    private long preloadDurationBudgetMs;
+    private long preloadByteBudget;
+    private int mediaBitrateBps;
+    private long startupDurationMs;
+    private long maxDurationPerSourceMs;
+    private int allocatorMemoryCapBytes;
+    private int maxTracksSelectedDistance;
+    private int maxSourcePreparedDistance;
+    private boolean buildCalled;
+
+    /**
+     * Creates a builder.
+     *
+     * @param bandwidthMeter The {@link BandwidthMeter} used by the {@link DefaultPreloadManager}
+     *     and the player.
+     * @param allocator The {@link Allocator} shared by the {@link DefaultPreloadManager} and the
+     *     player, usually the one of their {@link DefaultLoadControl}.
+     */
+    public Builder(BandwidthMeter bandwidthMeter, Allocator allocator) {
+      this.bandwidthMeter = bandwidthMeter;
+      this.allocator = allocator;
+      preloadDurationBudgetMs = DEFAULT_PRELOAD_DURATION_BUDGET_MS;
+      preloadByteBudget = DEFAULT_PRELOAD_BYTE_BUDGET;
+      mediaBitrateBps = DEFAULT_MEDIA_BITRATE_BPS;
+      startupDurationMs = DEFAULT_STARTUP_DURATION_MS;
+      maxDurationPerSourceMs = DEFAULT_MAX_DURATION_PER_SOURCE_MS;
+      allocatorMemoryCapBytes = DEFAULT_ALLOCATOR_MEMORY_CAP_BYTES;
+      maxTracksSelectedDistance = DEFAULT_MAX_TRACKS_SELECTED_DISTANCE;
+      maxSourcePreparedDistance = DEFAULT_MAX_SOURCE_PREPARED_DISTANCE;
+    }
+
+    /**
+     * Sets the total duration of media that may be preloaded across all sources, in milliseconds.
+     *
+     * <p>The default is {@link #DEFAULT_PRELOAD_DURATION_BUDGET_MS}.
+     *
+     * @param preloadDurationBudgetMs The preload duration budget, in milliseconds.
+     * @return This builder.
+     * @throws IllegalStateException If {@link #build()} has already been called.
+     */
+    @CanIgnoreReturnValue
+    public Builder setPreloadDurationBudgetMs(long preloadDurationBudgetMs) {
+      checkState(!buildCalled);
+      checkArgument(preloadDurationBudgetMs >= 0);
+      this.preloadDurationBudgetMs = preloadDurationBudgetMs;
+      return this;
+    }
+
+    /**
+     * Sets the total number of bytes that may be preloaded across all sources.
+     *
+     * <p>The default is {@link #DEFAULT_PRELOAD_BYTE_BUDGET}.
+     *
+     * @param preloadByteBudget The preload byte budget, or {@link C#LENGTH_UNSET} to only apply the
+     *     {@linkplain #setPreloadDurationBudgetMs(long) duration budget}.
+     * @return This builder.
+     * @throws IllegalStateException If {@link #build()} has already been called.
+     */
+    @CanIgnoreReturnValue
+    public Builder setPreloadByteBudget(long preloadByteBudget) {
+      checkState(!buildCalled);
+      checkArgument(preloadByteBudget == C.LENGTH_UNSET || preloadByteBudget >= 0);
+      this.preloadByteBudget = preloadByteBudget;
+      return this;
+    }
+
+    /**
+     * Sets the expected bitrate of the preloaded media, in bits per second. It's used to convert
+     * the byte budget to a duration, and to compare the measured throughput against.
+     *
+     * <p>The default is {@link #DEFAULT_MEDIA_BITRATE_BPS}.
+     *
+     * @param mediaBitrateBps The expected media bitrate, in bits per second.
+     * @return This builder.
+     * @throws IllegalStateException If {@link #build()} has already been called.
+     */
+    @CanIgnoreReturnValue
+    public Builder setMediaBitrateBps(int mediaBitrateBps) {
+      checkState(!buildCalled);
+      checkArgument(mediaBitrateBps > 0);
+      this.mediaBitrateBps = mediaBitrateBps;
+      return this;
+    }
+
+    /**
+     * Sets the duration of media that a source requests so that playback can start without waiting
+     * for the network, in milliseconds, and the maximum duration a source may request when the
+     * measured throughput is lower than the media bitrate.
+     *
+     * <p>The defaults are {@link #DEFAULT_STARTUP_DURATION_MS} and {@link
+     * #DEFAULT_MAX_DURATION_PER_SOURCE_MS}.
+     *
+     * @param startupDurationMs The startup duration, in milliseconds.
+     * @param maxDurationPerSourceMs The maximum duration requested by a single source, in
+     *     milliseconds.
+     * @return This builder.
+     * @throws IllegalStateException If {@link #build()} has already been called.
+     */
+    @CanIgnoreReturnValue
+    public Builder setDurationPerSourceMs(long startupDurationMs, long maxDurationPerSourceMs) {
+      checkState(!buildCalled);
+      checkArgument(startupDurationMs > 0 && maxDurationPerSourceMs >= startupDurationMs);
+      this.startupDurationMs = startupDurationMs;
+      this.maxDurationPerSourceMs = maxDurationPerSourceMs;
+      return this;
+    }
+
+    /**
+     * Sets the number of bytes allocated from the shared {@link Allocator} above which no more
+     * media is preloaded.
+     *
+     * <p>The default is {@link #DEFAULT_ALLOCATOR_MEMORY_CAP_BYTES}.
+     *
+     * @param allocatorMemoryCapBytes The memory cap, in bytes, or {@link C#LENGTH_UNSET} for no
+     *     cap.
+     * @return This builder.
+     * @throws IllegalStateException If {@link #build()} has already been called.
+     */
+    @CanIgnoreReturnValue
+    public Builder setAllocatorMemoryCapBytes(int allocatorMemoryCapBytes) {
+      checkState(!buildCalled);
+      checkArgument(allocatorMemoryCapBytes == C.LENGTH_UNSET || allocatorMemoryCapBytes >= 0);
+      this.allocatorMemoryCapBytes = allocatorMemoryCapBytes;
+      return this;
+    }
+
+    /**
+     * Sets the maximum distances from the current playing index of sources that are preloaded to
+     * {@link PreloadStatus#TRACKS_SELECTED} and {@link PreloadStatus#SOURCE_PREPARED} when they
+     * aren't granted any media. Sources further away aren't preloaded.
+     *
+     * <p>The defaults are {@link #DEFAULT_MAX_TRACKS_SELECTED_DISTANCE} and {@link
+     * #DEFAULT_MAX_SOURCE_PREPARED_DISTANCE}.
+     *
+     * @param maxTracksSelectedDistance The maximum distance of sources preloaded to {@link
+     *     PreloadStatus#TRACKS_SELECTED}.
+     * @param maxSourcePreparedDistance The maximum distance of sources that are preloaded at all.
+     * @return This builder.
+     * @throws IllegalStateException If {@link #build()} has already been called.
+     */
+    @CanIgnoreReturnValue
+    public Builder setMaxPreloadDistances(
+        int maxTracksSelectedDistance, int maxSourcePreparedDistance) {
+      checkState(!buildCalled);
+      checkArgument(
+          maxTracksSelectedDistance >= 0 && maxSourcePreparedDistance >= maxTracksSelectedDistance);
+      this.maxTracksSelectedDistance = maxTracksSelectedDistance;
+      this.maxSourcePreparedDistance = maxSourcePreparedDistance;
+      return this;
+    }
+
+    /**
+     * Builds an {@link AdaptiveTargetPreloadStatusControl} instance.
+     *
+     * @throws IllegalStateException If this method has already been called.
+     */
+    public AdaptiveTargetPreloadStatusControl build() {
+      checkState(!buildCalled);
+      buildCalled = true;
+      return new AdaptiveTargetPreloadStatusControl(this);
+    }
+  }
+
+  private final BandwidthMeter bandwidthMeter;
+  private final Allocator allocator;
+  private final long preloadDurationBudgetMs;
+  private final long preloadByteBudget;
+  private final int mediaBitrateBps;
+  private final long startupDurationMs;
+  private final long maxDurationPerSourceMs;
+  private final int allocatorMemoryCapBytes;
+  private final int maxTracksSelectedDistance;
+  private final int maxSourcePreparedDistance;
+
+  private int currentPlayingIndex;
+
+  private AdaptiveTargetPreloadStatusControl(Builder builder) {
+    bandwidthMeter = builder.bandwidthMeter;
+    allocator = builder.allocator;
+    preloadDurationBudgetMs = builder.preloadDurationBudgetMs;
+    preloadByteBudget = builder.preloadByteBudget;
+    mediaBitrateBps = builder.mediaBitrateBps;
+    startupDurationMs = builder.startupDurationMs;
+    maxDurationPerSourceMs = builder.maxDurationPerSourceMs;
+    allocatorMemoryCapBytes = builder.allocatorMemoryCapBytes;
+    maxTracksSelectedDistance = builder.maxTracksSelectedDistance;
+    maxSourcePreparedDistance = builder.maxSourcePreparedDistance;
+  }
+
+  /**
+   * Sets the index of the current playing media.
+   *
+   * @param currentPlayingIndex The index of current playing media.
+   */
+  public void setCurrentPlayingIndex(int currentPlayingIndex) {
+    this.currentPlayingIndex = currentPlayingIndex;
+  }
+
+  @Override
+  @Nullable
+  public PreloadStatus getTargetPreloadStatus(Integer rankingData) {
+    int offset = rankingData - currentPlayingIndex;
+    int distance = abs(offset);
+    if (distance > maxSourcePreparedDistance) {
+      return null;
+    }
+    if (!isAllocatorMemoryCapReached()) {
+      long durationMs = getGrantedDurationMs(offset);
+      if (durationMs > 0) {
+        return PreloadStatus.specifiedRangeLoaded(durationMs);
+      }
+    }
+    return distance <= maxTracksSelectedDistance
+        ? PreloadStatus.TRACKS_SELECTED
+        : PreloadStatus.SOURCE_PREPARED;
+  }
+
+  /**
+   * Returns the duration of media granted to the source at the given offset from the current
+   * playing index, in milliseconds.
+   */
+  private long getGrantedDurationMs(int offset) {
+    long remainingBudgetMs = getBudgetMs();
+    long requestedDurationMs = getRequestedDurationPerSourceMs();
+    // Walk the sources in ranking order (0, +1, -1, +2, -2, ...), each taking its request from
+    // the remaining budget, until reaching the source at the given offset.
+    for (int distance = 0; distance <= abs(offset); distance++) {
+      for (int candidateOffset : distance == 0 ? new int[] {0} : new int[] {distance, -distance}) {
+        long grantedDurationMs = min(requestedDurationMs, remainingBudgetMs);
+        if (candidateOffset == offset) {
+          return grantedDurationMs;
+        }
+        remainingBudgetMs -= grantedDurationMs;
+      }
+    }
+    throw new IllegalStateException();
+  }
+
+  private long getBudgetMs() {
+    if (preloadByteBudget == C.LENGTH_UNSET) {
+      return preloadDurationBudgetMs;
+    }
+    return min(preloadDurationBudgetMs, preloadByteBudget * 8 * 1000 / mediaBitrateBps);
+  }
+
+  private long getRequestedDurationPerSourceMs() {
+    long bitrateEstimate = bandwidthMeter.getBitrateEstimate();
+    if (bitrateEstimate <= 0) {
+      return maxDurationPerSourceMs;
+    }
+    // When the network is slower than the media, a source started from the preloaded media runs
+    // out of it sooner, so request proportionally more.
+    long scaledDurationMs = startupDurationMs * mediaBitrateBps / bitrateEstimate;
+    return min(max(startupDurationMs, scaledDurationMs), maxDurationPerSourceMs);
+  }
+
+  private boolean isAllocatorMemoryCapReached() {
+    return allocatorMemoryCapBytes != C.LENGTH_UNSET
+        && allocator.getTotalBytesAllocated() >= allocatorMemoryCapBytes;
+  }
+}
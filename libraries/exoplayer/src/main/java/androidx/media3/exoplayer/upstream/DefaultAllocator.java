@@ -16,26 +16,45 @@
 package androidx.media3.exoplayer.upstream;
 
 import static java.lang.Math.max;
+import static java.lang.Math.min;
 
 import androidx.annotation.Nullable;
 import androidx.media3.common.util.Assertions;
 import androidx.media3.common.util.NullableType;
 import androidx.media3.common.util.UnstableApi;
 import androidx.media3.common.util.Util;
+import java.lang.ref.WeakReference;
 import java.util.Arrays;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
-/** Default implementation of {@link Allocator}. */
+/**
+ * Default implementation of {@link Allocator}.
+ *
+ * <p>Each thread that allocates or releases {@link Allocation}s has its own small cache of
+ * available allocations. Allocations are only exchanged with the allocator's shared pool, which
+ * requires taking its lock, when a thread's cache runs empty or full. This avoids contention
+ * between loading threads allocating at the same time, and between loading threads allocating and
+ * the playback thread releasing. {@link #trim()} returns cached allocations from all threads to the
+ * shared pool before discarding those above the target buffer size.
+ */
 @UnstableApi
 public final class DefaultAllocator implements Allocator {
 
   private static final int AVAILABLE_EXTRA_CAPACITY = 100;
 
+  /** The maximum number of available allocations cached by each thread. */
+  private static final int MAGAZINE_CAPACITY = 8;
+
   private final boolean trimOnReset;
   private final int individualAllocationSize;
   @Nullable private final byte[] initialAllocationBlock;
+  private final AtomicInteger allocatedCount;
+  private final CopyOnWriteArrayList<Magazine> magazines;
+  private final ThreadLocal<Magazine> threadMagazine;
 
   private int targetBufferSize;
-  private int allocatedCount;
+  private int createdCount;
   private int availableCount;
   private @NullableType Allocation[] availableAllocations;
 
@@ -68,6 +87,18 @@ public final class DefaultAllocator implements Allocator {
     Assertions.checkArgument(initialAllocationCount >= 0);
     this.trimOnReset = trimOnReset;
     this.individualAllocationSize = individualAllocationSize;
+    this.allocatedCount = new AtomicInteger();
+    this.magazines = new CopyOnWriteArrayList<>();
+    this.threadMagazine =
+        new ThreadLocal<Magazine>() {
+          @Override
+          protected Magazine initialValue() {
+            Magazine magazine = new Magazine(Thread.currentThread());
+            magazines.add(magazine);
+            return magazine;
+          }
+        };
+    this.createdCount = initialAllocationCount;
     this.availableCount = initialAllocationCount;
     this.availableAllocations = new Allocation[initialAllocationCount + AVAILABLE_EXTRA_CAPACITY];
     if (initialAllocationCount > 0) {
@@ -81,62 +112,129 @@ public final class DefaultAllocator implements Allocator {
     }
   }
 
-  public synchronized void reset() {
+  public void reset() {
     if (trimOnReset) {
       setTargetBufferSize(0);
     }
   }
 
-  public synchronized void setTargetBufferSize(int targetBufferSize) {
-    boolean targetBufferSizeReduced = targetBufferSize < this.targetBufferSize;
-    this.targetBufferSize = targetBufferSize;
+  public void setTargetBufferSize(int targetBufferSize) {
+    boolean targetBufferSizeReduced;
+    synchronized (this) {
+      targetBufferSizeReduced = targetBufferSize < this.targetBufferSize;
+      this.targetBufferSize = targetBufferSize;
+    }
     if (targetBufferSizeReduced) {
       trim();
     }
   }
 
   @Override
-  public synchronized Allocation allocate() {
-    allocatedCount++;
-    Allocation allocation;
-    if (availableCount > 0) {
-      allocation = Assertions.checkNotNull(availableAllocations[--availableCount]);
-      availableAllocations[availableCount] = null;
-    } else {
-      allocation = new Allocation(new byte[individualAllocationSize], 0);
-      if (allocatedCount > availableAllocations.length) {
-        // Make availableAllocations be large enough to contain all allocations made by this
-        // allocator so that release() does not need to grow the availableAllocations array. See
-        // [Internal ref: b/209801945].
-        availableAllocations = Arrays.copyOf(availableAllocations, availableAllocations.length * 2);
+  public Allocation allocate() {
+    allocatedCount.incrementAndGet();
+    Magazine magazine = threadMagazine.get();
+    synchronized (magazine) {
+      if (magazine.size == 0) {
+        return refillMagazineAndAllocate(magazine);
+      }
+      return magazine.pop();
+    }
+  }
+
+  @Override
+  public void release(Allocation allocation) {
+    Magazine magazine = threadMagazine.get();
+    synchronized (magazine) {
+      if (magazine.size == MAGAZINE_CAPACITY) {
+        flushMagazine(magazine, /* count= */ MAGAZINE_CAPACITY / 2);
+      }
+      magazine.push(allocation);
+    }
+    allocatedCount.decrementAndGet();
+  }
+
+  @Override
+  public void release(@Nullable AllocationNode allocationNode) {
+    if (allocationNode == null) {
+      return;
+    }
+    int releasedCount = 0;
+    Magazine magazine = threadMagazine.get();
+    synchronized (magazine) {
+      while (allocationNode != null) {
+        if (magazine.size == MAGAZINE_CAPACITY) {
+          flushMagazine(magazine, /* count= */ MAGAZINE_CAPACITY / 2);
+        }
+        magazine.push(allocationNode.getAllocation());
+        releasedCount++;
+        allocationNode = allocationNode.next();
       }
     }
-    return allocation;
+    allocatedCount.addAndGet(-releasedCount);
   }
 
   @Override
-  public synchronized void release(Allocation allocation) {
-    availableAllocations[availableCount++] = allocation;
-    allocatedCount--;
-    // Wake up threads waiting for the allocated size to drop.
-    notifyAll();
+  public void trim() {
+    // Return the allocations cached by each thread to the shared pool. A magazine's lock is always
+    // acquired before the allocator's lock, to match the order used when allocating and releasing.
+    for (Magazine magazine : magazines) {
+      synchronized (magazine) {
+        if (magazine.size > 0) {
+          flushMagazine(magazine, magazine.size);
+        }
+        if (!magazine.isOwnerAlive()) {
+          // The magazine is empty and can't be used again.
+          magazines.remove(magazine);
+        }
+      }
+    }
+    trimAvailableAllocations();
   }
 
   @Override
-  public synchronized void release(@Nullable AllocationNode allocationNode) {
-    while (allocationNode != null) {
-      availableAllocations[availableCount++] = allocationNode.getAllocation();
-      allocatedCount--;
-      allocationNode = allocationNode.next();
-    }
-    // Wake up threads waiting for the allocated size to drop.
-    notifyAll();
+  public int getTotalBytesAllocated() {
+    return allocatedCount.get() * individualAllocationSize;
   }
 
   @Override
-  public synchronized void trim() {
+  public int getIndividualAllocationLength() {
+    return individualAllocationSize;
+  }
+
+  /**
+   * Moves up to half a magazine of allocations from the shared pool to the given empty magazine,
+   * and returns one of them. If the shared pool is empty, a new allocation is created instead.
+   */
+  private synchronized Allocation refillMagazineAndAllocate(Magazine magazine) {
+    if (availableCount == 0) {
+      createdCount++;
+      if (createdCount > availableAllocations.length) {
+        // Make availableAllocations be large enough to contain all allocations made by this
+        // allocator so that returning allocations to the shared pool does not need to grow the
+        // availableAllocations array. See [Internal ref: b/209801945].
+        availableAllocations = Arrays.copyOf(availableAllocations, availableAllocations.length * 2);
+      }
+      return new Allocation(new byte[individualAllocationSize], 0);
+    }
+    int refillCount = min(availableCount, MAGAZINE_CAPACITY / 2);
+    for (int i = 0; i < refillCount; i++) {
+      magazine.push(Assertions.checkNotNull(availableAllocations[--availableCount]));
+      availableAllocations[availableCount] = null;
+    }
+    return magazine.pop();
+  }
+
+  /** Moves the given number of allocations from the given magazine to the shared pool. */
+  private synchronized void flushMagazine(Magazine magazine, int count) {
+    for (int i = 0; i < count; i++) {
+      availableAllocations[availableCount++] = magazine.pop();
+    }
+  }
+
+  /** Discards available allocations in the shared pool beyond the target buffer size. */
+  private synchronized void trimAvailableAllocations() {
     int targetAllocationCount = Util.ceilDivide(targetBufferSize, individualAllocationSize);
-    int targetAvailableCount = max(0, targetAllocationCount - allocatedCount);
+    int targetAvailableCount = max(0, targetAllocationCount - allocatedCount.get());
     if (targetAvailableCount >= availableCount) {
       // We're already at or below the target.
       return;
@@ -172,16 +270,39 @@ public final class DefaultAllocator implements Allocator {
 
     // Discard allocations beyond the target.
     Arrays.fill(availableAllocations, targetAvailableCount, availableCount, null);
+    createdCount -= availableCount - targetAvailableCount;
     availableCount = targetAvailableCount;
   }
 
-  @Override
-  public synchronized int getTotalBytesAllocated() {
-    return allocatedCount * individualAllocationSize;
-  }
+  /**
+   * A small stack of available allocations owned by a single thread. Accessed whilst holding its
+   * own lock, which is uncontended except when the allocator is being trimmed.
+   */
+  private static final class Magazine {
 
-  @Override
-  public int getIndividualAllocationLength() {
-    return individualAllocationSize;
+    private final WeakReference<Thread> owner;
+    private final @NullableType Allocation[] allocations;
+
+    private int size;
+
+    public Magazine(Thread owner) {
+      this.owner = new WeakReference<>(owner);
+      allocations = new Allocation[MAGAZINE_CAPACITY];
+    }
+
+    public void push(Allocation allocation) {
+      allocations[size++] = allocation;
+    }
+
+    public Allocation pop() {
+      Allocation allocation = Assertions.checkNotNull(allocations[--size]);
+      allocations[size] = null;
+      return allocation;
+    }
+
+    public boolean isOwnerAlive() {
+      @Nullable Thread ownerThread = owner.get();
+      return ownerThread != null && ownerThread.isAlive();
+    }
   }
 }
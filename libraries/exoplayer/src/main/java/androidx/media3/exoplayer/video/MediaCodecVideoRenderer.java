@@ -210,6 +210,7 @@ public class MediaCodecVideoRenderer extends MediaCodecRenderer
   private long totalVideoFrameProcessingOffsetUs;
   private int videoFrameProcessingOffsetCount;
   private long lastFrameReleaseTimeNs;
+  private long pendingFrameReleaseWindowStartRealtimeUs;
   private VideoSize decodedVideoSize;
   @Nullable private VideoSize reportedVideoSize;
   private int rendererPriority;
@@ -588,6 +589,7 @@ public class MediaCodecVideoRenderer extends MediaCodecRenderer
     rendererPriority = C.PRIORITY_PLAYBACK;
     startPositionUs = C.TIME_UNSET;
     periodDurationUs = C.TIME_UNSET;
+    pendingFrameReleaseWindowStartRealtimeUs = C.TIME_UNSET;
     av1SampleDependencyParser =
         builder.parseAv1SampleDependencies ? new Av1SampleDependencyParser() : null;
     droppedDecoderInputBufferTimestamps = new PriorityQueue<>();
@@ -1039,6 +1041,25 @@ public class MediaCodecVideoRenderer extends MediaCodecRenderer
     return videoFrameReleaseControl.isReady(rendererOtherwiseReady);
   }
 
+  @Override
+  protected long getDurationToProgressUs(
+      long positionUs, long elapsedRealtimeUs, boolean isOnBufferAvailableListenerRegistered) {
+    if (!isOnBufferAvailableListenerRegistered
+        || getState() != STATE_STARTED
+        || videoSink != null
+        || pendingFrameReleaseWindowStartRealtimeUs == C.TIME_UNSET
+        || !isCodecInputBlocked()) {
+      // Progress may depend on new input or on state we don't get woken up for, so keep polling.
+      return super.getDurationToProgressUs(
+          positionUs, elapsedRealtimeUs, isOnBufferAvailableListenerRegistered);
+    }
+    // The codec wakes us up when it has new buffers available, so the only other progress is
+    // releasing the pending output buffer once it enters the release window.
+    return max(
+        DEFAULT_DURATION_TO_PROGRESS_US,
+        pendingFrameReleaseWindowStartRealtimeUs - elapsedRealtimeUs);
+  }
+
   @Override
   protected void onStarted() {
     super.onStarted();
@@ -1321,6 +1342,7 @@ public class MediaCodecVideoRenderer extends MediaCodecRenderer
     droppedDecoderInputBufferTimestamps.clear();
     buffersInCodecCount = 0;
     consecutiveDroppedInputBufferCount = 0;
+    pendingFrameReleaseWindowStartRealtimeUs = C.TIME_UNSET;
     isFlushRequired = false;
     if (av1SampleDependencyParser != null) {
       av1SampleDependencyParser.reset();
@@ -1796,6 +1818,7 @@ public class MediaCodecVideoRenderer extends MediaCodecRenderer
     long outputStreamOffsetUs = getOutputStreamOffsetUs();
     long presentationTimeUs = bufferPresentationTimeUs - outputStreamOffsetUs;
     updateDroppedBufferCountersWithInputBuffers(bufferPresentationTimeUs);
+    pendingFrameReleaseWindowStartRealtimeUs = C.TIME_UNSET;
 
     if (videoSink != null) {
       // Skip decode-only buffers, e.g. after seeking, immediately.
@@ -1850,6 +1873,14 @@ public class MediaCodecVideoRenderer extends MediaCodecRenderer
         updateVideoFrameProcessingOffsetCounters(videoFrameReleaseInfo.getEarlyUs());
         return true;
       case VideoFrameReleaseControl.FRAME_RELEASE_TRY_AGAIN_LATER:
+        if (videoFrameReleaseInfo.getReleaseTimeNs() != C.TIME_UNSET) {
+          // The frame is too early to be scheduled for release. Note when it will become eligible.
+          pendingFrameReleaseWindowStartRealtimeUs =
+              Util.msToUs(getClock().elapsedRealtime())
+                  + videoFrameReleaseInfo.getEarlyUs()
+                  - VideoFrameReleaseControl.MAX_EARLY_US_THRESHOLD;
+        }
+        return false;
       case VideoFrameReleaseControl.FRAME_RELEASE_IGNORE:
         return false;
       case VideoFrameReleaseControl.FRAME_RELEASE_SCHEDULED:
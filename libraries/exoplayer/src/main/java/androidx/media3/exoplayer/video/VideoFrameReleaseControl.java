@@ -167,7 +167,7 @@ public final class VideoFrameReleaseControl {
   }
 
   /** The maximum earliest time, in microseconds, to release a frame on the surface. */
-  private static final long MAX_EARLY_US_THRESHOLD = 50_000;
+  /* package */ static final long MAX_EARLY_US_THRESHOLD = 50_000;
 
   private final FrameTimingEvaluator frameTimingEvaluator;
   private final VideoFrameReleaseHelper frameReleaseHelper;
@@ -145,6 +145,7 @@ import androidx.media3.datasource.TransferListener;
 import androidx.media3.decoder.DecoderInputBuffer;
 import androidx.media3.exoplayer.ExoPlayer.PreloadConfiguration;
 import androidx.media3.exoplayer.analytics.AnalyticsListener;
+import androidx.media3.exoplayer.analytics.HistogramPlaybackMetrics;
 import androidx.media3.exoplayer.analytics.PlayerId;
 import androidx.media3.exoplayer.audio.AudioRendererEventListener;
 import androidx.media3.exoplayer.audio.AudioSink;
@@ -386,6 +387,40 @@ public final class ExoPlayerTest {
     player.release();
   }
 
+  @Test
+  public void play_withPlaybackMetrics_recordsHotPathMetrics() throws Exception {
+    HistogramPlaybackMetrics playbackMetrics = new HistogramPlaybackMetrics();
+    ExoPlayer player =
+        new ExoPlayer.Builder(
+                context,
+                (handler, videoListener, audioListener, textOutput, metadataOutput) ->
+                    new Renderer[] {new FakeRenderer(C.TRACK_TYPE_VIDEO)})
+            .setClock(new FakeClock(/* isAutoAdvancing= */ true))
+            .setPlaybackMetrics(playbackMetrics)
+            .build();
+    player.setPreloadConfiguration(preloadConfiguration);
+
+    player.setMediaSource(
+        new FakeMediaSource(new FakeTimeline(), ExoPlayerTestRunner.VIDEO_FORMAT));
+    player.prepare();
+    player.play();
+    runUntilPlaybackState(player, Player.STATE_ENDED);
+    player.release();
+
+    assertThat(playbackMetrics.getPlaybackLoopDurationsNs().getTotalCount()).isGreaterThan(0);
+    assertThat(playbackMetrics.getMediaPeriodQueueUpdateDurationsNs().getTotalCount())
+        .isGreaterThan(0);
+    assertThat(playbackMetrics.getRenderDurationsNs(C.TRACK_TYPE_VIDEO).getTotalCount())
+        .isGreaterThan(0);
+    assertThat(playbackMetrics.getSampleBytesRead(C.TRACK_TYPE_VIDEO).getTotalCount())
+        .isGreaterThan(0);
+    assertThat(playbackMetrics.getSampleBytesRead(C.TRACK_TYPE_VIDEO).getSum()).isGreaterThan(0);
+    assertThat(playbackMetrics.getLoadDurationsMs().getTotalCount()).isGreaterThan(0);
+    assertThat(playbackMetrics.getBytesLoaded().getTotalCount()).isGreaterThan(0);
+    assertThat(playbackMetrics.getAllocatorOccupancyBytes().getTotalCount()).isGreaterThan(0);
+    assertThat(playbackMetrics.getAllocatorOccupancyBytes().getMax()).isGreaterThan(0);
+  }
+
   /** Tests playback of a source that exposes three periods. */
   @Test
   public void playMultiPeriodTimeline() throws Exception {
@@ -147,7 +147,8 @@ public final class MediaPeriodQueueTest {
             mock(MediaSourceList.MediaSourceListInfoRefreshListener.class),
             analyticsCollector,
             handler,
-            PlayerId.UNSET);
+            PlayerId.UNSET,
+            /* preparationLookaheadCount= */ 0);
     rendererCapabilities = new RendererCapabilities[0];
     trackSelector = mock(TrackSelector.class);
     allocator = mock(Allocator.class);
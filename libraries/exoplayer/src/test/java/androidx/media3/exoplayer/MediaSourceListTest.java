@@ -26,6 +26,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.os.Looper;
+import androidx.media3.common.C;
 import androidx.media3.common.MediaItem;
 import androidx.media3.common.Player;
 import androidx.media3.common.Timeline;
@@ -35,7 +36,9 @@ import androidx.media3.exoplayer.analytics.AnalyticsCollector;
 import androidx.media3.exoplayer.analytics.DefaultAnalyticsCollector;
 import androidx.media3.exoplayer.analytics.PlayerId;
 import androidx.media3.exoplayer.source.MediaSource;
+import androidx.media3.exoplayer.source.MediaSource.MediaPeriodId;
 import androidx.media3.exoplayer.source.ShuffleOrder;
+import androidx.media3.exoplayer.upstream.DefaultAllocator;
 import androidx.media3.test.utils.FakeMediaSource;
 import androidx.media3.test.utils.FakeShuffleOrder;
 import androidx.test.core.app.ApplicationProvider;
@@ -69,7 +72,8 @@ public class MediaSourceListTest {
             mock(MediaSourceList.MediaSourceListInfoRefreshListener.class),
             analyticsCollector,
             Clock.DEFAULT.createHandler(Util.getCurrentOrMainLooper(), /* callback= */ null),
-            PlayerId.UNSET);
+            PlayerId.UNSET,
+            /* preparationLookaheadCount= */ 0);
   }
 
   @Test
@@ -543,6 +547,76 @@ public class MediaSourceListTest {
         .isTrue();
   }
 
+  @Test
+  public void createPeriod_withPreparationLookahead_startsPreparingFollowingLazySources() {
+    MediaSourceList mediaSourceList =
+        createMediaSourceListWithPreparationLookahead(/* preparationLookaheadCount= */ 1);
+    FakeMediaSource mediaSource1 = new FakeMediaSource();
+    FakeMediaSource mediaSource2 = new FakeMediaSource();
+    FakeMediaSource mediaSource3 = new FakeMediaSource();
+    Timeline timeline =
+        mediaSourceList.setMediaSources(
+            createFakeHoldersWithSources(
+                /* useLazyPreparation= */ true, mediaSource1, mediaSource2, mediaSource3),
+            new ShuffleOrder.DefaultShuffleOrder(/* length= */ 3));
+    mediaSourceList.prepare(/* mediaTransferListener= */ null);
+    assertThat(mediaSource1.isPrepared()).isFalse();
+    assertThat(mediaSource2.isPrepared()).isFalse();
+
+    createPeriod(mediaSourceList, timeline, /* periodIndex= */ 0);
+
+    assertThat(mediaSource1.isPrepared()).isTrue();
+    assertThat(mediaSource2.isPrepared()).isTrue();
+    assertThat(mediaSource3.isPrepared()).isFalse();
+  }
+
+  @Test
+  public void
+      createPeriod_withPreparationLookaheadAndShuffleModeEnabled_startsPreparingNextLazySourcesInShuffleOrder() {
+    MediaSourceList mediaSourceList =
+        createMediaSourceListWithPreparationLookahead(/* preparationLookaheadCount= */ 1);
+    mediaSourceList.setShuffleModeEnabled(true);
+    FakeMediaSource mediaSource1 = new FakeMediaSource();
+    FakeMediaSource mediaSource2 = new FakeMediaSource();
+    FakeMediaSource mediaSource3 = new FakeMediaSource();
+    // FakeShuffleOrder plays the sources in reverse order.
+    Timeline timeline =
+        mediaSourceList.setMediaSources(
+            createFakeHoldersWithSources(
+                /* useLazyPreparation= */ true, mediaSource1, mediaSource2, mediaSource3),
+            new FakeShuffleOrder(/* length= */ 3));
+    mediaSourceList.prepare(/* mediaTransferListener= */ null);
+
+    createPeriod(mediaSourceList, timeline, /* periodIndex= */ 1);
+
+    assertThat(mediaSource1.isPrepared()).isTrue();
+    assertThat(mediaSource2.isPrepared()).isTrue();
+    assertThat(mediaSource3.isPrepared()).isFalse();
+  }
+
+  @Test
+  public void
+      createPeriod_withPreparationLookaheadAndRepeatModeAll_startsPreparingFirstLazySourceAfterLast() {
+    MediaSourceList mediaSourceList =
+        createMediaSourceListWithPreparationLookahead(/* preparationLookaheadCount= */ 1);
+    mediaSourceList.setRepeatMode(Player.REPEAT_MODE_ALL);
+    FakeMediaSource mediaSource1 = new FakeMediaSource();
+    FakeMediaSource mediaSource2 = new FakeMediaSource();
+    FakeMediaSource mediaSource3 = new FakeMediaSource();
+    Timeline timeline =
+        mediaSourceList.setMediaSources(
+            createFakeHoldersWithSources(
+                /* useLazyPreparation= */ true, mediaSource1, mediaSource2, mediaSource3),
+            new ShuffleOrder.DefaultShuffleOrder(/* length= */ 3));
+    mediaSourceList.prepare(/* mediaTransferListener= */ null);
+
+    createPeriod(mediaSourceList, timeline, /* periodIndex= */ 2);
+
+    assertThat(mediaSource1.isPrepared()).isTrue();
+    assertThat(mediaSource2.isPrepared()).isFalse();
+    assertThat(mediaSource3.isPrepared()).isTrue();
+  }
+
   // Internal methods.
 
   private static void assertTimelineUsesFakeShuffleOrder(Timeline timeline) {
@@ -585,6 +659,28 @@ public class MediaSourceListTest {
     return holders;
   }
 
+  private static MediaSourceList createMediaSourceListWithPreparationLookahead(
+      int preparationLookaheadCount) {
+    AnalyticsCollector analyticsCollector = new DefaultAnalyticsCollector(Clock.DEFAULT);
+    analyticsCollector.setPlayer(
+        new ExoPlayer.Builder(ApplicationProvider.getApplicationContext()).build(),
+        Looper.getMainLooper());
+    return new MediaSourceList(
+        mock(MediaSourceList.MediaSourceListInfoRefreshListener.class),
+        analyticsCollector,
+        Clock.DEFAULT.createHandler(Util.getCurrentOrMainLooper(), /* callback= */ null),
+        PlayerId.UNSET,
+        preparationLookaheadCount);
+  }
+
+  private static void createPeriod(
+      MediaSourceList mediaSourceList, Timeline timeline, int periodIndex) {
+    mediaSourceList.createPeriod(
+        new MediaPeriodId(timeline.getUidOfPeriod(periodIndex)),
+        new DefaultAllocator(/* trimOnReset= */ true, C.DEFAULT_BUFFER_SEGMENT_SIZE),
+        /* startPositionUs= */ 0);
+  }
+
   private static List<MediaSourceList.MediaSourceHolder> createFakeHoldersWithSources(
       boolean useLazyPreparation, MediaSource... sources) {
     List<MediaSourceList.MediaSourceHolder> holders = new ArrayList<>();
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.exoplayer.analytics;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.media3.common.C;
+import androidx.media3.exoplayer.analytics.HistogramPlaybackMetrics.Histogram;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Unit test for {@link HistogramPlaybackMetrics}. */
+@RunWith(AndroidJUnit4.class)
+public final class HistogramPlaybackMetricsTest {
+
+  @Test
+  public void histogram_empty_returnsUnsetValues() {
+    Histogram histogram = new Histogram();
+
+    assertThat(histogram.getTotalCount()).isEqualTo(0);
+    assertThat(histogram.getMin()).isEqualTo(C.TIME_UNSET);
+    assertThat(histogram.getMax()).isEqualTo(C.TIME_UNSET);
+    assertThat(histogram.getMean()).isEqualTo(0);
+    assertThat(histogram.getValueAtPercentile(50)).isEqualTo(C.TIME_UNSET);
+  }
+
+  @Test
+  public void histogram_smallValues_areExact() {
+    Histogram histogram = new Histogram();
+    for (int i = 1; i <= 100; i++) {
+      histogram.recordValue(i);
+    }
+
+    assertThat(histogram.getTotalCount()).isEqualTo(100);
+    assertThat(histogram.getSum()).isEqualTo(5050);
+    assertThat(histogram.getMin()).isEqualTo(1);
+    assertThat(histogram.getMax()).isEqualTo(100);
+    assertThat(histogram.getValueAtPercentile(50)).isEqualTo(50);
+    assertThat(histogram.getValueAtPercentile(99)).isEqualTo(99);
+    assertThat(histogram.getValueAtPercentile(100)).isEqualTo(100);
+  }
+
+  @Test
+  public void histogram_largeValues_haveBoundedRelativeError() {
+    Histogram histogram = new Histogram();
+    long[] values = {1_000, 123_456, 10_000_000, 987_654_321_000L, Long.MAX_VALUE / 3};
+    for (long value : values) {
+      histogram.recordValue(value);
+    }
+
+    for (int i = 0; i < values.length - 1; i++) {
+      long reportedValue = histogram.getValueAtPercentile(100.0 * (i + 1) / values.length);
+      assertThat(reportedValue).isAtLeast(values[i]);
+      assertThat((double) (reportedValue - values[i]) / values[i]).isLessThan(1.0 / 64);
+    }
+    assertThat(histogram.getValueAtPercentile(100)).isEqualTo(Long.MAX_VALUE / 3);
+  }
+
+  @Test
+  public void histogram_addAndReset() {
+    Histogram histogram = new Histogram();
+    histogram.recordValue(10);
+    Histogram other = new Histogram();
+    other.recordValue(1_000_000);
+
+    histogram.add(other);
+
+    assertThat(histogram.getTotalCount()).isEqualTo(2);
+    assertThat(histogram.getMin()).isEqualTo(10);
+    assertThat(histogram.getMax()).isEqualTo(1_000_000);
+    assertThat(histogram.getValueAtPercentile(50)).isEqualTo(10);
+
+    histogram.reset();
+
+    assertThat(histogram.getTotalCount()).isEqualTo(0);
+    assertThat(histogram.getMax()).isEqualTo(C.TIME_UNSET);
+  }
+
+  @Test
+  public void playbackMetrics_recordsValuesByTrackType() {
+    HistogramPlaybackMetrics metrics = new HistogramPlaybackMetrics();
+
+    metrics.onPlaybackLoopIteration(/* durationNs= */ 2_000);
+    metrics.onMediaPeriodQueueUpdated(/* durationNs= */ 100);
+    metrics.onRendererRendered(/* rendererIndex= */ 0, C.TRACK_TYPE_VIDEO, /* durationNs= */ 1_500);
+    metrics.onRendererRendered(/* rendererIndex= */ 1, C.TRACK_TYPE_AUDIO, /* durationNs= */ 300);
+    metrics.onSampleDataRead(C.TRACK_TYPE_AUDIO, /* byteCount= */ 400);
+    metrics.onSampleDataRead(C.TRACK_TYPE_AUDIO, /* byteCount= */ 600);
+    metrics.onLoadCompleted(C.DATA_TYPE_MEDIA, /* loadDurationMs= */ 120, /* bytesLoaded= */ 5);
+    metrics.onAllocatorOccupancySampled(/* totalBytesAllocated= */ 65_536);
+
+    assertThat(metrics.getPlaybackLoopDurationsNs().getTotalCount()).isEqualTo(1);
+    assertThat(metrics.getMediaPeriodQueueUpdateDurationsNs().getMax()).isEqualTo(100);
+    assertThat(metrics.getRenderDurationsNs(C.TRACK_TYPE_VIDEO).getMax()).isEqualTo(1_500);
+    assertThat(metrics.getRenderDurationsNs(C.TRACK_TYPE_AUDIO).getMax()).isEqualTo(300);
+    assertThat(metrics.getRenderDurationsNs(C.TRACK_TYPE_TEXT).getTotalCount()).isEqualTo(0);
+    assertThat(metrics.getSampleBytesRead(C.TRACK_TYPE_AUDIO).getSum()).isEqualTo(1_000);
+    assertThat(metrics.getLoadDurationsMs().getMax()).isEqualTo(120);
+    assertThat(metrics.getBytesLoaded().getSum()).isEqualTo(5);
+    assertThat(metrics.getAllocatorOccupancyBytes().getMax()).isEqualTo(65_536);
+  }
+
+  @Test
+  public void playbackMetrics_returnsSnapshots() {
+    HistogramPlaybackMetrics metrics = new HistogramPlaybackMetrics();
+    metrics.onPlaybackLoopIteration(/* durationNs= */ 2_000);
+
+    Histogram snapshot = metrics.getPlaybackLoopDurationsNs();
+    metrics.onPlaybackLoopIteration(/* durationNs= */ 3_000);
+    metrics.reset();
+
+    assertThat(snapshot.getTotalCount()).isEqualTo(1);
+    assertThat(metrics.getPlaybackLoopDurationsNs().getTotalCount()).isEqualTo(0);
+  }
+}
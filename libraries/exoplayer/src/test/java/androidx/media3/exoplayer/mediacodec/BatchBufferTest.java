@@ -208,6 +208,106 @@ public final class BatchBufferTest {
     assertThat(batchBuffer.append(sampleBuffer)).isTrue();
   }
 
+  @Test
+  public void appendSample_readInPlace_doesNotReplaceBatchData() {
+    sampleBuffer.ensureSpaceForWrite(Long.BYTES);
+    batchBuffer.ensureSpaceForWrite(/* length= */ 4 * Long.BYTES);
+    ByteBuffer batchData = batchBuffer.data;
+
+    batchBuffer.prepareForInPlaceAppend(sampleBuffer);
+    initSampleBufferInPlace(/* timeUs= */ 1234);
+    assertThat(batchBuffer.append(sampleBuffer)).isTrue();
+    batchBuffer.prepareForInPlaceAppend(sampleBuffer);
+    initSampleBufferInPlace(/* timeUs= */ 5678);
+    assertThat(batchBuffer.append(sampleBuffer)).isTrue();
+    batchBuffer.flip();
+
+    assertThat(batchBuffer.data).isSameInstanceAs(batchData);
+    assertThat(batchBuffer.getSampleCount()).isEqualTo(2);
+    assertThat(batchBuffer.data.remaining()).isEqualTo(2 * Long.BYTES);
+    assertThat(batchBuffer.data.getLong()).isEqualTo(1234);
+    assertThat(batchBuffer.data.getLong()).isEqualTo(5678);
+  }
+
+  @Test
+  public void appendSample_readInPlaceWithInsufficientCapacity_copiesData() {
+    sampleBuffer.ensureSpaceForWrite(Long.BYTES);
+    ByteBuffer sampleData = sampleBuffer.data;
+    batchBuffer.ensureSpaceForWrite(/* length= */ Long.BYTES);
+    batchBuffer.prepareForInPlaceAppend(sampleBuffer);
+    initSampleBufferInPlace(/* timeUs= */ 1234);
+    batchBuffer.append(sampleBuffer);
+
+    batchBuffer.prepareForInPlaceAppend(sampleBuffer);
+    assertThat(sampleBuffer.data).isSameInstanceAs(sampleData);
+    initSampleBufferInPlace(/* timeUs= */ 5678);
+    assertThat(batchBuffer.append(sampleBuffer)).isTrue();
+    batchBuffer.flip();
+
+    assertThat(sampleBuffer.data).isSameInstanceAs(sampleData);
+    assertThat(batchBuffer.data.remaining()).isEqualTo(2 * Long.BYTES);
+    assertThat(batchBuffer.data.getLong()).isEqualTo(1234);
+    assertThat(batchBuffer.data.getLong()).isEqualTo(5678);
+  }
+
+  @Test
+  public void appendSample_readInPlaceThenBatchCleared_copiesData() {
+    sampleBuffer.ensureSpaceForWrite(Long.BYTES);
+    batchBuffer.ensureSpaceForWrite(/* length= */ 4 * Long.BYTES);
+    batchBuffer.prepareForInPlaceAppend(sampleBuffer);
+    initSampleBufferInPlace(/* timeUs= */ 1234);
+    batchBuffer.append(sampleBuffer);
+    batchBuffer.prepareForInPlaceAppend(sampleBuffer);
+    initSampleBufferInPlace(/* timeUs= */ 5678);
+
+    batchBuffer.clear();
+    assertThat(batchBuffer.append(sampleBuffer)).isTrue();
+    batchBuffer.flip();
+
+    assertThat(batchBuffer.getSampleCount()).isEqualTo(1);
+    assertThat(batchBuffer.data.remaining()).isEqualTo(Long.BYTES);
+    assertThat(batchBuffer.data.getLong()).isEqualTo(5678);
+  }
+
+  @Test
+  public void prepareForInPlaceAppend_withoutSampleBufferData_doesNotReadInPlace() {
+    batchBuffer.ensureSpaceForWrite(/* length= */ 4 * Long.BYTES);
+
+    batchBuffer.prepareForInPlaceAppend(sampleBuffer);
+
+    assertThat(sampleBuffer.data).isNull();
+  }
+
+  @Test
+  public void prepareForInPlaceAppend_withoutAppending_reusesView() {
+    sampleBuffer.ensureSpaceForWrite(Long.BYTES);
+    batchBuffer.ensureSpaceForWrite(/* length= */ 4 * Long.BYTES);
+    batchBuffer.prepareForInPlaceAppend(sampleBuffer);
+    ByteBuffer view = sampleBuffer.data;
+
+    sampleBuffer.clear();
+    batchBuffer.prepareForInPlaceAppend(sampleBuffer);
+
+    assertThat(sampleBuffer.data).isSameInstanceAs(view);
+  }
+
+  @Test
+  public void appendSample_readInPlaceLargerThanSampleBufferData_keepsLargerSampleBufferData() {
+    sampleBuffer.ensureSpaceForWrite(Long.BYTES);
+    batchBuffer.ensureSpaceForWrite(/* length= */ 4 * Long.BYTES);
+    batchBuffer.prepareForInPlaceAppend(sampleBuffer);
+    sampleBuffer.ensureSpaceForWrite(/* length= */ 8 * Long.BYTES);
+    ByteBuffer largerSampleData = sampleBuffer.data;
+    sampleBuffer.data.putLong(1234);
+    sampleBuffer.flip();
+    batchBuffer.append(sampleBuffer);
+
+    sampleBuffer.clear();
+    batchBuffer.prepareForInPlaceAppend(sampleBuffer);
+
+    assertThat(sampleBuffer.data).isSameInstanceAs(largerSampleData);
+  }
+
   private void initSampleBuffer() {
     initSampleBuffer(/* timeUs= */ 0);
   }
@@ -219,4 +319,11 @@ public final class BatchBufferTest {
     sampleBuffer.data.putLong(timeUs);
     sampleBuffer.flip();
   }
+
+  private void initSampleBufferInPlace(long timeUs) {
+    sampleBuffer.timeUs = timeUs;
+    sampleBuffer.ensureSpaceForWrite(Long.BYTES);
+    sampleBuffer.data.putLong(timeUs);
+    sampleBuffer.flip();
+  }
 }
@@ -24,7 +24,10 @@ import androidx.media3.common.MediaItem;
 import androidx.media3.common.PriorityTaskManager;
 import androidx.media3.common.util.Util;
 import androidx.media3.database.DatabaseProvider;
+import androidx.media3.datasource.ByteArrayDataSource;
 import androidx.media3.datasource.DataSource;
+import androidx.media3.datasource.DataSourceUtil;
+import androidx.media3.datasource.DataSpec;
 import androidx.media3.datasource.cache.Cache;
 import androidx.media3.datasource.cache.CacheDataSource;
 import androidx.media3.datasource.cache.NoOpCacheEvictor;
@@ -37,6 +40,8 @@ import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.junit.After;
 import org.junit.Before;
@@ -194,12 +199,86 @@ public class ProgressiveDownloaderTest {
     assertThat(progressListener.bytesDownloaded).isEqualTo(2_000_000);
   }
 
+  @Test
+  public void download_withParallelRanges_downloadsAllRanges() throws Exception {
+    Uri uri = Uri.parse("test:///test.mp4");
+    int length = (int) (3.5 * ProgressiveDownloader.MIN_PARALLEL_RANGE_LENGTH_BYTES);
+    byte[] data = TestUtil.buildTestData(length);
+    // FakeDataSource instances sharing a FakeDataSet can't be read concurrently.
+    DataSource.Factory upstreamDataSource = () -> new ByteArrayDataSource(data);
+    CacheDataSource.Factory cacheDataSourceFactory =
+        new CacheDataSource.Factory()
+            .setCache(downloadCache)
+            .setUpstreamDataSourceFactory(upstreamDataSource);
+    ExecutorService executorService = Executors.newFixedThreadPool(/* nThreads= */ 4);
+    ProgressiveDownloader downloader =
+        new ProgressiveDownloader(
+            MediaItem.fromUri(uri),
+            cacheDataSourceFactory,
+            executorService,
+            /* position= */ 0,
+            /* length= */ C.LENGTH_UNSET,
+            /* maxParallelRanges= */ 8);
+    TestProgressListener progressListener = new TestProgressListener();
+
+    try {
+      downloader.download(progressListener);
+    } finally {
+      executorService.shutdown();
+    }
+
+    assertThat(progressListener.contentLength).isEqualTo(length);
+    assertThat(progressListener.bytesDownloaded).isEqualTo(length);
+    // The content is split into four ranges, each of which is cached separately.
+    assertThat(downloadCache.getCachedSpans(uri.toString())).hasSize(4);
+    assertCachedData(downloadCache, uri.toString(), data);
+  }
+
+  @Test
+  public void download_withParallelRangesAndUnknownLength_downloadsSequentially() throws Exception {
+    Uri uri = Uri.parse("test:///test.mp4");
+    int length = (int) (3.5 * ProgressiveDownloader.MIN_PARALLEL_RANGE_LENGTH_BYTES);
+    FakeDataSet data = new FakeDataSet();
+    data.newData(uri).setSimulateUnknownLength(true).appendReadData(TestUtil.buildTestData(length));
+    DataSource.Factory upstreamDataSource = new FakeDataSource.Factory().setFakeDataSet(data);
+    CacheDataSource.Factory cacheDataSourceFactory =
+        new CacheDataSource.Factory()
+            .setCache(downloadCache)
+            .setUpstreamDataSourceFactory(upstreamDataSource);
+    ProgressiveDownloader downloader =
+        new ProgressiveDownloader(
+            MediaItem.fromUri(uri),
+            cacheDataSourceFactory,
+            /* executor= */ Runnable::run,
+            /* position= */ 0,
+            /* length= */ C.LENGTH_UNSET,
+            /* maxParallelRanges= */ 8);
+    TestProgressListener progressListener = new TestProgressListener();
+
+    downloader.download(progressListener);
+
+    assertThat(progressListener.bytesDownloaded).isEqualTo(length);
+    assertThat(downloadCache.getCachedSpans(uri.toString())).hasSize(1);
+    assertCachedData(downloadCache, uri.toString(), data.getData(uri).getData());
+  }
+
+  private static void assertCachedData(Cache cache, String key, byte[] expectedData)
+      throws IOException {
+    CacheDataSource dataSource = new CacheDataSource(cache, /* upstreamDataSource= */ null);
+    dataSource.open(new DataSpec.Builder().setUri(key).build());
+    byte[] cachedData = DataSourceUtil.readToEnd(dataSource);
+    dataSource.close();
+    assertThat(cachedData).isEqualTo(expectedData);
+  }
+
   private static final class TestProgressListener implements Downloader.ProgressListener {
 
+    public long contentLength;
     public long bytesDownloaded;
 
     @Override
     public void onProgress(long contentLength, long bytesDownloaded, float percentDownloaded) {
+      this.contentLength = contentLength;
       this.bytesDownloaded = bytesDownloaded;
     }
   }
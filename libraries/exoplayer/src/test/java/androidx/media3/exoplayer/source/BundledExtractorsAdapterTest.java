@@ -0,0 +1,172 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.exoplayer.source;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.net.Uri;
+import androidx.media3.common.C;
+import androidx.media3.datasource.DataSpec;
+import androidx.media3.extractor.Extractor;
+import androidx.media3.extractor.ExtractorInput;
+import androidx.media3.extractor.ExtractorOutput;
+import androidx.media3.extractor.PositionHolder;
+import androidx.media3.test.utils.FakeDataSource;
+import androidx.media3.test.utils.FakeExtractorOutput;
+import androidx.media3.test.utils.TestUtil;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.common.collect.ImmutableMap;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Unit tests for {@link BundledExtractorsAdapter}. */
+@RunWith(AndroidJUnit4.class)
+public final class BundledExtractorsAdapterTest {
+
+  private static final Uri TEST_URI = Uri.parse("http://www.google.com");
+  private static final byte[] TEST_DATA = TestUtil.buildTestData(/* length= */ 32 * 1024);
+
+  private ExecutorService sniffingExecutor;
+
+  @Before
+  public void setUp() {
+    sniffingExecutor = Executors.newFixedThreadPool(/* nThreads= */ 2);
+  }
+
+  @After
+  public void tearDown() {
+    sniffingExecutor.shutdown();
+  }
+
+  @Test
+  public void init_withoutSniffingExecutor_selectsFirstMatchingExtractor() throws Exception {
+    AtomicInteger selectedExtractorIndex = new AtomicInteger(C.INDEX_UNSET);
+    BundledExtractorsAdapter adapter =
+        new BundledExtractorsAdapter(
+            () ->
+                new Extractor[] {
+                  new FakeSniffingExtractor(/* sniffLength= */ 100, /* sniffResult= */ false),
+                  new FakeSniffingExtractor(/* sniffLength= */ 100, /* sniffResult= */ true),
+                  new FakeSniffingExtractor(/* sniffLength= */ 100, /* sniffResult= */ true)
+                },
+            /* sniffingExecutor= */ null,
+            (extractor, extractorIndex, selectionDurationMs) ->
+                selectedExtractorIndex.set(extractorIndex));
+
+    initAdapter(adapter);
+
+    assertThat(selectedExtractorIndex.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void init_withSniffingExecutor_selectsFirstMatchingExtractor() throws Exception {
+    AtomicInteger selectedExtractorIndex = new AtomicInteger(C.INDEX_UNSET);
+    BundledExtractorsAdapter adapter =
+        new BundledExtractorsAdapter(
+            () ->
+                new Extractor[] {
+                  new FakeSniffingExtractor(/* sniffLength= */ 100, /* sniffResult= */ false),
+                  new FakeSniffingExtractor(/* sniffLength= */ 200, /* sniffResult= */ false),
+                  new FakeSniffingExtractor(/* sniffLength= */ 100, /* sniffResult= */ true),
+                  new FakeSniffingExtractor(/* sniffLength= */ 100, /* sniffResult= */ true)
+                },
+            sniffingExecutor,
+            (extractor, extractorIndex, selectionDurationMs) ->
+                selectedExtractorIndex.set(extractorIndex));
+
+    initAdapter(adapter);
+
+    assertThat(selectedExtractorIndex.get()).isEqualTo(2);
+    assertThat(adapter.getCurrentInputPosition()).isEqualTo(0);
+  }
+
+  @Test
+  public void init_withSniffingExecutorAndLongSniff_sniffsFullInput() throws Exception {
+    AtomicInteger selectedExtractorIndex = new AtomicInteger(C.INDEX_UNSET);
+    FakeSniffingExtractor longSniffingExtractor =
+        new FakeSniffingExtractor(/* sniffLength= */ TEST_DATA.length, /* sniffResult= */ true);
+    BundledExtractorsAdapter adapter =
+        new BundledExtractorsAdapter(
+            () ->
+                new Extractor[] {
+                  new FakeSniffingExtractor(/* sniffLength= */ 100, /* sniffResult= */ false),
+                  longSniffingExtractor,
+                  new FakeSniffingExtractor(/* sniffLength= */ 100, /* sniffResult= */ true)
+                },
+            sniffingExecutor,
+            (extractor, extractorIndex, selectionDurationMs) ->
+                selectedExtractorIndex.set(extractorIndex));
+
+    initAdapter(adapter);
+
+    assertThat(selectedExtractorIndex.get()).isEqualTo(1);
+    assertThat(longSniffingExtractor.lastSniffedData).isEqualTo(TEST_DATA);
+  }
+
+  private static void initAdapter(BundledExtractorsAdapter adapter) throws IOException {
+    FakeDataSource dataSource = new FakeDataSource();
+    dataSource.getDataSet().newDefaultData().appendReadData(TEST_DATA);
+    long length = dataSource.open(new DataSpec(TEST_URI));
+    adapter.init(
+        dataSource,
+        TEST_URI,
+        /* responseHeaders= */ ImmutableMap.of(),
+        /* position= */ 0,
+        length,
+        new FakeExtractorOutput());
+  }
+
+  private static final class FakeSniffingExtractor implements Extractor {
+
+    private final int sniffLength;
+    private final boolean sniffResult;
+
+    private byte[] lastSniffedData;
+
+    public FakeSniffingExtractor(int sniffLength, boolean sniffResult) {
+      this.sniffLength = sniffLength;
+      this.sniffResult = sniffResult;
+    }
+
+    @Override
+    public boolean sniff(ExtractorInput input) throws IOException {
+      byte[] data = new byte[sniffLength];
+      input.peekFully(data, /* offset= */ 0, sniffLength);
+      lastSniffedData = data;
+      return sniffResult;
+    }
+
+    @Override
+    public void init(ExtractorOutput output) {}
+
+    @Override
+    public int read(ExtractorInput input, PositionHolder seekPosition) {
+      return RESULT_END_OF_INPUT;
+    }
+
+    @Override
+    public void seek(long position, long timeUs) {}
+
+    @Override
+    public void release() {}
+  }
+}
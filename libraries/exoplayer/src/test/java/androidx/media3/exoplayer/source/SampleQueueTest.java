@@ -32,6 +32,7 @@ import static org.mockito.Mockito.when;
 import android.os.Looper;
 import androidx.annotation.Nullable;
 import androidx.media3.common.C;
+import androidx.media3.common.DataReader;
 import androidx.media3.common.DrmInitData;
 import androidx.media3.common.Format;
 import androidx.media3.common.MimeTypes;
@@ -52,6 +53,7 @@ import androidx.media3.test.utils.TestUtil;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import com.google.common.primitives.Bytes;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicReference;
 import org.junit.After;
@@ -217,6 +219,45 @@ public final class SampleQueueTest {
     assertReadNothing(/* formatRequired= */ false);
   }
 
+  @Test
+  public void sampleData_withByteBufferFromDataReader_writesDataAcrossAllocations()
+      throws Exception {
+    ByteBuffer buffer = ByteBuffer.wrap(DATA);
+    DataReader dataReader =
+        new DataReader() {
+          @Override
+          public int read(byte[] target, int offset, int length) {
+            throw new UnsupportedOperationException();
+          }
+
+          @Override
+          public ByteBuffer readByteBuffer(int length) {
+            return buffer;
+          }
+        };
+    sampleQueue.format(FORMAT_1);
+
+    int bytesAppended =
+        sampleQueue.sampleData(dataReader, DATA.length, /* allowEndOfInput= */ false);
+    sampleQueue.sampleMetadata(
+        /* timeUs= */ 0,
+        /* flags= */ C.BUFFER_FLAG_KEY_FRAME,
+        /* size= */ DATA.length,
+        /* offset= */ 0,
+        /* cryptoData= */ null);
+
+    assertThat(bytesAppended).isEqualTo(DATA.length);
+    assertAllocationCount(10);
+    assertReadFormat(/* formatRequired= */ false, FORMAT_1);
+    assertReadSample(
+        /* timeUs= */ 0,
+        /* isKeyFrame= */ true,
+        /* isEncrypted= */ false,
+        DATA,
+        /* offset= */ 0,
+        DATA.length);
+  }
+
   @Test
   public void resetReleasesAllocations() {
     writeTestData();
@@ -0,0 +1,699 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.exoplayer.source.preload;
+
+import static androidx.media3.common.util.Assertions.checkNotNull;
+import static androidx.media3.common.util.Assertions.checkState;
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+import static java.lang.Math.abs;
+import static java.lang.Math.max;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.HandlerThread;
+import android.os.Looper;
+import androidx.annotation.Nullable;
+import androidx.media3.common.C;
+import androidx.media3.common.Format;
+import androidx.media3.common.MediaItem;
+import androidx.media3.common.util.SystemClock;
+import androidx.media3.common.util.Util;
+import androidx.media3.datasource.DataSourceUtil;
+import androidx.media3.datasource.DataSpec;
+import androidx.media3.datasource.TransferListener;
+import androidx.media3.exoplayer.DefaultLoadControl;
+import androidx.media3.exoplayer.LoadControl;
+import androidx.media3.exoplayer.LoadingInfo;
+import androidx.media3.exoplayer.Renderer;
+import androidx.media3.exoplayer.analytics.HistogramPlaybackMetrics.Histogram;
+import androidx.media3.exoplayer.drm.DrmSessionEventListener;
+import androidx.media3.exoplayer.drm.DrmSessionManager;
+import androidx.media3.exoplayer.source.MediaPeriod;
+import androidx.media3.exoplayer.source.MediaSource.MediaPeriodId;
+import androidx.media3.exoplayer.source.MediaSourceEventListener;
+import androidx.media3.exoplayer.source.TrackGroupArray;
+import androidx.media3.exoplayer.source.preload.DefaultPreloadManager.PreloadStatus;
+import androidx.media3.exoplayer.upstream.Allocation;
+import androidx.media3.exoplayer.upstream.Allocator;
+import androidx.media3.exoplayer.upstream.BandwidthMeter;
+import androidx.media3.exoplayer.upstream.DefaultAllocator;
+import androidx.media3.exoplayer.upstream.DefaultBandwidthMeter;
+import androidx.media3.test.utils.ExoPlayerTestRunner;
+import androidx.media3.test.utils.FakeClock;
+import androidx.media3.test.utils.FakeDataSet;
+import androidx.media3.test.utils.FakeDataSource;
+import androidx.media3.test.utils.FakeMediaPeriod;
+import androidx.media3.test.utils.FakeMediaSource;
+import androidx.media3.test.utils.FakeSampleStream;
+import androidx.media3.test.utils.FakeSampleStream.FakeSampleStreamItem;
+import androidx.media3.test.utils.FakeTimeline;
+import androidx.media3.test.utils.FakeVideoRenderer;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.IntConsumer;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.shadows.ShadowLooper;
+
+/** Unit test for {@link AdaptiveTargetPreloadStatusControl}. */
+@RunWith(AndroidJUnit4.class)
+public class AdaptiveTargetPreloadStatusControlTest {
+
+  private static final int MEDIA_BITRATE_BPS = 2_000_000;
+
+  private BandwidthMeter bandwidthMeter;
+  private DefaultAllocator allocator;
+
+  @Before
+  public void setUp() {
+    bandwidthMeter = mock(BandwidthMeter.class);
+    allocator = new DefaultAllocator(/* trimOnReset= */ true, C.DEFAULT_BUFFER_SEGMENT_SIZE);
+  }
+
+  @Test
+  public void getTargetPreloadStatus_fastNetwork_grantsStartupDurationInRankingOrder() {
+    when(bandwidthMeter.getBitrateEstimate()).thenReturn(10_000_000L);
+    AdaptiveTargetPreloadStatusControl control =
+        new AdaptiveTargetPreloadStatusControl.Builder(bandwidthMeter, allocator)
+            .setMediaBitrateBps(MEDIA_BITRATE_BPS)
+            .setPreloadDurationBudgetMs(3000)
+            .setPreloadByteBudget(C.LENGTH_UNSET)
+            .setDurationPerSourceMs(
+                /* startupDurationMs= */ 1000, /* maxDurationPerSourceMs= */ 5000)
+            .setMaxPreloadDistances(
+                /* maxTracksSelectedDistance= */ 2, /* maxSourcePreparedDistance= */ 3)
+            .build();
+    control.setCurrentPlayingIndex(10);
+
+    assertThat(getPreloadDurationMs(control.getTargetPreloadStatus(10))).isEqualTo(1000);
+    assertThat(getPreloadDurationMs(control.getTargetPreloadStatus(11))).isEqualTo(1000);
+    assertThat(getPreloadDurationMs(control.getTargetPreloadStatus(9))).isEqualTo(1000);
+    assertThat(control.getTargetPreloadStatus(12)).isSameInstanceAs(PreloadStatus.TRACKS_SELECTED);
+    assertThat(control.getTargetPreloadStatus(7)).isSameInstanceAs(PreloadStatus.SOURCE_PREPARED);
+    assertThat(control.getTargetPreloadStatus(14)).isNull();
+  }
+
+  @Test
+  public void getTargetPreloadStatus_slowNetwork_requestsMoreForNearestSources() {
+    when(bandwidthMeter.getBitrateEstimate()).thenReturn(1_000_000L);
+    AdaptiveTargetPreloadStatusControl control =
+        new AdaptiveTargetPreloadStatusControl.Builder(bandwidthMeter, allocator)
+            .setMediaBitrateBps(MEDIA_BITRATE_BPS)
+            .setPreloadDurationBudgetMs(5000)
+            .setPreloadByteBudget(C.LENGTH_UNSET)
+            .setDurationPerSourceMs(
+                /* startupDurationMs= */ 1000, /* maxDurationPerSourceMs= */ 5000)
+            .build();
+
+    assertThat(getPreloadDurationMs(control.getTargetPreloadStatus(0))).isEqualTo(2000);
+    assertThat(getPreloadDurationMs(control.getTargetPreloadStatus(1))).isEqualTo(2000);
+    assertThat(getPreloadDurationMs(control.getTargetPreloadStatus(-1))).isEqualTo(1000);
+    assertThat(control.getTargetPreloadStatus(2)).isSameInstanceAs(PreloadStatus.TRACKS_SELECTED);
+  }
+
+  @Test
+  public void getTargetPreloadStatus_withByteBudget_limitsBudgetByMediaBitrate() {
+    when(bandwidthMeter.getBitrateEstimate()).thenReturn(10_000_000L);
+    AdaptiveTargetPreloadStatusControl control =
+        new AdaptiveTargetPreloadStatusControl.Builder(bandwidthMeter, allocator)
+            .setMediaBitrateBps(MEDIA_BITRATE_BPS)
+            .setPreloadDurationBudgetMs(10_000)
+            // 2000ms at the media bitrate.
+            .setPreloadByteBudget(500_000)
+            .setDurationPerSourceMs(
+                /* startupDurationMs= */ 1000, /* maxDurationPerSourceMs= */ 5000)
+            .build();
+
+    assertThat(getPreloadDurationMs(control.getTargetPreloadStatus(0))).isEqualTo(1000);
+    assertThat(getPreloadDurationMs(control.getTargetPreloadStatus(1))).isEqualTo(1000);
+    assertThat(control.getTargetPreloadStatus(-1)).isSameInstanceAs(PreloadStatus.TRACKS_SELECTED);
+  }
+
+  @Test
+  public void getTargetPreloadStatus_allocatorMemoryCapReached_downgradesToTracksSelected() {
+    when(bandwidthMeter.getBitrateEstimate()).thenReturn(10_000_000L);
+    AdaptiveTargetPreloadStatusControl control =
+        new AdaptiveTargetPreloadStatusControl.Builder(bandwidthMeter, allocator)
+            .setAllocatorMemoryCapBytes(2 * C.DEFAULT_BUFFER_SEGMENT_SIZE)
+            .build();
+    Allocation allocation1 = allocator.allocate();
+    Allocation allocation2 = allocator.allocate();
+
+    PreloadStatus statusAtCap = control.getTargetPreloadStatus(1);
+    allocator.release(allocation1);
+    allocator.release(allocation2);
+    PreloadStatus statusBelowCap = control.getTargetPreloadStatus(1);
+
+    assertThat(statusAtCap).isSameInstanceAs(PreloadStatus.TRACKS_SELECTED);
+    assertThat(getPreloadDurationMs(statusBelowCap))
+        .isEqualTo(AdaptiveTargetPreloadStatusControl.DEFAULT_STARTUP_DURATION_MS);
+  }
+
+  @Test
+  public void setCurrentPlayingIndex_movesBudgetToNewNeighbours() {
+    when(bandwidthMeter.getBitrateEstimate()).thenReturn(10_000_000L);
+    AdaptiveTargetPreloadStatusControl control =
+        new AdaptiveTargetPreloadStatusControl.Builder(bandwidthMeter, allocator)
+            .setPreloadDurationBudgetMs(2000)
+            .setPreloadByteBudget(C.LENGTH_UNSET)
+            .setDurationPerSourceMs(
+                /* startupDurationMs= */ 1000, /* maxDurationPerSourceMs= */ 5000)
+            .build();
+    control.setCurrentPlayingIndex(0);
+    PreloadStatus statusBeforeScroll = control.getTargetPreloadStatus(2);
+
+    control.setCurrentPlayingIndex(1);
+    PreloadStatus statusAfterScroll = control.getTargetPreloadStatus(2);
+
+    assertThat(statusBeforeScroll).isSameInstanceAs(PreloadStatus.TRACKS_SELECTED);
+    assertThat(getPreloadDurationMs(statusAfterScroll)).isEqualTo(1000);
+  }
+
+  @Test
+  public void invalidate_afterScroll_upgradesAndDowngradesSourcesThroughControl() {
+    FeedSimulator simulator = new FeedSimulator(/* bandwidthBps= */ 8_000_000, /* itemCount= */ 5);
+    AdaptiveTargetPreloadStatusControl control =
+        new AdaptiveTargetPreloadStatusControl.Builder(
+                simulator.bandwidthMeter, simulator.allocator)
+            .setPreloadDurationBudgetMs(2000)
+            .setPreloadByteBudget(C.LENGTH_UNSET)
+            .setDurationPerSourceMs(
+                /* startupDurationMs= */ 1000, /* maxDurationPerSourceMs= */ 1000)
+            .setMaxPreloadDistances(
+                /* maxTracksSelectedDistance= */ 1, /* maxSourcePreparedDistance= */ 2)
+            .build();
+    simulator.start(control, control::setCurrentPlayingIndex);
+
+    simulator.playItem(/* index= */ 0, /* watchDurationMs= */ 5000);
+    List<Long> loadedDurationsMsBeforeScroll = simulator.getLoadedDurationsMs();
+    List<Boolean> sourcesPreparedBeforeScroll = simulator.getSourcesPrepared();
+    simulator.playItem(/* index= */ 2, /* watchDurationMs= */ 5000);
+    List<Long> loadedDurationsMsAfterScroll = simulator.getLoadedDurationsMs();
+    List<Boolean> sourcesPreparedAfterScroll = simulator.getSourcesPrepared();
+    simulator.release();
+
+    assertThat(loadedDurationsMsBeforeScroll).containsExactly(1000L, 1000L, 0L, 0L, 0L).inOrder();
+    assertThat(sourcesPreparedBeforeScroll)
+        .containsExactly(true, true, true, false, false)
+        .inOrder();
+    // Item 0 is downgraded to SOURCE_PREPARED, which releases its preloaded media, items 2 and 3
+    // are
+    // upgraded to loaded ranges, item 1 keeps its media at TRACKS_SELECTED and item 4 is prepared.
+    assertThat(loadedDurationsMsAfterScroll).containsExactly(0L, 1000L, 1000L, 1000L, 0L).inOrder();
+    assertThat(sourcesPreparedAfterScroll).containsExactly(true, true, true, true, true).inOrder();
+  }
+
+  @Test
+  public void simulatedFeed_withEqualBudgets_reducesTimeToFirstFrameComparedToStaticTargets() {
+    FeedSimulator staticTargetsSimulator =
+        new FeedSimulator(/* bandwidthBps= */ 3_000_000, FeedSimulator.ITEM_COUNT);
+    StaticTargetPreloadStatusControl staticControl = new StaticTargetPreloadStatusControl();
+    staticTargetsSimulator.start(staticControl, index -> staticControl.currentPlayingIndex = index);
+    Histogram staticTargetsTimesToFirstFrameMs = staticTargetsSimulator.run(/* seed= */ 0);
+    staticTargetsSimulator.release();
+    FeedSimulator adaptiveTargetsSimulator =
+        new FeedSimulator(/* bandwidthBps= */ 3_000_000, FeedSimulator.ITEM_COUNT);
+    AdaptiveTargetPreloadStatusControl adaptiveControl =
+        new AdaptiveTargetPreloadStatusControl.Builder(
+                adaptiveTargetsSimulator.bandwidthMeter, adaptiveTargetsSimulator.allocator)
+            .setMediaBitrateBps(FeedSimulator.MEDIA_BITRATE_BPS)
+            .setPreloadDurationBudgetMs(StaticTargetPreloadStatusControl.PRELOAD_DURATION_BUDGET_MS)
+            .setPreloadByteBudget(C.LENGTH_UNSET)
+            .build();
+    adaptiveTargetsSimulator.start(adaptiveControl, adaptiveControl::setCurrentPlayingIndex);
+    Histogram adaptiveTargetsTimesToFirstFrameMs = adaptiveTargetsSimulator.run(/* seed= */ 0);
+    adaptiveTargetsSimulator.release();
+
+    String timesToFirstFrame =
+        "static targets: "
+            + getPercentiles(staticTargetsTimesToFirstFrameMs)
+            + ", adaptive targets: "
+            + getPercentiles(adaptiveTargetsTimesToFirstFrameMs);
+    assertWithMessage(timesToFirstFrame)
+        .that(adaptiveTargetsTimesToFirstFrameMs.getTotalCount())
+        .isEqualTo(FeedSimulator.ITEM_COUNT);
+    assertWithMessage(timesToFirstFrame)
+        .that(adaptiveTargetsTimesToFirstFrameMs.getMean())
+        .isLessThan(staticTargetsTimesToFirstFrameMs.getMean());
+    assertWithMessage(timesToFirstFrame)
+        .that(adaptiveTargetsTimesToFirstFrameMs.getValueAtPercentile(90))
+        .isLessThan(staticTargetsTimesToFirstFrameMs.getValueAtPercentile(90));
+  }
+
+  @Test
+  public void simulatedFeed_withAllocatorMemoryCap_keepsPreloadedBytesBelowCap() {
+    FeedSimulator simulator =
+        new FeedSimulator(/* bandwidthBps= */ 20_000_000, FeedSimulator.ITEM_COUNT);
+    int allocatorMemoryCapBytes = 16 * FeedSimulator.CHUNK_SIZE;
+    AdaptiveTargetPreloadStatusControl control =
+        new AdaptiveTargetPreloadStatusControl.Builder(
+                simulator.bandwidthMeter, simulator.allocator)
+            .setMediaBitrateBps(FeedSimulator.MEDIA_BITRATE_BPS)
+            .setAllocatorMemoryCapBytes(allocatorMemoryCapBytes)
+            .build();
+    simulator.start(control, control::setCurrentPlayingIndex);
+
+    simulator.run(/* seed= */ 0);
+    simulator.release();
+
+    assertThat(simulator.maxPreloadedBytes).isGreaterThan(0);
+    assertThat(simulator.maxPreloadedBytes).isAtMost(allocatorMemoryCapBytes);
+  }
+
+  private static long getPreloadDurationMs(@Nullable PreloadStatus preloadStatus) {
+    assertThat(preloadStatus).isNotNull();
+    assertThat(preloadStatus.stage).isEqualTo(PreloadStatus.STAGE_SPECIFIED_RANGE_LOADED);
+    return preloadStatus.durationMs;
+  }
+
+  private static String getPercentiles(Histogram histogram) {
+    return String.format(
+        Locale.US,
+        "mean=%.0fms p50=%dms p90=%dms p99=%dms",
+        histogram.getMean(),
+        histogram.getValueAtPercentile(50),
+        histogram.getValueAtPercentile(90),
+        histogram.getValueAtPercentile(99));
+  }
+
+  /** The target preload status control of the short-form demo app. */
+  private static final class StaticTargetPreloadStatusControl
+      implements TargetPreloadStatusControl<Integer, PreloadStatus> {
+
+    /**
+     * The total duration preloaded by this control, including the startup duration buffered by the
+     * player for the playing item.
+     */
+    public static final long PRELOAD_DURATION_BUDGET_MS =
+        FeedSimulator.STARTUP_DURATION_MS + 2 * (1000 + 500);
+
+    public int currentPlayingIndex;
+
+    @Override
+    @Nullable
+    public PreloadStatus getTargetPreloadStatus(Integer rankingData) {
+      int distance = abs(rankingData - currentPlayingIndex);
+      if (distance == 2) {
+        return PreloadStatus.specifiedRangeLoaded(/* durationMs= */ 500);
+      } else if (distance == 1) {
+        return PreloadStatus.specifiedRangeLoaded(/* durationMs= */ 1000);
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Simulates a user scrolling through a short-form feed whose items are preloaded by a {@link
+   * DefaultPreloadManager}, and measures the time to first frame of each item.
+   *
+   * <p>Each item is a {@link FakeMediaSource} whose media period loads one chunk of {@link
+   * #CHUNK_DURATION_MS} of media per {@link MediaPeriod#continueLoading} call. The chunk is read
+   * from a {@link FakeDataSource} that advances a {@link FakeClock} by its transfer time at the
+   * simulated bandwidth and reports the transfer to the {@link DefaultBandwidthMeter} of the
+   * preload manager, and its samples are written to the {@link Allocator} of the preload manager's
+   * {@link DefaultLoadControl}. Preparing a media period takes {@link #PREPARATION_DURATION_MS}.
+   * Time only advances with these transfers and preparations, and while the user watches an item
+   * once there's nothing left to preload, so the simulation is deterministic.
+   *
+   * <p>The player isn't simulated beyond its startup buffer: the target of the playing item is at
+   * least {@link #STARTUP_DURATION_MS}, and its time to first frame is the time it takes for the
+   * item to have that much media loaded. The user then watches the item for a random duration,
+   * during which the preload manager preloads the other items, and scrolls to the next item.
+   */
+  private static final class FeedSimulator {
+
+    public static final int ITEM_COUNT = 100;
+    public static final int CHUNK_SIZE = C.DEFAULT_BUFFER_SEGMENT_SIZE;
+    public static final long CHUNK_DURATION_MS = 250;
+    public static final long STARTUP_DURATION_MS = 1000;
+
+    /**
+     * The bitrate of the media, for which a chunk of {@link #CHUNK_SIZE} bytes fills exactly one
+     * allocation.
+     */
+    public static final int MEDIA_BITRATE_BPS = (int) (CHUNK_SIZE * 8 * 1000 / CHUNK_DURATION_MS);
+
+    private static final Uri CHUNK_URI = Uri.parse("fake://chunk");
+    private static final int CHUNK_COUNT = 40;
+    private static final long PREPARATION_DURATION_MS = 300;
+    private static final long MIN_WATCH_DURATION_MS = 300;
+    private static final long MAX_WATCH_DURATION_MS = 3000;
+
+    public final DefaultBandwidthMeter bandwidthMeter;
+    public final Allocator allocator;
+
+    /**
+     * The maximum number of bytes allocated for items other than the playing item, once the preload
+     * manager settled after the user scrolled to an item.
+     */
+    public int maxPreloadedBytes;
+
+    private final Context context;
+    private final HandlerThread preloadThread;
+    private final FakeClock clock;
+    private final LoadControl loadControl;
+    private final FakeDataSet fakeDataSet;
+    private final byte[] chunkData;
+    private final ChunkedMediaSource[] mediaSources;
+
+    @Nullable private DefaultPreloadManager preloadManager;
+    @Nullable private IntConsumer currentPlayingIndexListener;
+    private int currentPlayingIndex;
+    private long watchDurationMs;
+    private long firstFrameTimeMs;
+    private long loadingDeadlineMs;
+
+    public FeedSimulator(int bandwidthBps, int itemCount) {
+      context = ApplicationProvider.getApplicationContext();
+      preloadThread = new HandlerThread("FeedSimulator");
+      preloadThread.start();
+      clock = new FakeClock(/* initialTimeMs= */ 0);
+      bandwidthMeter = new DefaultBandwidthMeter.Builder(context).setClock(clock).build();
+      loadControl = new DefaultLoadControl();
+      allocator = loadControl.getAllocator();
+      long chunkTransferDurationMs = (long) CHUNK_SIZE * 8 * 1000 / bandwidthBps;
+      fakeDataSet = new FakeDataSet();
+      fakeDataSet
+          .newData(CHUNK_URI)
+          .appendReadAction(() -> clock.advanceTime(chunkTransferDurationMs))
+          .appendReadData(CHUNK_SIZE);
+      chunkData = new byte[CHUNK_SIZE];
+      mediaSources = new ChunkedMediaSource[itemCount];
+      for (int i = 0; i < itemCount; i++) {
+        mediaSources[i] = new ChunkedMediaSource(/* index= */ i);
+      }
+      currentPlayingIndex = C.INDEX_UNSET;
+      loadingDeadlineMs = Long.MAX_VALUE;
+    }
+
+    /**
+     * Creates the {@link DefaultPreloadManager} and adds all items to it.
+     *
+     * @param control The {@link TargetPreloadStatusControl} deciding the preload targets.
+     * @param currentPlayingIndexListener Called with the index of the item that starts playing.
+     */
+    public void start(
+        TargetPreloadStatusControl<Integer, PreloadStatus> control,
+        IntConsumer currentPlayingIndexListener) {
+      this.currentPlayingIndexListener = currentPlayingIndexListener;
+      preloadManager =
+          new DefaultPreloadManager.Builder(
+                  context, rankingData -> getTargetPreloadStatus(control, rankingData))
+              .setRenderersFactory(
+                  (handler, videoListener, audioListener, textOutput, metadataOutput) ->
+                      new Renderer[] {
+                        new FakeVideoRenderer(
+                            SystemClock.DEFAULT.createHandler(
+                                handler.getLooper(), /* callback= */ null),
+                            videoListener)
+                      })
+              .setBandwidthMeter(bandwidthMeter)
+              .setLoadControl(loadControl)
+              .setPreloadLooper(preloadThread.getLooper())
+              .build();
+      for (int i = 0; i < mediaSources.length; i++) {
+        preloadManager.add(mediaSources[i], /* rankingData= */ i);
+      }
+    }
+
+    /**
+     * Plays all items in order with random watch durations.
+     *
+     * @param seed The seed for the random watch durations.
+     * @return The {@link Histogram} of the times to first frame, in milliseconds.
+     */
+    public Histogram run(long seed) {
+      Random random = new Random(seed);
+      Histogram timesToFirstFrameMs = new Histogram();
+      for (int index = 0; index < mediaSources.length; index++) {
+        long watchDurationMs =
+            MIN_WATCH_DURATION_MS
+                + (long) (random.nextDouble() * (MAX_WATCH_DURATION_MS - MIN_WATCH_DURATION_MS));
+        timesToFirstFrameMs.recordValue(playItem(index, watchDurationMs));
+      }
+      return timesToFirstFrameMs;
+    }
+
+    /**
+     * Sets the playing item, invalidates the preload manager, and lets the user watch the item.
+     *
+     * @param index The index of the item to play.
+     * @param watchDurationMs The duration the item is watched for after its first frame.
+     * @return The time to first frame of the item, in milliseconds.
+     */
+    public long playItem(int index, long watchDurationMs) {
+      DefaultPreloadManager preloadManager = checkNotNull(this.preloadManager);
+      currentPlayingIndex = index;
+      checkNotNull(currentPlayingIndexListener).accept(index);
+      preloadManager.setCurrentPlayingIndex(index);
+      long startTimeMs = clock.elapsedRealtime();
+      this.watchDurationMs = watchDurationMs;
+      firstFrameTimeMs = C.TIME_UNSET;
+      loadingDeadlineMs = Long.MAX_VALUE;
+      maybeRenderFirstFrame();
+      preloadManager.invalidate();
+      runUntilIdle();
+      checkState(firstFrameTimeMs != C.TIME_UNSET);
+      int playingItemBytes = mediaSources[index].getLoadedChunkCount() * CHUNK_SIZE;
+      maxPreloadedBytes =
+          max(maxPreloadedBytes, allocator.getTotalBytesAllocated() - playingItemBytes);
+      // The user keeps watching the item once there's nothing left to preload.
+      clock.advanceTime(max(0, loadingDeadlineMs - clock.elapsedRealtime()));
+      return firstFrameTimeMs - startTimeMs;
+    }
+
+    /** Returns the duration of media loaded for each item, in milliseconds. */
+    public List<Long> getLoadedDurationsMs() {
+      List<Long> loadedDurationsMs = new ArrayList<>();
+      for (ChunkedMediaSource mediaSource : mediaSources) {
+        loadedDurationsMs.add(mediaSource.getLoadedChunkCount() * CHUNK_DURATION_MS);
+      }
+      return loadedDurationsMs;
+    }
+
+    /** Returns whether the source of each item is prepared. */
+    public List<Boolean> getSourcesPrepared() {
+      List<Boolean> sourcesPrepared = new ArrayList<>();
+      for (ChunkedMediaSource mediaSource : mediaSources) {
+        sourcesPrepared.add(mediaSource.isPrepared());
+      }
+      return sourcesPrepared;
+    }
+
+    /** Releases the preload manager. */
+    public void release() {
+      checkNotNull(preloadManager).release();
+      runUntilIdle();
+      preloadThread.quit();
+    }
+
+    private void runUntilIdle() {
+      ShadowLooper preloadLooper = shadowOf(preloadThread.getLooper());
+      ShadowLooper mainLooper = shadowOf(Looper.getMainLooper());
+      do {
+        preloadLooper.idle();
+        mainLooper.idle();
+      } while (!preloadLooper.isIdle() || !mainLooper.isIdle());
+    }
+
+    @Nullable
+    private PreloadStatus getTargetPreloadStatus(
+        TargetPreloadStatusControl<Integer, PreloadStatus> control, int rankingData) {
+      @Nullable PreloadStatus preloadStatus = control.getTargetPreloadStatus(rankingData);
+      if (rankingData != currentPlayingIndex
+          || (preloadStatus != null
+              && preloadStatus.stage == PreloadStatus.STAGE_SPECIFIED_RANGE_LOADED
+              && preloadStatus.durationMs >= STARTUP_DURATION_MS)) {
+        return preloadStatus;
+      }
+      // The player buffers at least the startup duration of the playing item.
+      return PreloadStatus.specifiedRangeLoaded(STARTUP_DURATION_MS);
+    }
+
+    private void maybeRenderFirstFrame() {
+      if (firstFrameTimeMs == C.TIME_UNSET
+          && mediaSources[currentPlayingIndex].getLoadedChunkCount() * CHUNK_DURATION_MS
+              >= STARTUP_DURATION_MS) {
+        firstFrameTimeMs = clock.elapsedRealtime();
+        loadingDeadlineMs = firstFrameTimeMs + watchDurationMs;
+      }
+    }
+
+    private void transferChunk(TransferListener transferListener) {
+      FakeDataSource dataSource = new FakeDataSource(fakeDataSet, /* isNetwork= */ true);
+      dataSource.addTransferListener(transferListener);
+      try {
+        dataSource.open(new DataSpec(CHUNK_URI));
+        int bytesRead = 0;
+        while (bytesRead != C.RESULT_END_OF_INPUT) {
+          bytesRead = dataSource.read(chunkData, /* offset= */ 0, chunkData.length);
+        }
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      } finally {
+        DataSourceUtil.closeQuietly(dataSource);
+      }
+    }
+
+    private final class ChunkedMediaSource extends FakeMediaSource {
+
+      @Nullable private ChunkedMediaPeriod mediaPeriod;
+
+      public ChunkedMediaSource(int index) {
+        super(
+            new FakeTimeline(
+                new FakeTimeline.TimelineWindowDefinition.Builder()
+                    .setUid(index)
+                    .setDurationUs(CHUNK_COUNT * Util.msToUs(CHUNK_DURATION_MS))
+                    .setWindowPositionInFirstPeriodUs(0)
+                    .setMediaItem(new MediaItem.Builder().setMediaId("item" + index).build())
+                    .build()),
+            ExoPlayerTestRunner.VIDEO_FORMAT);
+      }
+
+      public int getLoadedChunkCount() {
+        return mediaPeriod != null ? mediaPeriod.loadedChunkCount : 0;
+      }
+
+      @Override
+      protected MediaPeriod createMediaPeriod(
+          MediaPeriodId id,
+          TrackGroupArray trackGroupArray,
+          Allocator allocator,
+          MediaSourceEventListener.EventDispatcher mediaSourceEventDispatcher,
+          DrmSessionManager drmSessionManager,
+          DrmSessionEventListener.EventDispatcher drmEventDispatcher,
+          @Nullable TransferListener transferListener) {
+        mediaPeriod =
+            new ChunkedMediaPeriod(
+                trackGroupArray,
+                allocator,
+                mediaSourceEventDispatcher,
+                checkNotNull(transferListener));
+        return mediaPeriod;
+      }
+
+      @Override
+      protected void releaseMediaPeriod(MediaPeriod mediaPeriod) {
+        super.releaseMediaPeriod(mediaPeriod);
+        if (mediaPeriod == this.mediaPeriod) {
+          this.mediaPeriod = null;
+        }
+      }
+    }
+
+    private final class ChunkedMediaPeriod extends FakeMediaPeriod {
+
+      private final TransferListener transferListener;
+      private final List<FakeSampleStream> chunkedSampleStreams;
+
+      @Nullable private Callback callback;
+      private long startPositionUs;
+      private int loadedChunkCount;
+
+      public ChunkedMediaPeriod(
+          TrackGroupArray trackGroupArray,
+          Allocator allocator,
+          MediaSourceEventListener.EventDispatcher mediaSourceEventDispatcher,
+          TransferListener transferListener) {
+        super(
+            trackGroupArray,
+            allocator,
+            /* trackDataFactory= */ (format, mediaPeriodId) -> ImmutableList.of(),
+            mediaSourceEventDispatcher,
+            DrmSessionManager.DRM_UNSUPPORTED,
+            new DrmSessionEventListener.EventDispatcher(),
+            /* deferOnPrepared= */ false);
+        this.transferListener = transferListener;
+        chunkedSampleStreams = new ArrayList<>();
+      }
+
+      @Override
+      public synchronized void prepare(Callback callback, long positionUs) {
+        this.callback = callback;
+        startPositionUs = positionUs;
+        clock.advanceTime(PREPARATION_DURATION_MS);
+        super.prepare(callback, positionUs);
+      }
+
+      @Override
+      public long getBufferedPositionUs() {
+        long bufferedPositionUs = super.getBufferedPositionUs();
+        // Each sample holds a whole chunk of media.
+        return bufferedPositionUs == C.TIME_END_OF_SOURCE || loadedChunkCount == 0
+            ? bufferedPositionUs
+            : bufferedPositionUs + Util.msToUs(CHUNK_DURATION_MS);
+      }
+
+      @Override
+      public boolean continueLoading(LoadingInfo loadingInfo) {
+        if (loadedChunkCount == CHUNK_COUNT || clock.elapsedRealtime() >= loadingDeadlineMs) {
+          // The user scrolls to the next item before the network is available for this load.
+          return false;
+        }
+        transferChunk(transferListener);
+        List<FakeSampleStreamItem> items = new ArrayList<>();
+        items.add(
+            FakeSampleStreamItem.sample(
+                startPositionUs + loadedChunkCount * Util.msToUs(CHUNK_DURATION_MS),
+                C.BUFFER_FLAG_KEY_FRAME,
+                chunkData));
+        loadedChunkCount++;
+        if (loadedChunkCount == CHUNK_COUNT) {
+          items.add(FakeSampleStreamItem.END_OF_STREAM_ITEM);
+        }
+        for (FakeSampleStream sampleStream : chunkedSampleStreams) {
+          sampleStream.append(items);
+        }
+        super.continueLoading(loadingInfo);
+        maybeRenderFirstFrame();
+        checkNotNull(callback).onContinueLoadingRequested(this);
+        return true;
+      }
+
+      @Override
+      protected FakeSampleStream createSampleStream(
+          Allocator allocator,
+          @Nullable MediaSourceEventListener.EventDispatcher mediaSourceEventDispatcher,
+          DrmSessionManager drmSessionManager,
+          DrmSessionEventListener.EventDispatcher drmEventDispatcher,
+          Format initialFormat,
+          List<FakeSampleStreamItem> fakeSampleStreamItems) {
+        FakeSampleStream sampleStream =
+            super.createSampleStream(
+                allocator,
+                mediaSourceEventDispatcher,
+                drmSessionManager,
+                drmEventDispatcher,
+                initialFormat,
+                fakeSampleStreamItems);
+        chunkedSampleStreams.add(sampleStream);
+        return sampleStream;
+      }
+    }
+  }
+}
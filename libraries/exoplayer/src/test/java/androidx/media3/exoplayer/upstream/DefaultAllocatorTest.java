@@ -0,0 +1,208 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.exoplayer.upstream;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.annotation.Nullable;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Unit tests for {@link DefaultAllocator}. */
+@RunWith(AndroidJUnit4.class)
+public final class DefaultAllocatorTest {
+
+  private static final int ALLOCATION_SIZE = 16;
+
+  @Test
+  public void allocateAndRelease_updatesTotalBytesAllocated() {
+    DefaultAllocator allocator =
+        new DefaultAllocator(
+            /* trimOnReset= */ true, /* individualAllocationSize= */ ALLOCATION_SIZE);
+
+    List<Allocation> allocations = allocate(allocator, /* count= */ 20);
+    assertThat(allocator.getTotalBytesAllocated()).isEqualTo(20 * ALLOCATION_SIZE);
+    allocator.release(allocations.remove(0));
+    assertThat(allocator.getTotalBytesAllocated()).isEqualTo(19 * ALLOCATION_SIZE);
+    allocator.release(createAllocationChain(allocations));
+
+    assertThat(allocator.getTotalBytesAllocated()).isEqualTo(0);
+  }
+
+  @Test
+  public void allocate_afterRelease_reusesAllocations() {
+    DefaultAllocator allocator =
+        new DefaultAllocator(
+            /* trimOnReset= */ true, /* individualAllocationSize= */ ALLOCATION_SIZE);
+    List<Allocation> allocations = allocate(allocator, /* count= */ 20);
+    allocator.release(createAllocationChain(allocations));
+
+    List<Allocation> newAllocations = allocate(allocator, /* count= */ 20);
+
+    assertThat(asIdentitySet(newAllocations)).containsExactlyElementsIn(allocations);
+  }
+
+  @Test
+  public void trim_withAllocationsReleasedOnOtherThread_keepsAllocationsUpToTarget()
+      throws Exception {
+    DefaultAllocator allocator =
+        new DefaultAllocator(
+            /* trimOnReset= */ true, /* individualAllocationSize= */ ALLOCATION_SIZE);
+    allocator.setTargetBufferSize(20 * ALLOCATION_SIZE);
+    List<Allocation> allocations = allocate(allocator, /* count= */ 20);
+    runOnNewThread(() -> allocator.release(createAllocationChain(allocations)));
+
+    allocator.trim();
+    List<Allocation> newAllocations = allocate(allocator, /* count= */ 20);
+
+    assertThat(asIdentitySet(newAllocations)).containsExactlyElementsIn(allocations);
+  }
+
+  @Test
+  public void setTargetBufferSize_reduced_discardsAllocationsCachedByOtherThreads()
+      throws Exception {
+    DefaultAllocator allocator =
+        new DefaultAllocator(
+            /* trimOnReset= */ true, /* individualAllocationSize= */ ALLOCATION_SIZE);
+    allocator.setTargetBufferSize(20 * ALLOCATION_SIZE);
+    AtomicReference<List<Allocation>> allocations = new AtomicReference<>();
+    runOnNewThread(
+        () -> {
+          allocations.set(allocate(allocator, /* count= */ 20));
+          allocator.release(createAllocationChain(allocations.get()));
+        });
+
+    allocator.setTargetBufferSize(5 * ALLOCATION_SIZE);
+    List<Allocation> newAllocations = allocate(allocator, /* count= */ 20);
+
+    Set<Allocation> reusedAllocations = asIdentitySet(newAllocations);
+    reusedAllocations.retainAll(asIdentitySet(allocations.get()));
+    assertThat(reusedAllocations).hasSize(5);
+  }
+
+  @Test
+  public void reset_keepsInitialAllocations() {
+    DefaultAllocator allocator =
+        new DefaultAllocator(
+            /* trimOnReset= */ true,
+            /* individualAllocationSize= */ ALLOCATION_SIZE,
+            /* initialAllocationCount= */ 4);
+    allocator.setTargetBufferSize(20 * ALLOCATION_SIZE);
+    List<Allocation> allocations = allocate(allocator, /* count= */ 20);
+    allocator.release(createAllocationChain(allocations));
+
+    allocator.reset();
+    List<Allocation> newAllocations = allocate(allocator, /* count= */ 4);
+
+    for (Allocation allocation : newAllocations) {
+      assertThat(allocation.data).hasLength(4 * ALLOCATION_SIZE);
+    }
+  }
+
+  @Test(timeout = 10_000)
+  public void allocateAndRelease_fromMultipleThreads_updatesTotalBytesAllocated() throws Exception {
+    DefaultAllocator allocator =
+        new DefaultAllocator(
+            /* trimOnReset= */ true, /* individualAllocationSize= */ ALLOCATION_SIZE);
+    List<Thread> threads = new ArrayList<>();
+    CountDownLatch startLatch = new CountDownLatch(1);
+    for (int i = 0; i < 4; i++) {
+      Thread thread =
+          new Thread(
+              () -> {
+                try {
+                  startLatch.await();
+                } catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+                  return;
+                }
+                for (int j = 0; j < 1000; j++) {
+                  List<Allocation> allocations = allocate(allocator, /* count= */ j % 20 + 1);
+                  allocator.release(allocations.remove(0));
+                  if (!allocations.isEmpty()) {
+                    allocator.release(createAllocationChain(allocations));
+                  }
+                }
+              });
+      thread.start();
+      threads.add(thread);
+    }
+    startLatch.countDown();
+    for (int i = 0; i < threads.size(); i++) {
+      threads.get(i).join();
+    }
+
+    assertThat(allocator.getTotalBytesAllocated()).isEqualTo(0);
+  }
+
+  private static List<Allocation> allocate(Allocator allocator, int count) {
+    List<Allocation> allocations = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      allocations.add(allocator.allocate());
+    }
+    return allocations;
+  }
+
+  private static Allocator.AllocationNode createAllocationChain(List<Allocation> allocations) {
+    @Nullable TestAllocationNode node = null;
+    for (int i = allocations.size() - 1; i >= 0; i--) {
+      node = new TestAllocationNode(allocations.get(i), node);
+    }
+    return node;
+  }
+
+  private static Set<Allocation> asIdentitySet(List<Allocation> allocations) {
+    Set<Allocation> set = Collections.newSetFromMap(new IdentityHashMap<>());
+    set.addAll(allocations);
+    return set;
+  }
+
+  private static void runOnNewThread(Runnable runnable) throws InterruptedException {
+    Thread thread = new Thread(runnable);
+    thread.start();
+    thread.join();
+  }
+
+  private static final class TestAllocationNode implements Allocator.AllocationNode {
+
+    private final Allocation allocation;
+    @Nullable private final TestAllocationNode next;
+
+    public TestAllocationNode(Allocation allocation, @Nullable TestAllocationNode next) {
+      this.allocation = allocation;
+      this.next = next;
+    }
+
+    @Override
+    public Allocation getAllocation() {
+      return allocation;
+    }
+
+    @Override
+    @Nullable
+    public Allocator.AllocationNode next() {
+      return next;
+    }
+  }
+}
@@ -100,6 +100,7 @@ import androidx.media3.test.utils.robolectric.RobolectricUtil;
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Range;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -333,6 +334,89 @@ public class MediaCodecVideoRendererTest {
     assertThat(decoderCounters.droppedToKeyframeCount).isEqualTo(1);
   }
 
+  @Test
+  public void getDurationToProgressUs_withCodecInputBlocked_returnsDurationUntilFrameReleaseWindow()
+      throws Exception {
+    FakeSampleStream fakeSampleStream =
+        new FakeSampleStream(
+            new DefaultAllocator(/* trimOnReset= */ true, /* individualAllocationSize= */ 1024),
+            /* mediaSourceEventDispatcher= */ null,
+            DrmSessionManager.DRM_UNSUPPORTED,
+            new DrmSessionEventListener.EventDispatcher(),
+            /* initialFormat= */ VIDEO_H264,
+            ImmutableList.of(
+                oneByteSample(/* timeUs= */ 0, C.BUFFER_FLAG_KEY_FRAME),
+                oneByteSample(/* timeUs= */ 1_000_000),
+                END_OF_STREAM_ITEM));
+    fakeSampleStream.writeData(/* startPositionUs= */ 0);
+    mediaCodecVideoRenderer.enable(
+        RendererConfiguration.DEFAULT,
+        new Format[] {VIDEO_H264},
+        fakeSampleStream,
+        /* positionUs= */ 0,
+        /* joining= */ false,
+        /* mayRenderStartOfStream= */ true,
+        /* startPositionUs= */ 0,
+        /* offsetUs= */ 0,
+        /* mediaPeriodId= */ new MediaSource.MediaPeriodId(new Object()));
+    mediaCodecVideoRenderer.start();
+    mediaCodecVideoRenderer.render(/* positionUs= */ 0, msToUs(SystemClock.elapsedRealtime()));
+    // Queue all input, including the end of stream, and hold the output buffer at 1 second.
+    for (int i = 0; i < 10; i++) {
+      mediaCodecVideoRenderer.render(
+          /* positionUs= */ 10_000, msToUs(SystemClock.elapsedRealtime()));
+      codecAdapterFactory.idleQueueingAndCallbackThreads();
+    }
+
+    long durationToProgressUs =
+        mediaCodecVideoRenderer.getDurationToProgressUs(
+            /* positionUs= */ 10_000, msToUs(SystemClock.elapsedRealtime()));
+
+    // The held frame is 990 ms early and enters the 50 ms release window in about 940 ms, give
+    // or take a vsync period.
+    assertThat(durationToProgressUs).isIn(Range.closed(900_000L, 960_000L));
+  }
+
+  @Test
+  public void getDurationToProgressUs_withCodecInputNotBlocked_returnsDefaultDuration()
+      throws Exception {
+    FakeSampleStream fakeSampleStream =
+        new FakeSampleStream(
+            new DefaultAllocator(/* trimOnReset= */ true, /* individualAllocationSize= */ 1024),
+            /* mediaSourceEventDispatcher= */ null,
+            DrmSessionManager.DRM_UNSUPPORTED,
+            new DrmSessionEventListener.EventDispatcher(),
+            /* initialFormat= */ VIDEO_H264,
+            ImmutableList.of(
+                oneByteSample(/* timeUs= */ 0, C.BUFFER_FLAG_KEY_FRAME),
+                oneByteSample(/* timeUs= */ 1_000_000)));
+    fakeSampleStream.writeData(/* startPositionUs= */ 0);
+    mediaCodecVideoRenderer.enable(
+        RendererConfiguration.DEFAULT,
+        new Format[] {VIDEO_H264},
+        fakeSampleStream,
+        /* positionUs= */ 0,
+        /* joining= */ false,
+        /* mayRenderStartOfStream= */ true,
+        /* startPositionUs= */ 0,
+        /* offsetUs= */ 0,
+        /* mediaPeriodId= */ new MediaSource.MediaPeriodId(new Object()));
+    mediaCodecVideoRenderer.start();
+    mediaCodecVideoRenderer.render(/* positionUs= */ 0, msToUs(SystemClock.elapsedRealtime()));
+    // Queue all input and hold the output buffer at 1 second. The codec can accept more input.
+    for (int i = 0; i < 10; i++) {
+      mediaCodecVideoRenderer.render(
+          /* positionUs= */ 10_000, msToUs(SystemClock.elapsedRealtime()));
+      codecAdapterFactory.idleQueueingAndCallbackThreads();
+    }
+
+    long durationToProgressUs =
+        mediaCodecVideoRenderer.getDurationToProgressUs(
+            /* positionUs= */ 10_000, msToUs(SystemClock.elapsedRealtime()));
+
+    assertThat(durationToProgressUs).isEqualTo(Renderer.DEFAULT_DURATION_TO_PROGRESS_US);
+  }
+
   @Test
   public void render_earlyWithoutSurfaceAndStarted_skipsBuffer() throws Exception {
     ArgumentCaptor<DecoderCounters> argumentDecoderCounters =
@@ -50,6 +50,8 @@ import androidx.media3.exoplayer.dash.PlayerEmsgHandler.PlayerEmsgCallback;
 import androidx.media3.exoplayer.dash.manifest.AdaptationSet;
 import androidx.media3.exoplayer.dash.manifest.DashManifest;
 import androidx.media3.exoplayer.dash.manifest.DashManifestParser;
+import androidx.media3.exoplayer.dash.manifest.DashManifestPatchParser;
+import androidx.media3.exoplayer.dash.manifest.DashManifestPatchParser.PatchApplicationException;
 import androidx.media3.exoplayer.dash.manifest.Period;
 import androidx.media3.exoplayer.dash.manifest.Representation;
 import androidx.media3.exoplayer.dash.manifest.UtcTimingElement;
@@ -451,6 +453,8 @@ public final class DashMediaSource extends BaseMediaSource {
   private Uri initialManifestUri;
   private DashManifest manifest;
   private boolean manifestLoadPending;
+  private boolean isLoadingManifestPatch;
+  private boolean manifestPatchingDisabled;
   private long manifestLoadStartTimestampMs;
   private long manifestLoadEndTimestampMs;
   private long elapsedRealtimeOffsetMs;
@@ -606,6 +610,8 @@ public final class DashMediaSource extends BaseMediaSource {
   @Override
   protected void releaseSourceInternal() {
     manifestLoadPending = false;
+    isLoadingManifestPatch = false;
+    manifestPatchingDisabled = false;
     dataSource = null;
     if (loader != null) {
       loader.release();
@@ -675,6 +681,7 @@ public final class DashMediaSource extends BaseMediaSource {
             loadable.bytesLoaded());
     loadErrorHandlingPolicy.onLoadTaskConcluded(loadable.loadTaskId);
     manifestEventDispatcher.loadCompleted(loadEventInfo, loadable.type);
+    isLoadingManifestPatch = false;
     DashManifest newManifest = loadable.getResult();
 
     int oldPeriodCount = manifest == null ? 0 : manifest.getPeriodCount();
@@ -773,6 +780,18 @@ public final class DashMediaSource extends BaseMediaSource {
             elapsedRealtimeMs,
             loadDurationMs,
             loadable.bytesLoaded());
+    if (isLoadingManifestPatch) {
+      // Fall back to loading the full manifest.
+      isLoadingManifestPatch = false;
+      manifestEventDispatcher.loadError(
+          loadEventInfo, loadable.type, error, /* wasCanceled= */ true);
+      loadErrorHandlingPolicy.onLoadTaskConcluded(loadable.loadTaskId);
+      if (error instanceof PatchApplicationException) {
+        manifestPatchingDisabled = true;
+      }
+      startLoadingManifest();
+      return Loader.DONT_RETRY;
+    }
     MediaLoadData mediaLoadData = new MediaLoadData(loadable.type);
     LoadErrorInfo loadErrorInfo =
         new LoadErrorInfo(loadEventInfo, mediaLoadData, error, errorCount);
@@ -1119,6 +1138,19 @@ public final class DashMediaSource extends BaseMediaSource {
       manifestUri = this.manifestUri;
     }
     manifestLoadPending = false;
+    ParsingLoadable.Parser<? extends DashManifest> manifestParser = this.manifestParser;
+    // Patches are only requested if the manifest is parsed without any further processing, such as
+    // filtering by stream keys, which wouldn't be applied to the patched manifest.
+    isLoadingManifestPatch =
+        !manifestPatchingDisabled
+            && manifest != null
+            && manifest.dynamic
+            && manifest.patchLocation != null
+            && manifestParser instanceof DashManifestParser;
+    if (isLoadingManifestPatch) {
+      manifestUri = checkNotNull(manifest.patchLocation);
+      manifestParser = new DashManifestPatchParser(manifest);
+    }
     DataSpec dataSpec =
         new DataSpec.Builder().setUri(manifestUri).setFlags(DataSpec.FLAG_ALLOW_GZIP).build();
     if (cmcdConfiguration != null) {
@@ -89,6 +89,15 @@ public class DashManifest implements FilterableManifest<DashManifest> {
   /** The {@link ProgramInformation}, or null if not present. */
   @Nullable public final ProgramInformation programInformation;
 
+  /** The {@code id} of the manifest, or null if not present. */
+  @Nullable public final String id;
+
+  /**
+   * The location of MPD Patch documents that can be applied to this manifest to update it, or null
+   * if not present.
+   */
+  @Nullable public final Uri patchLocation;
+
   private final List<Period> periods;
 
   public DashManifest(
@@ -105,6 +114,40 @@ public class DashManifest implements FilterableManifest<DashManifest> {
       @Nullable ServiceDescriptionElement serviceDescription,
       @Nullable Uri location,
       List<Period> periods) {
+    this(
+        availabilityStartTimeMs,
+        durationMs,
+        minBufferTimeMs,
+        dynamic,
+        minUpdatePeriodMs,
+        timeShiftBufferDepthMs,
+        suggestedPresentationDelayMs,
+        publishTimeMs,
+        programInformation,
+        utcTiming,
+        serviceDescription,
+        location,
+        /* id= */ null,
+        /* patchLocation= */ null,
+        periods);
+  }
+
+  public DashManifest(
+      long availabilityStartTimeMs,
+      long durationMs,
+      long minBufferTimeMs,
+      boolean dynamic,
+      long minUpdatePeriodMs,
+      long timeShiftBufferDepthMs,
+      long suggestedPresentationDelayMs,
+      long publishTimeMs,
+      @Nullable ProgramInformation programInformation,
+      @Nullable UtcTimingElement utcTiming,
+      @Nullable ServiceDescriptionElement serviceDescription,
+      @Nullable Uri location,
+      @Nullable String id,
+      @Nullable Uri patchLocation,
+      List<Period> periods) {
     this.availabilityStartTimeMs = availabilityStartTimeMs;
     this.durationMs = durationMs;
     this.minBufferTimeMs = minBufferTimeMs;
@@ -117,6 +160,8 @@ public class DashManifest implements FilterableManifest<DashManifest> {
     this.utcTiming = utcTiming;
     this.location = location;
     this.serviceDescription = serviceDescription;
+    this.id = id;
+    this.patchLocation = patchLocation;
     this.periods = periods == null ? Collections.emptyList() : periods;
   }
 
@@ -177,6 +222,8 @@ public class DashManifest implements FilterableManifest<DashManifest> {
         utcTiming,
         serviceDescription,
         location,
+        id,
+        patchLocation,
         copyPeriods);
   }
 
@@ -147,9 +147,11 @@ public class DashManifestParser extends DefaultHandler
     long suggestedPresentationDelayMs =
         dynamic ? parseDuration(xpp, "suggestedPresentationDelay", C.TIME_UNSET) : C.TIME_UNSET;
     long publishTimeMs = parseDateTime(xpp, "publishTime", C.TIME_UNSET);
+    @Nullable String id = xpp.getAttributeValue(null, "id");
     ProgramInformation programInformation = null;
     UtcTimingElement utcTiming = null;
     Uri location = null;
+    @Nullable Uri patchLocation = null;
     ServiceDescriptionElement serviceDescription = null;
     long baseUrlAvailabilityTimeOffsetUs = dynamic ? 0 : C.TIME_UNSET;
     BaseUrl documentBaseUrl =
@@ -180,6 +182,8 @@ public class DashManifestParser extends DefaultHandler
         utcTiming = parseUtcTiming(xpp);
       } else if (XmlPullParserUtil.isStartTag(xpp, "Location")) {
         location = UriUtil.resolveToUri(documentBaseUri.toString(), xpp.nextText());
+      } else if (XmlPullParserUtil.isStartTag(xpp, "PatchLocation")) {
+        patchLocation = UriUtil.resolveToUri(documentBaseUri.toString(), xpp.nextText());
       } else if (XmlPullParserUtil.isStartTag(xpp, "ServiceDescription")) {
         serviceDescription = parseServiceDescription(xpp);
       } else if (XmlPullParserUtil.isStartTag(xpp, "Period") && !seenEarlyAccessPeriod) {
@@ -240,6 +244,8 @@ public class DashManifestParser extends DefaultHandler
         utcTiming,
         serviceDescription,
         location,
+        id,
+        patchLocation,
         periods);
   }
 
@@ -273,6 +279,63 @@ public class DashManifestParser extends DefaultHandler
         periods);
   }
 
+  protected DashManifest buildMediaPresentationDescription(
+      long availabilityStartTime,
+      long durationMs,
+      long minBufferTimeMs,
+      boolean dynamic,
+      long minUpdateTimeMs,
+      long timeShiftBufferDepthMs,
+      long suggestedPresentationDelayMs,
+      long publishTimeMs,
+      @Nullable ProgramInformation programInformation,
+      @Nullable UtcTimingElement utcTiming,
+      @Nullable ServiceDescriptionElement serviceDescription,
+      @Nullable Uri location,
+      @Nullable String id,
+      @Nullable Uri patchLocation,
+      List<Period> periods) {
+    DashManifest manifest =
+        buildMediaPresentationDescription(
+            availabilityStartTime,
+            durationMs,
+            minBufferTimeMs,
+            dynamic,
+            minUpdateTimeMs,
+            timeShiftBufferDepthMs,
+            suggestedPresentationDelayMs,
+            publishTimeMs,
+            programInformation,
+            utcTiming,
+            serviceDescription,
+            location,
+            periods);
+    if ((id == null && patchLocation == null) || manifest.getClass() != DashManifest.class) {
+      // Subclasses of DashManifest can't be copied, so they are returned without patch support.
+      return manifest;
+    }
+    List<Period> manifestPeriods = new ArrayList<>(manifest.getPeriodCount());
+    for (int i = 0; i < manifest.getPeriodCount(); i++) {
+      manifestPeriods.add(manifest.getPeriod(i));
+    }
+    return new DashManifest(
+        manifest.availabilityStartTimeMs,
+        manifest.durationMs,
+        manifest.minBufferTimeMs,
+        manifest.dynamic,
+        manifest.minUpdatePeriodMs,
+        manifest.timeShiftBufferDepthMs,
+        manifest.suggestedPresentationDelayMs,
+        manifest.publishTimeMs,
+        manifest.programInformation,
+        manifest.utcTiming,
+        manifest.serviceDescription,
+        manifest.location,
+        id,
+        patchLocation,
+        manifestPeriods);
+  }
+
   protected UtcTimingElement parseUtcTiming(XmlPullParser xpp) {
     String schemeIdUri = xpp.getAttributeValue(null, "schemeIdUri");
     String value = xpp.getAttributeValue(null, "value");
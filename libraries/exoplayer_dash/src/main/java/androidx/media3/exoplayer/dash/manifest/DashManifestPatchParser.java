@@ -0,0 +1,581 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.exoplayer.dash.manifest;
+
+import android.net.Uri;
+import androidx.annotation.Nullable;
+import androidx.media3.common.C;
+import androidx.media3.common.ParserException;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.common.util.UriUtil;
+import androidx.media3.common.util.Util;
+import androidx.media3.common.util.XmlPullParserUtil;
+import androidx.media3.exoplayer.dash.manifest.Representation.MultiSegmentRepresentation;
+import androidx.media3.exoplayer.dash.manifest.SegmentBase.MultiSegmentBase;
+import androidx.media3.exoplayer.dash.manifest.SegmentBase.SegmentTemplate;
+import androidx.media3.exoplayer.dash.manifest.SegmentBase.SegmentTimelineElement;
+import androidx.media3.exoplayer.upstream.ParsingLoadable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+/**
+ * A parser of MPD Patch documents, as defined by ISO/IEC 23009-1 (5th edition), which applies the
+ * parsed patch to a previously loaded {@link DashManifest}.
+ *
+ * <p>Periods, adaptation sets and representations that are not modified by the patch are shared
+ * with the previous manifest, and segment timelines are only extended by the new entries. This
+ * avoids downloading and parsing the full manifest on every refresh of a live stream.
+ *
+ * <p>The following patch operations are supported:
+ *
+ * <ul>
+ *   <li>Adding {@code S} elements to a {@code SegmentTimeline} in a {@code SegmentTemplate} of a
+ *       period, adaptation set or representation.
+ *   <li>Removing {@code S} elements from a {@code SegmentTimeline}, and changing the {@code
+ *       startNumber} of a {@code SegmentTemplate}. These operations are used to remove segments
+ *       that are no longer available. Instead of applying them literally, segments that end more
+ *       than the {@code timeShiftBufferDepth} before the end of the updated timeline are removed,
+ *       and the start number is adjusted so that the remaining segments keep their numbers. If the
+ *       manifest doesn't define a {@code timeShiftBufferDepth}, these operations aren't supported,
+ *       because the segments that are no longer available can't be determined.
+ *   <li>Removing a period.
+ *   <li>Adding, replacing or removing the {@code publishTime}, {@code mediaPresentationDuration},
+ *       {@code minimumUpdatePeriod} and {@code type} attributes of the {@code MPD} element.
+ *   <li>Replacing the {@code PatchLocation} element.
+ * </ul>
+ *
+ * <p>A {@link PatchApplicationException} is thrown for any other operation, or if the patch doesn't
+ * apply to the previous manifest. The full manifest should be loaded instead in this case.
+ */
+@UnstableApi
+public final class DashManifestPatchParser implements ParsingLoadable.Parser<DashManifest> {
+
+  /** Thrown if a patch can't be applied to the previous manifest. */
+  public static final class PatchApplicationException extends IOException {
+
+    /**
+     * Creates an instance.
+     *
+     * @param message The detail message.
+     */
+    public PatchApplicationException(String message) {
+      super(message);
+    }
+  }
+
+  private static final Pattern SELECTOR_STEP_PATTERN =
+      Pattern.compile("^(?:[\\w.-]+:)?(@?[\\w.-]+)(?:\\[(?:@id=(['\"])(.*)\\2|(\\d+))\\])?$");
+
+  private final XmlPullParserFactory xmlParserFactory;
+  private final DashManifest previousManifest;
+
+  /**
+   * Creates an instance.
+   *
+   * @param previousManifest The manifest to which the parsed patch is applied.
+   */
+  public DashManifestPatchParser(DashManifest previousManifest) {
+    this.previousManifest = previousManifest;
+    try {
+      xmlParserFactory = XmlPullParserFactory.newInstance();
+    } catch (XmlPullParserException e) {
+      throw new RuntimeException("Couldn't create XmlPullParserFactory instance", e);
+    }
+  }
+
+  @Override
+  public DashManifest parse(Uri uri, InputStream inputStream) throws IOException {
+    try {
+      XmlPullParser xpp = xmlParserFactory.newPullParser();
+      xpp.setInput(inputStream, null);
+      int eventType = xpp.next();
+      if (eventType != XmlPullParser.START_TAG || !"Patch".equals(xpp.getName())) {
+        throw ParserException.createForMalformedManifest(
+            "inputStream does not contain a valid MPD patch", /* cause= */ null);
+      }
+      return parsePatch(xpp, uri);
+    } catch (XmlPullParserException e) {
+      throw ParserException.createForMalformedManifest(/* message= */ null, /* cause= */ e);
+    }
+  }
+
+  private DashManifest parsePatch(XmlPullParser xpp, Uri documentBaseUri)
+      throws XmlPullParserException, IOException {
+    @Nullable String mpdId = xpp.getAttributeValue(null, "mpdId");
+    if (previousManifest.id == null || !previousManifest.id.equals(mpdId)) {
+      throw new PatchApplicationException("Patch doesn't apply to MPD with id " + mpdId);
+    }
+    long originalPublishTimeMs =
+        DashManifestParser.parseDateTime(xpp, "originalPublishTime", C.TIME_UNSET);
+    if (originalPublishTimeMs != previousManifest.publishTimeMs) {
+      throw new PatchApplicationException(
+          "Patch doesn't apply to MPD published at " + originalPublishTimeMs);
+    }
+    PatchedManifest patchedManifest = new PatchedManifest(previousManifest);
+    patchedManifest.publishTimeMs =
+        DashManifestParser.parseDateTime(xpp, "publishTime", previousManifest.publishTimeMs);
+    do {
+      xpp.next();
+      if (XmlPullParserUtil.isStartTag(xpp, "add")
+          || XmlPullParserUtil.isStartTag(xpp, "replace")
+          || XmlPullParserUtil.isStartTag(xpp, "remove")) {
+        applyOperation(xpp, documentBaseUri, patchedManifest);
+      } else {
+        DashManifestParser.maybeSkipTag(xpp);
+      }
+    } while (!XmlPullParserUtil.isEndTag(xpp, "Patch"));
+    return patchedManifest.build();
+  }
+
+  private static void applyOperation(
+      XmlPullParser xpp, Uri documentBaseUri, PatchedManifest patchedManifest)
+      throws XmlPullParserException, IOException {
+    String operation = xpp.getName();
+    @Nullable String selector = xpp.getAttributeValue(null, "sel");
+    if (selector == null) {
+      throw ParserException.createForMalformedManifest(
+          "Missing sel attribute in " + operation, /* cause= */ null);
+    }
+    List<SelectorStep> steps = parseSelector(selector);
+    if (steps.isEmpty() || !steps.get(0).name.equals("MPD")) {
+      throw unsupportedOperation(operation, selector);
+    }
+
+    if (steps.size() == 1) {
+      @Nullable String type = xpp.getAttributeValue(null, "type");
+      if (operation.equals("add") && type != null && type.startsWith("@")) {
+        patchedManifest.setAttribute(type.substring(1), xpp.nextText(), operation, selector);
+        return;
+      }
+      throw unsupportedOperation(operation, selector);
+    }
+
+    SelectorStep mpdChild = steps.get(1);
+    if (steps.size() == 2 && mpdChild.isAttribute()) {
+      String attributeName = mpdChild.name.substring(1);
+      if (operation.equals("remove")) {
+        patchedManifest.removeAttribute(attributeName, selector);
+        DashManifestParser.maybeSkipTag(xpp);
+      } else {
+        patchedManifest.setAttribute(attributeName, xpp.nextText(), operation, selector);
+      }
+      return;
+    }
+
+    if (steps.size() == 2 && mpdChild.name.equals("PatchLocation") && operation.equals("replace")) {
+      @Nullable Uri patchLocation = null;
+      do {
+        xpp.next();
+        if (XmlPullParserUtil.isStartTag(xpp, "PatchLocation")) {
+          patchLocation = UriUtil.resolveToUri(documentBaseUri.toString(), xpp.nextText());
+        } else {
+          DashManifestParser.maybeSkipTag(xpp);
+        }
+      } while (!XmlPullParserUtil.isEndTag(xpp, operation));
+      patchedManifest.patchLocation = patchLocation;
+      return;
+    }
+
+    if (!mpdChild.name.equals("Period") || mpdChild.id == null) {
+      throw unsupportedOperation(operation, selector);
+    }
+    int periodIndex = patchedManifest.getPeriodIndex(mpdChild.id);
+    if (periodIndex == C.INDEX_UNSET) {
+      throw new PatchApplicationException("Unknown period in " + selector);
+    }
+    if (steps.size() == 2) {
+      if (!operation.equals("remove")) {
+        throw unsupportedOperation(operation, selector);
+      }
+      patchedManifest.periods.remove(periodIndex);
+      DashManifestParser.maybeSkipTag(xpp);
+      return;
+    }
+
+    // Resolve the SegmentTemplate, which may be defined at period, adaptation set or
+    // representation level.
+    int stepIndex = 2;
+    long adaptationSetId = AdaptationSet.ID_UNSET;
+    @Nullable String representationId = null;
+    if (steps.get(stepIndex).name.equals("AdaptationSet")) {
+      @Nullable String id = steps.get(stepIndex).id;
+      if (id == null) {
+        throw unsupportedOperation(operation, selector);
+      }
+      try {
+        adaptationSetId = Long.parseLong(id);
+      } catch (NumberFormatException e) {
+        throw unsupportedOperation(operation, selector);
+      }
+      stepIndex++;
+      if (stepIndex < steps.size() && steps.get(stepIndex).name.equals("Representation")) {
+        representationId = steps.get(stepIndex).id;
+        if (representationId == null) {
+          throw unsupportedOperation(operation, selector);
+        }
+        stepIndex++;
+      }
+    }
+    if (stepIndex >= steps.size() || !steps.get(stepIndex).name.equals("SegmentTemplate")) {
+      throw unsupportedOperation(operation, selector);
+    }
+    stepIndex++;
+    int remainingStepCount = steps.size() - stepIndex;
+    if (remainingStepCount == 1 && steps.get(stepIndex).name.equals("@startNumber")) {
+      // Start numbers are adjusted when segments are removed from the timeline. See the class
+      // documentation.
+      patchedManifest.checkSegmentRemovalSupported(operation, selector);
+      DashManifestParser.maybeSkipTag(xpp);
+      return;
+    }
+    if (remainingStepCount == 0 || !steps.get(stepIndex).name.equals("SegmentTimeline")) {
+      throw unsupportedOperation(operation, selector);
+    }
+    if (remainingStepCount == 2
+        && steps.get(stepIndex + 1).name.equals("S")
+        && operation.equals("remove")) {
+      // Segments that are no longer available are removed when new segments are added. See the
+      // class documentation.
+      patchedManifest.checkSegmentRemovalSupported(operation, selector);
+      DashManifestParser.maybeSkipTag(xpp);
+      return;
+    }
+    @Nullable String position = xpp.getAttributeValue(null, "pos");
+    if (remainingStepCount != 1 || !operation.equals("add") || position != null) {
+      throw unsupportedOperation(operation, selector);
+    }
+    List<TimelineEntry> entries = parseTimelineEntries(xpp, operation);
+    patchedManifest.appendToSegmentTimelines(
+        periodIndex, adaptationSetId, representationId, entries, selector);
+  }
+
+  private static List<TimelineEntry> parseTimelineEntries(XmlPullParser xpp, String endTag)
+      throws XmlPullParserException, IOException {
+    List<TimelineEntry> entries = new ArrayList<>();
+    do {
+      xpp.next();
+      if (XmlPullParserUtil.isStartTag(xpp, "S")) {
+        long startTime = DashManifestParser.parseLong(xpp, "t", C.TIME_UNSET);
+        long duration = DashManifestParser.parseLong(xpp, "d", C.TIME_UNSET);
+        int repeatCount = DashManifestParser.parseInt(xpp, "r", 0);
+        if (duration == C.TIME_UNSET || repeatCount < 0) {
+          // Open ended repeats depend on the start of the next element or the period duration,
+          // which aren't known when appending to an existing timeline.
+          throw new PatchApplicationException("Unsupported S element in patch");
+        }
+        entries.add(new TimelineEntry(startTime, duration, repeatCount));
+      } else {
+        DashManifestParser.maybeSkipTag(xpp);
+      }
+    } while (!XmlPullParserUtil.isEndTag(xpp, endTag));
+    return entries;
+  }
+
+  private static List<SelectorStep> parseSelector(String selector)
+      throws PatchApplicationException {
+    List<SelectorStep> steps = new ArrayList<>();
+    if (!selector.startsWith("/")) {
+      throw new PatchApplicationException("Unsupported selector " + selector);
+    }
+    int stepStart = 1;
+    boolean inPredicate = false;
+    for (int i = 1; i <= selector.length(); i++) {
+      if (i == selector.length() || (selector.charAt(i) == '/' && !inPredicate)) {
+        Matcher matcher = SELECTOR_STEP_PATTERN.matcher(selector.substring(stepStart, i));
+        if (!matcher.matches()) {
+          throw new PatchApplicationException("Unsupported selector " + selector);
+        }
+        steps.add(new SelectorStep(Util.castNonNull(matcher.group(1)), /* id= */ matcher.group(3)));
+        stepStart = i + 1;
+      } else if (selector.charAt(i) == '[') {
+        inPredicate = true;
+      } else if (selector.charAt(i) == ']') {
+        inPredicate = false;
+      }
+    }
+    return steps;
+  }
+
+  private static PatchApplicationException unsupportedOperation(String operation, String selector) {
+    return new PatchApplicationException("Unsupported " + operation + " operation: " + selector);
+  }
+
+  /** The state of a manifest to which patch operations are being applied. */
+  private static final class PatchedManifest {
+
+    private final DashManifest previousManifest;
+    private final List<Period> periods;
+
+    public long publishTimeMs;
+    public long durationMs;
+    public long minUpdatePeriodMs;
+    public boolean dynamic;
+    @Nullable public Uri patchLocation;
+
+    public PatchedManifest(DashManifest previousManifest) {
+      this.previousManifest = previousManifest;
+      periods = new ArrayList<>(previousManifest.getPeriodCount());
+      for (int i = 0; i < previousManifest.getPeriodCount(); i++) {
+        periods.add(previousManifest.getPeriod(i));
+      }
+      publishTimeMs = previousManifest.publishTimeMs;
+      durationMs = previousManifest.durationMs;
+      minUpdatePeriodMs = previousManifest.minUpdatePeriodMs;
+      dynamic = previousManifest.dynamic;
+      patchLocation = previousManifest.patchLocation;
+    }
+
+    public int getPeriodIndex(String periodId) {
+      for (int i = 0; i < periods.size(); i++) {
+        if (periodId.equals(periods.get(i).id)) {
+          return i;
+        }
+      }
+      return C.INDEX_UNSET;
+    }
+
+    public void setAttribute(String name, String value, String operation, String selector)
+        throws IOException {
+      switch (name) {
+        case "publishTime":
+          publishTimeMs = Util.parseXsDateTime(value);
+          break;
+        case "mediaPresentationDuration":
+          durationMs = Util.parseXsDuration(value);
+          break;
+        case "minimumUpdatePeriod":
+          minUpdatePeriodMs = Util.parseXsDuration(value);
+          break;
+        case "type":
+          dynamic = "dynamic".equals(value);
+          break;
+        default:
+          throw unsupportedOperation(operation, selector);
+      }
+    }
+
+    public void removeAttribute(String name, String selector) throws PatchApplicationException {
+      switch (name) {
+        case "mediaPresentationDuration":
+          durationMs = C.TIME_UNSET;
+          break;
+        case "minimumUpdatePeriod":
+          minUpdatePeriodMs = C.TIME_UNSET;
+          break;
+        default:
+          throw unsupportedOperation("remove", selector);
+      }
+    }
+
+    /**
+     * Throws if segments can't be removed from the timelines of the manifest. Without a time shift
+     * buffer depth, the timelines would otherwise grow without bound.
+     */
+    public void checkSegmentRemovalSupported(String operation, String selector)
+        throws PatchApplicationException {
+      if (previousManifest.timeShiftBufferDepthMs == C.TIME_UNSET) {
+        throw unsupportedOperation(operation, selector);
+      }
+    }
+
+    public void appendToSegmentTimelines(
+        int periodIndex,
+        long adaptationSetId,
+        @Nullable String representationId,
+        List<TimelineEntry> entries,
+        String selector)
+        throws PatchApplicationException {
+      Period period = periods.get(periodIndex);
+      List<AdaptationSet> adaptationSets = new ArrayList<>(period.adaptationSets);
+      boolean foundRepresentation = false;
+      for (int i = 0; i < adaptationSets.size(); i++) {
+        AdaptationSet adaptationSet = adaptationSets.get(i);
+        if (adaptationSetId != AdaptationSet.ID_UNSET && adaptationSet.id != adaptationSetId) {
+          continue;
+        }
+        List<Representation> representations = new ArrayList<>(adaptationSet.representations);
+        boolean modified = false;
+        for (int j = 0; j < representations.size(); j++) {
+          Representation representation = representations.get(j);
+          if (representationId != null && !representationId.equals(representation.format.id)) {
+            continue;
+          }
+          representations.set(j, appendToSegmentTimeline(representation, entries, selector));
+          modified = true;
+        }
+        if (!modified) {
+          continue;
+        }
+        foundRepresentation = true;
+        adaptationSets.set(
+            i,
+            new AdaptationSet(
+                adaptationSet.id,
+                adaptationSet.type,
+                representations,
+                adaptationSet.accessibilityDescriptors,
+                adaptationSet.essentialProperties,
+                adaptationSet.supplementalProperties));
+      }
+      if (!foundRepresentation) {
+        throw new PatchApplicationException("No representation matches " + selector);
+      }
+      periods.set(
+          periodIndex,
+          new Period(
+              period.id,
+              period.startMs,
+              adaptationSets,
+              period.eventStreams,
+              period.assetIdentifier));
+    }
+
+    private Representation appendToSegmentTimeline(
+        Representation representation, List<TimelineEntry> entries, String selector)
+        throws PatchApplicationException {
+      if (!(representation instanceof MultiSegmentRepresentation)) {
+        throw new PatchApplicationException("No segment timeline matches " + selector);
+      }
+      MultiSegmentBase segmentBase = ((MultiSegmentRepresentation) representation).segmentBase;
+      if (!(segmentBase instanceof SegmentTemplate) || segmentBase.segmentTimeline == null) {
+        throw new PatchApplicationException("No segment timeline matches " + selector);
+      }
+      List<SegmentTimelineElement> previousTimeline = segmentBase.segmentTimeline;
+      long nextStartTime = 0;
+      if (!previousTimeline.isEmpty()) {
+        SegmentTimelineElement lastElement = previousTimeline.get(previousTimeline.size() - 1);
+        nextStartTime = lastElement.startTime + lastElement.duration;
+      }
+
+      // Remove elements that are no longer in the time shift buffer. If the buffer is unbounded,
+      // patches that remove segments are rejected by checkSegmentRemovalSupported.
+      long timelineEndTime = nextStartTime;
+      for (int i = 0; i < entries.size(); i++) {
+        TimelineEntry entry = entries.get(i);
+        long startTime = entry.startTime != C.TIME_UNSET ? entry.startTime : timelineEndTime;
+        timelineEndTime = startTime + (entry.repeatCount + 1) * entry.duration;
+      }
+      int removedElementCount = 0;
+      if (previousManifest.timeShiftBufferDepthMs != C.TIME_UNSET) {
+        long timeShiftBufferStartTime =
+            timelineEndTime
+                - Util.scaleLargeTimestamp(
+                    previousManifest.timeShiftBufferDepthMs, segmentBase.timescale, 1000);
+        while (removedElementCount < previousTimeline.size()) {
+          SegmentTimelineElement element = previousTimeline.get(removedElementCount);
+          if (element.startTime + element.duration > timeShiftBufferStartTime) {
+            break;
+          }
+          removedElementCount++;
+        }
+      }
+
+      List<SegmentTimelineElement> timeline = new ArrayList<>(previousTimeline.size());
+      timeline.addAll(previousTimeline.subList(removedElementCount, previousTimeline.size()));
+      for (int i = 0; i < entries.size(); i++) {
+        TimelineEntry entry = entries.get(i);
+        long startTime = entry.startTime != C.TIME_UNSET ? entry.startTime : nextStartTime;
+        if (startTime < nextStartTime) {
+          throw new PatchApplicationException("Overlapping S element in " + selector);
+        }
+        for (int j = 0; j <= entry.repeatCount; j++) {
+          timeline.add(new SegmentTimelineElement(startTime, entry.duration));
+          startTime += entry.duration;
+        }
+        nextStartTime = startTime;
+      }
+      SegmentTemplate segmentTemplate =
+          ((SegmentTemplate) segmentBase)
+              .copyWithSegmentTimeline(segmentBase.startNumber + removedElementCount, timeline);
+      return Representation.newInstance(
+          representation.revisionId,
+          representation.format,
+          representation.baseUrls,
+          segmentTemplate,
+          representation.inbandEventStreams,
+          representation.essentialProperties,
+          representation.supplementalProperties,
+          /* cacheKey= */ null);
+    }
+
+    public DashManifest build() throws PatchApplicationException {
+      if (periods.isEmpty()) {
+        throw new PatchApplicationException("Patch removes all periods");
+      }
+      if (!dynamic && durationMs == C.TIME_UNSET) {
+        throw new PatchApplicationException("Unable to determine duration of static manifest");
+      }
+      return new DashManifest(
+          previousManifest.availabilityStartTimeMs,
+          durationMs,
+          previousManifest.minBufferTimeMs,
+          dynamic,
+          minUpdatePeriodMs,
+          previousManifest.timeShiftBufferDepthMs,
+          previousManifest.suggestedPresentationDelayMs,
+          publishTimeMs,
+          previousManifest.programInformation,
+          previousManifest.utcTiming,
+          previousManifest.serviceDescription,
+          previousManifest.location,
+          previousManifest.id,
+          patchLocation,
+          periods);
+    }
+  }
+
+  /** A step of a patch selector, for example {@code Period[@id='1']} or {@code @publishTime}. */
+  private static final class SelectorStep {
+
+    /** The element name, or the attribute name prefixed with {@code @}. */
+    public final String name;
+
+    /** The value of an {@code [@id='...']} predicate, or null if there's none. */
+    @Nullable public final String id;
+
+    public SelectorStep(String name, @Nullable String id) {
+      this.name = name;
+      this.id = id;
+    }
+
+    public boolean isAttribute() {
+      return name.startsWith("@");
+    }
+  }
+
+  /** An {@code S} element added by a patch. */
+  private static final class TimelineEntry {
+
+    /** The start time, or {@link C#TIME_UNSET} if it follows the previous element. */
+    public final long startTime;
+
+    public final long duration;
+    public final int repeatCount;
+
+    public TimelineEntry(long startTime, long duration, int repeatCount) {
+      this.startTime = startTime;
+      this.duration = duration;
+      this.repeatCount = repeatCount;
+    }
+  }
+}
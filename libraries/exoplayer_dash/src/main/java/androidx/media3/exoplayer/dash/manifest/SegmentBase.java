@@ -120,8 +120,8 @@ public abstract class SegmentBase {
     /* package */ final long startNumber;
     /* package */ final long duration;
     @Nullable /* package */ final List<SegmentTimelineElement> segmentTimeline;
-    private final long timeShiftBufferDepthUs;
-    private final long periodStartUnixTimeUs;
+    /* package */ final long timeShiftBufferDepthUs;
+    /* package */ final long periodStartUnixTimeUs;
 
     /**
      * Offset to the current realtime at which segments become available, in microseconds, or {@link
@@ -426,6 +426,30 @@ public abstract class SegmentBase {
       this.endNumber = endNumber;
     }
 
+    /**
+     * Returns a copy of this instance with a different segment timeline.
+     *
+     * @param startNumber The sequence number of the first segment in {@code segmentTimeline}.
+     * @param segmentTimeline The new segment timeline.
+     * @return The copy.
+     */
+    /* package */ SegmentTemplate copyWithSegmentTimeline(
+        long startNumber, List<SegmentTimelineElement> segmentTimeline) {
+      return new SegmentTemplate(
+          initialization,
+          timescale,
+          presentationTimeOffset,
+          startNumber,
+          endNumber,
+          duration,
+          segmentTimeline,
+          availabilityTimeOffsetUs,
+          initializationTemplate,
+          mediaTemplate,
+          timeShiftBufferDepthUs,
+          periodStartUnixTimeUs);
+    }
+
     @Override
     @Nullable
     public RangedUri getInitialization(Representation representation) {
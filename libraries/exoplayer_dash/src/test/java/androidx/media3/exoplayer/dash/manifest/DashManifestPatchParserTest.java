@@ -0,0 +1,227 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.exoplayer.dash.manifest;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import android.net.Uri;
+import androidx.annotation.Nullable;
+import androidx.media3.common.util.Util;
+import androidx.media3.exoplayer.dash.DashSegmentIndex;
+import androidx.media3.exoplayer.dash.manifest.DashManifestPatchParser.PatchApplicationException;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Unit tests for {@link DashManifestPatchParser}. */
+@RunWith(AndroidJUnit4.class)
+public final class DashManifestPatchParserTest {
+
+  private static final Uri MANIFEST_URI = Uri.parse("https://example.com/live/manifest.mpd");
+  private static final Uri PATCH_URI = Uri.parse("https://example.com/live/patch.mpd");
+
+  private static final String MANIFEST =
+      "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+          + "<MPD xmlns=\"urn:mpeg:dash:schema:mpd:2011\" type=\"dynamic\" id=\"live\"\n"
+          + "    availabilityStartTime=\"2026-01-01T00:00:00Z\"\n"
+          + "    publishTime=\"2026-01-01T00:00:10Z\"\n"
+          + "    minimumUpdatePeriod=\"PT2S\" timeShiftBufferDepth=\"PT10S\">\n"
+          + "  <PatchLocation>patch.mpd</PatchLocation>\n"
+          + "  <Period id=\"p0\" start=\"PT0S\">\n"
+          + "    <AdaptationSet id=\"0\" mimeType=\"video/mp4\">\n"
+          + "      <SegmentTemplate timescale=\"1000\" startNumber=\"1\"\n"
+          + "          media=\"video_$Number$.m4s\" initialization=\"video_init.mp4\">\n"
+          + "        <SegmentTimeline><S t=\"0\" d=\"2000\" r=\"4\"/></SegmentTimeline>\n"
+          + "      </SegmentTemplate>\n"
+          + "      <Representation id=\"v\" bandwidth=\"1000000\" codecs=\"avc1.64001f\"/>\n"
+          + "    </AdaptationSet>\n"
+          + "    <AdaptationSet id=\"1\" mimeType=\"audio/mp4\">\n"
+          + "      <SegmentTemplate timescale=\"1000\" startNumber=\"1\"\n"
+          + "          media=\"audio_$Number$.m4s\" initialization=\"audio_init.mp4\">\n"
+          + "        <SegmentTimeline><S t=\"0\" d=\"2000\" r=\"4\"/></SegmentTimeline>\n"
+          + "      </SegmentTemplate>\n"
+          + "      <Representation id=\"a\" bandwidth=\"128000\" codecs=\"mp4a.40.2\"/>\n"
+          + "    </AdaptationSet>\n"
+          + "  </Period>\n"
+          + "</MPD>\n";
+
+  @Test
+  public void parseManifest_setsIdAndPatchLocation() throws IOException {
+    DashManifest manifest = parseManifest();
+
+    assertThat(manifest.id).isEqualTo("live");
+    assertThat(manifest.patchLocation).isEqualTo(PATCH_URI);
+  }
+
+  @Test
+  public void parseManifest_withParserOverridingLegacyBuildMethod_callsOverride()
+      throws IOException {
+    DashManifestParser parser =
+        new DashManifestParser() {
+          @Override
+          protected DashManifest buildMediaPresentationDescription(
+              long availabilityStartTime,
+              long durationMs,
+              long minBufferTimeMs,
+              boolean dynamic,
+              long minUpdateTimeMs,
+              long timeShiftBufferDepthMs,
+              long suggestedPresentationDelayMs,
+              long publishTimeMs,
+              @Nullable ProgramInformation programInformation,
+              @Nullable UtcTimingElement utcTiming,
+              @Nullable ServiceDescriptionElement serviceDescription,
+              @Nullable Uri location,
+              List<Period> periods) {
+            return super.buildMediaPresentationDescription(
+                availabilityStartTime,
+                durationMs,
+                minBufferTimeMs,
+                dynamic,
+                /* minUpdateTimeMs= */ 5_000,
+                timeShiftBufferDepthMs,
+                suggestedPresentationDelayMs,
+                publishTimeMs,
+                programInformation,
+                utcTiming,
+                serviceDescription,
+                location,
+                periods);
+          }
+        };
+
+    DashManifest manifest =
+        parser.parse(MANIFEST_URI, new ByteArrayInputStream(Util.getUtf8Bytes(MANIFEST)));
+
+    assertThat(manifest.minUpdatePeriodMs).isEqualTo(5_000);
+    assertThat(manifest.id).isEqualTo("live");
+    assertThat(manifest.patchLocation).isEqualTo(PATCH_URI);
+  }
+
+  @Test
+  public void parsePatch_appendsSegmentsAndSharesUnchangedAdaptationSets() throws IOException {
+    DashManifest previousManifest = parseManifest();
+    String patch =
+        "<Patch mpdId=\"live\" originalPublishTime=\"2026-01-01T00:00:10Z\"\n"
+            + "    publishTime=\"2026-01-01T00:00:14Z\">\n"
+            + "  <replace sel=\"/MPD/@publishTime\">2026-01-01T00:00:14Z</replace>\n"
+            + "  <add sel=\"/MPD/Period[@id='p0']/AdaptationSet[@id='0']/SegmentTemplate/"
+            + "SegmentTimeline\"><S d=\"2000\" r=\"1\"/></add>\n"
+            + "  <remove sel=\"/MPD/Period[@id='p0']/AdaptationSet[@id='0']/SegmentTemplate/"
+            + "SegmentTimeline/S[1]\"/>\n"
+            + "  <replace sel=\"/MPD/Period[@id='p0']/AdaptationSet[@id='0']/SegmentTemplate/"
+            + "@startNumber\">3</replace>\n"
+            + "</Patch>\n";
+
+    DashManifest manifest = parsePatch(previousManifest, patch);
+
+    assertThat(manifest.publishTimeMs).isEqualTo(Util.parseXsDateTime("2026-01-01T00:00:14Z"));
+    assertThat(manifest.id).isEqualTo("live");
+    assertThat(manifest.patchLocation).isEqualTo(PATCH_URI);
+    Period period = manifest.getPeriod(0);
+    Period previousPeriod = previousManifest.getPeriod(0);
+    assertThat(period.adaptationSets.get(1)).isSameInstanceAs(previousPeriod.adaptationSets.get(1));
+    Representation representation = period.adaptationSets.get(0).representations.get(0);
+    assertThat(representation.format)
+        .isSameInstanceAs(previousPeriod.adaptationSets.get(0).representations.get(0).format);
+    // Segments that ended more than timeShiftBufferDepth before the end of the timeline have been
+    // removed, without changing the numbers of the remaining segments.
+    DashSegmentIndex index = representation.getIndex();
+    assertThat(index.getFirstSegmentNum()).isEqualTo(3);
+    assertThat(index.getSegmentCount(/* periodDurationUs= */ 14_000_000)).isEqualTo(5);
+    assertThat(index.getTimeUs(/* segmentNum= */ 3)).isEqualTo(4_000_000);
+    assertThat(index.getTimeUs(/* segmentNum= */ 7)).isEqualTo(12_000_000);
+    assertThat(index.getSegmentUrl(/* segmentNum= */ 7).resolveUri("https://a/").toString())
+        .isEqualTo("https://a/video_7.m4s");
+  }
+
+  @Test
+  public void parsePatch_endsPresentation() throws IOException {
+    DashManifest previousManifest = parseManifest();
+    String patch =
+        "<Patch mpdId=\"live\" originalPublishTime=\"2026-01-01T00:00:10Z\"\n"
+            + "    publishTime=\"2026-01-01T00:00:12Z\">\n"
+            + "  <replace sel=\"/MPD/@type\">static</replace>\n"
+            + "  <add sel=\"/MPD\" type=\"@mediaPresentationDuration\">PT10S</add>\n"
+            + "  <remove sel=\"/MPD/@minimumUpdatePeriod\"/>\n"
+            + "</Patch>\n";
+
+    DashManifest manifest = parsePatch(previousManifest, patch);
+
+    assertThat(manifest.dynamic).isFalse();
+    assertThat(manifest.durationMs).isEqualTo(10_000);
+    assertThat(manifest.getPeriod(0)).isSameInstanceAs(previousManifest.getPeriod(0));
+  }
+
+  @Test
+  public void parsePatch_withDifferentOriginalPublishTime_throwsPatchApplicationException()
+      throws IOException {
+    DashManifest previousManifest = parseManifest();
+    String patch =
+        "<Patch mpdId=\"live\" originalPublishTime=\"2026-01-01T00:00:08Z\"\n"
+            + "    publishTime=\"2026-01-01T00:00:12Z\"/>\n";
+
+    assertThrows(PatchApplicationException.class, () -> parsePatch(previousManifest, patch));
+  }
+
+  @Test
+  public void parsePatch_withUnsupportedOperation_throwsPatchApplicationException()
+      throws IOException {
+    DashManifest previousManifest = parseManifest();
+    String patch =
+        "<Patch mpdId=\"live\" originalPublishTime=\"2026-01-01T00:00:10Z\"\n"
+            + "    publishTime=\"2026-01-01T00:00:12Z\">\n"
+            + "  <add sel=\"/MPD\"><Period id=\"p1\" start=\"PT12S\"/></add>\n"
+            + "</Patch>\n";
+
+    assertThrows(PatchApplicationException.class, () -> parsePatch(previousManifest, patch));
+  }
+
+  @Test
+  public void parsePatch_removingSegmentsWithoutTimeShiftBufferDepth_throws() throws IOException {
+    DashManifest previousManifest =
+        new DashManifestParser()
+            .parse(
+                MANIFEST_URI,
+                new ByteArrayInputStream(
+                    Util.getUtf8Bytes(MANIFEST.replace(" timeShiftBufferDepth=\"PT10S\"", ""))));
+    String patch =
+        "<Patch mpdId=\"live\" originalPublishTime=\"2026-01-01T00:00:10Z\"\n"
+            + "    publishTime=\"2026-01-01T00:00:12Z\">\n"
+            + "  <add sel=\"/MPD/Period[@id='p0']/AdaptationSet[@id='0']/SegmentTemplate/"
+            + "SegmentTimeline\"><S d=\"2000\"/></add>\n"
+            + "  <remove sel=\"/MPD/Period[@id='p0']/AdaptationSet[@id='0']/SegmentTemplate/"
+            + "SegmentTimeline/S[1]\"/>\n"
+            + "</Patch>\n";
+
+    assertThrows(PatchApplicationException.class, () -> parsePatch(previousManifest, patch));
+  }
+
+  private static DashManifest parseManifest() throws IOException {
+    return new DashManifestParser()
+        .parse(MANIFEST_URI, new ByteArrayInputStream(Util.getUtf8Bytes(MANIFEST)));
+  }
+
+  private static DashManifest parsePatch(DashManifest previousManifest, String patch)
+      throws IOException {
+    return new DashManifestPatchParser(previousManifest)
+        .parse(PATCH_URI, new ByteArrayInputStream(Util.getUtf8Bytes(patch)));
+  }
+}
@@ -526,7 +526,7 @@ import org.checkerframework.checker.nullness.qual.RequiresNonNull;
       skipLoadedBytes = false;
     }
     try {
-      ExtractorInput input =
+      DefaultExtractorInput input =
           prepareExtraction(dataSource, loadDataSpec, initializeTimestampAdjuster);
       if (skipLoadedBytes) {
         input.skipFully(nextLoadPosition);
@@ -543,6 +543,7 @@ import org.checkerframework.checker.nullness.qual.RequiresNonNull;
         }
       } finally {
         nextLoadPosition = (int) (input.getPosition() - dataSpec.position);
+        input.release();
       }
     } finally {
       DataSourceUtil.closeQuietly(dataSource);
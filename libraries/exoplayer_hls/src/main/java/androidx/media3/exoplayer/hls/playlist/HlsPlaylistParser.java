@@ -65,6 +65,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Queue;
 import java.util.TreeMap;
 import java.util.regex.Matcher;
@@ -877,8 +878,28 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
               parseStringAttr(line, REGEX_VALUE, variableDefinitions));
         }
       } else if (line.startsWith(TAG_MEDIA_DURATION)) {
-        segmentDurationUs = parseTimeSecondsToUs(line, REGEX_MEDIA_DURATION);
-        segmentTitle = parseOptionalStringAttr(line, REGEX_MEDIA_TITLE, "", variableDefinitions);
+        // Fast path for the common #EXTINF:<decimal>[,<title>] form, which appears once per
+        // segment.
+        int durationStartIndex = TAG_MEDIA_DURATION.length() + 1;
+        int titleSeparatorIndex = line.indexOf(',', durationStartIndex);
+        long durationUs =
+            line.length() > durationStartIndex && line.charAt(durationStartIndex - 1) == ':'
+                ? parseDecimalSecondsToUs(
+                    line,
+                    durationStartIndex,
+                    titleSeparatorIndex == C.INDEX_UNSET ? line.length() : titleSeparatorIndex)
+                : C.TIME_UNSET;
+        if (durationUs != C.TIME_UNSET) {
+          segmentDurationUs = durationUs;
+          segmentTitle =
+              titleSeparatorIndex == C.INDEX_UNSET || titleSeparatorIndex == line.length() - 1
+                  ? ""
+                  : replaceVariableReferences(
+                      line.substring(titleSeparatorIndex + 1), variableDefinitions);
+        } else {
+          segmentDurationUs = parseTimeSecondsToUs(line, REGEX_MEDIA_DURATION);
+          segmentTitle = parseOptionalStringAttr(line, REGEX_MEDIA_TITLE, "", variableDefinitions);
+        }
       } else if (line.startsWith(TAG_SKIP)) {
         int skippedSegmentCount = parseIntAttr(line, REGEX_SKIPPED_SEGMENTS);
         checkState(previousMediaPlaylist != null && segments.isEmpty());
@@ -947,11 +968,32 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
           }
         }
       } else if (line.startsWith(TAG_BYTERANGE)) {
-        String byteRange = parseStringAttr(line, REGEX_BYTERANGE, variableDefinitions);
-        String[] splitByteRange = Util.split(byteRange, "@");
-        segmentByteRangeLength = Long.parseLong(splitByteRange[0]);
-        if (splitByteRange.length > 1) {
-          segmentByteRangeOffset = Long.parseLong(splitByteRange[1]);
+        // Fast path for the common #EXT-X-BYTERANGE:<length>[@<offset>] form.
+        int lengthStartIndex = TAG_BYTERANGE.length() + 1;
+        int offsetSeparatorIndex = line.indexOf('@', lengthStartIndex);
+        long length =
+            line.length() > lengthStartIndex && line.charAt(lengthStartIndex - 1) == ':'
+                ? parseNonNegativeLong(
+                    line,
+                    lengthStartIndex,
+                    offsetSeparatorIndex == C.INDEX_UNSET ? line.length() : offsetSeparatorIndex)
+                : C.LENGTH_UNSET;
+        long offset =
+            offsetSeparatorIndex == C.INDEX_UNSET
+                ? 0
+                : parseNonNegativeLong(line, offsetSeparatorIndex + 1, line.length());
+        if (length != C.LENGTH_UNSET && offset != C.LENGTH_UNSET) {
+          segmentByteRangeLength = length;
+          if (offsetSeparatorIndex != C.INDEX_UNSET) {
+            segmentByteRangeOffset = offset;
+          }
+        } else {
+          String byteRange = parseStringAttr(line, REGEX_BYTERANGE, variableDefinitions);
+          String[] splitByteRange = Util.split(byteRange, "@");
+          segmentByteRangeLength = Long.parseLong(splitByteRange[0]);
+          if (splitByteRange.length > 1) {
+            segmentByteRangeOffset = Long.parseLong(splitByteRange[1]);
+          }
         }
       } else if (line.startsWith(TAG_DISCONTINUITY_SEQUENCE)) {
         hasDiscontinuitySequence = true;
@@ -1254,6 +1296,11 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
         String segmentEncryptionIV =
             getSegmentEncryptionIV(
                 segmentMediaSequence, fullSegmentEncryptionKeyUri, fullSegmentEncryptionIV);
+        @Nullable
+        Segment previousSegment =
+            previousMediaPlaylist != null
+                ? getSegment(previousMediaPlaylist, segmentMediaSequence)
+                : null;
         segmentMediaSequence++;
         String segmentUri = replaceVariableReferences(line, variableDefinitions);
         @Nullable Segment inferredInitSegment = urlToInferredInitSegment.get(segmentUri);
@@ -1284,21 +1331,58 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
           }
         }
 
-        segments.add(
-            new Segment(
-                segmentUri,
-                initializationSegment != null ? initializationSegment : inferredInitSegment,
-                segmentTitle,
-                segmentDurationUs,
-                relativeDiscontinuitySequence,
-                segmentStartTimeUs,
-                cachedDrmInitData,
-                fullSegmentEncryptionKeyUri,
-                segmentEncryptionIV,
-                segmentByteRangeOffset,
-                segmentByteRangeLength,
-                hasGapTag,
-                trailingParts));
+        @Nullable
+        Segment segmentInitializationSegment =
+            initializationSegment != null ? initializationSegment : inferredInitSegment;
+        if (previousSegment != null
+            && trailingParts.isEmpty()
+            && previousSegment.parts.isEmpty()
+            && castNonNull(previousMediaPlaylist).discontinuitySequence
+                    + previousSegment.relativeDiscontinuitySequence
+                == playlistDiscontinuitySequence + relativeDiscontinuitySequence
+            && previousSegment.durationUs == segmentDurationUs
+            && previousSegment.byteRangeOffset == segmentByteRangeOffset
+            && previousSegment.byteRangeLength == segmentByteRangeLength
+            && previousSegment.hasGapTag == hasGapTag
+            && previousSegment.url.equals(segmentUri)
+            && previousSegment.title.equals(segmentTitle)
+            && Objects.equals(
+                previousSegment.fullSegmentEncryptionKeyUri, fullSegmentEncryptionKeyUri)
+            && Objects.equals(previousSegment.encryptionIV, segmentEncryptionIV)
+            && Objects.equals(previousSegment.drmInitData, cachedDrmInitData)
+            && isSameInitializationSegment(
+                previousSegment.initializationSegment, segmentInitializationSegment)) {
+          // The segment is unchanged since the previous playlist. Reuse the previously parsed
+          // object, so that the two playlists share their common segments.
+          if (previousSegment.relativeStartTimeUs != segmentStartTimeUs
+              || previousSegment.relativeDiscontinuitySequence != relativeDiscontinuitySequence) {
+            previousSegment =
+                previousSegment.copyWith(segmentStartTimeUs, relativeDiscontinuitySequence);
+          }
+          if (initializationSegment != null) {
+            initializationSegment = previousSegment.initializationSegment;
+          } else if (inferredInitSegment != null) {
+            urlToInferredInitSegment.put(
+                segmentUri, checkNotNull(previousSegment.initializationSegment));
+          }
+          segments.add(previousSegment);
+        } else {
+          segments.add(
+              new Segment(
+                  segmentUri,
+                  segmentInitializationSegment,
+                  segmentTitle,
+                  segmentDurationUs,
+                  relativeDiscontinuitySequence,
+                  segmentStartTimeUs,
+                  cachedDrmInitData,
+                  fullSegmentEncryptionKeyUri,
+                  segmentEncryptionIV,
+                  segmentByteRangeOffset,
+                  segmentByteRangeLength,
+                  hasGapTag,
+                  trailingParts));
+        }
         segmentStartTimeUs += segmentDurationUs;
         partStartTimeUs = segmentStartTimeUs;
         segmentDurationUs = 0;
@@ -1366,6 +1450,32 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
         interstitials);
   }
 
+  @Nullable
+  private static Segment getSegment(HlsMediaPlaylist playlist, long mediaSequence) {
+    long index = mediaSequence - playlist.mediaSequence;
+    return index >= 0 && index < playlist.segments.size()
+        ? playlist.segments.get((int) index)
+        : null;
+  }
+
+  private static boolean isSameInitializationSegment(
+      @Nullable Segment initializationSegment, @Nullable Segment otherInitializationSegment) {
+    if (initializationSegment == otherInitializationSegment) {
+      return true;
+    }
+    if (initializationSegment == null || otherInitializationSegment == null) {
+      return false;
+    }
+    return initializationSegment.byteRangeOffset == otherInitializationSegment.byteRangeOffset
+        && initializationSegment.byteRangeLength == otherInitializationSegment.byteRangeLength
+        && initializationSegment.url.equals(otherInitializationSegment.url)
+        && Objects.equals(
+            initializationSegment.fullSegmentEncryptionKeyUri,
+            otherInitializationSegment.fullSegmentEncryptionKeyUri)
+        && Objects.equals(
+            initializationSegment.encryptionIV, otherInitializationSegment.encryptionIV);
+  }
+
   private static DrmInitData getPlaylistProtectionSchemes(
       @Nullable String encryptionScheme, SchemeData[] schemeDatas) {
     SchemeData[] playlistSchemeDatas = new SchemeData[schemeDatas.length];
@@ -1512,6 +1622,71 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
     return timeValue.multiply(new BigDecimal(C.MICROS_PER_SECOND)).longValue();
   }
 
+  /**
+   * Parses a decimal number of seconds of the form {@code <digits>[.<digits>]} in {@code
+   * line.substring(startIndex, endIndex)} into microseconds, truncating any sub-microsecond digits.
+   *
+   * <p>Equivalent to {@link #parseTimeSecondsToUs} for well formed values, but doesn't allocate.
+   *
+   * @return The parsed value in microseconds, or {@link C#TIME_UNSET} if the value doesn't have the
+   *     expected form and should be parsed with the slower regular expression based methods.
+   */
+  private static long parseDecimalSecondsToUs(String line, int startIndex, int endIndex) {
+    long seconds = 0;
+    int index = startIndex;
+    while (index < endIndex && isDigit(line.charAt(index))) {
+      seconds = seconds * 10 + (line.charAt(index) - '0');
+      index++;
+    }
+    // Limit the number of integer digits so that the result can't overflow.
+    if (index == startIndex || index - startIndex > 12) {
+      return C.TIME_UNSET;
+    }
+    long fractionUs = 0;
+    if (index < endIndex) {
+      if (line.charAt(index) != '.' || index == endIndex - 1) {
+        return C.TIME_UNSET;
+      }
+      index++;
+      long fractionMultiplier = C.MICROS_PER_SECOND;
+      for (; index < endIndex; index++) {
+        char c = line.charAt(index);
+        if (!isDigit(c)) {
+          return C.TIME_UNSET;
+        }
+        fractionMultiplier /= 10;
+        fractionUs += (c - '0') * fractionMultiplier;
+      }
+    }
+    return seconds * C.MICROS_PER_SECOND + fractionUs;
+  }
+
+  /**
+   * Parses a non-negative decimal integer in {@code line.substring(startIndex, endIndex)}.
+   *
+   * @return The parsed value, or {@link C#LENGTH_UNSET} if the value isn't a non-negative decimal
+   *     integer that fits into a long.
+   */
+  private static long parseNonNegativeLong(String line, int startIndex, int endIndex) {
+    // Limit the number of digits so that the result can't overflow.
+    if (startIndex >= endIndex || endIndex - startIndex > 18) {
+      return C.LENGTH_UNSET;
+    }
+    long value = 0;
+    for (int i = startIndex; i < endIndex; i++) {
+      char c = line.charAt(i);
+      if (!isDigit(c)) {
+        return C.LENGTH_UNSET;
+      }
+      value = value * 10 + (c - '0');
+    }
+    return value;
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
   private static double parseDoubleAttr(String line, Pattern pattern) throws ParserException {
     return Double.parseDouble(parseStringAttr(line, pattern, Collections.emptyMap()));
   }
@@ -1585,6 +1760,10 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
 
   private static String replaceVariableReferences(
       String string, Map<String, String> variableDefinitions) {
+    if (string.indexOf("{$") == C.INDEX_UNSET) {
+      // Avoid running the regular expression on the common case of strings without references.
+      return string;
+    }
     Matcher matcher = REGEX_VARIABLE_REFERENCE.matcher(string);
     // TODO: Replace StringBuffer with StringBuilder once Java 9 is available.
     StringBuffer stringWithReplacements = new StringBuffer();
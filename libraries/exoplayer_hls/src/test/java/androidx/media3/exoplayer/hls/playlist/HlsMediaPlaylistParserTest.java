@@ -478,6 +478,137 @@ public class HlsMediaPlaylistParserTest {
     assertThat(playlist.trailingParts.get(0).relativeDiscontinuitySequence).isEqualTo(1);
   }
 
+  @Test
+  public void parseMediaPlaylist_withPreviousPlaylist_reusesUnchangedSegments() throws IOException {
+    Uri playlistUri = Uri.parse("https://example.com/test.m3u8");
+    String previousPlaylistString =
+        "#EXTM3U\n"
+            + "#EXT-X-TARGETDURATION:4\n"
+            + "#EXT-X-PLAYLIST-TYPE:EVENT\n"
+            + "#EXT-X-MEDIA-SEQUENCE:10\n"
+            + "#EXT-X-MAP:URI=\"init.mp4\"\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence10.mp4\n"
+            + "#EXTINF:4.00008,title\n"
+            + "fileSequence11.mp4\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence12.mp4\n";
+    String playlistString =
+        "#EXTM3U\n"
+            + "#EXT-X-TARGETDURATION:4\n"
+            + "#EXT-X-PLAYLIST-TYPE:EVENT\n"
+            + "#EXT-X-MEDIA-SEQUENCE:10\n"
+            + "#EXT-X-MAP:URI=\"init.mp4\"\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence10.mp4\n"
+            + "#EXTINF:4.00008,title\n"
+            + "fileSequence11.mp4\n"
+            + "#EXTINF:3.5,\n"
+            + "fileSequence12.mp4\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence13.mp4\n";
+    HlsMediaPlaylist previousPlaylist =
+        (HlsMediaPlaylist)
+            new HlsPlaylistParser()
+                .parse(
+                    playlistUri,
+                    new ByteArrayInputStream(Util.getUtf8Bytes(previousPlaylistString)));
+
+    HlsMediaPlaylist playlist =
+        (HlsMediaPlaylist)
+            new HlsPlaylistParser(HlsMultivariantPlaylist.EMPTY, previousPlaylist)
+                .parse(playlistUri, new ByteArrayInputStream(Util.getUtf8Bytes(playlistString)));
+
+    assertThat(playlist.segments).hasSize(4);
+    assertThat(playlist.segments.get(0)).isSameInstanceAs(previousPlaylist.segments.get(0));
+    assertThat(playlist.segments.get(1)).isSameInstanceAs(previousPlaylist.segments.get(1));
+    assertThat(playlist.segments.get(2)).isNotSameInstanceAs(previousPlaylist.segments.get(2));
+    assertThat(playlist.segments.get(2).durationUs).isEqualTo(3_500_000);
+    assertThat(playlist.segments.get(3).url).isEqualTo("fileSequence13.mp4");
+    assertThat(playlist.segments.get(3).relativeStartTimeUs).isEqualTo(11_500_160);
+    assertThat(playlist.segments.get(3).initializationSegment)
+        .isSameInstanceAs(previousPlaylist.segments.get(0).initializationSegment);
+  }
+
+  @Test
+  public void parseMediaPlaylist_withPreviousPlaylistAndAdvancedMediaSequence_rebasesSegments()
+      throws IOException {
+    Uri playlistUri = Uri.parse("https://example.com/test.m3u8");
+    String previousPlaylistString =
+        "#EXTM3U\n"
+            + "#EXT-X-TARGETDURATION:4\n"
+            + "#EXT-X-DISCONTINUITY-SEQUENCE:5\n"
+            + "#EXT-X-MEDIA-SEQUENCE:10\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence10.mp4\n"
+            + "#EXT-X-DISCONTINUITY\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence11.mp4\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence12.mp4\n";
+    String playlistString =
+        "#EXTM3U\n"
+            + "#EXT-X-TARGETDURATION:4\n"
+            + "#EXT-X-DISCONTINUITY-SEQUENCE:6\n"
+            + "#EXT-X-MEDIA-SEQUENCE:11\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence11.mp4\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence12.mp4\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence13.mp4\n";
+    HlsMediaPlaylist previousPlaylist =
+        (HlsMediaPlaylist)
+            new HlsPlaylistParser()
+                .parse(
+                    playlistUri,
+                    new ByteArrayInputStream(Util.getUtf8Bytes(previousPlaylistString)));
+
+    HlsMediaPlaylist playlist =
+        (HlsMediaPlaylist)
+            new HlsPlaylistParser(HlsMultivariantPlaylist.EMPTY, previousPlaylist)
+                .parse(playlistUri, new ByteArrayInputStream(Util.getUtf8Bytes(playlistString)));
+
+    assertThat(playlist.segments).hasSize(3);
+    for (int i = 0; i < playlist.segments.size(); i++) {
+      Segment segment = playlist.segments.get(i);
+      assertThat(segment.url).isEqualTo("fileSequence" + (11 + i) + ".mp4");
+      assertThat(segment.relativeStartTimeUs).isEqualTo(i * 4_000_080L);
+      assertThat(segment.relativeDiscontinuitySequence).isEqualTo(0);
+    }
+  }
+
+  @Test
+  public void parseMediaPlaylist_withIrregularSegmentDurations_parsesDurationsAndTitles()
+      throws IOException {
+    Uri playlistUri = Uri.parse("https://example.com/test.m3u8");
+    String playlistString =
+        "#EXTM3U\n"
+            + "#EXT-X-TARGETDURATION:10\n"
+            + "#EXT-X-MEDIA-SEQUENCE:0\n"
+            + "#EXTINF:9.1234567,title, with comma\n"
+            + "fileSequence0.ts\n"
+            + "#EXTINF:.5,\n"
+            + "fileSequence1.ts\n"
+            + "#EXTINF:10\n"
+            + "#EXT-X-BYTERANGE:100@\n"
+            + "fileSequence2.ts\n";
+
+    HlsMediaPlaylist playlist =
+        (HlsMediaPlaylist)
+            new HlsPlaylistParser()
+                .parse(playlistUri, new ByteArrayInputStream(Util.getUtf8Bytes(playlistString)));
+
+    assertThat(playlist.segments).hasSize(3);
+    assertThat(playlist.segments.get(0).durationUs).isEqualTo(9_123_456);
+    assertThat(playlist.segments.get(0).title).isEqualTo("title, with comma");
+    assertThat(playlist.segments.get(1).durationUs).isEqualTo(500_000);
+    assertThat(playlist.segments.get(1).title).isEmpty();
+    assertThat(playlist.segments.get(2).durationUs).isEqualTo(10_000_000);
+    assertThat(playlist.segments.get(2).byteRangeOffset).isEqualTo(0);
+    assertThat(playlist.segments.get(2).byteRangeLength).isEqualTo(100);
+  }
+
   @Test
   public void parseMediaPlaylist_withParts_parsesPartWithAllAttributes() throws IOException {
     Uri playlistUri = Uri.parse("https://example.com/test.m3u8");
@@ -17,6 +17,7 @@ package androidx.media3.extractor;
 
 import static java.lang.Math.min;
 
+import androidx.annotation.Nullable;
 import androidx.media3.common.C;
 import androidx.media3.common.DataReader;
 import androidx.media3.common.MediaLibraryInfo;
@@ -26,9 +27,16 @@ import androidx.media3.common.util.Util;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InterruptedIOException;
-import java.util.Arrays;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 
-/** An {@link ExtractorInput} that wraps a {@link DataReader}. */
+/**
+ * An {@link ExtractorInput} that wraps a {@link DataReader}.
+ *
+ * <p>Peeked data is held in a ring buffer, so consuming it never moves the data that remains. Call
+ * {@link #release()} once the input is no longer needed to allow its buffer to be reused by other
+ * instances.
+ */
 @UnstableApi
 public final class DefaultExtractorInput implements ExtractorInput {
 
@@ -39,6 +47,10 @@ public final class DefaultExtractorInput implements ExtractorInput {
   private static final int PEEK_MIN_FREE_SPACE_AFTER_RESIZE = 64 * 1024;
   private static final int PEEK_MAX_FREE_SPACE = 512 * 1024;
   private static final int SCRATCH_SPACE_SIZE = 4096;
+  private static final int MAX_POOLED_PEEK_BUFFERS = 4;
+
+  /** Peek buffers of the minimum size released by other instances. Guarded by itself. */
+  private static final ArrayDeque<byte[]> peekBufferPool = new ArrayDeque<>();
 
   private final byte[] scratchSpace;
   private final DataReader dataReader;
@@ -46,6 +58,7 @@ public final class DefaultExtractorInput implements ExtractorInput {
 
   private long position;
   private byte[] peekBuffer;
+  private int peekBufferStart;
   private int peekBufferPosition;
   private int peekBufferLength;
 
@@ -58,7 +71,7 @@ public final class DefaultExtractorInput implements ExtractorInput {
     this.dataReader = dataReader;
     this.position = position;
     this.streamLength = length;
-    peekBuffer = new byte[PEEK_MIN_FREE_SPACE_AFTER_RESIZE];
+    peekBuffer = obtainPeekBuffer();
     scratchSpace = new byte[SCRATCH_SPACE_SIZE];
   }
 
@@ -74,6 +87,28 @@ public final class DefaultExtractorInput implements ExtractorInput {
     return bytesRead;
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Returns {@code null} if there's peeked data at the current position, since peeked data has
+   * already been copied out of the wrapped {@link DataReader}.
+   */
+  @Override
+  @Nullable
+  public ByteBuffer readByteBuffer(int length) throws IOException {
+    if (peekBufferLength != 0) {
+      return null;
+    }
+    if (Thread.interrupted()) {
+      throw new InterruptedIOException();
+    }
+    @Nullable ByteBuffer data = dataReader.readByteBuffer(length);
+    if (data != null) {
+      commitBytesRead(data.remaining());
+    }
+    return data;
+  }
+
   @Override
   public boolean readFully(byte[] target, int offset, int length, boolean allowEndOfInput)
       throws IOException {
@@ -123,21 +158,14 @@ public final class DefaultExtractorInput implements ExtractorInput {
     int peekBufferRemainingBytes = peekBufferLength - peekBufferPosition;
     int bytesPeeked;
     if (peekBufferRemainingBytes == 0) {
-      bytesPeeked =
-          readFromUpstream(
-              peekBuffer,
-              peekBufferPosition,
-              length,
-              /* bytesAlreadyRead= */ 0,
-              /* allowEndOfInput= */ true);
+      bytesPeeked = readToPeekBuffer(length, /* allowEndOfInput= */ true);
       if (bytesPeeked == C.RESULT_END_OF_INPUT) {
         return C.RESULT_END_OF_INPUT;
       }
-      peekBufferLength += bytesPeeked;
     } else {
       bytesPeeked = min(length, peekBufferRemainingBytes);
     }
-    System.arraycopy(peekBuffer, peekBufferPosition, target, offset, bytesPeeked);
+    copyFromPeekBuffer(peekBufferPosition, target, offset, bytesPeeked);
     peekBufferPosition += bytesPeeked;
     return bytesPeeked;
   }
@@ -148,7 +176,7 @@ public final class DefaultExtractorInput implements ExtractorInput {
     if (!advancePeekPosition(length, allowEndOfInput)) {
       return false;
     }
-    System.arraycopy(peekBuffer, peekBufferPosition - length, target, offset, length);
+    copyFromPeekBuffer(peekBufferPosition - length, target, offset, length);
     return true;
   }
 
@@ -162,12 +190,11 @@ public final class DefaultExtractorInput implements ExtractorInput {
     ensureSpaceForPeek(length);
     int bytesPeeked = peekBufferLength - peekBufferPosition;
     while (bytesPeeked < length) {
-      bytesPeeked =
-          readFromUpstream(peekBuffer, peekBufferPosition, length, bytesPeeked, allowEndOfInput);
-      if (bytesPeeked == C.RESULT_END_OF_INPUT) {
+      int bytesRead = readToPeekBuffer(length - bytesPeeked, allowEndOfInput && bytesPeeked == 0);
+      if (bytesRead == C.RESULT_END_OF_INPUT) {
         return false;
       }
-      peekBufferLength = peekBufferPosition + bytesPeeked;
+      bytesPeeked += bytesRead;
     }
     peekBufferPosition += length;
     return true;
@@ -210,6 +237,34 @@ public final class DefaultExtractorInput implements ExtractorInput {
     return dataReader;
   }
 
+  /**
+   * Releases the input's peek buffer so that it can be reused by other instances. The input must
+   * not be used after it's been released.
+   */
+  public void release() {
+    byte[] releasedPeekBuffer = peekBuffer;
+    peekBuffer = Util.EMPTY_BYTE_ARRAY;
+    peekBufferStart = 0;
+    peekBufferPosition = 0;
+    peekBufferLength = 0;
+    if (releasedPeekBuffer.length != PEEK_MIN_FREE_SPACE_AFTER_RESIZE) {
+      return;
+    }
+    synchronized (peekBufferPool) {
+      if (peekBufferPool.size() < MAX_POOLED_PEEK_BUFFERS) {
+        peekBufferPool.addLast(releasedPeekBuffer);
+      }
+    }
+  }
+
+  private static byte[] obtainPeekBuffer() {
+    @Nullable byte[] pooledPeekBuffer;
+    synchronized (peekBufferPool) {
+      pooledPeekBuffer = peekBufferPool.pollLast();
+    }
+    return pooledPeekBuffer != null ? pooledPeekBuffer : new byte[PEEK_MIN_FREE_SPACE_AFTER_RESIZE];
+  }
+
   /**
    * Ensures {@code peekBuffer} is large enough to store at least {@code length} bytes from the
    * current peek position.
@@ -222,8 +277,75 @@ public final class DefaultExtractorInput implements ExtractorInput {
               peekBuffer.length * 2,
               requiredLength + PEEK_MIN_FREE_SPACE_AFTER_RESIZE,
               requiredLength + PEEK_MAX_FREE_SPACE);
-      peekBuffer = Arrays.copyOf(peekBuffer, newPeekCapacity);
+      resizePeekBuffer(newPeekCapacity);
+    }
+  }
+
+  /**
+   * Replaces {@code peekBuffer} with one of the specified capacity, moving the buffered data to the
+   * start of the new buffer.
+   */
+  private void resizePeekBuffer(int newPeekCapacity) {
+    byte[] newPeekBuffer = new byte[newPeekCapacity];
+    copyFromPeekBuffer(/* peekOffset= */ 0, newPeekBuffer, /* offset= */ 0, peekBufferLength);
+    peekBuffer = newPeekBuffer;
+    peekBufferStart = 0;
+  }
+
+  /**
+   * Returns the index in {@code peekBuffer} of the byte at the specified offset from the current
+   * read position.
+   */
+  private int getPeekBufferIndex(int peekOffset) {
+    int index = peekBufferStart + peekOffset;
+    return index < peekBuffer.length ? index : index - peekBuffer.length;
+  }
+
+  /**
+   * Copies data from the peek buffer, which may wrap around the end of {@code peekBuffer}.
+   *
+   * @param peekOffset The offset from the current read position of the first byte to copy.
+   * @param target A target array into which data should be written.
+   * @param offset The offset into the target array at which to write.
+   * @param length The number of bytes to copy. Must not exceed the number of buffered bytes after
+   *     {@code peekOffset}.
+   */
+  private void copyFromPeekBuffer(int peekOffset, byte[] target, int offset, int length) {
+    int index = getPeekBufferIndex(peekOffset);
+    int firstPartLength = min(length, peekBuffer.length - index);
+    System.arraycopy(peekBuffer, index, target, offset, firstPartLength);
+    System.arraycopy(
+        peekBuffer, /* srcPos= */ 0, target, offset + firstPartLength, length - firstPartLength);
+  }
+
+  /**
+   * Reads data from the data reader and appends it to the peek buffer. Fewer bytes than requested
+   * may be read if the free space in {@code peekBuffer} wraps around its end.
+   *
+   * @param length The maximum number of bytes to read. The peek buffer must have at least this much
+   *     free space.
+   * @param allowEndOfInput True if encountering the end of the input having read no data is
+   *     allowed, and should result in {@link C#RESULT_END_OF_INPUT} being returned. False if it
+   *     should be considered an error, causing an {@link EOFException} to be thrown.
+   * @return The number of bytes read, or {@link C#RESULT_END_OF_INPUT} if {@code allowEndOfInput}
+   *     is true and the input has ended.
+   * @throws IOException If an error occurs reading from the input.
+   */
+  private int readToPeekBuffer(int length, boolean allowEndOfInput) throws IOException {
+    int index = getPeekBufferIndex(peekBufferLength);
+    int contiguousFreeSpace =
+        index < peekBufferStart ? peekBufferStart - index : peekBuffer.length - index;
+    int bytesRead =
+        readFromUpstream(
+            peekBuffer,
+            index,
+            min(length, contiguousFreeSpace),
+            /* bytesAlreadyRead= */ 0,
+            allowEndOfInput);
+    if (bytesRead != C.RESULT_END_OF_INPUT) {
+      peekBufferLength += bytesRead;
     }
+    return bytesRead;
   }
 
   /**
@@ -251,25 +373,23 @@ public final class DefaultExtractorInput implements ExtractorInput {
       return 0;
     }
     int peekBytes = min(peekBufferLength, length);
-    System.arraycopy(peekBuffer, 0, target, offset, peekBytes);
+    copyFromPeekBuffer(/* peekOffset= */ 0, target, offset, peekBytes);
     updatePeekBuffer(peekBytes);
     return peekBytes;
   }
 
   /**
-   * Updates the peek buffer's length, position and contents after consuming data.
+   * Updates the peek buffer's start, length and position after consuming data.
    *
    * @param bytesConsumed The number of bytes consumed from the peek buffer.
    */
   private void updatePeekBuffer(int bytesConsumed) {
     peekBufferLength -= bytesConsumed;
     peekBufferPosition = 0;
-    byte[] newPeekBuffer = peekBuffer;
+    peekBufferStart = peekBufferLength == 0 ? 0 : getPeekBufferIndex(bytesConsumed);
     if (peekBufferLength < peekBuffer.length - PEEK_MAX_FREE_SPACE) {
-      newPeekBuffer = new byte[peekBufferLength + PEEK_MIN_FREE_SPACE_AFTER_RESIZE];
+      resizePeekBuffer(peekBufferLength + PEEK_MIN_FREE_SPACE_AFTER_RESIZE);
     }
-    System.arraycopy(peekBuffer, bytesConsumed, newPeekBuffer, 0, peekBufferLength);
-    peekBuffer = newPeekBuffer;
   }
 
   /**
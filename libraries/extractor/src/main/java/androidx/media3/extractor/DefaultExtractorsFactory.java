@@ -38,10 +38,13 @@ import androidx.media3.extractor.flac.FlacExtractor;
 import androidx.media3.extractor.flv.FlvExtractor;
 import androidx.media3.extractor.heif.HeifExtractor;
 import androidx.media3.extractor.jpeg.JpegExtractor;
+import androidx.media3.extractor.mkv.MatroskaCueCache;
 import androidx.media3.extractor.mkv.MatroskaExtractor;
 import androidx.media3.extractor.mp3.Mp3Extractor;
 import androidx.media3.extractor.mp4.FragmentedMp4Extractor;
+import androidx.media3.extractor.mp4.FragmentedMp4IndexCache;
 import androidx.media3.extractor.mp4.Mp4Extractor;
+import androidx.media3.extractor.mp4.Mp4SampleTableCache;
 import androidx.media3.extractor.ogg.OggExtractor;
 import androidx.media3.extractor.png.PngExtractor;
 import androidx.media3.extractor.text.DefaultSubtitleParserFactory;
@@ -99,6 +102,12 @@ import java.util.concurrent.atomic.AtomicBoolean;
  *   <li>MIDI, if available, the MIDI extension's {@code androidx.media3.decoder.midi.MidiExtractor}
  *       is used.
  * </ul>
+ *
+ * <p>The extractors that support a persistent cache, set with {@link #setMatroskaCueCache}, {@link
+ * #setMp4SampleTableCache} and {@link #setFragmentedMp4IndexCache}, key their entries by the string
+ * representation of the {@link Uri} passed to {@link #createExtractors(Uri, Map)}. This matches the
+ * default cache key of progressive media. Extractors created without a {@link Uri} don't use the
+ * caches.
  */
 @UnstableApi
 public final class DefaultExtractorsFactory implements ExtractorsFactory {
@@ -145,7 +154,10 @@ public final class DefaultExtractorsFactory implements ExtractorsFactory {
   private @AmrExtractor.Flags int amrFlags;
   private @FlacExtractor.Flags int flacFlags;
   private @MatroskaExtractor.Flags int matroskaFlags;
+  @Nullable private MatroskaCueCache matroskaCueCache;
   private @Mp4Extractor.Flags int mp4Flags;
+  @Nullable private Mp4SampleTableCache mp4SampleTableCache;
+  @Nullable private FragmentedMp4IndexCache fragmentedMp4IndexCache;
   private @FragmentedMp4Extractor.Flags int fragmentedMp4Flags;
   private @Mp3Extractor.Flags int mp3Flags;
   private @TsExtractor.Mode int tsMode;
@@ -153,6 +165,7 @@ public final class DefaultExtractorsFactory implements ExtractorsFactory {
   // TODO (b/261183220): Initialize tsSubtitleFormats in constructor once shrinking bug is fixed.
   @Nullable private ImmutableList<Format> tsSubtitleFormats;
   private int tsTimestampSearchBytes;
+  private boolean tsPipelinedPayloadReadingEnabled;
   private boolean textTrackTranscodingEnabled;
   private SubtitleParser.Factory subtitleParserFactory;
   private @C.VideoCodecFlags int codecsToParseWithinGopSampleDependencies;
@@ -265,6 +278,21 @@ public final class DefaultExtractorsFactory implements ExtractorsFactory {
     return this;
   }
 
+  /**
+   * Sets the {@link MatroskaCueCache} used by {@link MatroskaExtractor} instances created by the
+   * factory. The default value is {@code null}.
+   *
+   * @see MatroskaExtractor#MatroskaExtractor(SubtitleParser.Factory, int, MatroskaCueCache, String)
+   * @param cueCache The {@link MatroskaCueCache}, or {@code null} to disable caching.
+   * @return The factory, for convenience.
+   */
+  @CanIgnoreReturnValue
+  public synchronized DefaultExtractorsFactory setMatroskaCueCache(
+      @Nullable MatroskaCueCache cueCache) {
+    this.matroskaCueCache = cueCache;
+    return this;
+  }
+
   /**
    * Sets flags for {@link Mp4Extractor} instances created by the factory.
    *
@@ -278,6 +306,21 @@ public final class DefaultExtractorsFactory implements ExtractorsFactory {
     return this;
   }
 
+  /**
+   * Sets the {@link Mp4SampleTableCache} used by {@link Mp4Extractor} instances created by the
+   * factory. The default value is {@code null}.
+   *
+   * @see Mp4Extractor#Mp4Extractor(SubtitleParser.Factory, int, Mp4SampleTableCache, String)
+   * @param sampleTableCache The {@link Mp4SampleTableCache}, or {@code null} to disable caching.
+   * @return The factory, for convenience.
+   */
+  @CanIgnoreReturnValue
+  public synchronized DefaultExtractorsFactory setMp4SampleTableCache(
+      @Nullable Mp4SampleTableCache sampleTableCache) {
+    this.mp4SampleTableCache = sampleTableCache;
+    return this;
+  }
+
   /**
    * Sets flags for {@link FragmentedMp4Extractor} instances created by the factory.
    *
@@ -292,6 +335,22 @@ public final class DefaultExtractorsFactory implements ExtractorsFactory {
     return this;
   }
 
+  /**
+   * Sets the {@link FragmentedMp4IndexCache} used by {@link FragmentedMp4Extractor} instances
+   * created by the factory. The default value is {@code null}.
+   *
+   * @see FragmentedMp4Extractor#FragmentedMp4Extractor(SubtitleParser.Factory, int,
+   *     FragmentedMp4IndexCache, String)
+   * @param indexCache The {@link FragmentedMp4IndexCache}, or {@code null} to disable caching.
+   * @return The factory, for convenience.
+   */
+  @CanIgnoreReturnValue
+  public synchronized DefaultExtractorsFactory setFragmentedMp4IndexCache(
+      @Nullable FragmentedMp4IndexCache indexCache) {
+    this.fragmentedMp4IndexCache = indexCache;
+    return this;
+  }
+
   /**
    * Sets flags for {@link Mp3Extractor} instances created by the factory.
    *
@@ -362,6 +421,21 @@ public final class DefaultExtractorsFactory implements ExtractorsFactory {
     return this;
   }
 
+  /**
+   * Sets whether {@link TsExtractor} instances created by the factory consume the payloads of
+   * elementary streams on worker threads. The default value is {@code false}.
+   *
+   * @see TsExtractor#FLAG_ENABLE_PIPELINED_PAYLOAD_READING
+   * @param enabled Whether pipelined payload reading is enabled.
+   * @return The factory, for convenience.
+   */
+  @CanIgnoreReturnValue
+  public synchronized DefaultExtractorsFactory setTsExtractorPipelinedPayloadReadingEnabled(
+      boolean enabled) {
+    tsPipelinedPayloadReadingEnabled = enabled;
+    return this;
+  }
+
   /**
    * @deprecated This method (and all support for 'legacy' subtitle decoding during rendering) will
    *     be removed in a future release.
@@ -426,24 +500,25 @@ public final class DefaultExtractorsFactory implements ExtractorsFactory {
     @FileTypes.Type
     int responseHeadersInferredFileType = inferFileTypeFromResponseHeaders(responseHeaders);
     if (responseHeadersInferredFileType != FileTypes.UNKNOWN) {
-      addExtractorsForFileType(responseHeadersInferredFileType, extractors);
+      addExtractorsForFileType(responseHeadersInferredFileType, uri, extractors);
     }
 
     @FileTypes.Type int uriInferredFileType = inferFileTypeFromUri(uri);
     if (uriInferredFileType != FileTypes.UNKNOWN
         && uriInferredFileType != responseHeadersInferredFileType) {
-      addExtractorsForFileType(uriInferredFileType, extractors);
+      addExtractorsForFileType(uriInferredFileType, uri, extractors);
     }
 
     for (int fileType : DEFAULT_EXTRACTOR_ORDER) {
       if (fileType != responseHeadersInferredFileType && fileType != uriInferredFileType) {
-        addExtractorsForFileType(fileType, extractors);
+        addExtractorsForFileType(fileType, uri, extractors);
       }
     }
     return extractors.toArray(new Extractor[0]);
   }
 
-  private void addExtractorsForFileType(@FileTypes.Type int fileType, List<Extractor> extractors) {
+  private void addExtractorsForFileType(
+      @FileTypes.Type int fileType, Uri uri, List<Extractor> extractors) {
     switch (fileType) {
       case FileTypes.AC3:
         extractors.add(new Ac3Extractor());
@@ -491,7 +566,9 @@ public final class DefaultExtractorsFactory implements ExtractorsFactory {
                 matroskaFlags
                     | (textTrackTranscodingEnabled
                         ? 0
-                        : MatroskaExtractor.FLAG_EMIT_RAW_SUBTITLE_DATA)));
+                        : MatroskaExtractor.FLAG_EMIT_RAW_SUBTITLE_DATA),
+                matroskaCueCache,
+                /* cueCacheKey= */ Uri.EMPTY.equals(uri) ? null : uri.toString()));
         break;
       case FileTypes.MP3:
         extractors.add(
@@ -513,16 +590,18 @@ public final class DefaultExtractorsFactory implements ExtractorsFactory {
                         codecsToParseWithinGopSampleDependencies)
                     | (textTrackTranscodingEnabled
                         ? 0
-                        : FragmentedMp4Extractor.FLAG_EMIT_RAW_SUBTITLE_DATA)));
+                        : FragmentedMp4Extractor.FLAG_EMIT_RAW_SUBTITLE_DATA),
+                fragmentedMp4IndexCache,
+                /* indexCacheKey= */ Uri.EMPTY.equals(uri) ? null : uri.toString()));
         extractors.add(
             new Mp4Extractor(
                 subtitleParserFactory,
                 mp4Flags
                     | Mp4Extractor.codecsToParseWithinGopSampleDependenciesAsFlags(
                         codecsToParseWithinGopSampleDependencies)
-                    | (textTrackTranscodingEnabled
-                        ? 0
-                        : Mp4Extractor.FLAG_EMIT_RAW_SUBTITLE_DATA)));
+                    | (textTrackTranscodingEnabled ? 0 : Mp4Extractor.FLAG_EMIT_RAW_SUBTITLE_DATA),
+                mp4SampleTableCache,
+                /* sampleTableCacheKey= */ Uri.EMPTY.equals(uri) ? null : uri.toString()));
         break;
       case FileTypes.OGG:
         extractors.add(new OggExtractor());
@@ -534,10 +613,16 @@ public final class DefaultExtractorsFactory implements ExtractorsFactory {
         if (tsSubtitleFormats == null) {
           tsSubtitleFormats = ImmutableList.of();
         }
+        @TsExtractor.Flags
+        int tsExtractorFlags =
+            (textTrackTranscodingEnabled ? 0 : TsExtractor.FLAG_EMIT_RAW_SUBTITLE_DATA)
+                | (tsPipelinedPayloadReadingEnabled
+                    ? TsExtractor.FLAG_ENABLE_PIPELINED_PAYLOAD_READING
+                    : 0);
         extractors.add(
             new TsExtractor(
                 tsMode,
-                (textTrackTranscodingEnabled ? 0 : TsExtractor.FLAG_EMIT_RAW_SUBTITLE_DATA),
+                tsExtractorFlags,
                 subtitleParserFactory,
                 new TimestampAdjuster(0),
                 new DefaultTsPayloadReaderFactory(tsFlags, tsSubtitleFormats),
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.extractor;
+
+import static androidx.media3.common.util.Assertions.checkArgument;
+
+import androidx.annotation.Nullable;
+import androidx.media3.common.util.UnstableApi;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A directory that stores the entries of a persistent extractor cache, one file per entry.
+ *
+ * <p>The total size of the entries is bounded. Whenever an entry is written and the total size
+ * exceeds the maximum size, the least recently used entries are removed. An entry counts as used
+ * when it's written, and when {@link #touch(File)} is called for it.
+ */
+@UnstableApi
+public final class ExtractorCacheDirectory {
+
+  /** Writes the content of a cache entry. */
+  public interface EntryWriter {
+
+    /**
+     * Writes the content of the entry.
+     *
+     * @param output The {@link OutputStream} to write to.
+     * @throws IOException If an error occurs writing the entry.
+     */
+    void write(OutputStream output) throws IOException;
+  }
+
+  private final File directory;
+  private final String fileSuffix;
+  private final long maxSizeBytes;
+
+  /**
+   * Creates an instance.
+   *
+   * @param directory The directory in which to store cache entries. The directory is created if it
+   *     doesn't exist. It should be dedicated to the cache.
+   * @param fileSuffix The suffix of the names of the entry files.
+   * @param maxSizeBytes The maximum total size of the entries, in bytes.
+   */
+  public ExtractorCacheDirectory(File directory, String fileSuffix, long maxSizeBytes) {
+    checkArgument(maxSizeBytes > 0);
+    this.directory = directory;
+    this.fileSuffix = fileSuffix;
+    this.maxSizeBytes = maxSizeBytes;
+  }
+
+  /**
+   * Returns the file that stores the entry for a resource. The file may not exist.
+   *
+   * @param key The key of the resource.
+   */
+  public File getEntryFile(String key) {
+    return new File(directory, Integer.toHexString(key.hashCode()) + fileSuffix);
+  }
+
+  /**
+   * Marks an entry as recently used, so that it's removed after entries that were used less
+   * recently.
+   *
+   * @param entryFile The file that stores the entry.
+   */
+  public void touch(File entryFile) {
+    entryFile.setLastModified(System.currentTimeMillis());
+  }
+
+  /**
+   * Removes the entry for a resource, if there is one.
+   *
+   * @param key The key of the resource.
+   */
+  public void remove(String key) {
+    getEntryFile(key).delete();
+  }
+
+  /** Removes all entries. */
+  public void clear() {
+    for (File file : listEntryFiles()) {
+      file.delete();
+    }
+  }
+
+  /**
+   * Writes the entry for a resource, replacing any existing entry, and then removes the least
+   * recently used entries if the total size exceeds the maximum size.
+   *
+   * @param key The key of the resource.
+   * @param entryWriter The {@link EntryWriter} that writes the content of the entry.
+   * @throws IOException If an error occurs writing the entry.
+   */
+  public void put(String key, EntryWriter entryWriter) throws IOException {
+    if (!directory.exists() && !directory.mkdirs()) {
+      throw new IOException("Failed to create directory: " + directory);
+    }
+    // Write to a temporary file and rename it, so that concurrent readers never see a partially
+    // written entry.
+    @Nullable File tempFile = File.createTempFile("entry", ".tmp", directory);
+    try {
+      try (OutputStream output = new BufferedOutputStream(new FileOutputStream(tempFile))) {
+        entryWriter.write(output);
+      }
+      if (!tempFile.renameTo(getEntryFile(key))) {
+        throw new IOException("Failed to rename " + tempFile);
+      }
+      tempFile = null;
+    } finally {
+      if (tempFile != null) {
+        tempFile.delete();
+      }
+    }
+    evictLeastRecentlyUsedEntries();
+  }
+
+  private synchronized void evictLeastRecentlyUsedEntries() {
+    List<File> files = listEntryFiles();
+    long totalSizeBytes = 0;
+    for (int i = 0; i < files.size(); i++) {
+      totalSizeBytes += files.get(i).length();
+    }
+    if (totalSizeBytes <= maxSizeBytes) {
+      return;
+    }
+    Collections.sort(
+        files, (file1, file2) -> Long.compare(file1.lastModified(), file2.lastModified()));
+    for (int i = 0; i < files.size() && totalSizeBytes > maxSizeBytes; i++) {
+      File file = files.get(i);
+      long sizeBytes = file.length();
+      if (file.delete()) {
+        totalSizeBytes -= sizeBytes;
+      }
+    }
+  }
+
+  private List<File> listEntryFiles() {
+    List<File> entryFiles = new ArrayList<>();
+    @Nullable File[] files = directory.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        if (file.getName().endsWith(fileSuffix)) {
+          entryFiles.add(file);
+        }
+      }
+    }
+    return entryFiles;
+  }
+}
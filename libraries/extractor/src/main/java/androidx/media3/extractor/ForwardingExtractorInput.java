@@ -15,8 +15,10 @@
  */
 package androidx.media3.extractor;
 
+import androidx.annotation.Nullable;
 import androidx.media3.common.util.UnstableApi;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /** An overridable {@link ExtractorInput} implementation forwarding all methods to another input. */
 @UnstableApi
@@ -33,6 +35,12 @@ public class ForwardingExtractorInput implements ExtractorInput {
     return input.read(buffer, offset, length);
   }
 
+  @Override
+  @Nullable
+  public ByteBuffer readByteBuffer(int length) throws IOException {
+    return input.readByteBuffer(length);
+  }
+
   @Override
   public boolean readFully(byte[] target, int offset, int length, boolean allowEndOfInput)
       throws IOException {
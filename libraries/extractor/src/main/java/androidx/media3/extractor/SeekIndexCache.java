@@ -0,0 +1,183 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.extractor;
+
+import androidx.annotation.Nullable;
+import androidx.media3.common.util.Log;
+import androidx.media3.common.util.LongArray;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.common.util.Util;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * A persistent cache of seek indices, each of which maps times to byte positions in a resource.
+ *
+ * <p>Entries are keyed by a string that identifies the resource, such as its cache key. Each entry
+ * also records a list of values that identify the version of the resource it was built from, such
+ * as its length, and is only returned if the same values are passed to {@link #get}.
+ *
+ * <p>Entries are stored in an {@link ExtractorCacheDirectory}, and take 16 bytes per indexed
+ * position.
+ */
+@UnstableApi
+public final class SeekIndexCache {
+
+  /** A seek index read from the cache. */
+  public static final class Entry {
+
+    /** The indexed times, in microseconds. */
+    public final long[] timesUs;
+
+    /** The byte positions corresponding to {@link #timesUs}. */
+    public final long[] positions;
+
+    private Entry(long[] timesUs, long[] positions) {
+      this.timesUs = timesUs;
+      this.positions = positions;
+    }
+  }
+
+  private static final String TAG = "SeekIndexCache";
+
+  private static final int MAGIC = 0x73696478; // "sidx"
+  private static final int VERSION = 1;
+
+  private final ExtractorCacheDirectory cacheDirectory;
+
+  /**
+   * Creates an instance.
+   *
+   * @param directory The directory in which to store cache entries. The directory is created if it
+   *     doesn't exist. It should be dedicated to the cache.
+   * @param fileSuffix The suffix of the names of the entry files.
+   * @param maxSizeBytes The maximum total size of the entries, in bytes.
+   */
+  public SeekIndexCache(File directory, String fileSuffix, long maxSizeBytes) {
+    cacheDirectory = new ExtractorCacheDirectory(directory, fileSuffix, maxSizeBytes);
+  }
+
+  /**
+   * Removes the entry for a resource, if there is one.
+   *
+   * @param key The key of the resource.
+   */
+  public void remove(String key) {
+    cacheDirectory.remove(key);
+  }
+
+  /** Removes all entries. */
+  public void clear() {
+    cacheDirectory.clear();
+  }
+
+  /**
+   * Returns the entry for a resource, or {@code null} if there's no entry or if the entry was
+   * written for a different version of the resource. Unreadable entries are removed.
+   *
+   * @param key The key of the resource.
+   * @param resourceVersion The values that identify the version of the resource.
+   */
+  @Nullable
+  public Entry get(String key, long[] resourceVersion) {
+    File file = cacheDirectory.getEntryFile(key);
+    if (!file.exists()) {
+      return null;
+    }
+    try (DataInputStream input =
+        new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+        return null;
+      }
+      byte[] keyBytes = new byte[readLength(input, file, /* elementSize= */ 1)];
+      input.readFully(keyBytes);
+      if (!key.equals(Util.fromUtf8Bytes(keyBytes))
+          || readLength(input, file, /* elementSize= */ 8) != resourceVersion.length) {
+        return null;
+      }
+      for (long value : resourceVersion) {
+        if (input.readLong() != value) {
+          return null;
+        }
+      }
+      int count = readLength(input, file, /* elementSize= */ 16);
+      long[] timesUs = new long[count];
+      long[] positions = new long[count];
+      for (int i = 0; i < count; i++) {
+        timesUs[i] = input.readLong();
+        positions[i] = input.readLong();
+      }
+      cacheDirectory.touch(file);
+      return new Entry(timesUs, positions);
+    } catch (IOException e) {
+      Log.w(TAG, "Discarding unreadable cache entry", e);
+      file.delete();
+      return null;
+    }
+  }
+
+  /**
+   * Writes the entry for a resource, replacing any existing entry. Failures are logged and
+   * otherwise ignored.
+   *
+   * @param key The key of the resource.
+   * @param resourceVersion The values that identify the version of the resource.
+   * @param timesUs The indexed times, in microseconds.
+   * @param positions The byte positions corresponding to {@code timesUs}.
+   */
+  public void put(String key, long[] resourceVersion, LongArray timesUs, LongArray positions) {
+    try {
+      cacheDirectory.put(
+          key,
+          outputStream -> {
+            DataOutputStream output = new DataOutputStream(outputStream);
+            byte[] keyBytes = Util.getUtf8Bytes(key);
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(keyBytes.length);
+            output.write(keyBytes);
+            output.writeInt(resourceVersion.length);
+            for (long value : resourceVersion) {
+              output.writeLong(value);
+            }
+            output.writeInt(timesUs.size());
+            for (int i = 0; i < timesUs.size(); i++) {
+              output.writeLong(timesUs.get(i));
+              output.writeLong(positions.get(i));
+            }
+          });
+    } catch (IOException e) {
+      Log.w(TAG, "Failed to write cache entry", e);
+    }
+  }
+
+  /**
+   * Reads the length of an array from {@code input}, checking that the array's elements can fit in
+   * {@code file}.
+   */
+  private static int readLength(DataInputStream input, File file, int elementSize)
+      throws IOException {
+    int length = input.readInt();
+    if (length < 0 || length > file.length() / elementSize) {
+      throw new IOException("Invalid length: " + length);
+    }
+    return length;
+  }
+}
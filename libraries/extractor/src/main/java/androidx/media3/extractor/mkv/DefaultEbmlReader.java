@@ -47,6 +47,7 @@ import org.checkerframework.checker.nullness.qual.RequiresNonNull;
 
   private static final int MAX_ID_BYTES = 4;
   private static final int MAX_LENGTH_BYTES = 8;
+  private static final int MAX_HEADER_BYTES = MAX_ID_BYTES + MAX_LENGTH_BYTES;
 
   private static final int MAX_INTEGER_ELEMENT_SIZE_BYTES = 8;
   private static final int VALID_FLOAT32_ELEMENT_SIZE_BYTES = 4;
@@ -62,7 +63,7 @@ import org.checkerframework.checker.nullness.qual.RequiresNonNull;
   private long elementContentSize;
 
   public DefaultEbmlReader() {
-    scratch = new byte[8];
+    scratch = new byte[MAX_HEADER_BYTES];
     masterElementsStack = new ArrayDeque<>();
     varintReader = new VarintReader();
   }
@@ -89,6 +90,10 @@ import org.checkerframework.checker.nullness.qual.RequiresNonNull;
         return true;
       }
 
+      if (elementState == ELEMENT_STATE_READ_ID && !varintReader.isReadingVarint()) {
+        maybeReadElementHeader(input);
+      }
+
       if (elementState == ELEMENT_STATE_READ_ID) {
         long result = varintReader.readUnsignedVarint(input, true, false, MAX_ID_BYTES);
         if (result == C.RESULT_MAX_LENGTH_EXCEEDED) {
@@ -156,6 +161,39 @@ import org.checkerframework.checker.nullness.qual.RequiresNonNull;
     }
   }
 
+  /**
+   * Reads the ID and content size of the next element with a single peek, if the whole header is
+   * known to be available and is valid. Must only be called between elements. Otherwise {@link
+   * #elementState} is left unchanged, so that the header is read one varint at a time instead.
+   *
+   * @param input The {@link ExtractorInput} from which to read.
+   * @throws IOException If an error occurs reading from the input.
+   */
+  private void maybeReadElementHeader(ExtractorInput input) throws IOException {
+    long inputLength = input.getLength();
+    if (inputLength == C.LENGTH_UNSET || inputLength - input.getPosition() < MAX_HEADER_BYTES) {
+      return;
+    }
+    input.resetPeekPosition();
+    input.peekFully(scratch, 0, MAX_HEADER_BYTES);
+    input.resetPeekPosition();
+    int idLength = VarintReader.parseUnsignedVarintLength(scratch[0]);
+    if (idLength == C.LENGTH_UNSET || idLength > MAX_ID_BYTES) {
+      return;
+    }
+    int contentSizeLength = VarintReader.parseUnsignedVarintLength(scratch[idLength]);
+    if (contentSizeLength == C.LENGTH_UNSET) {
+      return;
+    }
+    input.skipFully(idLength + contentSizeLength);
+    // Element IDs are at most 4 bytes, so we can cast to integers.
+    elementId = (int) VarintReader.assembleVarint(scratch, idLength, /* removeLengthMask= */ false);
+    elementContentSize =
+        VarintReader.assembleVarint(
+            scratch, idLength, contentSizeLength, /* removeLengthMask= */ true);
+    elementState = ELEMENT_STATE_READ_CONTENT;
+  }
+
   /**
    * Does a byte by byte search to try and find the next level 1 element. This method is called if
    * some invalid data is encountered in the parser.
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.extractor.mkv;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+import androidx.media3.common.C;
+import androidx.media3.common.util.Util;
+import androidx.media3.extractor.BinarySearchSeeker;
+import androidx.media3.extractor.ExtractorInput;
+import java.io.IOException;
+
+/**
+ * A seeker that supports seeking within Matroska streams without a {@code Cues} element using
+ * binary search.
+ *
+ * <p>This seeker uses the stream duration to interpolate the position of the target time. It then
+ * scans the stream from that position for cluster headers, and uses the timestamps of the clusters
+ * it finds to narrow the search down to the last cluster that starts at or before the target time.
+ */
+/* package */ final class MatroskaBinarySearchSeeker extends BinarySearchSeeker {
+
+  private static final int MINIMUM_SEARCH_RANGE_BYTES = 64 * 1024;
+
+  private final ClusterTimestampSeeker clusterTimestampSeeker;
+
+  /**
+   * Creates an instance.
+   *
+   * @param timecodeScale The scale of the cluster timecodes, in nanoseconds.
+   * @param durationUs The duration of the segment, in microseconds.
+   * @param firstClusterPosition A position from which the first cluster can be read.
+   * @param inputLength The length of the input, in bytes.
+   */
+  public MatroskaBinarySearchSeeker(
+      long timecodeScale, long durationUs, long firstClusterPosition, long inputLength) {
+    this(
+        new ClusterTimestampSeeker(timecodeScale, inputLength),
+        durationUs,
+        firstClusterPosition,
+        inputLength);
+  }
+
+  private MatroskaBinarySearchSeeker(
+      ClusterTimestampSeeker clusterTimestampSeeker,
+      long durationUs,
+      long firstClusterPosition,
+      long inputLength) {
+    super(
+        new DefaultSeekTimestampConverter(),
+        clusterTimestampSeeker,
+        durationUs,
+        /* floorTimePosition= */ 0,
+        /* ceilingTimePosition= */ durationUs + 1,
+        /* floorBytePosition= */ firstClusterPosition,
+        /* ceilingBytePosition= */ inputLength,
+        /* approxBytesPerFrame= */ 0,
+        MINIMUM_SEARCH_RANGE_BYTES);
+    this.clusterTimestampSeeker = clusterTimestampSeeker;
+  }
+
+  @Override
+  protected SeekOperationParams createSeekParamsForTargetTimeUs(long timeUs) {
+    clusterTimestampSeeker.floorTimeUs = 0;
+    return super.createSeekParamsForTargetTimeUs(timeUs);
+  }
+
+  /**
+   * A seeker that looks for the cluster containing a given timestamp from a given position in a
+   * Matroska stream.
+   *
+   * <p>Clusters are recognized by their element ID, followed by a size and a {@code Timecode}
+   * element, optionally preceded by a {@code CRC-32} element. The input is scanned in chunks of
+   * {@link #SCAN_BYTES} bytes, which are skipped once scanned so that large clusters can be scanned
+   * without buffering them.
+   */
+  private static final class ClusterTimestampSeeker implements TimestampSeeker {
+
+    private static final int SCAN_BYTES = 64 * 1024;
+
+    private static final int ID_CLUSTER = 0x1F43B675;
+    private static final int ID_CRC32 = 0xBF;
+    private static final int ID_TIME_CODE = 0xE7;
+    private static final int CRC32_ELEMENT_SIZE = 6;
+
+    /**
+     * The maximum size of a cluster header: the cluster ID and size, a {@code CRC-32} element, and
+     * the {@code Timecode} element.
+     */
+    private static final int MAX_CLUSTER_HEADER_BYTES = 4 + 8 + CRC32_ELEMENT_SIZE + 1 + 8 + 8;
+
+    private final long timecodeScale;
+    private final long inputLength;
+    private final byte[] scanBuffer;
+
+    /** The timestamp of the floor of the current seek operation. */
+    private long floorTimeUs;
+
+    /** The position from which the stream is known not to contain any clusters. */
+    private long clusterFreePosition;
+
+    private ClusterTimestampSeeker(long timecodeScale, long inputLength) {
+      this.timecodeScale = timecodeScale;
+      this.inputLength = inputLength;
+      scanBuffer = new byte[SCAN_BYTES];
+      clusterFreePosition = inputLength;
+    }
+
+    @Override
+    public TimestampSearchResult searchForTimestamp(ExtractorInput input, long targetTimeUs)
+        throws IOException {
+      long searchPosition = input.getPosition();
+      long previousClusterPosition = C.INDEX_UNSET;
+      while (input.getPosition() < clusterFreePosition) {
+        long scanPosition = input.getPosition();
+        int bytesToPeek = (int) min(SCAN_BYTES, inputLength - scanPosition);
+        input.peekFully(scanBuffer, /* offset= */ 0, bytesToPeek);
+        // Only scan for headers that are fully contained in the peeked data, unless the peeked data
+        // extends to the end of the input.
+        int bytesToScan =
+            (int)
+                min(
+                    clusterFreePosition - scanPosition,
+                    scanPosition + bytesToPeek == inputLength
+                        ? bytesToPeek
+                        : bytesToPeek - MAX_CLUSTER_HEADER_BYTES);
+        for (int offset = 0; offset < bytesToScan; offset++) {
+          long clusterTimecode = parseClusterTimecode(scanBuffer, offset, bytesToPeek);
+          if (clusterTimecode == C.TIME_UNSET) {
+            continue;
+          }
+          long clusterPosition = scanPosition + offset;
+          long clusterTimeUs = Util.scaleLargeTimestamp(clusterTimecode, timecodeScale, 1000);
+          if (clusterTimeUs > targetTimeUs) {
+            return previousClusterPosition == C.INDEX_UNSET
+                ? TimestampSearchResult.overestimatedResult(clusterTimeUs, searchPosition)
+                : TimestampSearchResult.targetFoundResult(previousClusterPosition);
+          } else if (clusterPosition != searchPosition) {
+            floorTimeUs = clusterTimeUs;
+            return TimestampSearchResult.underestimatedResult(clusterTimeUs, clusterPosition);
+          }
+          // The search started at a cluster before the target. Look for the next cluster to tell
+          // whether it contains the target.
+          previousClusterPosition = clusterPosition;
+        }
+        input.resetPeekPosition();
+        input.skipFully(bytesToScan);
+      }
+      // There are no clusters after the search position, other than the one it points to.
+      clusterFreePosition = searchPosition + 1;
+      if (previousClusterPosition != C.INDEX_UNSET) {
+        return TimestampSearchResult.targetFoundResult(previousClusterPosition);
+      }
+      // The target is in a cluster before the search position. Report a timestamp for the search
+      // position that makes the next search start halfway between the floor and the search
+      // position, rather than just before the search position.
+      return TimestampSearchResult.overestimatedResult(
+          max(targetTimeUs + 1, 2 * targetTimeUs - floorTimeUs), searchPosition);
+    }
+
+    /**
+     * Returns the timecode of the cluster whose header starts at {@code offset}, or {@link
+     * C#TIME_UNSET} if there's no cluster header at {@code offset}.
+     */
+    private static long parseClusterTimecode(byte[] data, int offset, int limit) {
+      if (limit - offset < 4
+          || ((data[offset] & 0xFF) << 24
+                  | (data[offset + 1] & 0xFF) << 16
+                  | (data[offset + 2] & 0xFF) << 8
+                  | (data[offset + 3] & 0xFF))
+              != ID_CLUSTER) {
+        return C.TIME_UNSET;
+      }
+      int position = offset + 4;
+      int clusterSizeLength = VarintReader.parseUnsignedVarintLength(data[position]);
+      if (clusterSizeLength == C.LENGTH_UNSET) {
+        return C.TIME_UNSET;
+      }
+      position += clusterSizeLength;
+      if (position + 2 <= limit
+          && (data[position] & 0xFF) == ID_CRC32
+          && (data[position + 1] & 0xFF) == 0x84) { // A content size of 4 bytes.
+        position += CRC32_ELEMENT_SIZE;
+      }
+      if (position + 2 > limit || (data[position] & 0xFF) != ID_TIME_CODE) {
+        return C.TIME_UNSET;
+      }
+      position++;
+      int timecodeSizeLength = VarintReader.parseUnsignedVarintLength(data[position]);
+      if (timecodeSizeLength == C.LENGTH_UNSET || position + timecodeSizeLength > limit) {
+        return C.TIME_UNSET;
+      }
+      long timecodeSize =
+          VarintReader.assembleVarint(
+              data, position, timecodeSizeLength, /* removeLengthMask= */ true);
+      position += timecodeSizeLength;
+      if (timecodeSize < 1 || timecodeSize > 8 || position + timecodeSize > limit) {
+        return C.TIME_UNSET;
+      }
+      long timecode = 0;
+      for (int i = 0; i < timecodeSize; i++) {
+        timecode = (timecode << 8) | (data[position + i] & 0xFF);
+      }
+      return timecode;
+    }
+  }
+}
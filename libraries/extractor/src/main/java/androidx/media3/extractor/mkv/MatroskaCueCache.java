@@ -0,0 +1,133 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.extractor.mkv;
+
+import androidx.annotation.Nullable;
+import androidx.media3.common.util.LongArray;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.extractor.SeekIndexCache;
+import java.io.File;
+
+/**
+ * A persistent cache of the cue points that {@link MatroskaExtractor} parses from the {@code Cues}
+ * element of Matroska and WebM streams.
+ *
+ * <p>The {@code Cues} element is often written after the last cluster, in which case the extractor
+ * has to seek to the end of the stream and back before it can output a seekable {@link
+ * androidx.media3.extractor.SeekMap}. For remote streams this costs an extra request before
+ * playback can start. When an extractor finds a matching entry in this cache it outputs the seek
+ * map straight away instead.
+ *
+ * <p>Entries are only used if the content length, the positions of the {@code Segment} and {@code
+ * Cues} elements and the duration match the values that were recorded when the entry was written.
+ * See {@link SeekIndexCache} for how entries are stored.
+ */
+@UnstableApi
+public final class MatroskaCueCache {
+
+  private static final String FILE_SUFFIX = ".cues";
+
+  /** The default maximum total size of the entries, in bytes. */
+  public static final long DEFAULT_MAX_SIZE_BYTES = 4 * 1024 * 1024;
+
+  private final SeekIndexCache seekIndexCache;
+
+  /**
+   * Creates an instance with a maximum size of {@link #DEFAULT_MAX_SIZE_BYTES}.
+   *
+   * @param directory The directory in which to store cache entries. The directory is created if it
+   *     doesn't exist. It should be dedicated to this cache.
+   */
+  public MatroskaCueCache(File directory) {
+    this(directory, DEFAULT_MAX_SIZE_BYTES);
+  }
+
+  /**
+   * Creates an instance.
+   *
+   * @param directory The directory in which to store cache entries. The directory is created if it
+   *     doesn't exist. It should be dedicated to this cache.
+   * @param maxSizeBytes The maximum total size of the entries, in bytes.
+   */
+  public MatroskaCueCache(File directory, long maxSizeBytes) {
+    seekIndexCache = new SeekIndexCache(directory, FILE_SUFFIX, maxSizeBytes);
+  }
+
+  /**
+   * Removes the entry for a resource, if there is one.
+   *
+   * @param key The key of the resource.
+   */
+  public void remove(String key) {
+    seekIndexCache.remove(key);
+  }
+
+  /** Removes all entries. */
+  public void clear() {
+    seekIndexCache.clear();
+  }
+
+  /**
+   * Returns the cue points for a resource, or {@code null} if there's no matching entry. The
+   * {@linkplain SeekIndexCache.Entry#positions positions} are the positions of the clusters,
+   * relative to the content of the {@code Segment} element.
+   *
+   * @param key The key of the resource.
+   * @param contentLength The length of the resource, in bytes.
+   * @param segmentContentPosition The position of the content of the {@code Segment} element.
+   * @param cuesContentPosition The position of the {@code Cues} element relative to the content of
+   *     the {@code Segment} element, as given by the seek head.
+   * @param durationUs The duration of the segment, in microseconds.
+   */
+  @Nullable
+  /* package */ SeekIndexCache.Entry get(
+      String key,
+      long contentLength,
+      long segmentContentPosition,
+      long cuesContentPosition,
+      long durationUs) {
+    return seekIndexCache.get(
+        key, new long[] {contentLength, segmentContentPosition, cuesContentPosition, durationUs});
+  }
+
+  /**
+   * Writes the cue points for a resource.
+   *
+   * @param key The key of the resource.
+   * @param contentLength The length of the resource, in bytes.
+   * @param segmentContentPosition The position of the content of the {@code Segment} element.
+   * @param cuesContentPosition The position of the {@code Cues} element relative to the content of
+   *     the {@code Segment} element, as given by the seek head.
+   * @param durationUs The duration of the segment, in microseconds.
+   * @param cueTimesUs The times of the cue points, in microseconds.
+   * @param cueClusterPositions The positions of the clusters of the cue points, relative to the
+   *     content of the {@code Segment} element.
+   */
+  /* package */ void put(
+      String key,
+      long contentLength,
+      long segmentContentPosition,
+      long cuesContentPosition,
+      long durationUs,
+      LongArray cueTimesUs,
+      LongArray cueClusterPositions) {
+    seekIndexCache.put(
+        key,
+        new long[] {contentLength, segmentContentPosition, cuesContentPosition, durationUs},
+        cueTimesUs,
+        cueClusterPositions);
+  }
+}
@@ -53,6 +53,7 @@ import androidx.media3.extractor.ExtractorsFactory;
 import androidx.media3.extractor.HevcConfig;
 import androidx.media3.extractor.MpegAudioUtil;
 import androidx.media3.extractor.PositionHolder;
+import androidx.media3.extractor.SeekIndexCache;
 import androidx.media3.extractor.SeekMap;
 import androidx.media3.extractor.TrackOutput;
 import androidx.media3.extractor.TrueHdSampleRechunker;
@@ -93,14 +94,19 @@ public class MatroskaExtractor implements Extractor {
 
   /**
    * Flags controlling the behavior of the extractor. Possible flag values are {@link
-   * #FLAG_DISABLE_SEEK_FOR_CUES} and {#FLAG_EMIT_RAW_SUBTITLE_DATA}.
+   * #FLAG_DISABLE_SEEK_FOR_CUES}, {#FLAG_EMIT_RAW_SUBTITLE_DATA} and {@link
+   * #FLAG_ENABLE_BINARY_SEARCH_SEEKING}.
    */
   @Documented
   @Retention(RetentionPolicy.SOURCE)
   @Target(TYPE_USE)
   @IntDef(
       flag = true,
-      value = {FLAG_DISABLE_SEEK_FOR_CUES, FLAG_EMIT_RAW_SUBTITLE_DATA})
+      value = {
+        FLAG_DISABLE_SEEK_FOR_CUES,
+        FLAG_EMIT_RAW_SUBTITLE_DATA,
+        FLAG_ENABLE_BINARY_SEARCH_SEEKING
+      })
   public @interface Flags {}
 
   /**
@@ -119,6 +125,19 @@ public class MatroskaExtractor implements Extractor {
    */
   public static final int FLAG_EMIT_RAW_SUBTITLE_DATA = 1 << 1; // 2
 
+  /**
+   * Flag to enable seeking using binary search over the cluster timestamps if the cues element
+   * isn't used.
+   *
+   * <p>Normally (i.e. when this flag is not set) the media is treated as being unseekable if the
+   * cues element is missing, or if it's after the first cluster and {@link
+   * #FLAG_DISABLE_SEEK_FOR_CUES} is set. Setting this flag makes such media seekable if its
+   * duration and length are known. Seeking then scans the stream for the last cluster that starts
+   * at or before the seek position, which may require several requests and lands on a cluster
+   * rather than a key frame.
+   */
+  public static final int FLAG_ENABLE_BINARY_SEARCH_SEEKING = 1 << 2; // 4
+
   /**
    * @deprecated Use {@link #newFactory(SubtitleParser.Factory)} instead.
    */
@@ -297,6 +316,9 @@ public class MatroskaExtractor implements Extractor {
   private static final int LACING_FIXED_SIZE = 2;
   private static final int LACING_EBML = 3;
 
+  /** The minimum number of bytes peeked at a time when parsing a block's lacing header. */
+  private static final int MIN_LACING_PEEK_LENGTH = 64;
+
   private static final int FOURCC_COMPRESSION_DIVX = 0x58564944;
   private static final int FOURCC_COMPRESSION_H263 = 0x33363248;
   private static final int FOURCC_COMPRESSION_VC1 = 0x31435657;
@@ -422,8 +444,11 @@ public class MatroskaExtractor implements Extractor {
   private final VarintReader varintReader;
   private final SparseArray<Track> tracks;
   private final boolean seekForCuesEnabled;
+  private final boolean binarySearchSeekingEnabled;
   private final boolean parseSubtitlesDuringExtraction;
   private final SubtitleParser.Factory subtitleParserFactory;
+  @Nullable private final MatroskaCueCache cueCache;
+  @Nullable private final String cueCacheKey;
 
   // Temporary arrays.
   private final ParsableByteArray nalStartCode;
@@ -438,6 +463,7 @@ public class MatroskaExtractor implements Extractor {
   private final ParsableByteArray supplementalData;
   private @MonotonicNonNull ByteBuffer encryptionSubsampleDataBuffer;
 
+  private long inputLength = C.LENGTH_UNSET;
   private long segmentContentSize;
   private long segmentContentPosition = C.INDEX_UNSET;
   private long timecodeScale = C.TIME_UNSET;
@@ -451,6 +477,9 @@ public class MatroskaExtractor implements Extractor {
   // Whether a seek map has been sent to the output.
   private boolean sentSeekMap;
 
+  // The seeker used if the seek map was built without cues, or null.
+  @Nullable private MatroskaBinarySearchSeeker binarySearchSeeker;
+
   // Master seek entry related elements.
   private int seekEntryId;
   private long seekEntryPosition;
@@ -469,6 +498,7 @@ public class MatroskaExtractor implements Extractor {
 
   // Block reading state.
   private int blockState;
+  private int scratchPeekLimit;
   private long blockTimeUs;
   private long blockDurationUs;
   private int blockSampleIndex;
@@ -535,12 +565,48 @@ public class MatroskaExtractor implements Extractor {
     this(new DefaultEbmlReader(), flags, subtitleParserFactory);
   }
 
+  /**
+   * Constructs an instance that reuses the cue points stored in a {@link MatroskaCueCache}.
+   *
+   * <p>If the cache holds an entry for {@code cueCacheKey} that matches the stream, the seek map is
+   * built from the entry and the extractor doesn't seek to the cues element. Otherwise the cue
+   * points are written to the cache once the cues element has been parsed. Caching is only used if
+   * the length of the stream is known and the position of the cues element is specified in the seek
+   * head.
+   *
+   * @param subtitleParserFactory The {@link SubtitleParser.Factory} for parsing subtitles during
+   *     extraction.
+   * @param flags Flags that control the extractor's behavior.
+   * @param cueCache The {@link MatroskaCueCache}, or {@code null} to disable caching.
+   * @param cueCacheKey A key that identifies the stream, such as its cache key, or {@code null} to
+   *     disable caching.
+   */
+  public MatroskaExtractor(
+      SubtitleParser.Factory subtitleParserFactory,
+      @Flags int flags,
+      @Nullable MatroskaCueCache cueCache,
+      @Nullable String cueCacheKey) {
+    this(new DefaultEbmlReader(), flags, subtitleParserFactory, cueCache, cueCacheKey);
+  }
+
   /* package */ MatroskaExtractor(
       EbmlReader reader, @Flags int flags, SubtitleParser.Factory subtitleParserFactory) {
+    this(reader, flags, subtitleParserFactory, /* cueCache= */ null, /* cueCacheKey= */ null);
+  }
+
+  /* package */ MatroskaExtractor(
+      EbmlReader reader,
+      @Flags int flags,
+      SubtitleParser.Factory subtitleParserFactory,
+      @Nullable MatroskaCueCache cueCache,
+      @Nullable String cueCacheKey) {
     this.reader = reader;
     this.reader.init(new InnerEbmlProcessor());
     this.subtitleParserFactory = subtitleParserFactory;
+    this.cueCache = cueCache;
+    this.cueCacheKey = cueCacheKey;
     seekForCuesEnabled = (flags & FLAG_DISABLE_SEEK_FOR_CUES) == 0;
+    binarySearchSeekingEnabled = (flags & FLAG_ENABLE_BINARY_SEARCH_SEEKING) != 0;
     parseSubtitlesDuringExtraction = (flags & FLAG_EMIT_RAW_SUBTITLE_DATA) == 0;
     varintReader = new VarintReader();
     tracks = new SparseArray<>();
@@ -581,6 +647,9 @@ public class MatroskaExtractor implements Extractor {
     for (int i = 0; i < tracks.size(); i++) {
       tracks.valueAt(i).reset();
     }
+    if (binarySearchSeeker != null) {
+      binarySearchSeeker.setSeekTargetUs(timeUs);
+    }
   }
 
   @Override
@@ -590,6 +659,10 @@ public class MatroskaExtractor implements Extractor {
 
   @Override
   public final int read(ExtractorInput input, PositionHolder seekPosition) throws IOException {
+    if (binarySearchSeeker != null && binarySearchSeeker.isSeeking()) {
+      return binarySearchSeeker.handlePendingSeek(input, seekPosition);
+    }
+    inputLength = input.getLength();
     haveOutputSample = false;
     boolean continueReading = true;
     while (continueReading && !haveOutputSample) {
@@ -763,8 +836,25 @@ public class MatroskaExtractor implements Extractor {
         if (!sentSeekMap) {
           // We need to build cues before parsing the cluster.
           if (seekForCuesEnabled && cuesContentPosition != C.INDEX_UNSET) {
-            // We know where the Cues element is located. Seek to request it.
-            seekForCues = true;
+            @Nullable SeekIndexCache.Entry cueCacheEntry = getCueCacheEntry();
+            if (cueCacheEntry != null) {
+              // The cues have been parsed before. Build the seek map without requesting them.
+              extractorOutput.seekMap(
+                  buildSeekMap(cueCacheEntry.timesUs, cueCacheEntry.positions));
+              sentSeekMap = true;
+            } else {
+              // We know where the Cues element is located. Seek to request it.
+              seekForCues = true;
+            }
+          } else if (binarySearchSeekingEnabled
+              && durationUs != C.TIME_UNSET
+              && inputLength != C.LENGTH_UNSET) {
+            // Allow seeking by searching for clusters by their timestamps.
+            binarySearchSeeker =
+                new MatroskaBinarySearchSeeker(
+                    timecodeScale, durationUs, contentPosition, inputLength);
+            extractorOutput.seekMap(binarySearchSeeker.getSeekMap());
+            sentSeekMap = true;
           } else {
             // We don't know where the Cues element is located. It's most likely omitted. Allow
             // playback, but disable seeking.
@@ -824,7 +914,11 @@ public class MatroskaExtractor implements Extractor {
         break;
       case ID_CUES:
         if (!sentSeekMap) {
-          extractorOutput.seekMap(buildSeekMap(cueTimesUs, cueClusterPositions));
+          SeekMap seekMap = buildSeekMap(cueTimesUs, cueClusterPositions);
+          if (seekMap.isSeekable()) {
+            maybePutCueCacheEntry(checkNotNull(cueTimesUs), checkNotNull(cueClusterPositions));
+          }
+          extractorOutput.seekMap(seekMap);
           sentSeekMap = true;
         } else {
           // We have already built the cues. Ignore.
@@ -1278,6 +1372,7 @@ public class MatroskaExtractor implements Extractor {
           blockDurationUs = C.TIME_UNSET;
           blockState = BLOCK_STATE_HEADER;
           scratch.reset(/* limit= */ 0);
+          scratchPeekLimit = 0;
         }
 
         Track track = tracks.get(blockTrackNumber);
@@ -1309,26 +1404,29 @@ public class MatroskaExtractor implements Extractor {
                   (contentSize - blockTrackNumberLength - 4) / blockSampleCount;
               Arrays.fill(blockSampleSizes, 0, blockSampleCount, blockLacingSampleSize);
             } else if (lacing == LACING_XIPH) {
+              int maxHeaderSize = contentSize - blockTrackNumberLength;
               int totalSamplesSize = 0;
               int headerSize = 4;
               for (int sampleIndex = 0; sampleIndex < blockSampleCount - 1; sampleIndex++) {
                 blockSampleSizes[sampleIndex] = 0;
                 int byteValue;
                 do {
-                  readScratch(input, ++headerSize);
+                  peekScratch(input, ++headerSize, maxHeaderSize);
                   byteValue = scratch.getData()[headerSize - 1] & 0xFF;
                   blockSampleSizes[sampleIndex] += byteValue;
                 } while (byteValue == 0xFF);
                 totalSamplesSize += blockSampleSizes[sampleIndex];
               }
+              readScratch(input, headerSize);
               blockSampleSizes[blockSampleCount - 1] =
                   contentSize - blockTrackNumberLength - headerSize - totalSamplesSize;
             } else if (lacing == LACING_EBML) {
+              int maxHeaderSize = contentSize - blockTrackNumberLength;
               int totalSamplesSize = 0;
               int headerSize = 4;
               for (int sampleIndex = 0; sampleIndex < blockSampleCount - 1; sampleIndex++) {
                 blockSampleSizes[sampleIndex] = 0;
-                readScratch(input, ++headerSize);
+                peekScratch(input, ++headerSize, maxHeaderSize);
                 if (scratch.getData()[headerSize - 1] == 0) {
                   throw ParserException.createForMalformedContainer(
                       "No valid varint length mask found", /* cause= */ null);
@@ -1339,7 +1437,7 @@ public class MatroskaExtractor implements Extractor {
                   if ((scratch.getData()[headerSize - 1] & lengthMask) != 0) {
                     int readPosition = headerSize - 1;
                     headerSize += i;
-                    readScratch(input, headerSize);
+                    peekScratch(input, headerSize, maxHeaderSize);
                     readValue = (scratch.getData()[readPosition++] & 0xFF) & ~lengthMask;
                     while (readPosition < headerSize) {
                       readValue <<= 8;
@@ -1363,6 +1461,7 @@ public class MatroskaExtractor implements Extractor {
                         : blockSampleSizes[sampleIndex - 1] + intReadValue;
                 totalSamplesSize += blockSampleSizes[sampleIndex];
               }
+              readScratch(input, headerSize);
               blockSampleSizes[blockSampleCount - 1] =
                   contentSize - blockTrackNumberLength - headerSize - totalSamplesSize;
             } else {
@@ -1540,6 +1639,34 @@ public class MatroskaExtractor implements Extractor {
     scratch.setLimit(requiredLength);
   }
 
+  /**
+   * Ensures {@link #scratch} contains at least {@code requiredLength} bytes of data, peeking from
+   * the extractor input if necessary. Bytes beyond the limit of {@link #scratch} are peeked rather
+   * than read, so that a block's lacing header can be parsed from a few bulk peeks and then read
+   * with a single call to {@link #readScratch(ExtractorInput, int)}.
+   *
+   * @param input The input from which to peek.
+   * @param requiredLength The number of bytes required in {@link #scratch}.
+   * @param maxLength The number of bytes up to which it's safe to peek ahead, which is the end of
+   *     the current block.
+   */
+  private void peekScratch(ExtractorInput input, int requiredLength, int maxLength)
+      throws IOException {
+    if (scratchPeekLimit >= requiredLength) {
+      return;
+    }
+    int peekLimit =
+        max(
+            requiredLength,
+            min(maxLength, max(2 * scratchPeekLimit, requiredLength + MIN_LACING_PEEK_LENGTH)));
+    if (scratch.capacity() < peekLimit) {
+      scratch.ensureCapacity(max(scratch.capacity() * 2, peekLimit));
+    }
+    input.resetPeekPosition();
+    input.peekFully(scratch.getData(), scratch.limit(), peekLimit - scratch.limit());
+    scratchPeekLimit = peekLimit;
+  }
+
   /**
    * Writes data for a single sample to the track output.
    *
@@ -1883,23 +2010,38 @@ public class MatroskaExtractor implements Extractor {
    */
   private SeekMap buildSeekMap(
       @Nullable LongArray cueTimesUs, @Nullable LongArray cueClusterPositions) {
+    if (cueTimesUs == null || cueClusterPositions == null) {
+      // Cues information is missing.
+      return new SeekMap.Unseekable(durationUs);
+    }
+    return buildSeekMap(cueTimesUs.toArray(), cueClusterPositions.toArray());
+  }
+
+  /**
+   * Builds a {@link SeekMap} from cue points.
+   *
+   * @param cueTimesUs The times of the cue points, in microseconds.
+   * @param cueClusterPositions The positions of the clusters of the cue points, relative to the
+   *     content of the segment.
+   * @return The built {@link SeekMap}. The returned {@link SeekMap} may be unseekable if cues
+   *     information was missing or incomplete.
+   */
+  private SeekMap buildSeekMap(long[] cueTimesUs, long[] cueClusterPositions) {
     if (segmentContentPosition == C.INDEX_UNSET
         || durationUs == C.TIME_UNSET
-        || cueTimesUs == null
-        || cueTimesUs.size() == 0
-        || cueClusterPositions == null
-        || cueClusterPositions.size() != cueTimesUs.size()) {
+        || cueTimesUs.length == 0
+        || cueClusterPositions.length != cueTimesUs.length) {
       // Cues information is missing or incomplete.
       return new SeekMap.Unseekable(durationUs);
     }
-    int cuePointsSize = cueTimesUs.size();
+    int cuePointsSize = cueTimesUs.length;
     int[] sizes = new int[cuePointsSize];
     long[] offsets = new long[cuePointsSize];
     long[] durationsUs = new long[cuePointsSize];
     long[] timesUs = new long[cuePointsSize];
     for (int i = 0; i < cuePointsSize; i++) {
-      timesUs[i] = cueTimesUs.get(i);
-      offsets[i] = segmentContentPosition + cueClusterPositions.get(i);
+      timesUs[i] = cueTimesUs[i];
+      offsets[i] = segmentContentPosition + cueClusterPositions[i];
     }
     for (int i = 0; i < cuePointsSize - 1; i++) {
       sizes[i] = (int) (offsets[i + 1] - offsets[i]);
@@ -1929,6 +2071,32 @@ public class MatroskaExtractor implements Extractor {
     return new ChunkIndex(sizes, offsets, durationsUs, timesUs);
   }
 
+  @Nullable
+  private SeekIndexCache.Entry getCueCacheEntry() {
+    if (cueCache == null || cueCacheKey == null || inputLength == C.LENGTH_UNSET) {
+      return null;
+    }
+    return cueCache.get(
+        cueCacheKey, inputLength, segmentContentPosition, cuesContentPosition, durationUs);
+  }
+
+  private void maybePutCueCacheEntry(LongArray cueTimesUs, LongArray cueClusterPositions) {
+    if (cueCache == null
+        || cueCacheKey == null
+        || inputLength == C.LENGTH_UNSET
+        || cuesContentPosition == C.INDEX_UNSET) {
+      return;
+    }
+    cueCache.put(
+        cueCacheKey,
+        inputLength,
+        segmentContentPosition,
+        cuesContentPosition,
+        durationUs,
+        cueTimesUs,
+        cueClusterPositions);
+  }
+
   /**
    * Updates the position of the holder to Cues element's position if the extractor configuration
    * permits use of master seek entry. After building Cues sets the holder's position back to where
@@ -22,6 +22,7 @@ import static androidx.media3.common.util.Util.nullSafeArrayCopy;
 import static androidx.media3.extractor.mp4.BoxParser.parseTraks;
 import static androidx.media3.extractor.mp4.MimeTypeResolver.getContainerMimeType;
 import static java.lang.Math.max;
+import static java.lang.Math.min;
 import static java.lang.annotation.ElementType.TYPE_USE;
 
 import android.util.Pair;
@@ -36,6 +37,7 @@ import androidx.media3.common.Metadata;
 import androidx.media3.common.MimeTypes;
 import androidx.media3.common.ParserException;
 import androidx.media3.common.util.Log;
+import androidx.media3.common.util.LongArray;
 import androidx.media3.common.util.ParsableByteArray;
 import androidx.media3.common.util.TimestampAdjuster;
 import androidx.media3.common.util.UnstableApi;
@@ -54,7 +56,9 @@ import androidx.media3.extractor.ExtractorInput;
 import androidx.media3.extractor.ExtractorOutput;
 import androidx.media3.extractor.ExtractorsFactory;
 import androidx.media3.extractor.GaplessInfoHolder;
+import androidx.media3.extractor.IndexSeekMap;
 import androidx.media3.extractor.PositionHolder;
+import androidx.media3.extractor.SeekIndexCache;
 import androidx.media3.extractor.SeekMap;
 import androidx.media3.extractor.SniffFailure;
 import androidx.media3.extractor.TrackOutput;
@@ -94,7 +98,8 @@ public class FragmentedMp4Extractor implements Extractor {
    * #FLAG_WORKAROUND_EVERY_VIDEO_FRAME_IS_SYNC_FRAME}, {@link #FLAG_WORKAROUND_IGNORE_TFDT_BOX},
    * {@link #FLAG_ENABLE_EMSG_TRACK}, {@link #FLAG_WORKAROUND_IGNORE_EDIT_LISTS}, {@link
    * #FLAG_EMIT_RAW_SUBTITLE_DATA}, {@link #FLAG_READ_WITHIN_GOP_SAMPLE_DEPENDENCIES}, {@link
-   * #FLAG_READ_WITHIN_GOP_SAMPLE_DEPENDENCIES_H265} and {@link #FLAG_MERGE_FRAGMENTED_SIDX}.
+   * #FLAG_READ_WITHIN_GOP_SAMPLE_DEPENDENCIES_H265}, {@link #FLAG_MERGE_FRAGMENTED_SIDX} and {@link
+   * #FLAG_READ_MFRA}.
    */
   @Documented
   @Retention(RetentionPolicy.SOURCE)
@@ -109,7 +114,8 @@ public class FragmentedMp4Extractor implements Extractor {
         FLAG_EMIT_RAW_SUBTITLE_DATA,
         FLAG_READ_WITHIN_GOP_SAMPLE_DEPENDENCIES,
         FLAG_READ_WITHIN_GOP_SAMPLE_DEPENDENCIES_H265,
-        FLAG_MERGE_FRAGMENTED_SIDX
+        FLAG_MERGE_FRAGMENTED_SIDX,
+        FLAG_READ_MFRA
       })
   public @interface Flags {}
 
@@ -165,6 +171,14 @@ public class FragmentedMp4Extractor implements Extractor {
   /** Flag to enable reading and merging of all sidx boxes before continuing extraction. */
   public static final int FLAG_MERGE_FRAGMENTED_SIDX = 1 << 8;
 
+  /**
+   * Flag to read the fragment index from the {@code mfra} box at the end of the stream, if the
+   * stream doesn't contain a {@code sidx} box. This makes such streams seekable, at the cost of two
+   * seeks before the first fragment is read. The flag has no effect if the length of the stream is
+   * unknown.
+   */
+  public static final int FLAG_READ_MFRA = 1 << 9;
+
   /**
    * @deprecated Use {@link #newFactory(SubtitleParser.Factory)} instead.
    */
@@ -195,10 +209,19 @@ public class FragmentedMp4Extractor implements Extractor {
   private static final int STATE_READING_ENCRYPTION_DATA = 2;
   private static final int STATE_READING_SAMPLE_START = 3;
   private static final int STATE_READING_SAMPLE_CONTINUE = 4;
+  private static final int STATE_READING_MFRO = 5;
+  private static final int STATE_READING_MFRA = 6;
+
+  // The mfro box is a full box containing the size of the mfra box.
+  private static final int MFRO_BOX_SIZE = 16;
+  // The maximum size of an mfra box that will be read.
+  private static final int MAX_MFRA_SIZE = 16 * 1024 * 1024;
 
   private final SubtitleParser.Factory subtitleParserFactory;
   private final @Flags int flags;
   @Nullable private final Track sideloadedTrack;
+  @Nullable private final FragmentedMp4IndexCache indexCache;
+  @Nullable private final String indexCacheKey;
 
   // Sideloaded data.
   private final List<Format> closedCaptionFormats;
@@ -260,6 +283,15 @@ public class FragmentedMp4Extractor implements Extractor {
 
   private long seekPositionBeforeSidxProcessing;
 
+  // Fragment index for streams without a sidx box, read from the mfra box or recorded from the moof
+  // boxes read so far.
+  private LongArray fragmentIndexTimesUs;
+  private LongArray fragmentIndexPositions;
+  private boolean isRecordingFragmentIndex;
+  private long firstFragmentPosition;
+  private long inputLength;
+  private int mfraSize;
+
   /**
    * @deprecated Use {@link #FragmentedMp4Extractor(SubtitleParser.Factory)} instead
    */
@@ -321,6 +353,41 @@ public class FragmentedMp4Extractor implements Extractor {
         /* additionalEmsgTrackOutput= */ null);
   }
 
+  /**
+   * Constructs an instance that reuses the fragment indices stored in a {@link
+   * FragmentedMp4IndexCache}.
+   *
+   * <p>The cache is only used for streams of known length that don't contain a {@code sidx} box. If
+   * the cache holds an entry for {@code indexCacheKey} that matches the stream, the seek map is
+   * built from the entry. Otherwise the fragment index is written to the cache once it's known,
+   * either from the {@code mfra} box if {@link #FLAG_READ_MFRA} is set, or by recording the
+   * position of each fragment while the stream is read from its first fragment to the end. In the
+   * latter case the extractor also outputs the recorded index as an updated seek map when it
+   * reaches the end of the stream.
+   *
+   * @param subtitleParserFactory The {@link SubtitleParser.Factory} for parsing subtitles during
+   *     extraction.
+   * @param flags Flags that control the extractor's behavior.
+   * @param indexCache The {@link FragmentedMp4IndexCache}, or {@code null} to disable caching.
+   * @param indexCacheKey A key that identifies the stream, such as its cache key, or {@code null}
+   *     to disable caching.
+   */
+  public FragmentedMp4Extractor(
+      SubtitleParser.Factory subtitleParserFactory,
+      @Flags int flags,
+      @Nullable FragmentedMp4IndexCache indexCache,
+      @Nullable String indexCacheKey) {
+    this(
+        subtitleParserFactory,
+        flags,
+        /* timestampAdjuster= */ null,
+        /* sideloadedTrack= */ null,
+        /* closedCaptionFormats= */ ImmutableList.of(),
+        /* additionalEmsgTrackOutput= */ null,
+        indexCache,
+        indexCacheKey);
+  }
+
   /**
    * @deprecated Use {@link #FragmentedMp4Extractor(SubtitleParser.Factory, int, TimestampAdjuster,
    *     Track, List, TrackOutput)} instead
@@ -415,10 +482,32 @@ public class FragmentedMp4Extractor implements Extractor {
       @Nullable Track sideloadedTrack,
       List<Format> closedCaptionFormats,
       @Nullable TrackOutput additionalEmsgTrackOutput) {
+    this(
+        subtitleParserFactory,
+        flags,
+        timestampAdjuster,
+        sideloadedTrack,
+        closedCaptionFormats,
+        additionalEmsgTrackOutput,
+        /* indexCache= */ null,
+        /* indexCacheKey= */ null);
+  }
+
+  private FragmentedMp4Extractor(
+      SubtitleParser.Factory subtitleParserFactory,
+      @Flags int flags,
+      @Nullable TimestampAdjuster timestampAdjuster,
+      @Nullable Track sideloadedTrack,
+      List<Format> closedCaptionFormats,
+      @Nullable TrackOutput additionalEmsgTrackOutput,
+      @Nullable FragmentedMp4IndexCache indexCache,
+      @Nullable String indexCacheKey) {
     this.subtitleParserFactory = subtitleParserFactory;
     this.flags = flags;
     this.timestampAdjuster = timestampAdjuster;
     this.sideloadedTrack = sideloadedTrack;
+    this.indexCache = indexCache;
+    this.indexCacheKey = indexCacheKey;
     this.closedCaptionFormats = Collections.unmodifiableList(closedCaptionFormats);
     this.additionalEmsgTrackOutput = additionalEmsgTrackOutput;
     eventMessageEncoder = new EventMessageEncoder();
@@ -444,6 +533,10 @@ public class FragmentedMp4Extractor implements Extractor {
                 CeaUtil.consume(presentationTimeUs, buffer, ceaTrackOutputs));
     chunkIndexMerger = new ChunkIndexMerger();
     seekPositionBeforeSidxProcessing = C.INDEX_UNSET;
+    fragmentIndexTimesUs = new LongArray();
+    fragmentIndexPositions = new LongArray();
+    firstFragmentPosition = C.INDEX_UNSET;
+    inputLength = C.LENGTH_UNSET;
   }
 
   /**
@@ -519,6 +612,13 @@ public class FragmentedMp4Extractor implements Extractor {
     reorderingBufferQueue.clear();
     pendingSeekTimeUs = timeUs;
     containerAtoms.clear();
+    if (isRecordingFragmentIndex) {
+      // The recorded index is only complete if all fragments are read in order, starting from the
+      // first one.
+      fragmentIndexTimesUs = new LongArray();
+      fragmentIndexPositions = new LongArray();
+      isRecordingFragmentIndex = position <= firstFragmentPosition;
+    }
     enterReadingAtomHeaderState();
   }
 
@@ -541,10 +641,17 @@ public class FragmentedMp4Extractor implements Extractor {
               return Extractor.RESULT_SEEK;
             } else {
               reorderingBufferQueue.flush();
+              if (isRecordingFragmentIndex) {
+                onFragmentIndexRecorded();
+              }
               return Extractor.RESULT_END_OF_INPUT;
             }
           }
           break;
+        case STATE_READING_MFRO:
+          return readMfro(input, seekPosition);
+        case STATE_READING_MFRA:
+          return readMfra(input, seekPosition);
         case STATE_READING_ATOM_PAYLOAD:
           readAtomPayload(input);
           break;
@@ -620,8 +727,10 @@ public class FragmentedMp4Extractor implements Extractor {
     if (atomType == Mp4Box.TYPE_moof || atomType == Mp4Box.TYPE_mdat) {
       if (!haveOutputSeekMap) {
         // This must be the first moof or mdat in the stream.
-        extractorOutput.seekMap(new SeekMap.Unseekable(durationUs, atomPosition));
-        haveOutputSeekMap = true;
+        if (onFirstFragment(atomPosition, input.getLength())) {
+          parserState = STATE_READING_MFRO;
+          return true;
+        }
       }
     }
 
@@ -858,6 +967,237 @@ public class FragmentedMp4Extractor implements Extractor {
       }
       pendingSeekTimeUs = C.TIME_UNSET;
     }
+    if (isRecordingFragmentIndex) {
+      TrackFragment fragment = getIndexedTrackBundle().fragment;
+      int fragmentCount = fragmentIndexPositions.size();
+      if (fragment.sampleCount > 0
+          && (fragmentCount == 0
+              || fragment.atomPosition > fragmentIndexPositions.get(fragmentCount - 1))) {
+        fragmentIndexTimesUs.add(fragment.getSamplePresentationTimeUs(0));
+        fragmentIndexPositions.add(fragment.atomPosition);
+      }
+    }
+  }
+
+  /**
+   * Outputs the seek map when the first moof or mdat box is reached without a sidx box having been
+   * read.
+   *
+   * @param atomPosition The position of the first moof or mdat box.
+   * @param inputLength The length of the input, or {@link C#LENGTH_UNSET} if unknown.
+   * @return Whether the mfra box should be read before outputting the seek map.
+   */
+  private boolean onFirstFragment(long atomPosition, long inputLength) {
+    firstFragmentPosition = atomPosition;
+    this.inputLength = inputLength;
+    boolean canIndexFragments =
+        inputLength != C.LENGTH_UNSET && sideloadedTrack == null && trackBundles.size() > 0;
+    boolean useIndexCache = canIndexFragments && indexCache != null && indexCacheKey != null;
+    if (useIndexCache) {
+      @Nullable
+      SeekIndexCache.Entry entry =
+          checkNotNull(indexCache)
+              .get(checkNotNull(indexCacheKey), inputLength, atomPosition, durationUs);
+      if (entry != null) {
+        extractorOutput.seekMap(
+            new IndexSeekMap(entry.positions, entry.timesUs, durationUs));
+        haveOutputSeekMap = true;
+        return false;
+      }
+    }
+    if (canIndexFragments
+        && (flags & FLAG_READ_MFRA) != 0
+        && inputLength - atomPosition >= MFRO_BOX_SIZE) {
+      return true;
+    }
+    extractorOutput.seekMap(new SeekMap.Unseekable(durationUs, atomPosition));
+    haveOutputSeekMap = true;
+    isRecordingFragmentIndex = useIndexCache;
+    return false;
+  }
+
+  private int readMfro(ExtractorInput input, PositionHolder seekPosition) throws IOException {
+    long mfroPosition = inputLength - MFRO_BOX_SIZE;
+    if (input.getPosition() != mfroPosition) {
+      seekPosition.position = mfroPosition;
+      return RESULT_SEEK;
+    }
+    scratch.reset(MFRO_BOX_SIZE);
+    input.readFully(scratch.getData(), 0, MFRO_BOX_SIZE);
+    long mfraSize = C.LENGTH_UNSET;
+    if (scratch.readInt() == MFRO_BOX_SIZE && scratch.readInt() == Mp4Box.TYPE_mfro) {
+      scratch.skipBytes(4); // version (1), flags (3)
+      mfraSize = scratch.readUnsignedInt();
+    }
+    if (mfraSize < Mp4Box.HEADER_SIZE + MFRO_BOX_SIZE
+        || mfraSize > min(MAX_MFRA_SIZE, inputLength - firstFragmentPosition)) {
+      return onMfraRead(/* foundFragmentIndex= */ false, seekPosition);
+    }
+    this.mfraSize = (int) mfraSize;
+    parserState = STATE_READING_MFRA;
+    seekPosition.position = inputLength - mfraSize;
+    return RESULT_SEEK;
+  }
+
+  private int readMfra(ExtractorInput input, PositionHolder seekPosition) throws IOException {
+    ParsableByteArray mfra = new ParsableByteArray(mfraSize);
+    input.readFully(mfra.getData(), 0, mfraSize);
+    return onMfraRead(parseMfra(mfra), seekPosition);
+  }
+
+  private int onMfraRead(boolean foundFragmentIndex, PositionHolder seekPosition) {
+    if (foundFragmentIndex) {
+      extractorOutput.seekMap(
+          new IndexSeekMap(
+              fragmentIndexPositions.toArray(), fragmentIndexTimesUs.toArray(), durationUs));
+      if (indexCache != null && indexCacheKey != null) {
+        indexCache.put(
+            indexCacheKey,
+            inputLength,
+            firstFragmentPosition,
+            durationUs,
+            fragmentIndexTimesUs,
+            fragmentIndexPositions);
+      }
+    } else {
+      fragmentIndexTimesUs = new LongArray();
+      fragmentIndexPositions = new LongArray();
+      extractorOutput.seekMap(new SeekMap.Unseekable(durationUs, firstFragmentPosition));
+      isRecordingFragmentIndex = indexCache != null && indexCacheKey != null;
+    }
+    haveOutputSeekMap = true;
+    enterReadingAtomHeaderState();
+    seekPosition.position = firstFragmentPosition;
+    return RESULT_SEEK;
+  }
+
+  /**
+   * Parses the tfra box of the indexed track from an mfra box (defined in 14496-12) into the
+   * fragment index.
+   *
+   * @return Whether the resulting fragment index is usable.
+   */
+  private boolean parseMfra(ParsableByteArray mfra) {
+    if (mfra.readInt() != mfraSize || mfra.readInt() != Mp4Box.TYPE_mfra) {
+      return false;
+    }
+    Track track = getIndexedTrackBundle().moovSampleTable.track;
+    while (mfra.bytesLeft() >= Mp4Box.HEADER_SIZE) {
+      int childPosition = mfra.getPosition();
+      int childSize = mfra.readInt();
+      int childType = mfra.readInt();
+      if (childSize < Mp4Box.HEADER_SIZE || childSize > mfra.limit() - childPosition) {
+        return false;
+      }
+      int childEndPosition = childPosition + childSize;
+      if (childType == Mp4Box.TYPE_tfra
+          && childSize >= Mp4Box.FULL_HEADER_SIZE + 12
+          && parseTfraTrackId(mfra) == track.id) {
+        mfra.setLimit(childEndPosition);
+        parseTfra(mfra, track);
+        return isFragmentIndexUsable();
+      }
+      mfra.setPosition(childEndPosition);
+    }
+    return false;
+  }
+
+  private static int parseTfraTrackId(ParsableByteArray tfra) {
+    int position = tfra.getPosition();
+    tfra.skipBytes(4); // version (1), flags (3)
+    int trackId = tfra.readInt();
+    tfra.setPosition(position);
+    return trackId;
+  }
+
+  /**
+   * Parses a tfra box (defined in 14496-12) into the fragment index, starting after its header.
+   * Entries that refer to the same moof box as the previous entry, or to a position outside of the
+   * fragments, are skipped.
+   */
+  private void parseTfra(ParsableByteArray tfra, Track track) {
+    int version = BoxParser.parseFullBoxVersion(tfra.readInt());
+    tfra.skipBytes(4); // track_ID
+    int lengthSizes = tfra.readInt();
+    int numberFieldsSize =
+        ((lengthSizes >> 4) & 0x3) + ((lengthSizes >> 2) & 0x3) + (lengthSizes & 0x3) + 3;
+    int entrySize = (version == 1 ? 16 : 8) + numberFieldsSize;
+    long entryCount = tfra.readUnsignedInt();
+    if (entryCount > tfra.bytesLeft() / entrySize) {
+      return;
+    }
+    long edtsOffset = 0;
+    if (isEdtsListDurationForEntireMediaTimeline(track)) {
+      edtsOffset = castNonNull(track.editListMediaTimes)[0];
+    }
+    long mfraPosition = inputLength - mfraSize;
+    for (int i = 0; i < entryCount; i++) {
+      long time;
+      long moofOffset;
+      if (version == 1) {
+        time = tfra.readUnsignedLongToLong();
+        moofOffset = tfra.readUnsignedLongToLong();
+      } else {
+        time = tfra.readUnsignedInt();
+        moofOffset = tfra.readUnsignedInt();
+      }
+      tfra.skipBytes(numberFieldsSize);
+      int fragmentCount = fragmentIndexPositions.size();
+      if (moofOffset < firstFragmentPosition
+          || moofOffset >= mfraPosition
+          || (fragmentCount > 0 && moofOffset <= fragmentIndexPositions.get(fragmentCount - 1))) {
+        continue;
+      }
+      fragmentIndexTimesUs.add(
+          max(
+              0,
+              Util.scaleLargeTimestamp(time - edtsOffset, C.MICROS_PER_SECOND, track.timescale)));
+      fragmentIndexPositions.add(moofOffset);
+    }
+  }
+
+  private void onFragmentIndexRecorded() {
+    isRecordingFragmentIndex = false;
+    if (!isFragmentIndexUsable()) {
+      return;
+    }
+    extractorOutput.seekMap(
+        new IndexSeekMap(
+            fragmentIndexPositions.toArray(), fragmentIndexTimesUs.toArray(), durationUs));
+    checkNotNull(indexCache)
+        .put(
+            checkNotNull(indexCacheKey),
+            inputLength,
+            firstFragmentPosition,
+            durationUs,
+            fragmentIndexTimesUs,
+            fragmentIndexPositions);
+  }
+
+  /**
+   * Returns whether the fragment index contains at least one fragment, and all fragments start
+   * before the end of the stream. The latter may not be the case if the duration in the moov box
+   * doesn't account for the fragments.
+   */
+  private boolean isFragmentIndexUsable() {
+    int fragmentCount = fragmentIndexTimesUs.size();
+    return fragmentCount > 0
+        && (durationUs == C.TIME_UNSET || fragmentIndexTimesUs.get(fragmentCount - 1) < durationUs);
+  }
+
+  /**
+   * Returns the bundle of the track whose fragments are indexed in streams without a sidx box,
+   * which is the first video track if there is one, or the first track otherwise.
+   */
+  private TrackBundle getIndexedTrackBundle() {
+    int trackCount = trackBundles.size();
+    for (int i = 0; i < trackCount; i++) {
+      TrackBundle trackBundle = trackBundles.valueAt(i);
+      if (trackBundle.moovSampleTable.track.type == C.TRACK_TYPE_VIDEO) {
+        return trackBundle;
+      }
+    }
+    return trackBundles.valueAt(0);
   }
 
   private void initExtraTracks() {
@@ -2060,21 +2400,21 @@ public class FragmentedMp4Extractor implements Extractor {
     /** Returns the presentation time of the current sample in microseconds. */
     public long getCurrentSamplePresentationTimeUs() {
       return !currentlyInFragment
-          ? moovSampleTable.timestampsUs[currentSampleIndex]
+          ? moovSampleTable.getTimestampUs(currentSampleIndex)
           : fragment.getSamplePresentationTimeUs(currentSampleIndex);
     }
 
     /** Returns the byte offset of the current sample. */
     public long getCurrentSampleOffset() {
       return !currentlyInFragment
-          ? moovSampleTable.offsets[currentSampleIndex]
+          ? moovSampleTable.getOffset(currentSampleIndex)
           : fragment.trunDataPosition[currentTrackRunIndex];
     }
 
     /** Returns the size of the current sample in bytes. */
     public int getCurrentSampleSize() {
       return !currentlyInFragment
-          ? moovSampleTable.sizes[currentSampleIndex]
+          ? moovSampleTable.getSize(currentSampleIndex)
           : fragment.sampleSizeTable[currentSampleIndex];
     }
 
@@ -2082,7 +2422,7 @@ public class FragmentedMp4Extractor implements Extractor {
     public @C.BufferFlags int getCurrentSampleFlags() {
       int flags =
           !currentlyInFragment
-              ? moovSampleTable.flags[currentSampleIndex]
+              ? moovSampleTable.getFlags(currentSampleIndex)
               : (fragment.sampleIsSyncFrameTable[currentSampleIndex] ? C.BUFFER_FLAG_KEY_FRAME : 0);
       if (getEncryptionBoxIfEncrypted() != null) {
         flags |= C.BUFFER_FLAG_ENCRYPTED;
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.extractor.mp4;
+
+import androidx.annotation.Nullable;
+import androidx.media3.common.C;
+import androidx.media3.common.util.LongArray;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.extractor.SeekIndexCache;
+import java.io.File;
+
+/**
+ * A persistent cache of the fragment index that {@link FragmentedMp4Extractor} builds for
+ * fragmented MP4 streams that don't contain a {@code sidx} box.
+ *
+ * <p>Without a {@code sidx} box the extractor can only seek using the {@code mfra} box at the end
+ * of the stream, which requires extra requests before playback can start, or by reading all {@code
+ * moof} boxes from the start of the stream. The extractor writes the fragment index to this cache
+ * once it has been built, and outputs a seekable {@link androidx.media3.extractor.SeekMap} straight
+ * away when it finds a matching entry.
+ *
+ * <p>Entries are only used if the content length, the position of the first fragment and the
+ * duration match the values that were recorded when the entry was written. See {@link
+ * SeekIndexCache} for how entries are stored.
+ */
+@UnstableApi
+public final class FragmentedMp4IndexCache {
+
+  private static final String FILE_SUFFIX = ".fmp4idx";
+
+  /** The default maximum total size of the entries, in bytes. */
+  public static final long DEFAULT_MAX_SIZE_BYTES = 4 * 1024 * 1024;
+
+  private final SeekIndexCache seekIndexCache;
+
+  /**
+   * Creates an instance with a maximum size of {@link #DEFAULT_MAX_SIZE_BYTES}.
+   *
+   * @param directory The directory in which to store cache entries. The directory is created if it
+   *     doesn't exist. It should be dedicated to this cache.
+   */
+  public FragmentedMp4IndexCache(File directory) {
+    this(directory, DEFAULT_MAX_SIZE_BYTES);
+  }
+
+  /**
+   * Creates an instance.
+   *
+   * @param directory The directory in which to store cache entries. The directory is created if it
+   *     doesn't exist. It should be dedicated to this cache.
+   * @param maxSizeBytes The maximum total size of the entries, in bytes.
+   */
+  public FragmentedMp4IndexCache(File directory, long maxSizeBytes) {
+    seekIndexCache = new SeekIndexCache(directory, FILE_SUFFIX, maxSizeBytes);
+  }
+
+  /**
+   * Removes the entry for a resource, if there is one.
+   *
+   * @param key The key of the resource.
+   */
+  public void remove(String key) {
+    seekIndexCache.remove(key);
+  }
+
+  /** Removes all entries. */
+  public void clear() {
+    seekIndexCache.clear();
+  }
+
+  /**
+   * Returns the fragment index for a resource, or {@code null} if there's no matching entry. The
+   * {@linkplain SeekIndexCache.Entry#positions positions} are the positions of the {@code moof}
+   * boxes.
+   *
+   * @param key The key of the resource.
+   * @param contentLength The length of the resource, in bytes.
+   * @param firstFragmentPosition The position of the first {@code moof} box.
+   * @param durationUs The duration of the resource, in microseconds, or {@link C#TIME_UNSET} if
+   *     unknown.
+   */
+  @Nullable
+  /* package */ SeekIndexCache.Entry get(
+      String key, long contentLength, long firstFragmentPosition, long durationUs) {
+    return seekIndexCache.get(key, new long[] {contentLength, firstFragmentPosition, durationUs});
+  }
+
+  /**
+   * Writes the fragment index for a resource.
+   *
+   * @param key The key of the resource.
+   * @param contentLength The length of the resource, in bytes.
+   * @param firstFragmentPosition The position of the first {@code moof} box.
+   * @param durationUs The duration of the resource, in microseconds, or {@link C#TIME_UNSET} if
+   *     unknown.
+   * @param fragmentTimesUs The start times of the indexed fragments, in microseconds.
+   * @param fragmentPositions The positions of the {@code moof} boxes of the indexed fragments.
+   */
+  /* package */ void put(
+      String key,
+      long contentLength,
+      long firstFragmentPosition,
+      long durationUs,
+      LongArray fragmentTimesUs,
+      LongArray fragmentPositions) {
+    seekIndexCache.put(
+        key,
+        new long[] {contentLength, firstFragmentPosition, durationUs},
+        fragmentTimesUs,
+        fragmentPositions);
+  }
+}
@@ -226,6 +226,8 @@ public final class Mp4Extractor implements Extractor, SeekMap {
 
   private final SubtitleParser.Factory subtitleParserFactory;
   private final @Flags int flags;
+  @Nullable private final Mp4SampleTableCache sampleTableCache;
+  @Nullable private final String sampleTableCacheKey;
 
   // Temporary arrays.
   private final ParsableByteArray nalStartCode;
@@ -257,6 +259,14 @@ public final class Mp4Extractor implements Extractor, SeekMap {
   // Used when auxiliary tracks samples are in the auxiliary tracks MP4 (inside axte atom).
   private long sampleOffsetForAuxiliaryTracks;
 
+  // Sample table caching.
+  private boolean sampleTableCacheBypassed;
+  private long moovAtomPosition;
+  private long moovAtomSize;
+  private long inputLength;
+  @Nullable private Mp4SampleTableCache.Entry cachedSampleTables;
+  private long moovReloadPosition;
+
   // Extractor outputs.
   private ExtractorOutput extractorOutput;
   private Mp4Track[] tracks;
@@ -302,8 +312,38 @@ public final class Mp4Extractor implements Extractor, SeekMap {
    * @param flags Flags that control the extractor's behavior.
    */
   public Mp4Extractor(SubtitleParser.Factory subtitleParserFactory, @Flags int flags) {
+    this(
+        subtitleParserFactory,
+        flags,
+        /* sampleTableCache= */ null,
+        /* sampleTableCacheKey= */ null);
+  }
+
+  /**
+   * Creates a new extractor for unfragmented MP4 streams that reuses the sample tables stored in a
+   * {@link Mp4SampleTableCache}.
+   *
+   * <p>If the cache holds an entry for {@code sampleTableCacheKey} that matches the stream, the
+   * sample table boxes are skipped and the tables are read from the cache instead. Otherwise the
+   * tables are parsed from the stream and written to the cache once the {@code moov} box has been
+   * processed. Caching is only used if the length of the stream is known.
+   *
+   * @param subtitleParserFactory The {@link SubtitleParser.Factory} for parsing subtitles during
+   *     extraction.
+   * @param flags Flags that control the extractor's behavior.
+   * @param sampleTableCache The {@link Mp4SampleTableCache}, or {@code null} to disable caching.
+   * @param sampleTableCacheKey A key that identifies the stream, such as its cache key, or {@code
+   *     null} to disable caching.
+   */
+  public Mp4Extractor(
+      SubtitleParser.Factory subtitleParserFactory,
+      @Flags int flags,
+      @Nullable Mp4SampleTableCache sampleTableCache,
+      @Nullable String sampleTableCacheKey) {
     this.subtitleParserFactory = subtitleParserFactory;
     this.flags = flags;
+    this.sampleTableCache = sampleTableCache;
+    this.sampleTableCacheKey = sampleTableCacheKey;
     lastSniffFailures = ImmutableList.of();
     parserState =
         ((flags & FLAG_READ_SEF_DATA) != 0) ? STATE_READING_SEF : STATE_READING_ATOM_HEADER;
@@ -317,6 +357,7 @@ public final class Mp4Extractor implements Extractor, SeekMap {
     sampleTrackIndex = C.INDEX_UNSET;
     extractorOutput = ExtractorOutput.PLACEHOLDER;
     tracks = new Mp4Track[0];
+    moovReloadPosition = C.INDEX_UNSET;
   }
 
   /**
@@ -368,6 +409,8 @@ public final class Mp4Extractor implements Extractor, SeekMap {
     sampleBytesWritten = 0;
     sampleCurrentNalBytesRemaining = 0;
     isSampleDependedOn = false;
+    cachedSampleTables = null;
+    moovReloadPosition = C.INDEX_UNSET;
     if (position == 0) {
       // Reading the SEF data occurs before normal MP4 parsing. Therefore we can not transition to
       // reading the atom header until that has completed.
@@ -464,14 +507,14 @@ public final class Mp4Extractor implements Extractor, SeekMap {
       if (sampleIndex == C.INDEX_UNSET) {
         return new SeekPoints(SeekPoint.START);
       }
-      long sampleTimeUs = sampleTable.timestampsUs[sampleIndex];
+      long sampleTimeUs = sampleTable.getTimestampUs(sampleIndex);
       firstTimeUs = sampleTimeUs;
-      firstOffset = sampleTable.offsets[sampleIndex];
+      firstOffset = sampleTable.getOffset(sampleIndex);
       if (sampleTimeUs < timeUs && sampleIndex < sampleTable.sampleCount - 1) {
         int secondSampleIndex = sampleTable.getIndexOfLaterOrEqualSynchronizationSample(timeUs);
         if (secondSampleIndex != C.INDEX_UNSET && secondSampleIndex != sampleIndex) {
-          secondTimeUs = sampleTable.timestampsUs[secondSampleIndex];
-          secondOffset = sampleTable.offsets[secondSampleIndex];
+          secondTimeUs = sampleTable.getTimestampUs(secondSampleIndex);
+          secondOffset = sampleTable.getOffset(secondSampleIndex);
         }
       }
     } else {
@@ -511,7 +554,7 @@ public final class Mp4Extractor implements Extractor, SeekMap {
     if (tracks.length <= trackId) {
       return new long[0];
     }
-    return tracks[trackId].sampleTable.timestampsUs;
+    return tracks[trackId].sampleTable.getTimestampsUs();
   }
 
   // Private methods.
@@ -564,6 +607,8 @@ public final class Mp4Extractor implements Extractor, SeekMap {
       long endPosition = input.getPosition() + atomSize - atomHeaderBytesRead;
       if (atomSize != atomHeaderBytesRead && atomType == Mp4Box.TYPE_meta) {
         maybeSkipRemainingMetaAtomHeaderBytes(input);
+      } else if (atomType == Mp4Box.TYPE_moov) {
+        maybeLoadCachedSampleTables(input, input.getPosition() - atomHeaderBytesRead, atomSize);
       }
       containerAtoms.push(new ContainerBox(atomType, endPosition));
       if (atomSize == atomHeaderBytesRead) {
@@ -572,7 +617,8 @@ public final class Mp4Extractor implements Extractor, SeekMap {
         // Start reading the first child atom.
         enterReadingAtomHeaderState();
       }
-    } else if (shouldParseLeafAtom(atomType)) {
+    } else if (shouldParseLeafAtom(atomType)
+        && (cachedSampleTables == null || !isSampleTableLeafAtom(atomType))) {
       // We don't support parsing of leaf atoms that define extended atom sizes, or that have
       // lengths greater than Integer.MAX_VALUE.
       Assertions.checkState(atomHeaderBytesRead == Mp4Box.HEADER_SIZE);
@@ -631,6 +677,11 @@ public final class Mp4Extractor implements Extractor, SeekMap {
       seekRequired = true;
       seekToAxteAtom = false;
     }
+    if (moovReloadPosition != C.INDEX_UNSET) {
+      positionHolder.position = moovReloadPosition;
+      seekRequired = true;
+      moovReloadPosition = C.INDEX_UNSET;
+    }
     return seekRequired && parserState != STATE_READING_SAMPLE;
   }
 
@@ -650,7 +701,7 @@ public final class Mp4Extractor implements Extractor, SeekMap {
         // We've reached the end of the moov atom. Process it and prepare to read samples.
         processMoovAtom(containerAtom);
         containerAtoms.clear();
-        if (!seekToAxteAtom) {
+        if (!seekToAxteAtom && moovReloadPosition == C.INDEX_UNSET) {
           parserState = STATE_READING_SAMPLE;
         }
       } else if (!containerAtoms.isEmpty()) {
@@ -703,15 +754,45 @@ public final class Mp4Extractor implements Extractor, SeekMap {
             BoxParser.parseMvhd(checkNotNull(moov.getLeafBoxOfType(Mp4Box.TYPE_mvhd)).data));
 
     boolean ignoreEditLists = (flags & FLAG_WORKAROUND_IGNORE_EDIT_LISTS) != 0;
-    List<TrackSampleTable> trackSampleTables =
-        parseTraks(
-            moov,
-            gaplessInfoHolder,
-            /* duration= */ C.TIME_UNSET,
-            /* drmInitData= */ null,
-            ignoreEditLists,
-            isQuickTime,
-            /* modifyTrackFunction= */ track -> track);
+    List<TrackSampleTable> trackSampleTables;
+    @Nullable Mp4SampleTableCache.Entry cachedSampleTables = this.cachedSampleTables;
+    if (cachedSampleTables != null) {
+      this.cachedSampleTables = null;
+      @Nullable
+      List<TrackSampleTable> parsedTrackSampleTables =
+          parseTraksWithCachedSampleTables(
+              moov, cachedSampleTables, gaplessInfoHolder, ignoreEditLists, isQuickTime);
+      if (parsedTrackSampleTables == null) {
+        // The entry doesn't match the moov atom, whose sample table atoms have been skipped. Drop
+        // the entry and read the moov atom again without using the cache.
+        checkNotNull(sampleTableCache).remove(checkNotNull(sampleTableCacheKey));
+        sampleTableCacheBypassed = true;
+        moovReloadPosition = moovAtomPosition;
+        return;
+      }
+      trackSampleTables = parsedTrackSampleTables;
+    } else {
+      trackSampleTables =
+          parseTraks(
+              moov,
+              gaplessInfoHolder,
+              /* duration= */ C.TIME_UNSET,
+              /* drmInitData= */ null,
+              ignoreEditLists,
+              isQuickTime,
+              /* modifyTrackFunction= */ track -> track);
+      if (shouldUseSampleTableCache()) {
+        checkNotNull(sampleTableCache)
+            .put(
+                checkNotNull(sampleTableCacheKey),
+                inputLength,
+                moovAtomPosition,
+                moovAtomSize,
+                ignoreEditLists,
+                gaplessInfoHolder,
+                trackSampleTables);
+      }
+    }
 
     if (readingAuxiliaryTracks) {
       checkState(
@@ -790,6 +871,83 @@ public final class Mp4Extractor implements Extractor, SeekMap {
     extractorOutput.seekMap(this);
   }
 
+  private boolean shouldUseSampleTableCache() {
+    // The cache holds a single entry per key. The axte.moov atom is neither looked up nor written,
+    // so that it doesn't replace the entry of the primary moov atom.
+    return !readingAuxiliaryTracks
+        && sampleTableCache != null
+        && sampleTableCacheKey != null
+        && !sampleTableCacheBypassed
+        && inputLength != C.LENGTH_UNSET;
+  }
+
+  private void maybeLoadCachedSampleTables(ExtractorInput input, long position, long size) {
+    moovAtomPosition = position;
+    moovAtomSize = size;
+    inputLength = input.getLength();
+    cachedSampleTables =
+        shouldUseSampleTableCache()
+            ? checkNotNull(sampleTableCache)
+                .get(
+                    checkNotNull(sampleTableCacheKey),
+                    inputLength,
+                    position,
+                    size,
+                    /* ignoreEditLists= */ (flags & FLAG_WORKAROUND_IGNORE_EDIT_LISTS) != 0)
+            : null;
+  }
+
+  /**
+   * Equivalent to {@link BoxParser#parseTraks}, except that the sample tables are taken from {@code
+   * cachedSampleTables} instead of being parsed from the stbl atoms.
+   *
+   * @return The sample tables, or {@code null} if the cached entry doesn't match the moov atom.
+   */
+  @Nullable
+  private static List<TrackSampleTable> parseTraksWithCachedSampleTables(
+      ContainerBox moov,
+      Mp4SampleTableCache.Entry cachedSampleTables,
+      GaplessInfoHolder gaplessInfoHolder,
+      boolean ignoreEditLists,
+      boolean isQuickTime)
+      throws ParserException {
+    List<TrackSampleTable> trackSampleTables = new ArrayList<>();
+    for (int i = 0; i < moov.containerChildren.size(); i++) {
+      ContainerBox atom = moov.containerChildren.get(i);
+      if (atom.type != Mp4Box.TYPE_trak) {
+        continue;
+      }
+      @Nullable
+      Track track =
+          BoxParser.parseTrak(
+              atom,
+              checkNotNull(moov.getLeafBoxOfType(Mp4Box.TYPE_mvhd)),
+              /* duration= */ C.TIME_UNSET,
+              /* drmInitData= */ null,
+              ignoreEditLists,
+              isQuickTime);
+      if (track == null) {
+        continue;
+      }
+      if (trackSampleTables.size() == cachedSampleTables.getTrackCount()) {
+        return null;
+      }
+      @Nullable
+      TrackSampleTable trackSampleTable =
+          cachedSampleTables.getTrackSampleTable(trackSampleTables.size(), track);
+      if (trackSampleTable == null) {
+        return null;
+      }
+      trackSampleTables.add(trackSampleTable);
+    }
+    if (trackSampleTables.size() != cachedSampleTables.getTrackCount()) {
+      return null;
+    }
+    gaplessInfoHolder.encoderDelay = cachedSampleTables.encoderDelay;
+    gaplessInfoHolder.encoderPadding = cachedSampleTables.encoderPadding;
+    return trackSampleTables;
+  }
+
   private boolean shouldSeekToAxteAtom(@Nullable Metadata mdtaMetadata) {
     if (mdtaMetadata == null) {
       return false;
@@ -881,8 +1039,8 @@ public final class Mp4Extractor implements Extractor, SeekMap {
     Mp4Track track = tracks[sampleTrackIndex];
     TrackOutput trackOutput = track.trackOutput;
     int sampleIndex = track.sampleIndex;
-    long position = track.sampleTable.offsets[sampleIndex] + sampleOffsetForAuxiliaryTracks;
-    int sampleSize = track.sampleTable.sizes[sampleIndex];
+    long position = track.sampleTable.getOffset(sampleIndex) + sampleOffsetForAuxiliaryTracks;
+    int sampleSize = track.sampleTable.getSize(sampleIndex);
     @Nullable TrueHdSampleRechunker trueHdSampleRechunker = track.trueHdSampleRechunker;
     long skipAmount = position - inputPosition + sampleBytesRead;
     if (skipAmount < 0 || skipAmount >= RELOAD_MINIMUM_SEEK_DISTANCE) {
@@ -917,7 +1075,7 @@ public final class Mp4Extractor implements Extractor, SeekMap {
           int numberOfBytesToDetermineSampleDependencies = 0;
           if (!isSampleDependedOn
               && nalUnitPrefixLength + NalUnitUtil.numberOfBytesInNalUnitHeader(track.track.format)
-                  <= track.sampleTable.sizes[sampleIndex] - sampleBytesRead) {
+                  <= track.sampleTable.getSize(sampleIndex) - sampleBytesRead) {
             // Parsing sample dependencies needs the first few NAL unit bytes. Read them in the same
             // readFully call that reads the NAL length. This ensures sampleBytesRead,
             // sampleBytesWritten and isSampleDependedOn remain in a consistent state if we have
@@ -984,8 +1142,8 @@ public final class Mp4Extractor implements Extractor, SeekMap {
       }
     }
 
-    long timeUs = track.sampleTable.timestampsUs[sampleIndex];
-    @C.BufferFlags int sampleFlags = track.sampleTable.flags[sampleIndex];
+    long timeUs = track.sampleTable.getTimestampUs(sampleIndex);
+    @C.BufferFlags int sampleFlags = track.sampleTable.getFlags(sampleIndex);
     if (!isSampleDependedOn) {
       sampleFlags |= C.BUFFER_FLAG_NOT_DEPENDED_ON;
     }
@@ -1036,7 +1194,7 @@ public final class Mp4Extractor implements Extractor, SeekMap {
       if (sampleIndex == track.sampleTable.sampleCount) {
         continue;
       }
-      long sampleOffset = track.sampleTable.offsets[sampleIndex];
+      long sampleOffset = track.sampleTable.getOffset(sampleIndex);
       long sampleAccumulatedBytes = castNonNull(accumulatedSampleSizes)[trackIndex][sampleIndex];
       long skipAmount = sampleOffset - inputPosition;
       boolean requiresReload = skipAmount < 0 || skipAmount >= RELOAD_MINIMUM_SEEK_DISTANCE;
@@ -1132,7 +1290,7 @@ public final class Mp4Extractor implements Extractor, SeekMap {
     boolean[] tracksFinished = new boolean[tracks.length];
     for (int i = 0; i < tracks.length; i++) {
       accumulatedSampleSizes[i] = new long[tracks[i].sampleTable.sampleCount];
-      nextSampleTimesUs[i] = tracks[i].sampleTable.timestampsUs[0];
+      nextSampleTimesUs[i] = tracks[i].sampleTable.getTimestampUs(0);
     }
     long accumulatedSampleSize = 0;
     int finishedTracks = 0;
@@ -1147,11 +1305,11 @@ public final class Mp4Extractor implements Extractor, SeekMap {
       }
       int trackSampleIndex = nextSampleIndex[minTimeTrackIndex];
       accumulatedSampleSizes[minTimeTrackIndex][trackSampleIndex] = accumulatedSampleSize;
-      accumulatedSampleSize += tracks[minTimeTrackIndex].sampleTable.sizes[trackSampleIndex];
+      accumulatedSampleSize += tracks[minTimeTrackIndex].sampleTable.getSize(trackSampleIndex);
       nextSampleIndex[minTimeTrackIndex] = ++trackSampleIndex;
       if (trackSampleIndex < accumulatedSampleSizes[minTimeTrackIndex].length) {
         nextSampleTimesUs[minTimeTrackIndex] =
-            tracks[minTimeTrackIndex].sampleTable.timestampsUs[trackSampleIndex];
+            tracks[minTimeTrackIndex].sampleTable.getTimestampUs(trackSampleIndex);
       } else {
         tracksFinished[minTimeTrackIndex] = true;
         finishedTracks++;
@@ -1175,7 +1333,7 @@ public final class Mp4Extractor implements Extractor, SeekMap {
     if (sampleIndex == C.INDEX_UNSET) {
       return offset;
     }
-    long sampleOffset = sampleTable.offsets[sampleIndex];
+    long sampleOffset = sampleTable.getOffset(sampleIndex);
     return min(sampleOffset, offset);
   }
 
@@ -1255,6 +1413,21 @@ public final class Mp4Extractor implements Extractor, SeekMap {
         || atom == Mp4Box.TYPE_ilst;
   }
 
+  /**
+   * Returns whether {@code atom} is a leaf atom that is only needed to build sample tables, and can
+   * therefore be skipped if the sample tables are cached.
+   */
+  private static boolean isSampleTableLeafAtom(int atom) {
+    return atom == Mp4Box.TYPE_stts
+        || atom == Mp4Box.TYPE_stss
+        || atom == Mp4Box.TYPE_ctts
+        || atom == Mp4Box.TYPE_stsc
+        || atom == Mp4Box.TYPE_stsz
+        || atom == Mp4Box.TYPE_stz2
+        || atom == Mp4Box.TYPE_stco
+        || atom == Mp4Box.TYPE_co64;
+  }
+
   /** Returns whether the extractor should decode a container atom with type {@code atom}. */
   private static boolean shouldParseContainerAtom(int atom) {
     return atom == Mp4Box.TYPE_moov
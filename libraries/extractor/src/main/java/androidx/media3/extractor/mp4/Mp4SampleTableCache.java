@@ -0,0 +1,379 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.extractor.mp4;
+
+import androidx.annotation.Nullable;
+import androidx.media3.common.Format;
+import androidx.media3.common.util.Log;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.common.util.Util;
+import androidx.media3.extractor.ExtractorCacheDirectory;
+import androidx.media3.extractor.GaplessInfoHolder;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+/**
+ * A persistent cache of the sample tables that {@link Mp4Extractor} derives from the {@code moov}
+ * box of unfragmented MP4 streams.
+ *
+ * <p>Building the sample tables of a long file requires reading and expanding every sample table
+ * box of every track, which can take hundreds of milliseconds and tens of megabytes. When an
+ * extractor finds a matching entry in this cache it skips these boxes entirely, and only parses the
+ * boxes that describe the tracks themselves.
+ *
+ * <p>Entries are keyed by a string that identifies the resource, such as its cache key, and are
+ * only used if the content length and the position and size of the {@code moov} box also match the
+ * values that were recorded when the entry was written.
+ *
+ * <p>Each entry is stored in its own file. Sample offsets, sizes, timestamps and flags are stored
+ * column by column as variable length integers, with offsets and timestamps delta encoded. Files
+ * are memory mapped when read, and the columns of a track are only decoded when the track is
+ * parsed.
+ *
+ * <p>When the total size of the entries exceeds the maximum size passed to the constructor, the
+ * entries that were least recently used are removed. Use {@link #remove(String)} or {@link
+ * #clear()} to reclaim space sooner.
+ */
+@UnstableApi
+public final class Mp4SampleTableCache {
+
+  private static final String TAG = "Mp4SampleTableCache";
+
+  private static final String FILE_SUFFIX = ".stbl";
+  private static final int MAGIC = 0x6D347374; // "m4st"
+  private static final int VERSION = 1;
+
+  /** The default maximum total size of the entries, in bytes. */
+  public static final long DEFAULT_MAX_SIZE_BYTES = 32 * 1024 * 1024;
+
+  private final ExtractorCacheDirectory cacheDirectory;
+
+  /**
+   * Creates an instance with a maximum size of {@link #DEFAULT_MAX_SIZE_BYTES}.
+   *
+   * @param directory The directory in which to store cache entries. The directory is created if it
+   *     doesn't exist. It should be dedicated to this cache.
+   */
+  public Mp4SampleTableCache(File directory) {
+    this(directory, DEFAULT_MAX_SIZE_BYTES);
+  }
+
+  /**
+   * Creates an instance.
+   *
+   * @param directory The directory in which to store cache entries. The directory is created if it
+   *     doesn't exist. It should be dedicated to this cache.
+   * @param maxSizeBytes The maximum total size of the entries, in bytes.
+   */
+  public Mp4SampleTableCache(File directory, long maxSizeBytes) {
+    cacheDirectory = new ExtractorCacheDirectory(directory, FILE_SUFFIX, maxSizeBytes);
+  }
+
+  /**
+   * Removes the entry for a resource, if there is one.
+   *
+   * @param key The key of the resource.
+   */
+  public void remove(String key) {
+    cacheDirectory.remove(key);
+  }
+
+  /** Removes all entries. */
+  public void clear() {
+    cacheDirectory.clear();
+  }
+
+  /**
+   * Returns the entry for a resource, or {@code null} if there's no entry or if the entry was
+   * written for a different version of the resource.
+   *
+   * @param key The key of the resource.
+   * @param contentLength The length of the resource, in bytes.
+   * @param moovPosition The position of the {@code moov} box in the resource.
+   * @param moovSize The size of the {@code moov} box, including its header.
+   * @param ignoreEditLists Whether the sample tables are built ignoring edit lists.
+   */
+  @Nullable
+  /* package */ Entry get(
+      String key, long contentLength, long moovPosition, long moovSize, boolean ignoreEditLists) {
+    File file = cacheDirectory.getEntryFile(key);
+    if (!file.exists()) {
+      return null;
+    }
+    ByteBuffer buffer;
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+      FileChannel channel = randomAccessFile.getChannel();
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, /* position= */ 0, channel.size());
+    } catch (IOException e) {
+      Log.w(TAG, "Failed to map cache entry", e);
+      return null;
+    }
+    try {
+      if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+        return null;
+      }
+      byte[] keyBytes = new byte[readLength(buffer, /* minElementSize= */ 1)];
+      buffer.get(keyBytes);
+      if (!key.equals(Util.fromUtf8Bytes(keyBytes))
+          || buffer.getLong() != contentLength
+          || buffer.getLong() != moovPosition
+          || buffer.getLong() != moovSize
+          || (buffer.get() != 0) != ignoreEditLists) {
+        return null;
+      }
+      int encoderDelay = buffer.getInt();
+      int encoderPadding = buffer.getInt();
+      int[] trackPositions = new int[readLength(buffer, /* minElementSize= */ 4)];
+      for (int i = 0; i < trackPositions.length; i++) {
+        trackPositions[i] = buffer.getInt();
+      }
+      cacheDirectory.touch(file);
+      return new Entry(buffer, encoderDelay, encoderPadding, trackPositions);
+    } catch (BufferUnderflowException | IllegalArgumentException e) {
+      Log.w(TAG, "Discarding malformed cache entry", e);
+      file.delete();
+      return null;
+    }
+  }
+
+  /**
+   * Writes the entry for a resource, replacing any existing entry. Failures are logged and
+   * otherwise ignored.
+   *
+   * @param key The key of the resource.
+   * @param contentLength The length of the resource, in bytes.
+   * @param moovPosition The position of the {@code moov} box in the resource.
+   * @param moovSize The size of the {@code moov} box, including its header.
+   * @param ignoreEditLists Whether the sample tables were built ignoring edit lists.
+   * @param gaplessInfoHolder The gapless playback information populated while parsing the tracks.
+   * @param trackSampleTables The sample tables of the tracks, in the order they were parsed.
+   */
+  /* package */ void put(
+      String key,
+      long contentLength,
+      long moovPosition,
+      long moovSize,
+      boolean ignoreEditLists,
+      GaplessInfoHolder gaplessInfoHolder,
+      List<TrackSampleTable> trackSampleTables) {
+    try {
+      ByteArrayOutputStream header = new ByteArrayOutputStream();
+      DataOutputStream headerOutput = new DataOutputStream(header);
+      byte[] keyBytes = Util.getUtf8Bytes(key);
+      headerOutput.writeInt(MAGIC);
+      headerOutput.writeInt(VERSION);
+      headerOutput.writeInt(keyBytes.length);
+      headerOutput.write(keyBytes);
+      headerOutput.writeLong(contentLength);
+      headerOutput.writeLong(moovPosition);
+      headerOutput.writeLong(moovSize);
+      headerOutput.writeBoolean(ignoreEditLists);
+      headerOutput.writeInt(gaplessInfoHolder.encoderDelay);
+      headerOutput.writeInt(gaplessInfoHolder.encoderPadding);
+      headerOutput.writeInt(trackSampleTables.size());
+
+      byte[][] trackBlocks = new byte[trackSampleTables.size()][];
+      int trackPosition = header.size() + 4 * trackBlocks.length;
+      for (int i = 0; i < trackBlocks.length; i++) {
+        trackBlocks[i] = encodeTrackSampleTable(trackSampleTables.get(i));
+        headerOutput.writeInt(trackPosition);
+        trackPosition += trackBlocks[i].length;
+      }
+
+      cacheDirectory.put(
+          key,
+          output -> {
+            header.writeTo(output);
+            for (byte[] trackBlock : trackBlocks) {
+              output.write(trackBlock);
+            }
+          });
+    } catch (IOException e) {
+      Log.w(TAG, "Failed to write cache entry", e);
+    }
+  }
+
+  private static byte[] encodeTrackSampleTable(TrackSampleTable table) throws IOException {
+    ByteArrayOutputStream block = new ByteArrayOutputStream();
+    DataOutputStream output = new DataOutputStream(block);
+    Format format = table.track.format;
+    output.writeInt(table.sampleCount);
+    output.writeInt(table.maximumSize);
+    output.writeLong(table.durationUs);
+    output.writeFloat(format.frameRate);
+    output.writeInt(format.averageBitrate);
+    output.writeBoolean(format.hasPrerollSamples);
+    long previousOffset = 0;
+    for (int i = 0; i < table.sampleCount; i++) {
+      writeVarLong(output, zigZagEncode(table.getOffset(i) - previousOffset));
+      previousOffset = table.getOffset(i);
+    }
+    for (int i = 0; i < table.sampleCount; i++) {
+      writeVarLong(output, table.getSize(i) & 0xFFFFFFFFL);
+    }
+    long previousTimestampUs = 0;
+    for (int i = 0; i < table.sampleCount; i++) {
+      writeVarLong(output, zigZagEncode(table.getTimestampUs(i) - previousTimestampUs));
+      previousTimestampUs = table.getTimestampUs(i);
+    }
+    for (int i = 0; i < table.sampleCount; i++) {
+      writeVarLong(output, table.getFlags(i) & 0xFFFFFFFFL);
+    }
+    output.flush();
+    return block.toByteArray();
+  }
+
+  private static void writeVarLong(DataOutputStream output, long value) throws IOException {
+    while ((value & ~0x7FL) != 0) {
+      output.writeByte((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    output.writeByte((int) value);
+  }
+
+  private static long readVarLong(ByteBuffer buffer) {
+    long value = 0;
+    int shift = 0;
+    while (true) {
+      byte b = buffer.get();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+      shift += 7;
+      if (shift >= 64) {
+        throw new IllegalArgumentException("Malformed variable length integer");
+      }
+    }
+  }
+
+  /**
+   * Reads the length of an array from {@code buffer}, checking that the array's elements can fit in
+   * the remaining bytes.
+   */
+  private static int readLength(ByteBuffer buffer, int minElementSize) {
+    int length = buffer.getInt();
+    if (length < 0 || length > buffer.remaining() / minElementSize) {
+      throw new IllegalArgumentException("Invalid length: " + length);
+    }
+    return length;
+  }
+
+  private static long zigZagEncode(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  private static long zigZagDecode(long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  /** A cache entry, backed by the memory mapped entry file. */
+  /* package */ static final class Entry {
+
+    /** The encoder delay recorded after parsing the tracks, or {@link Format#NO_VALUE}. */
+    public final int encoderDelay;
+
+    /** The encoder padding recorded after parsing the tracks, or {@link Format#NO_VALUE}. */
+    public final int encoderPadding;
+
+    private final ByteBuffer buffer;
+    private final int[] trackPositions;
+
+    private Entry(ByteBuffer buffer, int encoderDelay, int encoderPadding, int[] trackPositions) {
+      this.buffer = buffer;
+      this.encoderDelay = encoderDelay;
+      this.encoderPadding = encoderPadding;
+      this.trackPositions = trackPositions;
+    }
+
+    /** Returns the number of sample tables in the entry. */
+    public int getTrackCount() {
+      return trackPositions.length;
+    }
+
+    /**
+     * Decodes the sample table at {@code index}.
+     *
+     * @param index The index of the sample table, in the order the tracks were parsed.
+     * @param track The track parsed from the {@code moov} box, before any sample table dependent
+     *     format changes were applied.
+     * @return The sample table, or {@code null} if the entry is malformed.
+     */
+    @Nullable
+    public TrackSampleTable getTrackSampleTable(int index, Track track) {
+      try {
+        ByteBuffer data = buffer.duplicate();
+        data.position(trackPositions[index]);
+        int sampleCount = data.getInt();
+        int maximumSize = data.getInt();
+        long durationUs = data.getLong();
+        float frameRate = data.getFloat();
+        int averageBitrate = data.getInt();
+        boolean hasPrerollSamples = data.get() != 0;
+        // Each sample takes at least one byte in each of the four columns.
+        if (sampleCount < 0 || sampleCount > data.remaining() / 4) {
+          return null;
+        }
+        long[] offsets = new long[sampleCount];
+        int[] sizes = new int[sampleCount];
+        long[] timestampsUs = new long[sampleCount];
+        int[] flags = new int[sampleCount];
+        long offset = 0;
+        for (int i = 0; i < sampleCount; i++) {
+          offset += zigZagDecode(readVarLong(data));
+          offsets[i] = offset;
+        }
+        for (int i = 0; i < sampleCount; i++) {
+          sizes[i] = (int) readVarLong(data);
+        }
+        long timestampUs = 0;
+        for (int i = 0; i < sampleCount; i++) {
+          timestampUs += zigZagDecode(readVarLong(data));
+          timestampsUs[i] = timestampUs;
+        }
+        for (int i = 0; i < sampleCount; i++) {
+          flags[i] = (int) readVarLong(data);
+        }
+
+        // Reapply the format changes made while the sample table was parsed.
+        Format format = track.format;
+        if (Float.compare(format.frameRate, frameRate) != 0
+            || format.averageBitrate != averageBitrate
+            || format.hasPrerollSamples != hasPrerollSamples) {
+          track =
+              track.copyWithFormat(
+                  format
+                      .buildUpon()
+                      .setFrameRate(frameRate)
+                      .setAverageBitrate(averageBitrate)
+                      .setHasPrerollSamples(hasPrerollSamples)
+                      .build());
+        }
+        return new TrackSampleTable(
+            track, offsets, sizes, maximumSize, timestampsUs, flags, durationUs);
+      } catch (BufferUnderflowException | IllegalArgumentException e) {
+        return null;
+      }
+    }
+  }
+}
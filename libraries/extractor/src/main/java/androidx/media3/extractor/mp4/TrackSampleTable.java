@@ -15,39 +15,76 @@
  */
 package androidx.media3.extractor.mp4;
 
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 import androidx.media3.common.C;
 import androidx.media3.common.util.Assertions;
 import androidx.media3.common.util.UnstableApi;
-import androidx.media3.common.util.Util;
+import java.util.Arrays;
 
-/** Sample table for a track in an MP4 file. */
+/**
+ * Sample table for a track in an MP4 file.
+ *
+ * <p>Sample tables of long-form content can contain hundreds of thousands of samples, so the
+ * per-sample values are stored packed rather than as one array per property:
+ *
+ * <ul>
+ *   <li>Offsets and timestamps are stored in blocks of 64 samples, as a 64-bit value for the first
+ *       sample of the block and 32-bit deltas from that value for each sample.
+ *   <li>Sizes are stored once if all samples have the same size, and as 16-bit values if they all
+ *       fit.
+ *   <li>Flags are stored as the sorted indices of the synchronization samples, or not at all if
+ *       every sample is a synchronization sample.
+ * </ul>
+ *
+ * <p>Each column falls back to a plain array if its values can't be packed. All accessors are O(1),
+ * except {@link #getFlags(int)} and the synchronization sample lookups, which are O(log n).
+ */
 @UnstableApi
 public final class TrackSampleTable {
 
+  /** The number of samples in a block of packed offsets and timestamps. */
+  private static final int BLOCK_SIZE = 64;
+
+  private static final int BLOCK_SHIFT = 6;
+
   /** The track corresponding to this sample table. */
   public final Track track;
 
   /** Number of samples. */
   public final int sampleCount;
 
-  /** Sample offsets in bytes. */
-  public final long[] offsets;
-
-  /** Sample sizes in bytes. */
-  public final int[] sizes;
-
-  /** Maximum sample size in {@link #sizes}. */
+  /** Maximum sample size in bytes. */
   public final int maximumSize;
 
-  /** Sample timestamps in microseconds. */
-  public final long[] timestampsUs;
-
-  /** Sample flags. */
-  public final int[] flags;
-
   /** The duration of the track sample table in microseconds. */
   public final long durationUs;
 
+  private final PackedLongs offsets;
+  private final PackedInts sizes;
+  private final PackedLongs timestampsUs;
+
+  /**
+   * The sorted indices of the synchronization samples, or {@code null} if all samples are
+   * synchronization samples or if {@link #flags} is set.
+   */
+  @Nullable private final int[] syncSampleIndices;
+
+  /** The flags of each sample, or {@code null} if the flags are described by sync indices. */
+  @Nullable private final int[] flags;
+
+  /**
+   * Creates an instance from per-sample arrays. The arrays are packed where possible, but may be
+   * retained and must not be modified after this call.
+   *
+   * @param track The track corresponding to this sample table.
+   * @param offsets Sample offsets in bytes.
+   * @param sizes Sample sizes in bytes.
+   * @param maximumSize Maximum sample size in {@code sizes}.
+   * @param timestampsUs Sample timestamps in microseconds.
+   * @param flags Sample flags. {@link C#BUFFER_FLAG_LAST_SAMPLE} is added to the last sample.
+   * @param durationUs The duration of the track sample table in microseconds.
+   */
   public TrackSampleTable(
       Track track,
       long[] offsets,
@@ -61,18 +98,82 @@ public final class TrackSampleTable {
     Assertions.checkArgument(flags.length == timestampsUs.length);
 
     this.track = track;
-    this.offsets = offsets;
-    this.sizes = sizes;
     this.maximumSize = maximumSize;
-    this.timestampsUs = timestampsUs;
-    this.flags = flags;
     this.durationUs = durationUs;
     sampleCount = offsets.length;
-    if (flags.length > 0) {
-      flags[flags.length - 1] |= C.BUFFER_FLAG_LAST_SAMPLE;
+    this.offsets = new PackedLongs(offsets);
+    this.sizes = new PackedInts(sizes);
+    this.timestampsUs = new PackedLongs(timestampsUs);
+
+    int syncSampleCount = 0;
+    boolean hasOtherFlags = false;
+    for (int i = 0; i < sampleCount; i++) {
+      int sampleFlags = flags[i] & ~(i == sampleCount - 1 ? C.BUFFER_FLAG_LAST_SAMPLE : 0);
+      if (sampleFlags == C.BUFFER_FLAG_KEY_FRAME) {
+        syncSampleCount++;
+      } else if (sampleFlags != 0) {
+        hasOtherFlags = true;
+        break;
+      }
+    }
+    if (hasOtherFlags) {
+      int[] packedFlags = Arrays.copyOf(flags, sampleCount);
+      packedFlags[sampleCount - 1] |= C.BUFFER_FLAG_LAST_SAMPLE;
+      this.flags = packedFlags;
+      syncSampleIndices = null;
+    } else if (syncSampleCount == sampleCount) {
+      this.flags = null;
+      syncSampleIndices = null;
+    } else {
+      this.flags = null;
+      int[] syncSampleIndices = new int[syncSampleCount];
+      for (int i = 0, j = 0; i < sampleCount; i++) {
+        if ((flags[i] & C.BUFFER_FLAG_KEY_FRAME) != 0) {
+          syncSampleIndices[j++] = i;
+        }
+      }
+      this.syncSampleIndices = syncSampleIndices;
     }
   }
 
+  /** Returns the offset of the sample at {@code index}, in bytes. */
+  public long getOffset(int index) {
+    return offsets.get(index);
+  }
+
+  /** Returns the size of the sample at {@code index}, in bytes. */
+  public int getSize(int index) {
+    return sizes.get(index);
+  }
+
+  /** Returns the timestamp of the sample at {@code index}, in microseconds. */
+  public long getTimestampUs(int index) {
+    return timestampsUs.get(index);
+  }
+
+  /** Returns the {@link C.BufferFlags} of the sample at {@code index}. */
+  public @C.BufferFlags int getFlags(int index) {
+    @Nullable int[] flags = this.flags;
+    if (flags != null) {
+      return flags[index];
+    }
+    Assertions.checkIndex(index, 0, sampleCount);
+    @C.BufferFlags int sampleFlags = isSyncSample(index) ? C.BUFFER_FLAG_KEY_FRAME : 0;
+    if (index == sampleCount - 1) {
+      sampleFlags |= C.BUFFER_FLAG_LAST_SAMPLE;
+    }
+    return sampleFlags;
+  }
+
+  /** Returns a new array containing the timestamps of all samples, in microseconds. */
+  public long[] getTimestampsUs() {
+    long[] timestampsUs = new long[sampleCount];
+    for (int i = 0; i < sampleCount; i++) {
+      timestampsUs[i] = this.timestampsUs.get(i);
+    }
+    return timestampsUs;
+  }
+
   /**
    * Returns the sample index of the closest synchronization sample at or before the given
    * timestamp, if one is available.
@@ -83,13 +184,28 @@ public final class TrackSampleTable {
   public int getIndexOfEarlierOrEqualSynchronizationSample(long timeUs) {
     // Video frame timestamps may not be sorted, so the behavior of this call can be undefined.
     // Frames are not reordered past synchronization samples so this works in practice.
-    int startIndex = Util.binarySearchFloor(timestampsUs, timeUs, true, false);
-    for (int i = startIndex; i >= 0; i--) {
-      if ((flags[i] & C.BUFFER_FLAG_KEY_FRAME) != 0) {
-        return i;
+    int startIndex = binarySearchTimestampFloor(timeUs);
+    @Nullable int[] flags = this.flags;
+    if (flags != null) {
+      for (int i = startIndex; i >= 0; i--) {
+        if ((flags[i] & C.BUFFER_FLAG_KEY_FRAME) != 0) {
+          return i;
+        }
       }
+      return C.INDEX_UNSET;
+    }
+    if (startIndex < 0) {
+      return C.INDEX_UNSET;
+    }
+    @Nullable int[] syncSampleIndices = this.syncSampleIndices;
+    if (syncSampleIndices == null) {
+      return startIndex;
     }
-    return C.INDEX_UNSET;
+    int syncIndex = Arrays.binarySearch(syncSampleIndices, startIndex);
+    if (syncIndex < 0) {
+      syncIndex = -(syncIndex + 2);
+    }
+    return syncIndex >= 0 ? syncSampleIndices[syncIndex] : C.INDEX_UNSET;
   }
 
   /**
@@ -100,12 +216,196 @@ public final class TrackSampleTable {
    * @return index Index of the synchronization sample, or {@link C#INDEX_UNSET} if none.
    */
   public int getIndexOfLaterOrEqualSynchronizationSample(long timeUs) {
-    int startIndex = Util.binarySearchCeil(timestampsUs, timeUs, true, false);
-    for (int i = startIndex; i < timestampsUs.length; i++) {
-      if ((flags[i] & C.BUFFER_FLAG_KEY_FRAME) != 0) {
-        return i;
+    int startIndex = binarySearchTimestampCeil(timeUs);
+    @Nullable int[] flags = this.flags;
+    if (flags != null) {
+      for (int i = startIndex; i < sampleCount; i++) {
+        if ((flags[i] & C.BUFFER_FLAG_KEY_FRAME) != 0) {
+          return i;
+        }
+      }
+      return C.INDEX_UNSET;
+    }
+    if (startIndex >= sampleCount) {
+      return C.INDEX_UNSET;
+    }
+    @Nullable int[] syncSampleIndices = this.syncSampleIndices;
+    if (syncSampleIndices == null) {
+      return startIndex;
+    }
+    int syncIndex = Arrays.binarySearch(syncSampleIndices, startIndex);
+    if (syncIndex < 0) {
+      syncIndex = -(syncIndex + 1);
+    }
+    return syncIndex < syncSampleIndices.length ? syncSampleIndices[syncIndex] : C.INDEX_UNSET;
+  }
+
+  /**
+   * Returns an estimate of the number of bytes used to store the per-sample values of this table.
+   */
+  @VisibleForTesting
+  /* package */ long getPackedSizeBytes() {
+    long sizeBytes = offsets.getSizeBytes() + sizes.getSizeBytes() + timestampsUs.getSizeBytes();
+    @Nullable int[] flags = this.flags;
+    @Nullable int[] syncSampleIndices = this.syncSampleIndices;
+    if (flags != null) {
+      sizeBytes += 4L * flags.length;
+    } else if (syncSampleIndices != null) {
+      sizeBytes += 4L * syncSampleIndices.length;
+    }
+    return sizeBytes;
+  }
+
+  private boolean isSyncSample(int index) {
+    @Nullable int[] syncSampleIndices = this.syncSampleIndices;
+    return syncSampleIndices == null || Arrays.binarySearch(syncSampleIndices, index) >= 0;
+  }
+
+  /**
+   * Equivalent to {@code Util.binarySearchFloor(timestampsUs, timeUs, true, false)}, including for
+   * unsorted timestamps.
+   */
+  private int binarySearchTimestampFloor(long timeUs) {
+    int index = binarySearchTimestamp(timeUs);
+    if (index < 0) {
+      return -(index + 2);
+    }
+    while (--index >= 0 && timestampsUs.get(index) == timeUs) {}
+    return index + 1;
+  }
+
+  /**
+   * Equivalent to {@code Util.binarySearchCeil(timestampsUs, timeUs, true, false)}, including for
+   * unsorted timestamps.
+   */
+  private int binarySearchTimestampCeil(long timeUs) {
+    int index = binarySearchTimestamp(timeUs);
+    if (index < 0) {
+      return ~index;
+    }
+    while (++index < sampleCount && timestampsUs.get(index) == timeUs) {}
+    return index - 1;
+  }
+
+  /** Equivalent to {@link Arrays#binarySearch(long[], long)} on the timestamps. */
+  private int binarySearchTimestamp(long timeUs) {
+    int low = 0;
+    int high = sampleCount - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      long midTimeUs = timestampsUs.get(mid);
+      if (midTimeUs < timeUs) {
+        low = mid + 1;
+      } else if (midTimeUs > timeUs) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -(low + 1);
+  }
+
+  /**
+   * 64-bit values stored as a base value per block and a 32-bit delta per value, or as a plain
+   * array if a delta doesn't fit in 32 bits.
+   */
+  private static final class PackedLongs {
+
+    private final long[] blockBases;
+    private final int[] deltas;
+    @Nullable private final long[] values;
+
+    public PackedLongs(long[] values) {
+      long[] blockBases = new long[(values.length + BLOCK_SIZE - 1) >>> BLOCK_SHIFT];
+      int[] deltas = new int[values.length];
+      for (int i = 0; i < values.length; i++) {
+        if ((i & (BLOCK_SIZE - 1)) == 0) {
+          blockBases[i >>> BLOCK_SHIFT] = values[i];
+        }
+        long delta = values[i] - blockBases[i >>> BLOCK_SHIFT];
+        if (delta != (int) delta) {
+          this.blockBases = new long[0];
+          this.deltas = new int[0];
+          this.values = values;
+          return;
+        }
+        deltas[i] = (int) delta;
+      }
+      this.blockBases = blockBases;
+      this.deltas = deltas;
+      this.values = null;
+    }
+
+    public long get(int index) {
+      @Nullable long[] values = this.values;
+      return values != null ? values[index] : blockBases[index >>> BLOCK_SHIFT] + deltas[index];
+    }
+
+    public long getSizeBytes() {
+      @Nullable long[] values = this.values;
+      return values != null ? 8L * values.length : 8L * blockBases.length + 4L * deltas.length;
+    }
+  }
+
+  /**
+   * Non-negative 32-bit values stored as a single value if they're all equal, as 16-bit values if
+   * they all fit, or as a plain array otherwise.
+   */
+  private static final class PackedInts {
+
+    private final int length;
+    private final int constantValue;
+    @Nullable private final char[] shortValues;
+    @Nullable private final int[] values;
+
+    public PackedInts(int[] values) {
+      length = values.length;
+      boolean isConstant = true;
+      boolean fitsInShort = true;
+      for (int value : values) {
+        isConstant &= value == values[0];
+        fitsInShort &= value >= 0 && value <= Character.MAX_VALUE;
+      }
+      if (isConstant) {
+        constantValue = values.length > 0 ? values[0] : 0;
+        shortValues = null;
+        this.values = null;
+      } else if (fitsInShort) {
+        constantValue = 0;
+        char[] shortValues = new char[values.length];
+        for (int i = 0; i < values.length; i++) {
+          shortValues[i] = (char) values[i];
+        }
+        this.shortValues = shortValues;
+        this.values = null;
+      } else {
+        constantValue = 0;
+        shortValues = null;
+        this.values = values;
+      }
+    }
+
+    public int get(int index) {
+      @Nullable int[] values = this.values;
+      @Nullable char[] shortValues = this.shortValues;
+      if (values != null) {
+        return values[index];
+      } else if (shortValues != null) {
+        return shortValues[index];
+      }
+      Assertions.checkIndex(index, 0, length);
+      return constantValue;
+    }
+
+    public long getSizeBytes() {
+      @Nullable int[] values = this.values;
+      @Nullable char[] shortValues = this.shortValues;
+      if (values != null) {
+        return 4L * values.length;
+      } else if (shortValues != null) {
+        return 2L * shortValues.length;
       }
+      return 4;
     }
-    return C.INDEX_UNSET;
   }
 }
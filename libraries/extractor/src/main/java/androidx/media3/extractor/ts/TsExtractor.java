@@ -15,8 +15,11 @@
  */
 package androidx.media3.extractor.ts;
 
+import static androidx.media3.common.util.Assertions.checkNotNull;
 import static androidx.media3.extractor.ts.TsPayloadReader.EsInfo.AUDIO_TYPE_UNDEFINED;
 import static androidx.media3.extractor.ts.TsPayloadReader.FLAG_PAYLOAD_UNIT_START_INDICATOR;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
 import static java.lang.annotation.ElementType.TYPE_USE;
 
 import android.util.SparseArray;
@@ -92,15 +95,15 @@ public final class TsExtractor implements Extractor {
   public static final int MODE_HLS = 2;
 
   /**
-   * Flags controlling the behavior of the extractor. Possible flag value is {@link
-   * #FLAG_EMIT_RAW_SUBTITLE_DATA}.
+   * Flags controlling the behavior of the extractor. Possible flag values are {@link
+   * #FLAG_EMIT_RAW_SUBTITLE_DATA} and {@link #FLAG_ENABLE_PIPELINED_PAYLOAD_READING}.
    */
   @Documented
   @Retention(RetentionPolicy.SOURCE)
   @Target(TYPE_USE)
   @IntDef(
       flag = true,
-      value = {FLAG_EMIT_RAW_SUBTITLE_DATA})
+      value = {FLAG_EMIT_RAW_SUBTITLE_DATA, FLAG_ENABLE_PIPELINED_PAYLOAD_READING})
   public @interface Flags {}
 
   /**
@@ -109,6 +112,18 @@ public final class TsExtractor implements Extractor {
    */
   public static final int FLAG_EMIT_RAW_SUBTITLE_DATA = 1;
 
+  /**
+   * Flag to consume the payloads of elementary streams on worker threads. TS packets are still
+   * read, synchronized and routed by PID on the loading thread, but each PID's payloads are parsed
+   * by one of a small number of worker threads. Samples are output in the same order as without
+   * this flag for each track, but the tracks are written concurrently. This allows extracting high
+   * bitrate streams with several programs or elementary streams faster on multi-core devices.
+   *
+   * <p>Payloads are parsed on the loading thread until the sample timestamp offset has been
+   * established, so that it's derived from the same packet as without this flag.
+   */
+  public static final int FLAG_ENABLE_PIPELINED_PAYLOAD_READING = 1 << 1;
+
   /**
    * @deprecated Use {@link #newFactory(SubtitleParser.Factory)} instead.
    */
@@ -159,6 +174,15 @@ public final class TsExtractor implements Extractor {
   private static final int BUFFER_SIZE = TS_PACKET_SIZE * 50;
   private static final int SNIFF_TS_PACKET_COUNT = 5;
 
+  /**
+   * The maximum number of packets read in a call to {@link #read} when {@link
+   * #FLAG_ENABLE_PIPELINED_PAYLOAD_READING} is set. All queued payloads are consumed before {@link
+   * #read} returns, so that no payload reader is running when the extractor is seeked or released.
+   */
+  private static final int PIPELINED_PACKETS_PER_READ = 1024;
+
+  private static final int MAX_PIPELINE_WORKER_COUNT = 4;
+
   private final @Mode int mode;
   private final @Flags int extractorFlags;
   private final int timestampSearchBytes;
@@ -182,6 +206,8 @@ public final class TsExtractor implements Extractor {
   @Nullable private TsPayloadReader id3Reader;
   private int bytesSinceLastSync;
   private int pcrPid;
+  @Nullable private TsPayloadReaderPipeline payloadReaderPipeline;
+  private boolean timestampAdjustersInitialized;
 
   /**
    * @deprecated Use {@link #TsExtractor(SubtitleParser.Factory)} instead.
@@ -408,6 +434,7 @@ public final class TsExtractor implements Extractor {
     if (timeUs != 0 && tsBinarySearchSeeker != null) {
       tsBinarySearchSeeker.setSeekTargetUs(timeUs);
     }
+    timestampAdjustersInitialized = false;
     tsPacketBuffer.reset(/* limit= */ 0);
     continuityCounters.clear();
     for (int i = 0; i < tsPayloadReaders.size(); i++) {
@@ -418,7 +445,10 @@ public final class TsExtractor implements Extractor {
 
   @Override
   public void release() {
-    // Do nothing
+    if (payloadReaderPipeline != null) {
+      payloadReaderPipeline.release();
+      payloadReaderPipeline = null;
+    }
   }
 
   @Override
@@ -447,7 +477,41 @@ public final class TsExtractor implements Extractor {
       }
     }
 
+    if ((extractorFlags & FLAG_ENABLE_PIPELINED_PAYLOAD_READING) == 0) {
+      return readTsPacket(input, inputLength);
+    }
+    if (payloadReaderPipeline == null) {
+      int workerCount =
+          max(1, min(MAX_PIPELINE_WORKER_COUNT, Runtime.getRuntime().availableProcessors() - 1));
+      payloadReaderPipeline = new TsPayloadReaderPipeline(workerCount);
+    }
+    // Read a number of packets before waiting for the queued payloads to be consumed, so that the
+    // payload readers run concurrently with each other and with reading the input. Stop early if
+    // the tracks have ended, since the extractor may need to seek to the start.
+    boolean wereTracksEnded = tracksEnded;
+    @ReadResult int result;
+    int packetCount = 0;
+    try {
+      do {
+        result = readTsPacket(input, inputLength);
+        packetCount++;
+      } while (result == RESULT_CONTINUE
+          && packetCount < PIPELINED_PACKETS_PER_READ
+          && tracksEnded == wereTracksEnded);
+    } finally {
+      payloadReaderPipeline.flush();
+    }
+    return result;
+  }
+
+  // Internals.
+
+  private @ReadResult int readTsPacket(ExtractorInput input, long inputLength) throws IOException {
+    boolean isModeHls = mode == MODE_HLS;
     if (!fillBufferWithAtLeastOnePacket(input)) {
+      if (payloadReaderPipeline != null) {
+        payloadReaderPipeline.flush();
+      }
       // Send a synthesized empty pusi to allow for packetFinished to be triggered on the last unit.
       for (int i = 0; i < tsPayloadReaders.size(); i++) {
         TsPayloadReader payloadReader = tsPayloadReaders.valueAt(i);
@@ -489,6 +553,17 @@ public final class TsExtractor implements Extractor {
       return RESULT_CONTINUE;
     }
 
+    // Payloads of elementary streams can be consumed in the pipeline once the sample timestamp
+    // offset is known. Other payloads may affect the state of the extractor, or depend on the
+    // timestamps of other elementary streams, so they're consumed after the pipeline is flushed.
+    boolean consumeInPipeline =
+        payloadReaderPipeline != null
+            && payloadReader instanceof PesReader
+            && areTimestampAdjustersInitialized();
+    if (payloadReaderPipeline != null && !consumeInPipeline) {
+      payloadReaderPipeline.flush();
+    }
+
     // Discontinuity check.
     if (mode != MODE_HLS) {
       int continuityCounter = tsPacketHeader & 0xF;
@@ -500,7 +575,11 @@ public final class TsExtractor implements Extractor {
         return RESULT_CONTINUE;
       } else if (continuityCounter != ((previousCounter + 1) & 0xF)) {
         // Discontinuity found.
-        payloadReader.seek();
+        if (consumeInPipeline) {
+          checkNotNull(payloadReaderPipeline).seek(pid, payloadReader);
+        } else {
+          payloadReader.seek();
+        }
       }
     }
 
@@ -520,7 +599,12 @@ public final class TsExtractor implements Extractor {
     boolean wereTracksEnded = tracksEnded;
     if (shouldConsumePacketPayload(pid)) {
       tsPacketBuffer.setLimit(endOfPacket);
-      payloadReader.consume(tsPacketBuffer, packetHeaderFlags);
+      if (consumeInPipeline) {
+        checkNotNull(payloadReaderPipeline)
+            .consume(pid, payloadReader, tsPacketBuffer, packetHeaderFlags);
+      } else {
+        payloadReader.consume(tsPacketBuffer, packetHeaderFlags);
+      }
       tsPacketBuffer.setLimit(limit);
     }
     if (mode != MODE_HLS && !wereTracksEnded && tracksEnded && inputLength != C.LENGTH_UNSET) {
@@ -534,7 +618,18 @@ public final class TsExtractor implements Extractor {
     return RESULT_CONTINUE;
   }
 
-  // Internals.
+  private boolean areTimestampAdjustersInitialized() {
+    if (!timestampAdjustersInitialized) {
+      timestampAdjustersInitialized = true;
+      for (int i = 0; i < timestampAdjusters.size(); i++) {
+        if (timestampAdjusters.get(i).getTimestampOffsetUs() == C.TIME_UNSET) {
+          timestampAdjustersInitialized = false;
+          break;
+        }
+      }
+    }
+    return timestampAdjustersInitialized;
+  }
 
   private void maybeOutputSeekMap(long inputLength) {
     if (!hasOutputSeekMap) {
@@ -729,6 +824,7 @@ public final class TsExtractor implements Extractor {
         timestampAdjuster =
             new TimestampAdjuster(timestampAdjusters.get(0).getFirstSampleTimestampUs());
         timestampAdjusters.add(timestampAdjuster);
+        timestampAdjustersInitialized = false;
       }
 
       // section_syntax_indicator(1), '0'(1), reserved(2), section_length(4)
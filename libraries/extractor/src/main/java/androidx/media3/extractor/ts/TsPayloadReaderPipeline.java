@@ -0,0 +1,283 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.extractor.ts;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.Nullable;
+import androidx.media3.common.util.NullableType;
+import androidx.media3.common.util.ParsableByteArray;
+import androidx.media3.common.util.Util;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Consumes TS packet payloads with {@link TsPayloadReader}s on worker threads.
+ *
+ * <p>Each PID is assigned to a single worker, so that the payloads of a PID are consumed in order
+ * and the samples written to each {@link androidx.media3.extractor.TrackOutput} keep their order.
+ * Payloads are copied and handed to the workers in batches. The number of batches per worker is
+ * bounded, so {@link #consume} blocks if a worker falls behind.
+ *
+ * <p>All methods must be called from the same thread. Payload readers must not be accessed from
+ * that thread between a call to {@link #consume} for the reader and the next call to {@link
+ * #flush}.
+ */
+/* package */ final class TsPayloadReaderPipeline {
+
+  private static final String THREAD_NAME = "ExoPlayer:TsPayloadReader";
+  private static final int PACKETS_PER_BATCH = 64;
+  private static final int BATCHES_PER_WORKER = 4;
+
+  private final Worker[] workers;
+  private final Object lock;
+
+  @GuardedBy("lock")
+  private int pendingBatchCount;
+
+  @GuardedBy("lock")
+  @Nullable
+  private Throwable error;
+
+  /**
+   * Creates an instance.
+   *
+   * @param workerCount The number of worker threads.
+   */
+  public TsPayloadReaderPipeline(int workerCount) {
+    lock = new Object();
+    workers = new Worker[workerCount];
+    for (int i = 0; i < workerCount; i++) {
+      workers[i] = new Worker();
+    }
+  }
+
+  /**
+   * Queues a TS packet payload to be consumed by a payload reader.
+   *
+   * @param pid The PID of the packet.
+   * @param payloadReader The reader for the PID.
+   * @param data The packet data, positioned at the start of the payload. The limit must be the end
+   *     of the packet.
+   * @param flags The flags to pass to {@link TsPayloadReader#consume}.
+   * @throws InterruptedIOException If the thread was interrupted while waiting for a worker.
+   */
+  public void consume(
+      int pid,
+      TsPayloadReader payloadReader,
+      ParsableByteArray data,
+      @TsPayloadReader.Flags int flags)
+      throws InterruptedIOException {
+    getBatch(pid).addPayload(payloadReader, data, flags);
+    maybeSubmitBatch(pid);
+  }
+
+  /**
+   * Queues a call to {@link TsPayloadReader#seek()}, which is made after any previously queued
+   * payloads for the same PID have been consumed.
+   *
+   * @param pid The PID of the reader.
+   * @param payloadReader The reader to seek.
+   * @throws InterruptedIOException If the thread was interrupted while waiting for a worker.
+   */
+  public void seek(int pid, TsPayloadReader payloadReader) throws InterruptedIOException {
+    getBatch(pid).addSeek(payloadReader);
+    maybeSubmitBatch(pid);
+  }
+
+  /**
+   * Waits until all queued payloads have been consumed.
+   *
+   * <p>Waiting isn't interruptible, so that no payload reader is running when this method returns.
+   * The interrupted status of the thread is preserved.
+   *
+   * @throws IOException If a payload reader threw an {@link IOException}. No further payloads are
+   *     consumed after a payload reader throws.
+   */
+  public void flush() throws IOException {
+    for (Worker worker : workers) {
+      if (worker.currentBatch != null && worker.currentBatch.size > 0) {
+        submitBatch(worker);
+      }
+    }
+    @Nullable Throwable error;
+    synchronized (lock) {
+      boolean wasInterrupted = false;
+      while (pendingBatchCount > 0) {
+        try {
+          lock.wait();
+        } catch (InterruptedException e) {
+          wasInterrupted = true;
+        }
+      }
+      if (wasInterrupted) {
+        Thread.currentThread().interrupt();
+      }
+      error = this.error;
+      this.error = null;
+    }
+    if (error instanceof IOException) {
+      throw (IOException) error;
+    } else if (error instanceof RuntimeException) {
+      throw (RuntimeException) error;
+    } else if (error != null) {
+      throw (Error) error;
+    }
+  }
+
+  /** Releases the worker threads. Must be called after {@link #flush()}. */
+  public void release() {
+    for (Worker worker : workers) {
+      worker.executorService.shutdown();
+    }
+  }
+
+  private PacketBatch getBatch(int pid) throws InterruptedIOException {
+    Worker worker = workers[pid % workers.length];
+    if (worker.currentBatch == null) {
+      try {
+        worker.currentBatch = worker.freeBatches.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException();
+      }
+    }
+    return worker.currentBatch;
+  }
+
+  private void maybeSubmitBatch(int pid) {
+    Worker worker = workers[pid % workers.length];
+    if (worker.currentBatch != null && worker.currentBatch.size == PACKETS_PER_BATCH) {
+      submitBatch(worker);
+    }
+  }
+
+  private void submitBatch(Worker worker) {
+    PacketBatch batch = Util.castNonNull(worker.currentBatch);
+    worker.currentBatch = null;
+    synchronized (lock) {
+      pendingBatchCount++;
+    }
+    worker.executorService.execute(() -> consumeBatch(worker, batch));
+  }
+
+  private void consumeBatch(Worker worker, PacketBatch batch) {
+    @Nullable Throwable batchError = null;
+    boolean skipBatch;
+    synchronized (lock) {
+      skipBatch = error != null;
+    }
+    if (!skipBatch) {
+      try {
+        batch.consume(worker.payload);
+      } catch (Throwable e) {
+        batchError = e;
+      }
+    }
+    batch.clear();
+    worker.freeBatches.add(batch);
+    synchronized (lock) {
+      if (batchError != null && error == null) {
+        error = batchError;
+      }
+      pendingBatchCount--;
+      if (pendingBatchCount == 0) {
+        lock.notifyAll();
+      }
+    }
+  }
+
+  private static final class Worker {
+
+    public final ExecutorService executorService;
+    public final ArrayBlockingQueue<PacketBatch> freeBatches;
+    public final ParsableByteArray payload;
+
+    @Nullable public PacketBatch currentBatch;
+
+    public Worker() {
+      executorService = Util.newSingleThreadExecutor(THREAD_NAME);
+      freeBatches = new ArrayBlockingQueue<>(BATCHES_PER_WORKER);
+      for (int i = 0; i < BATCHES_PER_WORKER; i++) {
+        freeBatches.add(new PacketBatch());
+      }
+      payload = new ParsableByteArray();
+    }
+  }
+
+  /** Copies of packet payloads and the readers that consume them. */
+  private static final class PacketBatch {
+
+    /**
+     * Value of {@link #flags} for entries that represent a call to {@link TsPayloadReader#seek}.
+     */
+    private static final int FLAGS_SEEK = -1;
+
+    private final byte[] data;
+    private final @NullableType TsPayloadReader[] readers;
+    private final int[] limits;
+    private final int[] flags;
+
+    public int size;
+
+    public PacketBatch() {
+      data = new byte[PACKETS_PER_BATCH * TsExtractor.TS_PACKET_SIZE];
+      readers = new TsPayloadReader[PACKETS_PER_BATCH];
+      limits = new int[PACKETS_PER_BATCH];
+      flags = new int[PACKETS_PER_BATCH];
+    }
+
+    public void addPayload(TsPayloadReader reader, ParsableByteArray payload, int flags) {
+      int offset = size == 0 ? 0 : limits[size - 1];
+      int length = payload.bytesLeft();
+      payload.readBytes(data, offset, length);
+      readers[size] = reader;
+      limits[size] = offset + length;
+      this.flags[size] = flags;
+      size++;
+    }
+
+    public void addSeek(TsPayloadReader reader) {
+      readers[size] = reader;
+      limits[size] = size == 0 ? 0 : limits[size - 1];
+      flags[size] = FLAGS_SEEK;
+      size++;
+    }
+
+    public void consume(ParsableByteArray payload) throws IOException {
+      int offset = 0;
+      for (int i = 0; i < size; i++) {
+        TsPayloadReader reader = Util.castNonNull(readers[i]);
+        if (flags[i] == FLAGS_SEEK) {
+          reader.seek();
+        } else {
+          payload.reset(data, limits[i]);
+          payload.setPosition(offset);
+          reader.consume(payload, flags[i]);
+        }
+        offset = limits[i];
+      }
+    }
+
+    public void clear() {
+      for (int i = 0; i < size; i++) {
+        readers[i] = null;
+      }
+      size = 0;
+    }
+  }
+}
@@ -23,11 +23,14 @@ import static org.junit.Assert.fail;
 
 import android.net.Uri;
 import androidx.media3.common.C;
+import androidx.media3.common.DataReader;
 import androidx.media3.datasource.DataSpec;
 import androidx.media3.test.utils.FakeDataSource;
+import androidx.media3.test.utils.TestUtil;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import java.io.EOFException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -125,6 +128,38 @@ public class DefaultExtractorInputTest {
     assertThat(bytesRead).isEqualTo(0);
   }
 
+  @Test
+  public void readByteBuffer_advancesPosition() throws Exception {
+    DataReader dataReader =
+        new DataReader() {
+          @Override
+          public int read(byte[] target, int offset, int length) {
+            throw new UnsupportedOperationException();
+          }
+
+          @Override
+          public ByteBuffer readByteBuffer(int length) {
+            return ByteBuffer.wrap(TEST_DATA, /* offset= */ 0, length);
+          }
+        };
+    DefaultExtractorInput input = new DefaultExtractorInput(dataReader, 0, C.LENGTH_UNSET);
+
+    ByteBuffer buffer = input.readByteBuffer(/* length= */ 4);
+
+    assertThat(buffer.remaining()).isEqualTo(4);
+    assertThat(input.getPosition()).isEqualTo(4);
+  }
+
+  @Test
+  public void readByteBuffer_afterPeek_returnsNull() throws Exception {
+    DefaultExtractorInput input = createDefaultExtractorInput();
+
+    input.advancePeekPosition(1);
+
+    assertThat(input.readByteBuffer(/* length= */ 1)).isNull();
+    assertThat(input.getPosition()).isEqualTo(0);
+  }
+
   @Test
   public void readFullyOnce() throws Exception {
     DefaultExtractorInput input = createDefaultExtractorInput();
@@ -636,6 +671,42 @@ public class DefaultExtractorInputTest {
     return testDataSource;
   }
 
+  @Test
+  public void peekFully_afterPartialRead_returnsDataWrappingAroundPeekBuffer() throws Exception {
+    byte[] data = TestUtil.buildTestData(/* length= */ 200_000);
+    FakeDataSource testDataSource = new FakeDataSource();
+    testDataSource.getDataSet().newDefaultData().appendReadData(data);
+    testDataSource.open(new DataSpec(Uri.parse(TEST_URI)));
+    DefaultExtractorInput input = new DefaultExtractorInput(testDataSource, 0, data.length);
+    byte[] target = new byte[60_000];
+
+    input.advancePeekPosition(60_000);
+    input.skipFully(50_000);
+    // The peeked data now wraps around the end of the peek buffer.
+    input.peekFully(target, /* offset= */ 0, /* length= */ 60_000);
+
+    assertThat(target).isEqualTo(copyOfRange(data, 50_000, 110_000));
+    input.readFully(target, /* offset= */ 0, /* length= */ 60_000);
+    assertThat(target).isEqualTo(copyOfRange(data, 50_000, 110_000));
+    assertThat(input.getPosition()).isEqualTo(110_000);
+  }
+
+  @Test
+  public void peek_afterAnotherInputReleased_doesNotReturnReleasedData() throws Exception {
+    DefaultExtractorInput releasedInput = createDefaultExtractorInput();
+    releasedInput.advancePeekPosition(TEST_DATA.length);
+    releasedInput.release();
+    FakeDataSource testDataSource = new FakeDataSource();
+    testDataSource.getDataSet().newDefaultData().appendReadData(new byte[TEST_DATA.length]);
+    testDataSource.open(new DataSpec(Uri.parse(TEST_URI)));
+    DefaultExtractorInput input = new DefaultExtractorInput(testDataSource, 0, C.LENGTH_UNSET);
+    byte[] target = new byte[TEST_DATA.length];
+
+    input.peekFully(target, /* offset= */ 0, TEST_DATA.length);
+
+    assertThat(target).isEqualTo(new byte[TEST_DATA.length]);
+  }
+
   private static DefaultExtractorInput createDefaultExtractorInput() throws Exception {
     FakeDataSource testDataSource = buildDataSource();
     return new DefaultExtractorInput(testDataSource, 0, C.LENGTH_UNSET);
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.extractor;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.io.File;
+import java.io.IOException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+/** Tests for {@link ExtractorCacheDirectory}. */
+@RunWith(AndroidJUnit4.class)
+public final class ExtractorCacheDirectoryTest {
+
+  private static final String FILE_SUFFIX = ".test";
+
+  @Rule public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private File directory;
+
+  @Before
+  public void setUp() throws Exception {
+    directory = new File(tempFolder.getRoot(), "cache");
+  }
+
+  @Test
+  public void put_createsDirectoryAndWritesEntry() throws Exception {
+    ExtractorCacheDirectory cacheDirectory =
+        new ExtractorCacheDirectory(directory, FILE_SUFFIX, /* maxSizeBytes= */ 100);
+
+    putEntry(cacheDirectory, "key", /* size= */ 10);
+
+    File entryFile = cacheDirectory.getEntryFile("key");
+    assertThat(entryFile.length()).isEqualTo(10);
+    assertThat(directory.listFiles()).asList().containsExactly(entryFile);
+  }
+
+  @Test
+  public void put_exceedingMaxSize_removesLeastRecentlyUsedEntries() throws Exception {
+    ExtractorCacheDirectory cacheDirectory =
+        new ExtractorCacheDirectory(directory, FILE_SUFFIX, /* maxSizeBytes= */ 25);
+    putEntry(cacheDirectory, "key1", /* size= */ 10);
+    putEntry(cacheDirectory, "key2", /* size= */ 10);
+    assertThat(cacheDirectory.getEntryFile("key1").setLastModified(2000)).isTrue();
+    assertThat(cacheDirectory.getEntryFile("key2").setLastModified(1000)).isTrue();
+    cacheDirectory.touch(cacheDirectory.getEntryFile("key1"));
+
+    putEntry(cacheDirectory, "key3", /* size= */ 10);
+
+    assertThat(cacheDirectory.getEntryFile("key1").exists()).isTrue();
+    assertThat(cacheDirectory.getEntryFile("key2").exists()).isFalse();
+    assertThat(cacheDirectory.getEntryFile("key3").exists()).isTrue();
+  }
+
+  @Test
+  public void put_withFailingWriter_doesNotLeaveFiles() throws Exception {
+    ExtractorCacheDirectory cacheDirectory =
+        new ExtractorCacheDirectory(directory, FILE_SUFFIX, /* maxSizeBytes= */ 100);
+
+    assertThrows(
+        IOException.class,
+        () ->
+            cacheDirectory.put(
+                "key",
+                output -> {
+                  throw new IOException();
+                }));
+
+    assertThat(directory.listFiles()).isEmpty();
+  }
+
+  @Test
+  public void clear_removesOnlyEntries() throws Exception {
+    ExtractorCacheDirectory cacheDirectory =
+        new ExtractorCacheDirectory(directory, FILE_SUFFIX, /* maxSizeBytes= */ 100);
+    putEntry(cacheDirectory, "key1", /* size= */ 10);
+    putEntry(cacheDirectory, "key2", /* size= */ 10);
+    File otherFile = new File(directory, "other");
+    assertThat(otherFile.createNewFile()).isTrue();
+
+    cacheDirectory.clear();
+
+    assertThat(directory.listFiles()).asList().containsExactly(otherFile);
+  }
+
+  private static void putEntry(ExtractorCacheDirectory cacheDirectory, String key, int size)
+      throws IOException {
+    cacheDirectory.put(key, output -> output.write(new byte[size]));
+  }
+}
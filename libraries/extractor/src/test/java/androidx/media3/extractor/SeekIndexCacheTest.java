@@ -0,0 +1,115 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.extractor;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.annotation.Nullable;
+import androidx.media3.common.util.LongArray;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.io.File;
+import java.io.RandomAccessFile;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+/** Tests for {@link SeekIndexCache}. */
+@RunWith(AndroidJUnit4.class)
+public final class SeekIndexCacheTest {
+
+  private static final String KEY = "key";
+  private static final long[] RESOURCE_VERSION = new long[] {10_000, 100};
+
+  @Rule public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private File directory;
+  private SeekIndexCache cache;
+
+  @Before
+  public void setUp() throws Exception {
+    directory = tempFolder.newFolder();
+    cache = new SeekIndexCache(directory, ".test", /* maxSizeBytes= */ 1000);
+  }
+
+  @Test
+  public void get_afterPut_returnsEntryAndMarksItAsRecentlyUsed() {
+    putEntry(KEY, RESOURCE_VERSION);
+    File entryFile = getOnlyEntryFile();
+    assertThat(entryFile.setLastModified(1000)).isTrue();
+
+    @Nullable SeekIndexCache.Entry entry = cache.get(KEY, RESOURCE_VERSION);
+
+    assertThat(entry).isNotNull();
+    assertThat(entry.timesUs).asList().containsExactly(0L, 1_000_000L).inOrder();
+    assertThat(entry.positions).asList().containsExactly(100L, 5_000L).inOrder();
+    assertThat(entryFile.lastModified()).isGreaterThan(1000);
+  }
+
+  @Test
+  public void get_withDifferentResourceVersion_returnsNull() {
+    putEntry(KEY, RESOURCE_VERSION);
+
+    assertThat(cache.get(KEY, new long[] {10_000, 101})).isNull();
+    assertThat(cache.get(KEY, new long[] {10_000})).isNull();
+    assertThat(cache.get(KEY, new long[] {10_000, 100, 0})).isNull();
+    assertThat(cache.get("otherKey", RESOURCE_VERSION)).isNull();
+    assertThat(getOnlyEntryFile().exists()).isTrue();
+  }
+
+  @Test
+  public void get_withTruncatedEntry_removesEntry() throws Exception {
+    putEntry(KEY, RESOURCE_VERSION);
+    File entryFile = getOnlyEntryFile();
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(entryFile, "rw")) {
+      randomAccessFile.setLength(randomAccessFile.length() - 10);
+    }
+
+    assertThat(cache.get(KEY, RESOURCE_VERSION)).isNull();
+    assertThat(entryFile.exists()).isFalse();
+  }
+
+  @Test
+  public void get_withOversizedCount_removesEntry() throws Exception {
+    putEntry(KEY, RESOURCE_VERSION);
+    File entryFile = getOnlyEntryFile();
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(entryFile, "rw")) {
+      // The count of indexed positions precedes the two positions at the end of the entry.
+      randomAccessFile.seek(randomAccessFile.length() - 2 * 16 - 4);
+      randomAccessFile.writeInt(Integer.MAX_VALUE);
+    }
+
+    assertThat(cache.get(KEY, RESOURCE_VERSION)).isNull();
+    assertThat(entryFile.exists()).isFalse();
+  }
+
+  private void putEntry(String key, long[] resourceVersion) {
+    LongArray timesUs = new LongArray();
+    LongArray positions = new LongArray();
+    timesUs.add(0);
+    positions.add(100);
+    timesUs.add(1_000_000);
+    positions.add(5_000);
+    cache.put(key, resourceVersion, timesUs, positions);
+  }
+
+  private File getOnlyEntryFile() {
+    File[] files = directory.listFiles();
+    assertThat(files).hasLength(1);
+    return files[0];
+  }
+}
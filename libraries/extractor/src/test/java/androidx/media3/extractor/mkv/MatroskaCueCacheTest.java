@@ -0,0 +1,156 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.extractor.mkv;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.annotation.Nullable;
+import androidx.media3.common.util.LongArray;
+import androidx.media3.extractor.Extractor;
+import androidx.media3.extractor.PositionHolder;
+import androidx.media3.extractor.SeekIndexCache;
+import androidx.media3.extractor.text.SubtitleParser;
+import androidx.media3.test.utils.Dumper;
+import androidx.media3.test.utils.FakeExtractorInput;
+import androidx.media3.test.utils.FakeExtractorOutput;
+import androidx.media3.test.utils.TestUtil;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+/** Tests for {@link MatroskaCueCache}. */
+@RunWith(AndroidJUnit4.class)
+public final class MatroskaCueCacheTest {
+
+  private static final String CACHE_KEY = "key";
+  private static final String FILE = "media/mkv/sample.mkv";
+
+  @Rule public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private MatroskaCueCache cache;
+  private byte[] data;
+
+  @Before
+  public void setUp() throws Exception {
+    cache = new MatroskaCueCache(tempFolder.newFolder());
+    data = TestUtil.getByteArray(ApplicationProvider.getApplicationContext(), FILE);
+  }
+
+  @Test
+  public void extract_withCachedCues_outputsSameSamplesWithoutSeekingForCues() throws Exception {
+    ExtractionResult expectedResult = extract(/* cache= */ null);
+
+    ExtractionResult resultWritingCache = extract(cache);
+    ExtractionResult resultReadingCache = extract(cache);
+
+    assertThat(expectedResult.seekCount).isEqualTo(2);
+    assertThat(resultWritingCache.dump).isEqualTo(expectedResult.dump);
+    assertThat(resultWritingCache.seekCount).isEqualTo(2);
+    assertThat(resultReadingCache.dump).isEqualTo(expectedResult.dump);
+    assertThat(resultReadingCache.seekCount).isEqualTo(0);
+  }
+
+  @Test
+  public void get_returnsCuePointsOnlyIfResourceMatches() {
+    LongArray cueTimesUs = new LongArray();
+    LongArray cueClusterPositions = new LongArray();
+    cueTimesUs.add(0);
+    cueClusterPositions.add(100);
+    cueTimesUs.add(1_000_000);
+    cueClusterPositions.add(5_000);
+    cache.put(
+        CACHE_KEY,
+        /* contentLength= */ 10_000,
+        /* segmentContentPosition= */ 50,
+        /* cuesContentPosition= */ 9_000,
+        /* durationUs= */ 2_000_000,
+        cueTimesUs,
+        cueClusterPositions);
+
+    @Nullable
+    SeekIndexCache.Entry entry =
+        cache.get(
+            CACHE_KEY,
+            /* contentLength= */ 10_000,
+            /* segmentContentPosition= */ 50,
+            /* cuesContentPosition= */ 9_000,
+            /* durationUs= */ 2_000_000);
+
+    assertThat(entry).isNotNull();
+    assertThat(entry.timesUs).asList().containsExactly(0L, 1_000_000L).inOrder();
+    assertThat(entry.positions).asList().containsExactly(100L, 5_000L).inOrder();
+    assertThat(
+            cache.get(
+                CACHE_KEY,
+                /* contentLength= */ 10_001,
+                /* segmentContentPosition= */ 50,
+                /* cuesContentPosition= */ 9_000,
+                /* durationUs= */ 2_000_000))
+        .isNull();
+    assertThat(
+            cache.get(
+                CACHE_KEY,
+                /* contentLength= */ 10_000,
+                /* segmentContentPosition= */ 50,
+                /* cuesContentPosition= */ 9_001,
+                /* durationUs= */ 2_000_000))
+        .isNull();
+    assertThat(
+            cache.get(
+                "otherKey",
+                /* contentLength= */ 10_000,
+                /* segmentContentPosition= */ 50,
+                /* cuesContentPosition= */ 9_000,
+                /* durationUs= */ 2_000_000))
+        .isNull();
+  }
+
+  private ExtractionResult extract(@Nullable MatroskaCueCache cache) throws Exception {
+    MatroskaExtractor extractor =
+        new MatroskaExtractor(SubtitleParser.Factory.UNSUPPORTED, /* flags= */ 0, cache, CACHE_KEY);
+    FakeExtractorOutput output = new FakeExtractorOutput();
+    extractor.init(output);
+    FakeExtractorInput input = new FakeExtractorInput.Builder().setData(data).build();
+    PositionHolder seekPositionHolder = new PositionHolder();
+    int seekCount = 0;
+    int readResult = Extractor.RESULT_CONTINUE;
+    while (readResult != Extractor.RESULT_END_OF_INPUT) {
+      readResult = extractor.read(input, seekPositionHolder);
+      if (readResult == Extractor.RESULT_SEEK) {
+        input.setPosition((int) seekPositionHolder.position);
+        seekCount++;
+      }
+    }
+    Dumper dumper = new Dumper();
+    output.dump(dumper);
+    return new ExtractionResult(dumper.toString(), seekCount);
+  }
+
+  private static final class ExtractionResult {
+
+    public final String dump;
+    public final int seekCount;
+
+    private ExtractionResult(String dump, int seekCount) {
+      this.dump = dump;
+      this.seekCount = seekCount;
+    }
+  }
+}
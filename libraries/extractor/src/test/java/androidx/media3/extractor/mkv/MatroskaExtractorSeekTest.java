@@ -0,0 +1,163 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.extractor.mkv;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.net.Uri;
+import androidx.media3.datasource.DataSource;
+import androidx.media3.datasource.DefaultDataSource;
+import androidx.media3.extractor.SeekMap;
+import androidx.media3.extractor.text.SubtitleParser;
+import androidx.media3.test.utils.FakeExtractorOutput;
+import androidx.media3.test.utils.FakeTrackOutput;
+import androidx.media3.test.utils.TestUtil;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.io.IOException;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Seeking tests for {@link MatroskaExtractor} using binary search. */
+@RunWith(AndroidJUnit4.class)
+public final class MatroskaExtractorSeekTest {
+
+  private static final String FILE = "media/mkv/sample.mkv";
+  private static final int DURATION_US = 1_072_000;
+  private static final int VIDEO_TRACK_ID = 1;
+  private static final long DELTA_TIMESTAMP_THRESHOLD_US = 500_000L;
+  private static final int FLAGS =
+      MatroskaExtractor.FLAG_DISABLE_SEEK_FOR_CUES
+          | MatroskaExtractor.FLAG_ENABLE_BINARY_SEARCH_SEEKING;
+
+  private FakeTrackOutput expectedTrackOutput;
+  private DataSource dataSource;
+  private Uri fileUri;
+
+  @Before
+  public void setUp() throws Exception {
+    dataSource =
+        new DefaultDataSource.Factory(ApplicationProvider.getApplicationContext())
+            .createDataSource();
+    fileUri = TestUtil.buildAssetUri(FILE);
+    expectedTrackOutput =
+        TestUtil.extractAllSamplesFromFile(
+                new MatroskaExtractor(SubtitleParser.Factory.UNSUPPORTED),
+                ApplicationProvider.getApplicationContext(),
+                FILE)
+            .trackOutputs
+            .get(VIDEO_TRACK_ID);
+  }
+
+  @Test
+  public void extractSeekMap_withoutBinarySearchSeeking_returnsUnseekableSeekMap()
+      throws IOException {
+    MatroskaExtractor extractor =
+        new MatroskaExtractor(
+            SubtitleParser.Factory.UNSUPPORTED, MatroskaExtractor.FLAG_DISABLE_SEEK_FOR_CUES);
+
+    SeekMap seekMap =
+        TestUtil.extractSeekMap(extractor, new FakeExtractorOutput(), dataSource, fileUri);
+
+    assertThat(seekMap.isSeekable()).isFalse();
+  }
+
+  @Test
+  public void extractSeekMap_withBinarySearchSeeking_returnsSeekableSeekMap() throws IOException {
+    MatroskaExtractor extractor = new MatroskaExtractor(SubtitleParser.Factory.UNSUPPORTED, FLAGS);
+
+    SeekMap seekMap =
+        TestUtil.extractSeekMap(extractor, new FakeExtractorOutput(), dataSource, fileUri);
+
+    assertThat(seekMap.isSeekable()).isTrue();
+    assertThat(seekMap.getDurationUs()).isEqualTo(DURATION_US);
+  }
+
+  @Test
+  public void seekToTimeUs_withBinarySearchSeeking_extractsFrameNearTarget() throws IOException {
+    MatroskaExtractor extractor = new MatroskaExtractor(SubtitleParser.Factory.UNSUPPORTED, FLAGS);
+    FakeExtractorOutput extractorOutput = new FakeExtractorOutput();
+    SeekMap seekMap = TestUtil.extractSeekMap(extractor, extractorOutput, dataSource, fileUri);
+    FakeTrackOutput trackOutput = extractorOutput.trackOutputs.get(VIDEO_TRACK_ID);
+
+    long targetSeekTimeUs = 700_000;
+    int extractedFrameIndex =
+        TestUtil.seekToTimeUs(
+            extractor, seekMap, targetSeekTimeUs, dataSource, trackOutput, fileUri);
+
+    assertThat(extractedFrameIndex).isNotEqualTo(-1);
+    assertFirstFrameAfterSeekIsNearTarget(trackOutput, extractedFrameIndex, targetSeekTimeUs);
+  }
+
+  @Test
+  public void seekToTimeUs_withBinarySearchSeekingAfterEndOfLastCluster_extractsFrame()
+      throws IOException {
+    MatroskaExtractor extractor = new MatroskaExtractor(SubtitleParser.Factory.UNSUPPORTED, FLAGS);
+    FakeExtractorOutput extractorOutput = new FakeExtractorOutput();
+    SeekMap seekMap = TestUtil.extractSeekMap(extractor, extractorOutput, dataSource, fileUri);
+    FakeTrackOutput trackOutput = extractorOutput.trackOutputs.get(VIDEO_TRACK_ID);
+
+    long targetSeekTimeUs = seekMap.getDurationUs();
+    int extractedFrameIndex =
+        TestUtil.seekToTimeUs(
+            extractor, seekMap, targetSeekTimeUs, dataSource, trackOutput, fileUri);
+
+    assertThat(extractedFrameIndex).isNotEqualTo(-1);
+    assertFirstFrameAfterSeekIsNearTarget(trackOutput, extractedFrameIndex, targetSeekTimeUs);
+  }
+
+  @Test
+  public void seekToTimeUs_withBinarySearchSeekingToRandomTargets_extractsFramesNearTargets()
+      throws IOException {
+    MatroskaExtractor extractor = new MatroskaExtractor(SubtitleParser.Factory.UNSUPPORTED, FLAGS);
+    FakeExtractorOutput extractorOutput = new FakeExtractorOutput();
+    SeekMap seekMap = TestUtil.extractSeekMap(extractor, extractorOutput, dataSource, fileUri);
+    FakeTrackOutput trackOutput = extractorOutput.trackOutputs.get(VIDEO_TRACK_ID);
+    Random random = new Random(/* seed= */ 1234);
+
+    for (int i = 0; i < 20; i++) {
+      long firstFrameTimeUs = expectedTrackOutput.getSampleTimeUs(/* index= */ 0);
+      long targetSeekTimeUs =
+          firstFrameTimeUs + random.nextInt((int) (DURATION_US - firstFrameTimeUs));
+      int extractedFrameIndex =
+          TestUtil.seekToTimeUs(
+              extractor, seekMap, targetSeekTimeUs, dataSource, trackOutput, fileUri);
+
+      assertThat(extractedFrameIndex).isNotEqualTo(-1);
+      assertFirstFrameAfterSeekIsNearTarget(trackOutput, extractedFrameIndex, targetSeekTimeUs);
+    }
+  }
+
+  private void assertFirstFrameAfterSeekIsNearTarget(
+      FakeTrackOutput trackOutput, int firstFrameIndexAfterSeek, long targetSeekTimeUs) {
+    long outputSampleTimeUs = trackOutput.getSampleTimeUs(firstFrameIndexAfterSeek);
+    int expectedSampleIndex = expectedTrackOutput.getSampleTimesUs().indexOf(outputSampleTimeUs);
+    // Assert that after seeking, the first sample frame written to output exists in the sample list
+    assertThat(expectedSampleIndex).isNotEqualTo(-1);
+    // Seeking lands on the last cluster that starts at or before the target, so the first frame
+    // of the track may be somewhat before or, if clusters are not in timestamp order, after it.
+    assertThat(Math.abs(outputSampleTimeUs - targetSeekTimeUs))
+        .isLessThan(DELTA_TIMESTAMP_THRESHOLD_US);
+    trackOutput.assertSample(
+        firstFrameIndexAfterSeek,
+        expectedTrackOutput.getSampleData(expectedSampleIndex),
+        outputSampleTimeUs,
+        expectedTrackOutput.getSampleFlags(expectedSampleIndex),
+        expectedTrackOutput.getSampleCryptoData(expectedSampleIndex));
+  }
+}
@@ -150,6 +150,25 @@ public final class VarintReaderTest {
     testReadVarint(reader, false, DATA_8_BYTE_MAX, 8, VALUE_8_BYTE_MAX_WITH_MASK);
   }
 
+  @Test
+  public void parseUnsignedVarintLength() {
+    assertThat(VarintReader.parseUnsignedVarintLength(0)).isEqualTo(C.LENGTH_UNSET);
+    assertThat(VarintReader.parseUnsignedVarintLength(0x01)).isEqualTo(8);
+    assertThat(VarintReader.parseUnsignedVarintLength(0x1F)).isEqualTo(4);
+    assertThat(VarintReader.parseUnsignedVarintLength(0x40)).isEqualTo(2);
+    assertThat(VarintReader.parseUnsignedVarintLength(0xFF)).isEqualTo(1);
+    // Signed bytes are treated as unsigned.
+    assertThat(VarintReader.parseUnsignedVarintLength((byte) 0x80)).isEqualTo(1);
+  }
+
+  @Test
+  public void assembleVarintWithOffset() {
+    byte[] data = new byte[] {0x1A, 0x45, (byte) 0xDF, (byte) 0xA3, (byte) 0x84};
+
+    assertThat(VarintReader.assembleVarint(data, /* offset= */ 0, 4, false)).isEqualTo(0x1A45DFA3);
+    assertThat(VarintReader.assembleVarint(data, /* offset= */ 4, 1, true)).isEqualTo(4);
+  }
+
   @Test
   public void readVarintFlaky() throws IOException {
     VarintReader reader = new VarintReader();
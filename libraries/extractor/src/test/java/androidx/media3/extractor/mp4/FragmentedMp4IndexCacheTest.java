@@ -0,0 +1,199 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.extractor.mp4;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.annotation.Nullable;
+import androidx.media3.common.C;
+import androidx.media3.common.util.LongArray;
+import androidx.media3.extractor.Extractor;
+import androidx.media3.extractor.PositionHolder;
+import androidx.media3.extractor.SeekIndexCache;
+import androidx.media3.extractor.SeekMap;
+import androidx.media3.extractor.SeekPoint;
+import androidx.media3.extractor.text.SubtitleParser;
+import androidx.media3.test.utils.Dumper;
+import androidx.media3.test.utils.FakeExtractorInput;
+import androidx.media3.test.utils.FakeExtractorOutput;
+import androidx.media3.test.utils.TestUtil;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+/** Tests for {@link FragmentedMp4IndexCache}. */
+@RunWith(AndroidJUnit4.class)
+public final class FragmentedMp4IndexCacheTest {
+
+  private static final String CACHE_KEY = "key";
+  // Contains an mfra box indexing its only fragment.
+  private static final String FILE_WITH_MFRA = "media/mp4/sample_fragmented.mp4";
+  // Contains five fragments and no mfra box.
+  private static final String FILE_WITHOUT_MFRA = "media/mp4/sample_opus_fragmented.mp4";
+
+  @Rule public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private FragmentedMp4IndexCache cache;
+
+  @Before
+  public void setUp() {
+    cache = new FragmentedMp4IndexCache(tempFolder.getRoot());
+  }
+
+  @Test
+  public void extract_withMfra_outputsSeekMapFromMfra() throws Exception {
+    ExtractionResult expectedResult = extract(FILE_WITH_MFRA, /* flags= */ 0, /* cache= */ null);
+
+    ExtractionResult result =
+        extract(FILE_WITH_MFRA, FragmentedMp4Extractor.FLAG_READ_MFRA, /* cache= */ null);
+
+    assertThat(expectedResult.seekMap.isSeekable()).isFalse();
+    assertThat(result.seekMap.isSeekable()).isTrue();
+    assertThat(result.seekMap.getSeekPoints(/* timeUs= */ 0).first)
+        .isEqualTo(new SeekPoint(/* timeUs= */ 0, /* position= */ 1244));
+    // Seeks to the mfro box, to the mfra box and back to the first fragment.
+    assertThat(result.seekCount).isEqualTo(3);
+    assertThat(result.samplesDump).isEqualTo(expectedResult.samplesDump);
+  }
+
+  @Test
+  public void extract_withMfraAndCache_readsFragmentIndexFromCache() throws Exception {
+    ExtractionResult resultWritingCache =
+        extract(FILE_WITH_MFRA, FragmentedMp4Extractor.FLAG_READ_MFRA, cache);
+    ExtractionResult resultReadingCache =
+        extract(FILE_WITH_MFRA, FragmentedMp4Extractor.FLAG_READ_MFRA, cache);
+
+    assertThat(resultWritingCache.seekCount).isEqualTo(3);
+    assertThat(resultReadingCache.seekCount).isEqualTo(0);
+    assertThat(resultReadingCache.seekMap.isSeekable()).isTrue();
+    assertThat(resultReadingCache.samplesDump).isEqualTo(resultWritingCache.samplesDump);
+  }
+
+  @Test
+  public void extract_withoutMfra_recordsFragmentIndexAndReadsItFromCache() throws Exception {
+    ExtractionResult expectedResult = extract(FILE_WITHOUT_MFRA, /* flags= */ 0, /* cache= */ null);
+
+    ExtractionResult resultWritingCache =
+        extract(FILE_WITHOUT_MFRA, FragmentedMp4Extractor.FLAG_READ_MFRA, cache);
+    ExtractionResult resultReadingCache =
+        extract(FILE_WITHOUT_MFRA, FragmentedMp4Extractor.FLAG_READ_MFRA, cache);
+
+    assertThat(expectedResult.seekMap.isSeekable()).isFalse();
+    // Seeks to the end of the file, where there's no mfro box, and back to the first fragment.
+    assertThat(resultWritingCache.seekCount).isEqualTo(2);
+    assertThat(resultWritingCache.seekMap.isSeekable()).isTrue();
+    assertThat(resultWritingCache.samplesDump).isEqualTo(expectedResult.samplesDump);
+    assertThat(resultReadingCache.seekCount).isEqualTo(0);
+    assertThat(resultReadingCache.samplesDump).isEqualTo(expectedResult.samplesDump);
+    SeekMap seekMap = resultReadingCache.seekMap;
+    long lastFragmentTimeUs = seekMap.getSeekPoints(/* timeUs= */ 1_000_000_000).first.timeUs;
+    assertThat(lastFragmentTimeUs).isGreaterThan(0);
+    assertThat(seekMap.getSeekPoints(lastFragmentTimeUs))
+        .isEqualTo(resultWritingCache.seekMap.getSeekPoints(lastFragmentTimeUs));
+  }
+
+  @Test
+  public void get_returnsFragmentsOnlyIfResourceMatches() {
+    LongArray fragmentTimesUs = new LongArray();
+    LongArray fragmentPositions = new LongArray();
+    fragmentTimesUs.add(0);
+    fragmentPositions.add(100);
+    fragmentTimesUs.add(1_000_000);
+    fragmentPositions.add(5_000);
+    cache.put(
+        CACHE_KEY,
+        /* contentLength= */ 10_000,
+        /* firstFragmentPosition= */ 100,
+        /* durationUs= */ C.TIME_UNSET,
+        fragmentTimesUs,
+        fragmentPositions);
+
+    @Nullable
+    SeekIndexCache.Entry entry =
+        cache.get(
+            CACHE_KEY,
+            /* contentLength= */ 10_000,
+            /* firstFragmentPosition= */ 100,
+            /* durationUs= */ C.TIME_UNSET);
+
+    assertThat(entry).isNotNull();
+    assertThat(entry.timesUs).asList().containsExactly(0L, 1_000_000L).inOrder();
+    assertThat(entry.positions).asList().containsExactly(100L, 5_000L).inOrder();
+    assertThat(
+            cache.get(
+                CACHE_KEY,
+                /* contentLength= */ 10_001,
+                /* firstFragmentPosition= */ 100,
+                /* durationUs= */ C.TIME_UNSET))
+        .isNull();
+    assertThat(
+            cache.get(
+                CACHE_KEY,
+                /* contentLength= */ 10_000,
+                /* firstFragmentPosition= */ 101,
+                /* durationUs= */ C.TIME_UNSET))
+        .isNull();
+    assertThat(
+            cache.get(
+                "otherKey",
+                /* contentLength= */ 10_000,
+                /* firstFragmentPosition= */ 100,
+                /* durationUs= */ C.TIME_UNSET))
+        .isNull();
+  }
+
+  private static ExtractionResult extract(
+      String file, int flags, @Nullable FragmentedMp4IndexCache cache) throws Exception {
+    byte[] data = TestUtil.getByteArray(ApplicationProvider.getApplicationContext(), file);
+    FragmentedMp4Extractor extractor =
+        new FragmentedMp4Extractor(SubtitleParser.Factory.UNSUPPORTED, flags, cache, CACHE_KEY);
+    FakeExtractorOutput output = new FakeExtractorOutput();
+    extractor.init(output);
+    FakeExtractorInput input = new FakeExtractorInput.Builder().setData(data).build();
+    PositionHolder seekPositionHolder = new PositionHolder();
+    int seekCount = 0;
+    int readResult = Extractor.RESULT_CONTINUE;
+    while (readResult != Extractor.RESULT_END_OF_INPUT) {
+      readResult = extractor.read(input, seekPositionHolder);
+      if (readResult == Extractor.RESULT_SEEK) {
+        input.setPosition((int) seekPositionHolder.position);
+        seekCount++;
+      }
+    }
+    Dumper dumper = new Dumper();
+    for (int i = 0; i < output.trackOutputs.size(); i++) {
+      output.trackOutputs.valueAt(i).dump(dumper);
+    }
+    return new ExtractionResult(output.seekMap, dumper.toString(), seekCount);
+  }
+
+  private static final class ExtractionResult {
+
+    public final SeekMap seekMap;
+    public final String samplesDump;
+    public final int seekCount;
+
+    private ExtractionResult(SeekMap seekMap, String samplesDump, int seekCount) {
+      this.seekMap = seekMap;
+      this.samplesDump = samplesDump;
+      this.seekCount = seekCount;
+    }
+  }
+}
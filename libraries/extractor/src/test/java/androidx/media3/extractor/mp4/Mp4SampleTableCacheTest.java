@@ -0,0 +1,187 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.extractor.mp4;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import androidx.annotation.Nullable;
+import androidx.media3.extractor.text.SubtitleParser;
+import androidx.media3.test.utils.Dumper;
+import androidx.media3.test.utils.FakeExtractorOutput;
+import androidx.media3.test.utils.TestUtil;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+/** Tests for {@link Mp4SampleTableCache}. */
+@RunWith(AndroidJUnit4.class)
+public final class Mp4SampleTableCacheTest {
+
+  private static final String CACHE_KEY = "key";
+
+  @Rule public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private File cacheDirectory;
+  private Mp4SampleTableCache cache;
+
+  @Before
+  public void setUp() throws Exception {
+    cacheDirectory = tempFolder.newFolder();
+    cache = new Mp4SampleTableCache(cacheDirectory);
+  }
+
+  @Test
+  public void extract_withCachedSampleTables_outputsSameSamples() throws Exception {
+    assertExtractionWithCacheMatchesExtractionWithoutCache("media/mp4/sample.mp4", /* flags= */ 0);
+  }
+
+  @Test
+  public void extract_withCachedSampleTablesAndEditList_outputsSameSamples() throws Exception {
+    assertExtractionWithCacheMatchesExtractionWithoutCache(
+        "media/mp4/sample_edit_list.mp4", /* flags= */ 0);
+  }
+
+  @Test
+  public void extract_withCachedSampleTablesIgnoringEditLists_outputsSameSamples()
+      throws Exception {
+    assertExtractionWithCacheMatchesExtractionWithoutCache(
+        "media/mp4/sample_edit_list.mp4", Mp4Extractor.FLAG_WORKAROUND_IGNORE_EDIT_LISTS);
+  }
+
+  @Test
+  public void extract_withMalformedCacheEntry_reparsesMoovAndRemovesEntry() throws Exception {
+    String file = "media/mp4/sample.mp4";
+    String expectedDump = extract(file, /* flags= */ 0, /* cache= */ null);
+    extract(file, /* flags= */ 0, cache);
+    File entryFile = getOnlyEntryFile();
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(entryFile, "rw")) {
+      randomAccessFile.setLength(randomAccessFile.length() - 10);
+    }
+
+    String dump = extract(file, /* flags= */ 0, cache);
+
+    assertThat(dump).isEqualTo(expectedDump);
+    assertThat(entryFile.exists()).isFalse();
+  }
+
+  @Test
+  public void extract_withOversizedKeyLengthInCacheEntry_reparsesMoovAndRewritesEntry()
+      throws Exception {
+    // The key length follows the magic number and the version.
+    assertExtractionWithCorruptLengthRewritesEntry(/* lengthPosition= */ 8);
+  }
+
+  @Test
+  public void extract_withOversizedTrackCountInCacheEntry_reparsesMoovAndRewritesEntry()
+      throws Exception {
+    // The track count follows the key, the content length, the moov position and size, the edit
+    // list flag, the encoder delay and the encoder padding.
+    int trackCountPosition = 12 + CACHE_KEY.length() + 3 * 8 + 1 + 2 * 4;
+    assertExtractionWithCorruptLengthRewritesEntry(trackCountPosition);
+  }
+
+  @Test
+  public void extract_withAuxiliaryTracksTwice_keepsPrimaryEntry() throws Exception {
+    String file = "media/mp4/sample_with_fake_auxiliary_tracks.mp4";
+    int flags = Mp4Extractor.FLAG_READ_AUXILIARY_TRACKS;
+    String expectedDump = extract(file, flags, /* cache= */ null);
+    String expectedPrimaryDump = extract(file, /* flags= */ 0, /* cache= */ null);
+    extract(file, /* flags= */ 0, cache);
+    byte[] primaryEntry = Files.readAllBytes(getOnlyEntryFile().toPath());
+
+    String firstDump = extract(file, flags, cache);
+    String secondDump = extract(file, flags, cache);
+
+    assertThat(firstDump).isEqualTo(expectedDump);
+    assertThat(secondDump).isEqualTo(expectedDump);
+    assertThat(Files.readAllBytes(getOnlyEntryFile().toPath())).isEqualTo(primaryEntry);
+    assertThat(extract(file, /* flags= */ 0, cache)).isEqualTo(expectedPrimaryDump);
+  }
+
+  @Test
+  public void clear_removesEntries() throws Exception {
+    extract("media/mp4/sample.mp4", /* flags= */ 0, cache);
+
+    cache.clear();
+
+    assertThat(cacheDirectory.listFiles()).isEmpty();
+  }
+
+  private void assertExtractionWithCacheMatchesExtractionWithoutCache(String file, int flags)
+      throws Exception {
+    String expectedDump = extract(file, flags, /* cache= */ null);
+
+    String dumpWritingCache = extract(file, flags, cache);
+    File entryFile = getOnlyEntryFile();
+    Object entryFileKey = getFileKey(entryFile);
+    assertThat(entryFile.setLastModified(1000)).isTrue();
+    String dumpReadingCache = extract(file, flags, cache);
+
+    assertThat(dumpWritingCache).isEqualTo(expectedDump);
+    assertThat(dumpReadingCache).isEqualTo(expectedDump);
+    // The entry is marked as recently used, but not rewritten.
+    assertThat(getFileKey(getOnlyEntryFile())).isEqualTo(entryFileKey);
+    assertThat(getOnlyEntryFile().lastModified()).isGreaterThan(1000);
+  }
+
+  private void assertExtractionWithCorruptLengthRewritesEntry(int lengthPosition) throws Exception {
+    String file = "media/mp4/sample.mp4";
+    String expectedDump = extract(file, /* flags= */ 0, /* cache= */ null);
+    extract(file, /* flags= */ 0, cache);
+    File entryFile = getOnlyEntryFile();
+    byte[] entry = Files.readAllBytes(entryFile.toPath());
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(entryFile, "rw")) {
+      randomAccessFile.seek(lengthPosition);
+      randomAccessFile.writeInt(Integer.MAX_VALUE - 8);
+    }
+
+    String dump = extract(file, /* flags= */ 0, cache);
+
+    assertThat(dump).isEqualTo(expectedDump);
+    assertThat(Files.readAllBytes(getOnlyEntryFile().toPath())).isEqualTo(entry);
+  }
+
+  private static Object getFileKey(File file) throws IOException {
+    return Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey();
+  }
+
+  private File getOnlyEntryFile() {
+    File[] files = cacheDirectory.listFiles();
+    assertThat(files).hasLength(1);
+    return files[0];
+  }
+
+  private static String extract(String file, int flags, @Nullable Mp4SampleTableCache cache)
+      throws Exception {
+    Context context = ApplicationProvider.getApplicationContext();
+    Mp4Extractor extractor =
+        new Mp4Extractor(SubtitleParser.Factory.UNSUPPORTED, flags, cache, CACHE_KEY);
+    FakeExtractorOutput output = TestUtil.extractAllSamplesFromFile(extractor, context, file);
+    Dumper dumper = new Dumper();
+    output.dump(dumper);
+    return dumper.toString();
+  }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.extractor.mp4;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.media3.common.C;
+import androidx.media3.common.Format;
+import androidx.media3.common.MimeTypes;
+import androidx.media3.common.util.Util;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Tests for {@link TrackSampleTable}. */
+@RunWith(AndroidJUnit4.class)
+public final class TrackSampleTableTest {
+
+  private static final Track TRACK =
+      new Track(
+          /* id= */ 1,
+          /* type= */ C.TRACK_TYPE_VIDEO,
+          /* timescale= */ 30_000,
+          /* movieTimescale= */ 1000,
+          /* durationUs= */ C.TIME_UNSET,
+          /* mediaDurationUs= */ C.TIME_UNSET,
+          new Format.Builder().setSampleMimeType(MimeTypes.VIDEO_H264).build(),
+          /* sampleTransformation= */ Track.TRANSFORMATION_NONE,
+          /* sampleDescriptionEncryptionBoxes= */ null,
+          /* nalUnitLengthFieldLength= */ 4,
+          /* editListDurations= */ null,
+          /* editListMediaTimes= */ null);
+
+  @Test
+  public void getters_returnValuesPassedToConstructor() {
+    Random random = new Random(/* seed= */ 0);
+    int sampleCount = 1000;
+    long[] offsets = new long[sampleCount];
+    int[] sizes = new int[sampleCount];
+    long[] timestampsUs = new long[sampleCount];
+    int[] flags = new int[sampleCount];
+    for (int i = 0; i < sampleCount; i++) {
+      offsets[i] = (i == 0 ? 0 : offsets[i - 1]) + random.nextInt(1_000_000);
+      sizes[i] = random.nextInt(200_000);
+      timestampsUs[i] = i * 33_333L + random.nextInt(100_000);
+      flags[i] = i % 30 == 0 ? C.BUFFER_FLAG_KEY_FRAME : 0;
+    }
+    // Force a large gap, which can't be stored as a 32-bit delta.
+    offsets[sampleCount - 1] += 1L << 40;
+
+    TrackSampleTable table =
+        new TrackSampleTable(
+            TRACK,
+            offsets.clone(),
+            sizes.clone(),
+            /* maximumSize= */ 200_000,
+            timestampsUs.clone(),
+            flags.clone(),
+            /* durationUs= */ sampleCount * 33_333L);
+
+    assertThat(table.sampleCount).isEqualTo(sampleCount);
+    for (int i = 0; i < sampleCount; i++) {
+      assertThat(table.getOffset(i)).isEqualTo(offsets[i]);
+      assertThat(table.getSize(i)).isEqualTo(sizes[i]);
+      assertThat(table.getTimestampUs(i)).isEqualTo(timestampsUs[i]);
+      int expectedFlags = flags[i] | (i == sampleCount - 1 ? C.BUFFER_FLAG_LAST_SAMPLE : 0);
+      assertThat(table.getFlags(i)).isEqualTo(expectedFlags);
+    }
+    assertThat(table.getTimestampsUs()).isEqualTo(timestampsUs);
+  }
+
+  @Test
+  public void getters_withFixedSizeKeyFrameSamples_returnValuesPassedToConstructor() {
+    TrackSampleTable table =
+        new TrackSampleTable(
+            TRACK,
+            /* offsets= */ new long[] {0, 100, 200},
+            /* sizes= */ new int[] {100, 100, 100},
+            /* maximumSize= */ 100,
+            /* timestampsUs= */ new long[] {0, 10, 20},
+            /* flags= */ new int[] {
+              C.BUFFER_FLAG_KEY_FRAME, C.BUFFER_FLAG_KEY_FRAME, C.BUFFER_FLAG_KEY_FRAME
+            },
+            /* durationUs= */ 30);
+
+    assertThat(table.getSize(2)).isEqualTo(100);
+    assertThat(table.getOffset(2)).isEqualTo(200);
+    assertThat(table.getFlags(0)).isEqualTo(C.BUFFER_FLAG_KEY_FRAME);
+    assertThat(table.getFlags(2)).isEqualTo(C.BUFFER_FLAG_KEY_FRAME | C.BUFFER_FLAG_LAST_SAMPLE);
+  }
+
+  @Test
+  public void synchronizationSampleLookups_matchLinearSearchOverArrays() {
+    Random random = new Random(/* seed= */ 0);
+    for (int iteration = 0; iteration < 20; iteration++) {
+      int sampleCount = 1 + random.nextInt(500);
+      long[] timestampsUs = new long[sampleCount];
+      int[] flags = new int[sampleCount];
+      long timeUs = 0;
+      for (int i = 0; i < sampleCount; i++) {
+        // Include repeated and out of order timestamps.
+        timeUs += random.nextInt(3) * 10;
+        timestampsUs[i] = timeUs + (random.nextInt(10) == 0 ? -20 : 0);
+        flags[i] = random.nextInt(8) == 0 ? C.BUFFER_FLAG_KEY_FRAME : 0;
+      }
+      TrackSampleTable table =
+          new TrackSampleTable(
+              TRACK,
+              /* offsets= */ new long[sampleCount],
+              /* sizes= */ new int[sampleCount],
+              /* maximumSize= */ 0,
+              timestampsUs.clone(),
+              flags.clone(),
+              /* durationUs= */ timeUs);
+
+      for (long seekTimeUs = -30; seekTimeUs <= timeUs + 30; seekTimeUs += 5) {
+        assertThat(table.getIndexOfEarlierOrEqualSynchronizationSample(seekTimeUs))
+            .isEqualTo(
+                getIndexOfEarlierOrEqualSynchronizationSample(timestampsUs, flags, seekTimeUs));
+        assertThat(table.getIndexOfLaterOrEqualSynchronizationSample(seekTimeUs))
+            .isEqualTo(
+                getIndexOfLaterOrEqualSynchronizationSample(timestampsUs, flags, seekTimeUs));
+      }
+    }
+  }
+
+  @Test
+  public void getPackedSizeBytes_forLongVideoTrack_isMuchSmallerThanArrays() {
+    // Three hours of 30 fps video with one key frame per second.
+    int sampleCount = 3 * 60 * 60 * 30;
+    Random random = new Random(/* seed= */ 0);
+    long[] offsets = new long[sampleCount];
+    int[] sizes = new int[sampleCount];
+    long[] timestampsUs = new long[sampleCount];
+    int[] flags = new int[sampleCount];
+    long offset = 0;
+    for (int i = 0; i < sampleCount; i++) {
+      boolean isKeyFrame = i % 30 == 0;
+      sizes[i] = isKeyFrame ? 150_000 + random.nextInt(50_000) : 10_000 + random.nextInt(40_000);
+      offsets[i] = offset;
+      // Leave room for interleaved audio samples.
+      offset += sizes[i] + 1_000;
+      timestampsUs[i] = Util.scaleLargeTimestamp(i * 1001L, C.MICROS_PER_SECOND, 30_000);
+      flags[i] = isKeyFrame ? C.BUFFER_FLAG_KEY_FRAME : 0;
+    }
+
+    TrackSampleTable table =
+        new TrackSampleTable(
+            TRACK,
+            offsets,
+            sizes,
+            /* maximumSize= */ 200_000,
+            timestampsUs,
+            flags,
+            /* durationUs= */ timestampsUs[sampleCount - 1]);
+
+    long arraysSizeBytes = (8L + 4L + 8L + 4L) * sampleCount;
+    assertThat(table.getPackedSizeBytes()).isLessThan(arraysSizeBytes * 3 / 5);
+  }
+
+  private static int getIndexOfEarlierOrEqualSynchronizationSample(
+      long[] timestampsUs, int[] flags, long timeUs) {
+    int startIndex = Util.binarySearchFloor(timestampsUs, timeUs, true, false);
+    for (int i = startIndex; i >= 0; i--) {
+      if ((flags[i] & C.BUFFER_FLAG_KEY_FRAME) != 0) {
+        return i;
+      }
+    }
+    return C.INDEX_UNSET;
+  }
+
+  private static int getIndexOfLaterOrEqualSynchronizationSample(
+      long[] timestampsUs, int[] flags, long timeUs) {
+    int startIndex = Util.binarySearchCeil(timestampsUs, timeUs, true, false);
+    for (int i = startIndex; i < timestampsUs.length; i++) {
+      if ((flags[i] & C.BUFFER_FLAG_KEY_FRAME) != 0) {
+        return i;
+      }
+    }
+    return C.INDEX_UNSET;
+  }
+}
@@ -19,6 +19,7 @@ import static androidx.media3.extractor.ts.DefaultTsPayloadReaderFactory.FLAG_DE
 import static androidx.media3.extractor.ts.DefaultTsPayloadReaderFactory.FLAG_ENABLE_HDMV_DTS_AUDIO_STREAMS;
 import static androidx.media3.extractor.ts.TsExtractor.DEFAULT_TIMESTAMP_SEARCH_BYTES;
 import static androidx.media3.extractor.ts.TsExtractor.FLAG_EMIT_RAW_SUBTITLE_DATA;
+import static androidx.media3.extractor.ts.TsExtractor.FLAG_ENABLE_PIPELINED_PAYLOAD_READING;
 import static androidx.media3.extractor.ts.TsExtractor.MODE_MULTI_PMT;
 import static androidx.media3.extractor.ts.TsExtractor.MODE_SINGLE_PMT;
 import static com.google.common.truth.Truth.assertThat;
@@ -111,6 +112,19 @@ public final class TsExtractorTest {
         simulationConfig);
   }
 
+  @Test
+  public void sampleWithH264AndMpegAudio_pipelinedPayloadReading() throws Exception {
+    ExtractorAsserts.assertBehavior(
+        getExtractorFactory(
+            subtitlesParsedDuringExtraction,
+            FLAG_ENABLE_PIPELINED_PAYLOAD_READING,
+            MODE_SINGLE_PMT,
+            new TimestampAdjuster(0),
+            new DefaultTsPayloadReaderFactory(0)),
+        "media/ts/sample_h264_mpeg_audio.ts",
+        simulationConfig);
+  }
+
   @Test
   public void sampleWithH264NoAccessUnitDelimiters() throws Exception {
     ExtractorAsserts.assertBehavior(
@@ -162,6 +176,22 @@ public final class TsExtractorTest {
         simulationConfig);
   }
 
+  @Test
+  public void sampleWithScte35_pipelinedPayloadReading() throws Exception {
+    ExtractorAsserts.assertBehavior(
+        getExtractorFactory(
+            subtitlesParsedDuringExtraction,
+            FLAG_ENABLE_PIPELINED_PAYLOAD_READING,
+            MODE_SINGLE_PMT,
+            new TimestampAdjuster(0),
+            new DefaultTsPayloadReaderFactory(0)),
+        "media/ts/sample_scte35.ts",
+        new ExtractorAsserts.AssertionConfig.Builder()
+            .setDeduplicateConsecutiveFormats(true)
+            .build(),
+        simulationConfig);
+  }
+
   @Test
   public void sampleWithAit() throws Exception {
     ExtractorAsserts.assertBehavior(
@@ -457,14 +487,28 @@ public final class TsExtractorTest {
       @TsExtractor.Mode int mode,
       TimestampAdjuster timestampAdjuster,
       TsPayloadReader.Factory payloadReaderFactory) {
+    return getExtractorFactory(
+        subtitlesParsedDuringExtraction,
+        /* additionalFlags= */ 0,
+        mode,
+        timestampAdjuster,
+        payloadReaderFactory);
+  }
+
+  private static ExtractorAsserts.ExtractorFactory getExtractorFactory(
+      boolean subtitlesParsedDuringExtraction,
+      @TsExtractor.Flags int additionalFlags,
+      @TsExtractor.Mode int mode,
+      TimestampAdjuster timestampAdjuster,
+      TsPayloadReader.Factory payloadReaderFactory) {
     SubtitleParser.Factory subtitleParserFactory;
     @TsExtractor.Flags int flags;
     if (subtitlesParsedDuringExtraction) {
       subtitleParserFactory = new DefaultSubtitleParserFactory();
-      flags = 0;
+      flags = additionalFlags;
     } else {
       subtitleParserFactory = SubtitleParser.Factory.UNSUPPORTED;
-      flags = FLAG_EMIT_RAW_SUBTITLE_DATA;
+      flags = FLAG_EMIT_RAW_SUBTITLE_DATA | additionalFlags;
     }
     return () ->
         new TsExtractor(
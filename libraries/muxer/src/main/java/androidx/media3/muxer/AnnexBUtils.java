@@ -139,6 +139,14 @@ import java.nio.ByteOrder;
    */
   private static int findNalEndIndex(ByteBuffer input, int currentIndex) {
     while (currentIndex <= input.limit() - 4) {
+      // Both terminating sequences start with a zero byte, so skip eight bytes at a time until a
+      // zero byte is found.
+      while (currentIndex <= input.limit() - 8 && !containsZeroByte(input.getLong(currentIndex))) {
+        currentIndex += 8;
+      }
+      if (currentIndex > input.limit() - 4) {
+        break;
+      }
       int fourBytes = input.getInt(currentIndex);
       // Check if the first 3 bytes are 0x000000 or 0x000001.
       if ((fourBytes & 0xFFFFFF00) == 0 || (fourBytes & 0xFFFFFF00) == 0x00000100) {
@@ -173,6 +181,11 @@ import java.nio.ByteOrder;
     return input.limit();
   }
 
+  /** Returns whether any of the eight bytes in {@code word} is zero. */
+  private static boolean containsZeroByte(long word) {
+    return ((word - 0x0101010101010101L) & ~word & 0x8080808080808080L) != 0;
+  }
+
   /**
    * Skips leading zeros and locates the start of the next NAL unit (0x000001).
    *
@@ -74,6 +74,28 @@ public class AnnexBUtilsTest {
     assertThat(components).containsExactly(ByteBuffer.wrap(getBytesFromHexString("ABCDEF")));
   }
 
+  @Test
+  public void findNalUnits_longNalUnitsWithZeroBytes_allReturned() {
+    ByteBuffer buffer =
+        ByteBuffer.wrap(
+            getBytesFromHexString(
+                "00000001"
+                    + "0102030405060708090A0B0C0D0E0F1011"
+                    + "000001"
+                    + "AABBCCDDEEFF00FF00AABBCCDDEEFF112233445566"
+                    + "000001"
+                    + "998877665544332211"));
+
+    ImmutableList<ByteBuffer> components = AnnexBUtils.findNalUnits(buffer);
+
+    assertThat(components)
+        .containsExactly(
+            ByteBuffer.wrap(getBytesFromHexString("0102030405060708090A0B0C0D0E0F1011")),
+            ByteBuffer.wrap(getBytesFromHexString("AABBCCDDEEFF00FF00AABBCCDDEEFF112233445566")),
+            ByteBuffer.wrap(getBytesFromHexString("998877665544332211")))
+        .inOrder();
+  }
+
   @Test
   public void findNalUnits_multipleNalUnitsWithFourByteStartCode_allReturned() {
     ByteBuffer buffer =